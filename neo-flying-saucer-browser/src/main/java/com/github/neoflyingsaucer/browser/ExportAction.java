@@ -9,16 +9,18 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.imageio.ImageIO;
 import javax.swing.AbstractAction;
 
 import com.github.neoflyingsaucer.extend.output.DisplayList;
 import com.github.neoflyingsaucer.extend.useragent.UserAgentCallback;
+import com.github.neoflyingsaucer.j2dout.Java2DBandedOut;
 import com.github.neoflyingsaucer.j2dout.Java2DFontContext;
 import com.github.neoflyingsaucer.j2dout.Java2DFontResolver;
 import com.github.neoflyingsaucer.j2dout.Java2DImageResolver;
-import com.github.neoflyingsaucer.j2dout.Java2DOut;
 import com.github.neoflyingsaucer.j2dout.Java2DReplacedElementResolver;
 import com.github.neoflyingsaucer.pdf2dout.Pdf2FontContext;
 import com.github.neoflyingsaucer.pdf2dout.Pdf2FontResolver;
@@ -184,22 +186,23 @@ public class ExportAction extends AbstractAction
     	r3.setReplacedElementResolver(new Java2DReplacedElementResolver());
     	r3.prepare();
     	
-    	for (int pageNo = 0; pageNo < r3.getPageCount(); pageNo++)
-    	{
-    	   	DisplayList dl = r3.renderToList(pageNo);
-    	   	int height = r3.getPageHeight(pageNo);
-    	   	int width = r3.getPageWidth(pageNo);
-    	   	BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-    	
-    	   	Graphics2D g2d = img.createGraphics();
-    	   	g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-    	   	g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-  	
-    	   	Java2DOut out = new Java2DOut(g2d, RenderingHints.VALUE_ANTIALIAS_ON);
-    	   	out.render(dl);
-    	   	g2d.dispose();
+    	ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
     	
-    	   	ImageIO.write(img, "png", new File(filename + ".page-" + (pageNo + 1) + ".png"));
+    	try
+    	{
+    		for (int pageNo = 0; pageNo < r3.getPageCount(); pageNo++)
+    		{
+    			DisplayList dl = r3.renderToList(pageNo);
+    			int height = r3.getPageHeight(pageNo);
+    			int width = r3.getPageWidth(pageNo);
+    			Java2DBandedOut out = createBandedOut(width, height, executor);
+
+    			ImageIO.write(out.toImage(dl), "png", new File(filename + ".page-" + (pageNo + 1) + ".png"));
+    		}
+    	}
+    	finally
+    	{
+    		executor.shutdown();
     	}
 
 	   	g2d2.dispose();
@@ -226,17 +229,30 @@ public class ExportAction extends AbstractAction
     	DisplayList dl = r3.renderToList();
     	int height = r3.getLayoutHeight();
     	r3.setViewportSize(1000, height);
-    	BufferedImage img = new BufferedImage(1000, height, BufferedImage.TYPE_INT_ARGB);
     	
-    	Graphics2D g2d = img.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-  	
-    	Java2DOut out = new Java2DOut(g2d, RenderingHints.VALUE_ANTIALIAS_ON);
-    	out.render(dl);
-    	g2d.dispose();
-    	g2d2.dispose();
+    	// The whole document is one image, so it is written a band at a time
+    	// rather than held in memory at once.
+    	ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
     	
-    	ImageIO.write(img, "png", new File(filename)); 
+    	try
+    	{
+    		Java2DBandedOut out = createBandedOut(1000, height, executor);
+    		ImageIO.write(out.toImage(dl), "png", new File(filename));
+    	}
+    	finally
+    	{
+    		executor.shutdown();
+    	}
+
+    	g2d2.dispose();
+    }
+    
+    private static Java2DBandedOut createBandedOut(int width, int height, ExecutorService executor)
+    {
+    	Java2DBandedOut out = new Java2DBandedOut(width, height, RenderingHints.VALUE_ANTIALIAS_ON);
+    	out.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    	out.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+    	out.setExecutor(executor, Runtime.getRuntime().availableProcessors() * 2);
+    	return out;
     }
 }
@@ -3,6 +3,7 @@ package com.github.neoflyingsaucer.browser;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 
@@ -10,6 +11,8 @@ import javax.swing.JPanel;
 
 import com.github.neoflyingsaucer.extend.output.DisplayList;
 import com.github.neoflyingsaucer.extend.useragent.UserAgentCallback;
+import com.github.neoflyingsaucer.j2dout.Java2DBandIndex;
+import com.github.neoflyingsaucer.j2dout.Java2DBandedOut;
 import com.github.neoflyingsaucer.j2dout.Java2DFontContext;
 import com.github.neoflyingsaucer.j2dout.Java2DFontResolver;
 import com.github.neoflyingsaucer.j2dout.Java2DImageResolver;
@@ -23,6 +26,7 @@ public class HtmlContinuousPanel extends JPanel
 	private ContinuousRenderer _renderer;
 	private Graphics2D _layoutGraphics;
 	private DisplayList _dl;
+	private Java2DBandIndex _index;
 	
 	private void newLayoutGraphics()
 	{
@@ -53,6 +57,9 @@ public class HtmlContinuousPanel extends JPanel
     	
     	_dl = _renderer.renderToList();
     	
+    	// So that a repaint replays only the items in its clip.
+    	_index = new Java2DBandIndex(_dl, _renderer.getLayoutHeight(), Java2DBandedOut.DEFAULT_BAND_HEIGHT, 1);
+    	
     	setPreferredSize(new Dimension(width, _renderer.getLayoutHeight()));
 	}
 	
@@ -74,7 +81,14 @@ public class HtmlContinuousPanel extends JPanel
 	   	g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 	   	g2.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
   	
-    	Java2DOut out = new Java2DOut(g2, RenderingHints.VALUE_ANTIALIAS_ON);
-    	out.render(_dl);
+	   	Rectangle clip = g2.getClipBounds();
+	   	DisplayList dl = clip == null ? _dl : _index.getDisplayList(clip.y, clip.y + clip.height);
+  	
+    	createOutput(g2).render(dl);
+	}
+	
+	protected Java2DOut createOutput(Graphics2D g2)
+	{
+		return new Java2DOut(g2, RenderingHints.VALUE_ANTIALIAS_ON);
 	}
 }
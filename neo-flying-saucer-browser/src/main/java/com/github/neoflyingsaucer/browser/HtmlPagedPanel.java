@@ -8,10 +8,12 @@ import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.swing.JPanel;
 
-import com.github.neoflyingsaucer.extend.output.DisplayList;
 import com.github.neoflyingsaucer.extend.useragent.UserAgentCallback;
 import com.github.neoflyingsaucer.j2dout.Java2DFontContext;
 import com.github.neoflyingsaucer.j2dout.Java2DFontResolver;
@@ -25,9 +27,25 @@ public class HtmlPagedPanel extends JPanel
 	private static final long serialVersionUID = 1L;
 	private static final int PAGE_Y_PADDING_PIXELS = 10;
 	private static final int PAGE_OFFSET_PIXELS = 4;
+	private static final int MAX_CACHED_PAGES = 8;
 	
 	private PagedRenderer _renderer;
 	private Graphics2D _layoutGraphics;
+	private int[] _pageTops;
+	
+	/**
+	 * The most recently painted pages, rendered once each.
+	 */
+	private final Map<Integer, BufferedImage> _pageImages = new LinkedHashMap<Integer, BufferedImage>(MAX_CACHED_PAGES, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest)
+		{
+			return size() > MAX_CACHED_PAGES;
+		}
+	};
 	
 	private void newLayoutGraphics()
 	{
@@ -54,12 +72,15 @@ public class HtmlPagedPanel extends JPanel
     	_renderer.setFontResolver(new Java2DFontResolver());
     	_renderer.setReplacedElementResolver(new Java2DReplacedElementResolver());
     	_renderer.prepare();
+    	_pageImages.clear();
+    	_pageTops = new int[_renderer.getPageCount()];
     	
     	int height = PAGE_OFFSET_PIXELS;
     	int width = PAGE_OFFSET_PIXELS;
     	
 	   	for (int pageNo = 0; pageNo < _renderer.getPageCount(); pageNo++)
     	{
+	   		_pageTops[pageNo] = height;
 	   		height += _renderer.getPageHeight(pageNo);
 	   		height += PAGE_Y_PADDING_PIXELS;
 	   		
@@ -73,6 +94,7 @@ public class HtmlPagedPanel extends JPanel
 	{
 		_layoutGraphics.dispose();
 		_layoutGraphics = null;
+		_pageImages.clear();
 	}
 	
 	@Override
@@ -87,33 +109,68 @@ public class HtmlPagedPanel extends JPanel
 	   	g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 	   	g2.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
 
-	   	int pageYPosition = PAGE_OFFSET_PIXELS;
+	   	Rectangle clip = g2.getClipBounds();
+	   	int first = 0;
+
+	   	if (clip != null)
+	   	{
+	   		// The last page starting above the clip.
+	   		first = Arrays.binarySearch(_pageTops, clip.y);
+	   		first = Math.max(first < 0 ? -first - 2 : first, 0);
+	   	}
 	   	
-	   	for (int pageNo = 0; pageNo < _renderer.getPageCount(); pageNo++)
+	   	for (int pageNo = first; pageNo < _renderer.getPageCount(); pageNo++)
     	{
+    	   	int pageYPosition = _pageTops[pageNo];
     	   	int height = _renderer.getPageHeight(pageNo);
     	   	int width = _renderer.getPageWidth(pageNo);
 	   		
+	   		if (clip != null && pageYPosition >= clip.y + clip.height)
+	   			break;
+	   		
 	   		Rectangle pageRect = new Rectangle(PAGE_OFFSET_PIXELS, pageYPosition, width, height);
 
-	   		if (g2.getClip() == null || g2.getClip().intersects(pageRect))
+	   		if (clip == null || clip.intersects(pageRect))
 	   		{
-	   			g2.translate(PAGE_OFFSET_PIXELS, pageYPosition);
+	   			g2.drawImage(getPageImage(pageNo, width, height), PAGE_OFFSET_PIXELS, pageYPosition, null);
 	   			
-	   			DisplayList dl = _renderer.renderToList(pageNo);
-  	
-	   			Java2DOut out = new Java2DOut(g2, RenderingHints.VALUE_ANTIALIAS_ON);
-	   			out.render(dl);
-    	   	
+	   			g2.translate(PAGE_OFFSET_PIXELS, pageYPosition);
 	   			g2.setStroke(new BasicStroke());
 	   			g2.setColor(Color.BLACK);
 	   			g2.drawRect(0, 0, width + 1, height + 1);
-    	   	
 	   			g2.translate(-PAGE_OFFSET_PIXELS, -pageYPosition);
 	   		}
-    	   	
-	   		pageYPosition += height;
-    	   	pageYPosition += PAGE_Y_PADDING_PIXELS;
     	}
 	}
+	
+	private BufferedImage getPageImage(int pageNo, int width, int height)
+	{
+		BufferedImage img = _pageImages.get(pageNo);
+		
+		if (img == null)
+		{
+			img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g2 = img.createGraphics();
+			
+			try
+			{
+			   	g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			   	g2.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+				createOutput(g2).render(_renderer.renderToList(pageNo));
+			}
+			finally
+			{
+				g2.dispose();
+			}
+			
+			_pageImages.put(pageNo, img);
+		}
+		
+		return img;
+	}
+	
+	protected Java2DOut createOutput(Graphics2D g2)
+	{
+		return new Java2DOut(g2, RenderingHints.VALUE_ANTIALIAS_ON);
+	}
 }
@@ -0,0 +1,176 @@
+package com.github.neoflyingsaucer.browser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.defaultuseragent.DefaultUserAgent;
+import com.github.neoflyingsaucer.extend.output.DisplayList;
+import com.github.neoflyingsaucer.j2dout.Java2DOut;
+
+public class PanelPaintTest
+{
+	private static final int WIDTH = 600;
+	private static final int CLIP_Y = 3000;
+	private static final int CLIP_HEIGHT = 300;
+
+	private static File html;
+
+	@BeforeClass
+	public static void createHtml() throws IOException
+	{
+		StringBuilder sb = new StringBuilder("<html><head><style>");
+		sb.append("@page { size: 400px 300px; margin: 10px; } body { margin: 0; }");
+		sb.append("div { border: 1px solid #00f; padding: 2px; color: #333; }");
+		sb.append("</style></head><body>");
+
+		for (int i = 0; i < 400; i++)
+			sb.append("<div>Paragraph ").append(i).append(" with <b>some</b> <i>text</i> in it.</div>");
+
+		sb.append("</body></html>");
+
+		html = File.createTempFile("panel-paint", ".html");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(html), "UTF-8");
+
+		try
+		{
+			writer.write(sb.toString());
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	@AfterClass
+	public static void deleteHtml()
+	{
+		html.delete();
+	}
+
+	/**
+	 * Counts the items and display lists handed to the output.
+	 */
+	private static class Counter
+	{
+		private int lists;
+		private int items;
+
+		private Java2DOut createOutput(Graphics2D g2)
+		{
+			return new Java2DOut(g2, RenderingHints.VALUE_ANTIALIAS_ON)
+			{
+				@Override
+				public void render(DisplayList dl)
+				{
+					lists++;
+					items += dl.getDisplayList().size();
+					super.render(dl);
+				}
+			};
+		}
+	}
+
+	private static BufferedImage paint(HtmlContinuousPanel panel, boolean clipped)
+	{
+		BufferedImage img = new BufferedImage(WIDTH, CLIP_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = img.createGraphics();
+		g2.translate(0, -CLIP_Y);
+
+		if (clipped)
+			g2.clipRect(0, CLIP_Y, WIDTH, CLIP_HEIGHT);
+
+		panel.paint(g2);
+		g2.dispose();
+		return img;
+	}
+
+	@Test
+	public void testContinuousPaintsClipOnly()
+	{
+		final Counter counter = new Counter();
+		HtmlContinuousPanel panel = new HtmlContinuousPanel()
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected Java2DOut createOutput(Graphics2D g2)
+			{
+				return counter.createOutput(g2);
+			}
+		};
+
+		panel.prepare(new DefaultUserAgent(), html.toURI().toString(), WIDTH, 400);
+		assertTrue(panel.getPreferredSize().height > CLIP_Y * 3);
+
+		BufferedImage full = paint(panel, false);
+		int total = counter.items;
+
+		counter.items = 0;
+		BufferedImage clipped = paint(panel, true);
+
+		// A few bands of the document rather than all of it.
+		assertTrue(counter.items + " of " + total + " items", counter.items > 0 && counter.items * 10 < total);
+
+		for (int y = 0; y < CLIP_HEIGHT; y++)
+		{
+			for (int x = 0; x < WIDTH; x++)
+				assertEquals("pixel at " + x + "," + y, full.getRGB(x, y), clipped.getRGB(x, y));
+		}
+
+		panel.destroy();
+	}
+
+	@Test
+	public void testPagedRendersVisiblePagesOnce()
+	{
+		final Counter counter = new Counter();
+		HtmlPagedPanel panel = new HtmlPagedPanel()
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected Java2DOut createOutput(Graphics2D g2)
+			{
+				return counter.createOutput(g2);
+			}
+		};
+
+		panel.prepare(new DefaultUserAgent(), html.toURI().toString());
+		assertTrue(panel.getPreferredSize().height > CLIP_Y * 3);
+
+		// Pages are 300 pixels high with 10 between them, from 4 pixels
+		// down. Within the tenth page, then across the tenth and eleventh.
+		BufferedImage img = new BufferedImage(WIDTH, CLIP_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+
+		for (int i = 0; i < 3; i++)
+		{
+			Graphics2D g2 = img.createGraphics();
+			g2.clipRect(0, 2850, WIDTH, 100);
+			panel.paint(g2);
+			g2.dispose();
+		}
+
+		assertEquals(1, counter.lists);
+
+		Graphics2D g2 = img.createGraphics();
+		g2.clipRect(0, 2850, WIDTH, CLIP_HEIGHT);
+		panel.paint(g2);
+		g2.dispose();
+
+		assertEquals(2, counter.lists);
+		panel.destroy();
+	}
+}
@@ -21,14 +21,19 @@ package com.github.neoflyingsaucer.context;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.github.neoflyingsaucer.css.constants.CSSPrimitiveUnit;
 import com.github.neoflyingsaucer.css.constants.IdentValue;
 import com.github.neoflyingsaucer.css.extend.ContentFunction;
 import com.github.neoflyingsaucer.css.parser.FSFunction;
 import com.github.neoflyingsaucer.css.parser.PropertyValue;
+import com.github.neoflyingsaucer.extend.output.FSFont;
+import com.github.neoflyingsaucer.extend.output.FontContext;
 import com.github.neoflyingsaucer.extend.useragent.Optional;
 import com.github.neoflyingsaucer.layout.CounterFunction;
 import com.github.neoflyingsaucer.layout.InlineBoxing;
@@ -212,6 +217,26 @@ public class ContentFunctionFactory
      * http://www.w3.org/TR/2007/WD-css3-gcpm-20070504/#leaders
      */
     private static class LeaderFunction implements ContentFunction {
+        /**
+         * Leader metrics by font and value. A TOC typically uses one or two
+         * leaders on every line, so these are kept for the whole document
+         * rather than measured again for each line.
+         */
+        private final Map<LeaderKey, LeaderMetrics> _metrics =
+                new ConcurrentHashMap<LeaderKey, LeaderMetrics>();
+
+        private LeaderMetrics getMetrics(final RenderingContext c, final FSFont font, final String value) {
+            final LeaderKey key = new LeaderKey(c.getFontContext(), font, value);
+            LeaderMetrics metrics = _metrics.get(key);
+
+            if (metrics == null) {
+                metrics = new LeaderMetrics(c, font, value);
+                _metrics.put(key, metrics);
+            }
+
+            return metrics;
+        }
+
     	@Override
     	public boolean isStatic() {
             return false;
@@ -253,36 +278,17 @@ public class ContentFunctionFactory
                 }
             }
 
-            // Compute value width using 100x string to get more precise width.
-            // Otherwise there might be a small gap at the right side. This is
-            // necessary because a TextRenderer usually use double/float for width.
-            final StringBuffer tmp = new StringBuffer(100 * value.length());
-            for (int i = 0; i < 100; i++) {
-                tmp.append(value);
-            }
-            final float valueWidth = c.getTextRenderer().getWidth(c.getFontContext(),
-                    iB.getStyle().getFSFont(c), tmp.toString()) / 100f;
-            final int spaceWidth = c.getTextRenderer().getWidth(c.getFontContext(),
-                    iB.getStyle().getFSFont(c), " ");
+            final LeaderMetrics metrics = getMetrics(c, iB.getStyle().getFSFont(c), value);
 
             // compute leader width and necessary count of values
             final int leaderWidth = iB.getContainingBlockWidth() - iB.getLineBox().getWidth() + text.getWidth();
-            final int count = (int) ((leaderWidth - (2 * spaceWidth)) / valueWidth);
-
-            // build leader string
-            final StringBuffer buf = new StringBuffer(count * value.length() + 2);
-            buf.append(' ');
-            for (int i = 0; i < count; i++) {
-                buf.append(value);
-            }
-            buf.append(' ');
-            final String leaderString = buf.toString();
+            final int count = (int) ((leaderWidth - (2 * metrics.spaceWidth)) / metrics.valueWidth);
+            final Leader leader = metrics.getLeader(c, count);
 
             // set left margin to ensure that the leader is right aligned (for TOC)
-            final int leaderStringWidth = c.getTextRenderer().getWidth(c.getFontContext(),
-                    iB.getStyle().getFSFont(c), leaderString);
-            iB.setMarginLeft(c, leaderWidth - leaderStringWidth);
+            iB.setMarginLeft(c, leaderWidth - leader.width);
 
+            final String leaderString = leader.text;
             return leaderString;
         }
 
@@ -317,4 +323,97 @@ public class ContentFunctionFactory
             return false;
         }
     }
+
+    private static class LeaderKey {
+        private final FontContext _fontContext;
+        private final FSFont _font;
+        private final String _value;
+
+        private LeaderKey(final FontContext fontContext, final FSFont font, final String value) {
+            _fontContext = fontContext;
+            _font = font;
+            _value = value;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof LeaderKey)) {
+                return false;
+            }
+
+            final LeaderKey other = (LeaderKey) obj;
+            return _fontContext == other._fontContext &&
+                   _font.equals(other._font) &&
+                   _value.equals(other._value);
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(_fontContext) * 31 + _font.hashCode()) * 31 + _value.hashCode();
+        }
+    }
+
+    private static class Leader {
+        private final String text;
+        private final int width;
+
+        private Leader(final String text, final int width) {
+            this.text = text;
+            this.width = width;
+        }
+    }
+
+    /**
+     * The widths needed to fill a line with one leader value in one font,
+     * and the leader strings built so far, by repeat count. The strings
+     * share one repeated prefix, grown as longer leaders are needed.
+     */
+    private static class LeaderMetrics {
+        private final FSFont font;
+        private final String value;
+        private final float valueWidth;
+        private final int spaceWidth;
+        private final Map<Integer, Leader> leaders = new HashMap<Integer, Leader>();
+        private String repeated = "";
+
+        private LeaderMetrics(final RenderingContext c, final FSFont font, final String value) {
+            this.font = font;
+            this.value = value;
+
+            // Compute value width using 100x string to get more precise width.
+            // Otherwise there might be a small gap at the right side. This is
+            // necessary because a TextRenderer usually use double/float for width.
+            valueWidth = c.getTextRenderer().getWidth(c.getFontContext(), font, repeat(100)) / 100f;
+            spaceWidth = c.getTextRenderer().getWidth(c.getFontContext(), font, " ");
+        }
+
+        private String repeat(final int count) {
+            final int length = count * value.length();
+
+            if (repeated.length() < length) {
+                final int target = Math.max(length, 2 * repeated.length());
+                final StringBuilder buf = new StringBuilder(target + value.length());
+                buf.append(repeated);
+                while (buf.length() < target) {
+                    buf.append(value);
+                }
+                repeated = buf.toString();
+            }
+
+            return repeated.substring(0, length);
+        }
+
+        private synchronized Leader getLeader(final RenderingContext c, final int count) {
+            final Integer key = Integer.valueOf(count);
+            Leader leader = leaders.get(key);
+
+            if (leader == null) {
+                final String text = ' ' + repeat(Math.max(count, 0)) + ' ';
+                leader = new Leader(text, c.getTextRenderer().getWidth(c.getFontContext(), font, text));
+                leaders.put(key, leader);
+            }
+
+            return leader;
+        }
+    }
 }
@@ -0,0 +1,147 @@
+package com.github.neoflyingsaucer.context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import com.github.neoflyingsaucer.css.sheet.Stylesheet;
+import com.github.neoflyingsaucer.css.sheet.StylesheetInfo;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelledException;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorHandler;
+import com.github.neoflyingsaucer.extend.controller.error.FSSerialErrorHandler;
+import com.github.neoflyingsaucer.extend.useragent.Optional;
+import com.github.neoflyingsaucer.extend.useragent.StylesheetI;
+import com.github.neoflyingsaucer.layout.SharedContext;
+
+/**
+ * Loads and parses the stylesheets of a document, and the stylesheets
+ * they import, on an executor. Each stylesheet is one task, which once
+ * its stylesheet is parsed starts a task for each of its imports, so a
+ * task never waits on another. The calling thread then takes the results
+ * in document order, each stylesheet after the stylesheets it imports,
+ * just as {@link StyleReference} reads them one after another.
+ */
+final class ParallelStylesheetLoader {
+    private final SharedContext context;
+    private final StylesheetFactoryImpl factory;
+    private final Executor executor;
+    private final FSCancelToken cancelToken;
+    private final FSErrorHandler errorHandler;
+
+    ParallelStylesheetLoader(SharedContext context, StylesheetFactoryImpl factory, Executor executor) {
+        this.context = context;
+        this.factory = factory;
+        this.executor = executor;
+        this.cancelToken = FSCancelController.getThreadCancelToken();
+        this.errorHandler = new FSSerialErrorHandler(FSErrorController.getThreadErrorHandler());
+    }
+
+    List<Stylesheet> load(List<StylesheetInfo> infos) {
+        List<Stylesheet> result = new ArrayList<Stylesheet>(infos.size() + 15);
+        addAll(start(infos), result);
+        return result;
+    }
+
+    private List<Future<Loaded>> start(List<StylesheetInfo> infos) {
+        List<Future<Loaded>> futures = new ArrayList<Future<Loaded>>(infos.size());
+
+        for (StylesheetInfo info : infos) {
+            if (!info.appliesToMedia(context))
+                continue;
+
+            FutureTask<Loaded> task = new FutureTask<Loaded>(new LoadTask(info));
+            futures.add(task);
+            executor.execute(task);
+        }
+
+        return futures;
+    }
+
+    private static void addAll(List<Future<Loaded>> futures, List<Stylesheet> result) {
+        try {
+            for (Future<Loaded> future : futures) {
+                Loaded loaded = future.get();
+
+                if (loaded != null) {
+                    addAll(loaded.imports, result);
+                    result.add(loaded.sheet);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FSCancelledException("Stylesheet loading interrupted", ParallelStylesheetLoader.class);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            else if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw new RuntimeException(cause);
+        } finally {
+            for (Future<Loaded> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * A parsed stylesheet and the tasks loading the stylesheets it imports.
+     */
+    private static class Loaded {
+        private final Stylesheet sheet;
+        private final List<Future<Loaded>> imports;
+
+        private Loaded(Stylesheet sheet, List<Future<Loaded>> imports) {
+            this.sheet = sheet;
+            this.imports = imports;
+        }
+    }
+
+    private class LoadTask implements Callable<Loaded> {
+        private final StylesheetInfo info;
+
+        private LoadTask(StylesheetInfo info) {
+            this.info = info;
+        }
+
+        @Override
+        public Loaded call() {
+            FSCancelToken oldCancelToken = FSCancelController.getThreadCancelToken();
+            FSErrorHandler oldErrorHandler = FSErrorController.getThreadErrorHandler();
+
+            FSCancelController.setThreadCancelToken(cancelToken);
+            FSErrorController.setThreadErrorHandler(errorHandler);
+
+            try {
+                FSCancelController.cancelOpportunity(ParallelStylesheetLoader.class);
+
+                Optional<StylesheetI> sheet = info.getStylesheet();
+
+                if (!sheet.isPresent())
+                    sheet = factory.getStylesheet(info);
+
+                if (!sheet.isPresent())
+                    return null;
+
+                Stylesheet s = (Stylesheet) sheet.get();
+                List<Future<Loaded>> imports = s.getImportRules().isEmpty() ?
+                        Collections.<Future<Loaded>>emptyList() : start(s.getImportRules());
+
+                return new Loaded(s, imports);
+            } finally {
+                FSCancelController.setThreadCancelToken(oldCancelToken);
+                FSErrorController.setThreadErrorHandler(oldErrorHandler);
+            }
+        }
+    }
+}
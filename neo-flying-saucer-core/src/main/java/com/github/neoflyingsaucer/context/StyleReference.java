@@ -23,6 +23,7 @@ import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -43,6 +44,8 @@ import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
 import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
 import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
 import com.github.neoflyingsaucer.extend.controller.error.LangId;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsController;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsStage;
 import com.github.neoflyingsaucer.extend.useragent.Optional;
 import com.github.neoflyingsaucer.extend.useragent.StylesheetI;
 import com.github.neoflyingsaucer.extend.useragent.UserAgentCallback;
@@ -71,6 +74,8 @@ public class StyleReference {
 
     /** */
     private UserAgentCallback _uac;
+
+    private Executor _executor;
     
     public StyleReference(final UserAgentCallback userAgent) {
         _uac = userAgent;
@@ -84,6 +89,7 @@ public class StyleReference {
         _context = context;
         _nsh = nsh;
         _doc = doc;
+        final long start = System.nanoTime();
         final AttributeResolver attRes = new StandardAttributeResolver(_nsh, _uac);
 
         final List<StylesheetInfo> infos = getStylesheets();
@@ -92,8 +98,12 @@ public class StyleReference {
                 new DOMTreeResolver(),
                 attRes, 
                 _stylesheetFactory, 
-                readAndParseAll(infos, _context.getMedia()), 
+                _executor != null ?
+                        new ParallelStylesheetLoader(_context, _stylesheetFactory, _executor).load(infos) :
+                        readAndParseAll(infos, _context.getMedia()), 
                 _context);
+        
+        FSMetricsController.recordTime(FSMetricsStage.STYLESHEET_LOAD, System.nanoTime() - start);
     }
     
     private List<Stylesheet> readAndParseAll(final List<StylesheetInfo> infos, final String medium) 
@@ -254,11 +264,30 @@ public class StyleReference {
         return _matcher.getFontFaceRules();
     }
     
+    public long getElementsMatched() {
+        return _matcher == null ? 0 : _matcher.getElementsMatched();
+    }
+    
+    public long getSelectorsTested() {
+        return _matcher == null ? 0 : _matcher.getSelectorsTested();
+    }
+    
     public void setUserAgentCallback(final UserAgentCallback userAgentCallback) {
         _uac = userAgentCallback;
         _stylesheetFactory.setUserAgentCallback(userAgentCallback);
     }
     
+    /**
+     * Sets the executor on which the stylesheets a document links to, and
+     * the stylesheets they import, are loaded and parsed, or null to load
+     * them one after another on the calling thread. The user agent's
+     * getCSSResource, resolveURI and resource cache must then be safe to
+     * call from several threads at once.
+     */
+    public void setExecutor(final Executor executor) {
+        _executor = executor;
+    }
+
     public void setSupportCMYKColors(final boolean b) {
         _stylesheetFactory.setSupportCMYKColors(b);
     }
@@ -40,9 +40,10 @@ import com.github.neoflyingsaucer.extend.useragent.StylesheetI;
 import com.github.neoflyingsaucer.extend.useragent.UserAgentCallback;
 
 /**
- * A Factory class for Cascading Style Sheets. Sheets are parsed using a single
- * parser instance for all sheets. Sheets are cached by URI using a LRU test,
- * but timestamp of file is not checked.
+ * A Factory class for Cascading Style Sheets. Each sheet is parsed by a
+ * parser of its own, so several sheets may be parsed at once, while style
+ * declarations share a single parser. Sheets are cached by URI using a LRU
+ * test, but timestamp of file is not checked.
  *
  * @author Torbjoern Gannholm
  */
@@ -52,25 +53,36 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
      * the UserAgentCallback to resolve uris
      */
     private UserAgentCallback _userAgentCallback;
+    private final CSSErrorHandler _errorHandler;
     private final CSSParser _cssParser;
+    private boolean _supportCMYKColors;
 
     public StylesheetFactoryImpl(final UserAgentCallback userAgentCallback) {
         _userAgentCallback = userAgentCallback;
-        _cssParser = new CSSParser(new CSSErrorHandler() {
+        _errorHandler = new CSSErrorHandler() {
         	@Override
         	public void error(String uri, int line, LangId msgId, Object... args) {
-        		if (_userAgentCallback != null)
+        		if (_userAgentCallback != null &&
+        			FSErrorController.isEnabled(FSErrorLevel.WARNING, StylesheetFactory.class))
         		{
         			// Send it back to the user configurable error handler to decide what to do with it.
         			FSError err = new FSError(line, msgId, FSErrorType.CSS_ERROR, uri, StylesheetFactory.class, FSErrorLevel.WARNING, args);
         			FSErrorController.onError(err);
         		}
         	}
-        }, _userAgentCallback);
+        };
+        _cssParser = newParser();
+    }
+
+    private CSSParser newParser() {
+        final CSSParser parser = new CSSParser(_errorHandler, _userAgentCallback);
+        parser.setSupportCMYKColors(_supportCMYKColors);
+        return parser;
     }
 
     /**
-     * The caller is responsible for closing the Reader.
+     * The caller is responsible for closing the Reader. May be called from
+     * several threads at once.
      */
     public Optional<StylesheetI> parse(final Reader reader, final StylesheetInfo info, boolean isInline) 
     {
@@ -79,7 +91,7 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
         	Stylesheet s1;
 
         	try {
-				s1 = _cssParser.parseStylesheet(info.getUri().get(), info.getOrigin(), reader);
+				s1 = newParser().parseStylesheet(info.getUri().get(), info.getOrigin(), reader);
 			} catch (IOException e) {
 				return Optional.empty();
 			}
@@ -136,7 +148,12 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
 
     public Optional<Ruleset> parseStyleDeclaration(final String uri, final CSSOrigin origin, final String styleDeclaration) 
     {
-        return Optional.ofNullable(_cssParser.parseDeclaration(uri, origin, styleDeclaration));
+        // The parser is stateful and style attributes may be parsed
+        // from several style resolution threads.
+        synchronized (_cssParser)
+        {
+            return Optional.ofNullable(_cssParser.parseDeclaration(uri, origin, styleDeclaration));
+        }
     }
 
     public Optional<StylesheetI> getStylesheet(final StylesheetInfo info) 
@@ -168,6 +185,7 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
     }
     
     public void setSupportCMYKColors(final boolean b) {
+        _supportCMYKColors = b;
         _cssParser.setSupportCMYKColors(b);
     }
 }
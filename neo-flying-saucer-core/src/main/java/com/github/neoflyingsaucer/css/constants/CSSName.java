@@ -20,6 +20,7 @@
  */
 package com.github.neoflyingsaucer.css.constants;
 
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
@@ -295,6 +296,18 @@ public enum CSSName {
                     new PrimitivePropertyBuilders.FSTablePaginate()
             ),
 
+    /**
+     * Unique CSSName instance for fictitious property.
+     */
+    FS_TABLE_SAMPLE_ROWS
+            (
+                    "-fs-table-sample-rows",
+                    Marker.PRIMITIVE,
+                    "0",
+                    Marker.NOT_INHERITED,
+                    new PrimitivePropertyBuilders.FSTableSampleRows()
+            ),
+
     /**
      * Unique CSSName instance for CSS2 property.
      */
@@ -1574,6 +1587,11 @@ public enum CSSName {
      */
     private static final Map<String, CSSName> ALL_PROPERTY_NAMES = new TreeMap<String, CSSName>();
 
+    /**
+     * The same properties hashed by name, for {@link #getByPropertyName(String)}.
+     */
+    private static final Map<String, CSSName> PROPERTY_NAME_LOOKUP = new HashMap<String, CSSName>();
+
     /**
      * Map of all non-shorthand CSS properties
      */
@@ -1739,7 +1757,7 @@ public enum CSSName {
      */
     public static CSSName getByPropertyName(final String propName) {
 
-        return ALL_PROPERTY_NAMES.get(propName);
+        return PROPERTY_NAME_LOOKUP.get(propName);
     }
 
     public static CSSName getByID(final int id) {
@@ -1751,6 +1769,7 @@ public enum CSSName {
     	for (final CSSName nm : values())
     	{
     		ALL_PROPERTY_NAMES.put(nm.propName, nm);
+    		PROPERTY_NAME_LOOKUP.put(nm.propName, nm);
 
     		if (nm.type == Marker.PRIMITIVE) {
     			ALL_PRIMITIVE_PROPERTY_NAMES.put(nm.propName, nm);
@@ -1763,6 +1782,7 @@ public enum CSSName {
 			@Override
 			public void error(String uri, int line, LangId msgId, Object... args) { }
         }, null);
+        parser.setKnownIdents(false);
         for (final CSSName cssName : ALL_PRIMITIVE_PROPERTY_NAMES.values()) {
             if (cssName.initialValue.charAt(0) != '=' && cssName.implemented) {
                 final PropertyValue value = parser.parsePropertyValue(
@@ -22,7 +22,6 @@ package com.github.neoflyingsaucer.css.extend.lib;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import com.github.neoflyingsaucer.css.extend.TreeResolver;
 import com.github.neoflyingsaucer.extend.useragent.Optional;
@@ -104,17 +103,17 @@ public class DOMTreeResolver implements TreeResolver {
     @Override
     public int getPositionOfElement(final Element element) 
     {
-        Node parent = element.getParentNode();
-        NodeList nl = parent.getChildNodes();
-        int length = nl.getLength();
-        
-        for (int i = 0; i < length; i++)
+        // Walk siblings rather than using getChildNodes, which
+        // caches per parent and so is not safe for concurrent readers.
+        int position = 0;
+        Node sibling = element.getPreviousSibling();
+
+        while (sibling != null)
         {
-        	if (nl.item(i) == element)
-        		return i;
+        	position++;
+        	sibling = sibling.getPreviousSibling();
         }
 
-        assert(false);
-        return 0;
+        return position;
     }
 }
@@ -30,6 +30,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.w3c.dom.Element;
 
@@ -45,9 +48,11 @@ import com.github.neoflyingsaucer.css.sheet.Ruleset;
 import com.github.neoflyingsaucer.css.sheet.Stylesheet;
 import com.github.neoflyingsaucer.css.sheet.StylesheetInfo.CSSOrigin;
 import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
 import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
 import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
 import com.github.neoflyingsaucer.extend.controller.error.LangId;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsController;
 import com.github.neoflyingsaucer.extend.useragent.Optional;
 import com.github.neoflyingsaucer.layout.SharedContext;
 
@@ -70,6 +75,15 @@ public class Matcher {
     private final List<PageRule> _pageRules;
     private final List<FontFaceRule> _fontFaceRules;
     
+    /**
+     * Whether matching is counted for metrics. This is decided once, when
+     * the matcher is created, so that matching does not touch the shared
+     * counters when nothing is listening.
+     */
+    private final boolean _counting = FSMetricsController.isEnabled();
+    private final AtomicLong _elementsMatched = new AtomicLong();
+    private final AtomicLong _selectorsTested = new AtomicLong();
+    
     public Matcher(
             final TreeResolver tr, final AttributeResolver ar,
             final StylesheetFactory factory,
@@ -89,16 +103,19 @@ public class Matcher {
         _map.remove(e);
     }
 
+    /**
+     * May be called concurrently for different elements. Matching an element
+     * that another thread is also matching is harmless, both threads arrive
+     * at the same shared <code>Mapper</code>.
+     */
     public CascadedStyle getCascadedStyle(final String uri, final Element e, final boolean restyle) {
-        synchronized (e) {
-            Mapper em;
-            if (!restyle) {
-                em = getMapper(e);
-            } else {
-                em = matchElement(e);
-            }
-            return em.getCascadedStyle(uri, e);
+        Mapper em;
+        if (!restyle) {
+            em = getMapper(e);
+        } else {
+            em = matchElement(e);
         }
+        return em.getCascadedStyle(uri, e);
     }
 
     /**
@@ -141,6 +158,22 @@ public class Matcher {
     public boolean isVisitedStyled(final Object e) {
         return _visitElements.contains(e);
     }
+    
+    /**
+     * The number of elements matched against the stylesheets so far, or
+     * zero if metrics were not enabled when this matcher was created.
+     */
+    public long getElementsMatched() {
+        return _elementsMatched.get();
+    }
+    
+    /**
+     * The number of selectors tested against elements so far, or zero if
+     * metrics were not enabled when this matcher was created.
+     */
+    public long getSelectorsTested() {
+        return _selectorsTested.get();
+    }
 
     protected Mapper matchElement(final Element e) {
        final Optional<Element> parent = _treeRes.getParentElement(e);
@@ -166,9 +199,10 @@ public class Matcher {
     		final TreeMap<String, Selector> sorter, final SharedContext sharedCtx) {
         int count = 0;
         int pCount = 0;
+        final FSCancelToken cancelToken = FSCancelController.getThreadCancelToken();
         for (final Stylesheet stylesheet : stylesheets) {
             for (final Object obj : stylesheet.getContents()) {
-                FSCancelController.cancelOpportunity(Matcher.class);
+                cancelToken.check(Matcher.class);
             	
             	if (obj instanceof Ruleset) {
                     for (final Selector selector : ((Ruleset)obj).getFSSelectors()) {
@@ -183,7 +217,7 @@ public class Matcher {
                     if (mediaRule.matches(sharedCtx)) {
                         for (final Ruleset ruleset : mediaRule.getContents()) {
                             for (final Selector selector : ruleset.getFSSelectors()) {
-                                FSCancelController.cancelOpportunity(Matcher.class);
+                                cancelToken.check(Matcher.class);
                             	
                             	selector.setPos(++count);
                                 sorter.put(selector.getOrder(), selector);
@@ -217,8 +251,8 @@ public class Matcher {
     }
 
     private void newMaps() {
-        _map = Collections.synchronizedMap(new java.util.HashMap<Object, Mapper>());
-        _visitElements = Collections.synchronizedSet(new java.util.HashSet<Object>());
+        _map = new ConcurrentHashMap<Object, Mapper>(1024, 0.75f, 4);
+        _visitElements = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
     }
 
     private Mapper getMapper(final Element e) {
@@ -313,7 +347,7 @@ public class Matcher {
         java.util.List<Selector> axes;
         private HashMap<String, List<Selector>> pseudoSelectors;
         private List<Selector> mappedSelectors;
-        private HashMap<String, Mapper> children;
+        private volatile ConcurrentMap<String, Mapper> children;
 
         Mapper(final java.util.Collection<Selector> selectors) {
             axes = new java.util.ArrayList<Selector>(selectors.size());
@@ -332,6 +366,10 @@ public class Matcher {
          */
         Mapper mapChild(final Element e) {
             //Mapper childMapper = new Mapper();
+            if (_counting) {
+                _elementsMatched.incrementAndGet();
+                _selectorsTested.addAndGet(axes.size());
+            }
             final java.util.List<Selector> childAxes = new ArrayList<Selector>(axes.size() + 10);
             final java.util.HashMap<String, List<Selector>> pseudoSelectors = new java.util.HashMap<String, List<Selector>>();
             final java.util.List<Selector> mappedSelectors = new java.util.LinkedList<Selector>();
@@ -384,52 +422,68 @@ public class Matcher {
                     childAxes.add(chain);
                 }
             }
-            if (children == null) children = new HashMap<String, Mapper>();
-            Mapper childMapper = children.get(key.toString());
+            final ConcurrentMap<String, Mapper> cache = getChildren();
+            final String childKey = key.toString();
+            Mapper childMapper = cache.get(childKey);
             if (childMapper == null) {
                 childMapper = new Mapper();
                 childMapper.axes = childAxes;
                 childMapper.pseudoSelectors = pseudoSelectors;
                 childMapper.mappedSelectors = mappedSelectors;
-                children.put(key.toString(), childMapper);
+                final Mapper existing = cache.putIfAbsent(childKey, childMapper);
+                if (existing != null) {
+                    // Another thread matched an equivalent element first.
+                    childMapper = existing;
+                }
             }
             link(e, childMapper);
             return childMapper;
         }
 
-        CascadedStyle getCascadedStyle(final String uri, final Object e) {
-            CascadedStyle result;
-            synchronized (e) {
-                CascadedStyle cs = null;
-                final Optional<com.github.neoflyingsaucer.css.sheet.Ruleset> elementStyling = getElementStyle(uri, e);
-                final Optional<com.github.neoflyingsaucer.css.sheet.Ruleset> nonCssStyling = getNonCssStyle(uri, e);
-                final List<PropertyDeclaration> propList = new LinkedList<PropertyDeclaration>();
-                //specificity 0,0,0,0
-                if (nonCssStyling.isPresent()) {
-                    propList.addAll(nonCssStyling.get().getPropertyDeclarations());
-                }
-                //these should have been returned in order of specificity
-                for (final Iterator<Ruleset> i = getMatchedRulesets(mappedSelectors); i.hasNext();) {
-                    FSCancelController.cancelOpportunity(Matcher.class);
-                	
-                	Ruleset rs = i.next();
-                    propList.addAll(rs.getPropertyDeclarations());
-                }
-                //specificity 1,0,0,0
-                if (elementStyling.isPresent()) {
-                    propList.addAll(elementStyling.get().getPropertyDeclarations());
-                }
-                if (propList.size() == 0)
-                    cs = CascadedStyle.emptyCascadedStyle;
-                else {
-                    cs = new CascadedStyle(propList.iterator());
+        private ConcurrentMap<String, Mapper> getChildren() {
+            ConcurrentMap<String, Mapper> result = children;
+            if (result == null) {
+                synchronized (this) {
+                    result = children;
+                    if (result == null) {
+                        result = new ConcurrentHashMap<String, Mapper>(16, 0.75f, 4);
+                        children = result;
+                    }
                 }
-
-                result = cs;
             }
             return result;
         }
 
+        CascadedStyle getCascadedStyle(final String uri, final Object e) {
+            CascadedStyle cs = null;
+            final Optional<com.github.neoflyingsaucer.css.sheet.Ruleset> elementStyling = getElementStyle(uri, e);
+            final Optional<com.github.neoflyingsaucer.css.sheet.Ruleset> nonCssStyling = getNonCssStyle(uri, e);
+            final List<PropertyDeclaration> propList = new LinkedList<PropertyDeclaration>();
+            //specificity 0,0,0,0
+            if (nonCssStyling.isPresent()) {
+                propList.addAll(nonCssStyling.get().getPropertyDeclarations());
+            }
+            //these should have been returned in order of specificity
+            final FSCancelToken cancelToken = FSCancelController.getThreadCancelToken();
+            for (final Iterator<Ruleset> i = getMatchedRulesets(mappedSelectors); i.hasNext();) {
+                cancelToken.check(Matcher.class);
+            	
+            	Ruleset rs = i.next();
+                propList.addAll(rs.getPropertyDeclarations());
+            }
+            //specificity 1,0,0,0
+            if (elementStyling.isPresent()) {
+                propList.addAll(elementStyling.get().getPropertyDeclarations());
+            }
+            if (propList.size() == 0)
+                cs = CascadedStyle.emptyCascadedStyle;
+            else {
+                cs = new CascadedStyle(propList.iterator());
+            }
+
+            return cs;
+        }
+
         /**
          * May return null.
          * We assume that restyle has already been done by a getCascadedStyle if necessary.
@@ -444,8 +498,9 @@ public class Matcher {
             if (pe == null) return null;
 
             final java.util.List<PropertyDeclaration> propList = new java.util.LinkedList<PropertyDeclaration>();
+            final FSCancelToken cancelToken = FSCancelController.getThreadCancelToken();
             for (final java.util.Iterator<Ruleset> i = getSelectedRulesets(pe); i.hasNext();) {
-                FSCancelController.cancelOpportunity(Matcher.class);
+                cancelToken.check(Matcher.class);
             	
             	final com.github.neoflyingsaucer.css.sheet.Ruleset rs = (com.github.neoflyingsaucer.css.sheet.Ruleset) i.next();
                 propList.addAll(rs.getPropertyDeclarations());
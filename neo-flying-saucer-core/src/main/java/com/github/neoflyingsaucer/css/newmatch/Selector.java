@@ -20,6 +20,7 @@
 package com.github.neoflyingsaucer.css.newmatch;
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.w3c.dom.Element;
 
@@ -69,13 +70,14 @@ public class Selector {
     public final static int FOCUS_PSEUDOCLASS = 16;
 
     /**
-     * Give each a unique ID to be able to create a key to internalize Matcher.Mappers
+     * Give each a unique ID to be able to create a key to internalize Matcher.Mappers.
+     * Stylesheets may be parsed on several threads at once.
      */
     private final int selectorID;
-    private static int selectorCount = 0;
+    private static final AtomicInteger selectorCount = new AtomicInteger();
 
     public Selector() {
-        selectorID = selectorCount++;
+        selectorID = selectorCount.getAndIncrement();
     }
 
     /**
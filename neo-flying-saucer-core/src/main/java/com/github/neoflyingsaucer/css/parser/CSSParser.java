@@ -78,6 +78,8 @@ public class CSSParser {
 
     private Token _saved;
     private final Lexer _lexer;
+    /* The text of the current token, once something has asked for it. */
+    private String _rawTokenValue;
 
     private CSSErrorHandler _errorHandler;
     private String _URI;
@@ -85,6 +87,7 @@ public class CSSParser {
 
     private final Map<String, String> _namespaces = new HashMap<String, String>();
     private boolean _supportCMYKColors;
+    private boolean _knownIdents = true;
 
     public CSSParser(final CSSErrorHandler errorHandler, final UserAgentCallback uac) 
     {
@@ -104,11 +107,22 @@ public class CSSParser {
         return result;
     }
 
+    public Stylesheet parseStylesheet(final String uri, final CSSOrigin origin, final String text)
+            throws IOException {
+        _URI = uri;
+        reset(text);
+
+        final Stylesheet result = new Stylesheet(uri, origin);
+        stylesheet(result);
+
+        return result;
+    }
+
     public Ruleset parseDeclaration(final String uri, final CSSOrigin origin, final String text) 
     {
         try {
             _URI = uri;
-            reset(new StringReader(text));
+            reset(text);
 
             skipWhitespace();
 
@@ -130,7 +144,7 @@ public class CSSParser {
     public PropertyValue parsePropertyValue(final CSSName cssName, final CSSOrigin origin, final String expr) {
         _URI = cssName + " property value";
         try {
-            reset(new StringReader(expr));
+            reset(expr);
             final List<PropertyValue> values = expr(
                     cssName == CSSName.FONT_FAMILY ||
                     cssName == CSSName.FONT_SHORTHAND ||
@@ -424,7 +438,7 @@ public class CSSParser {
     // public only for testing.
     public MediaQueryList parseMediaQueryListInternal(String mediaQueryList)
     {
-    	reset(new StringReader(mediaQueryList));
+    	reset(mediaQueryList);
     	try {
 			return mediaQueryList();
 		} catch (IOException e) {
@@ -1578,21 +1592,13 @@ public class CSSParser {
         final String token = getTokenValue(t);
 
         int offset = 0;
-        final char[] ch = token.toCharArray();
-        for (final char c : ch) {
-            if (c < '0' || c > '9') {
-                break;
-            }
+        while (offset < token.length() && isDigit(token.charAt(offset))) {
             offset++;
         }
-        if (ch[offset] == '.') {
+        if (offset < token.length() && token.charAt(offset) == '.') {
             offset++;
 
-            for (int i = offset; i < ch.length; i++) {
-                final char c = ch[i];
-                if (c < '0' || c > '9') {
-                    break;
-                }
+            while (offset < token.length() && isDigit(token.charAt(offset))) {
                 offset++;
             }
         }
@@ -1600,13 +1606,17 @@ public class CSSParser {
         return token.substring(0, offset);
     }
 
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
     private String extractUnit(final Token t) {
         final String s = extractNumber(t);
         return getTokenValue(t).substring(s.length());
     }
 
-    private String sign(final float sign) {
-        return sign == -1.0f ? "-" : "";
+    private String signed(final float sign, final String value) {
+        return sign == -1.0f ? "-" + value : value;
     }
 
 //  term
@@ -1647,7 +1657,7 @@ public class CSSParser {
  
             	result = new PropertyValueImp(type,
                         sign * Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        signed(sign, getTokenValue(t)));
 
             	next();
                 skipWhitespace();
@@ -1680,7 +1690,7 @@ public class CSSParser {
  
             	result = new PropertyValueImp(type,
                         sign * Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        signed(sign, getTokenValue(t)));
 
             	next();
                 skipWhitespace();
@@ -1690,7 +1700,7 @@ public class CSSParser {
                 result = new PropertyValueImp(
                         CSSPrimitiveUnit.CSS_NUMBER,
                         sign*Float.parseFloat(getTokenValue(t)),
-                        sign(sign) + getTokenValue(t));
+                        signed(sign, getTokenValue(t)));
                 next();
                 skipWhitespace();
                 break;
@@ -1698,7 +1708,7 @@ public class CSSParser {
                 result = new PropertyValueImp(
                 		CSSPrimitiveUnit.CSS_PERCENTAGE,
                         sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        signed(sign, getTokenValue(t)));
                 next();
                 skipWhitespace();
                 break;
@@ -1706,7 +1716,7 @@ public class CSSParser {
                 result = new PropertyValueImp(
                 		CSSPrimitiveUnit.CSS_EMS,
                         sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        signed(sign, getTokenValue(t)));
                 next();
                 skipWhitespace();
                 break;
@@ -1714,7 +1724,7 @@ public class CSSParser {
                 result = new PropertyValueImp(
                 		CSSPrimitiveUnit.CSS_EXS,
                         sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        signed(sign, getTokenValue(t)));
                 next();
                 skipWhitespace();
                 break;
@@ -1722,7 +1732,7 @@ public class CSSParser {
                 result = new PropertyValueImp(
                 		CSSPrimitiveUnit.CSS_PX,
                         sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        signed(sign, getTokenValue(t)));
                 next();
                 skipWhitespace();
                 break;
@@ -1730,7 +1740,7 @@ public class CSSParser {
                 result = new PropertyValueImp(
                 		CSSPrimitiveUnit.CSS_CM,
                         sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        signed(sign, getTokenValue(t)));
                 next();
                 skipWhitespace();
                 break;
@@ -1738,7 +1748,7 @@ public class CSSParser {
                 result = new PropertyValueImp(
                 		CSSPrimitiveUnit.CSS_MM,
                         sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        signed(sign, getTokenValue(t)));
                 next();
                 skipWhitespace();
                 break;
@@ -1746,7 +1756,7 @@ public class CSSParser {
                 result = new PropertyValueImp(
                 		CSSPrimitiveUnit.CSS_IN,
                         sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        signed(sign, getTokenValue(t)));
                 next();
                 skipWhitespace();
                 break;
@@ -1754,7 +1764,7 @@ public class CSSParser {
                 result = new PropertyValueImp(
                 		CSSPrimitiveUnit.CSS_PT,
                         sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        signed(sign, getTokenValue(t)));
                 next();
                 skipWhitespace();
                 break;
@@ -1762,7 +1772,7 @@ public class CSSParser {
                 result = new PropertyValueImp(
                 		CSSPrimitiveUnit.CSS_PC,
                         sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        signed(sign, getTokenValue(t)));
                 next();
                 skipWhitespace();
                 break;
@@ -2114,6 +2124,7 @@ public class CSSParser {
             _saved = null;
             return result;
         } else {
+            _rawTokenValue = null;
             return _lexer.yylex();
         }
     }
@@ -2186,11 +2197,20 @@ public class CSSParser {
 
     public void reset(final Reader r) {
         _saved = null;
+        _rawTokenValue = null;
         _namespaces.clear();
         _lexer.yyreset(r);
         _lexer.setyyline(0);
     }
 
+    private void reset(final String text) {
+        _saved = null;
+        _rawTokenValue = null;
+        _namespaces.clear();
+        _lexer.yyreset(text);
+        _lexer.setyyline(0);
+    }
+
     public CSSErrorHandler getErrorHandler() {
         return _errorHandler;
     }
@@ -2200,26 +2220,33 @@ public class CSSParser {
     }
 
     private String getRawTokenValue() {
-        return _lexer.yytext();
+        if (_rawTokenValue == null) {
+            _rawTokenValue = _lexer.yytext();
+        }
+        return _rawTokenValue;
     }
 
     private String getTokenValue(final Token t) {
         return getTokenValue(t, false);
     }
 
+    /**
+     * The value of the current token. The value is built straight from the
+     * lexer's scan buffer, and known property names and identifiers come
+     * back as the strings {@link IdentTable} holds.
+     */
     private String getTokenValue(final Token t, final boolean literal) {
-        int start;
-        int count;
+        final char[] ch = _lexer.yybuffer();
+        int start = _lexer.yystart();
+        final int count = _lexer.yylength();
         switch (t.getType()) {
             case Token.STRING:
-                count = _lexer.yylength();
-                return processEscapes(_lexer.yytext().toCharArray(), 1, count-1);
+                return processEscapes(ch, start+1, start+count-1);
             case Token.HASH:
-                count = _lexer.yylength();
-                return processEscapes(_lexer.yytext().toCharArray(), 1, count);
+                return processEscapes(ch, start+1, start+count);
             case Token.URI:
-                final char[] ch = _lexer.yytext().toCharArray();
-                start = 4;
+                final int tokenStart = start;
+                start += 4;
                 while (ch[start] == '\t' || ch[start] == '\r' ||
                         ch[start] == '\n' || ch[start] == '\f') {
                     start++;
@@ -2227,7 +2254,7 @@ public class CSSParser {
                 if (ch[start] == '\'' || ch[start] == '"') {
                     start++;
                 }
-                int end = ch.length-2;
+                int end = tokenStart+count-2;
                 while (ch[end] == '\t' || ch[end] == '\r' ||
                         ch[end] == '\n' || ch[end] == '\f') {
                     end--;
@@ -2255,18 +2282,23 @@ public class CSSParser {
             case Token.AT_RULE:
             case Token.IDENT:
             case Token.FUNCTION:
-                start = 0;
-                count = _lexer.yylength();
+                final int identEnd = start+count;
                 if (t.getType() == Token.AT_RULE) {
                     start++;
                 }
-                String result = processEscapes(_lexer.yytext().toCharArray(), start, count);
+                if (! literal && _knownIdents && t.getType() == Token.IDENT) {
+                    final String known = IdentTable.lookup(ch, start, identEnd);
+                    if (known != null) {
+                        return known;
+                    }
+                }
+                String result = processEscapes(ch, start, identEnd);
                 if (! literal) {
                     result = result.toLowerCase();
                 }
                 return result;
             default:
-                return _lexer.yytext();
+                return getRawTokenValue();
         }
     }
 
@@ -2287,9 +2319,18 @@ public class CSSParser {
     }
 
     private static String processEscapes(final char[] ch, final int start, final int end) {
-        final StringBuffer result = new StringBuffer(ch.length + 10);
+        int firstEscape = start;
+        while (firstEscape < end && ch[firstEscape] != '\\') {
+            firstEscape++;
+        }
+        if (firstEscape == end) {
+            return new String(ch, start, end - start);
+        }
+
+        final StringBuilder result = new StringBuilder(end - start);
+        result.append(ch, start, firstEscape - start);
 
-        for (int i = start; i < end; i++) {
+        for (int i = firstEscape; i < end; i++) {
             final char c = ch[i];
 
             if (c == '\\') {
@@ -2343,6 +2384,16 @@ public class CSSParser {
         _supportCMYKColors = b;
     }
 
+    /**
+     * Whether identifiers that name a known property or value come back as
+     * the strings {@link IdentTable} holds. On by default. Turned off by
+     * {@link CSSName}, which parses its initial values before the table
+     * can be built.
+     */
+    public void setKnownIdents(final boolean knownIdents) {
+        _knownIdents = knownIdents;
+    }
+
     private static class NamespacePair {
         private final String _namespaceURI;
         private final String _name;
@@ -0,0 +1,104 @@
+package com.github.neoflyingsaucer.css.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.neoflyingsaucer.css.constants.CSSName;
+import com.github.neoflyingsaucer.css.constants.IdentValue;
+
+/**
+ * The property names and identifier values the parser knows, looked up
+ * straight from the lexer's scan buffer. A stylesheet names the same few
+ * hundred properties and values over and over, so rather than building and
+ * lower casing a new string for each of those tokens the parser hands back
+ * the one string {@link CSSName} or {@link IdentValue} already holds.
+ *
+ * CSSName parses its initial values while it is being initialized, so the
+ * parser it uses must not look names up here, or each class would wait on
+ * the other to be initialized.
+ */
+final class IdentTable
+{
+	private static final String[] TABLE;
+	private static final int MASK;
+
+	static
+	{
+		List<String> names = new ArrayList<String>();
+
+		for (IdentValue ident : IdentValue.values())
+			names.add(ident.toString());
+
+		for (CSSName name : CSSName.values())
+			names.add(name.toString());
+
+		int size = Integer.highestOneBit(names.size()) * 4;
+		String[] table = new String[size];
+
+		for (String name : names)
+		{
+			int i = name.hashCode() & (size - 1);
+
+			while (table[i] != null && !table[i].equals(name))
+				i = (i + 1) & (size - 1);
+
+			table[i] = name;
+		}
+
+		MASK = size - 1;
+		TABLE = table;
+	}
+
+	private IdentTable() { }
+
+	/**
+	 * The known name that the chars from start to end match, ignoring case,
+	 * or null if there is none. Names with escapes or non-ASCII chars are
+	 * never matched.
+	 */
+	static String lookup(char[] ch, int start, int end)
+	{
+		int hash = 0;
+
+		for (int i = start; i < end; i++)
+		{
+			char c = ch[i];
+
+			if (c >= 'A' && c <= 'Z')
+				c += 'a' - 'A';
+			else if (c == '\\' || c > 127)
+				return null;
+
+			hash = 31 * hash + c;
+		}
+
+		for (int i = hash & MASK; TABLE[i] != null; i = (i + 1) & MASK)
+		{
+			String name = TABLE[i];
+
+			if (name.hashCode() == hash && matches(name, ch, start, end))
+				return name;
+		}
+
+		return null;
+	}
+
+	private static boolean matches(String name, char[] ch, int start, int end)
+	{
+		if (name.length() != end - start)
+			return false;
+
+		for (int i = start; i < end; i++)
+		{
+			char c = ch[i];
+
+			if (c >= 'A' && c <= 'Z')
+				c += 'a' - 'A';
+
+			if (name.charAt(i - start) != c)
+				return false;
+		}
+
+		return true;
+	}
+}
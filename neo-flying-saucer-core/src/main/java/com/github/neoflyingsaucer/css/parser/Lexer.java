@@ -1580,6 +1580,35 @@ class Lexer {
     	this.yyline = i;
 	}
 
+    /**
+     * Resets the scanner to read the given text. The text is copied into the
+     * scan buffer once, so no Reader is needed and the buffer is never
+     * refilled.
+     */
+    public void yyreset(String text) {
+        yyreset(new java.io.StringReader(""));
+        if (text.length() >= zzBuffer.length) {
+            zzBuffer = new char[text.length() + 1];
+        }
+        text.getChars(0, text.length(), zzBuffer, 0);
+        zzEndRead = text.length();
+    }
+
+    /**
+     * The scan buffer, which holds the matched text from {@link #yystart()}
+     * for {@link #yylength()} chars. Only good until the next call to yylex.
+     */
+    char[] yybuffer() {
+        return zzBuffer;
+    }
+
+    /**
+     * Where the matched text starts in {@link #yybuffer()}.
+     */
+    int yystart() {
+        return zzStartRead;
+    }
+
 
   /**
    * Creates a new scanner
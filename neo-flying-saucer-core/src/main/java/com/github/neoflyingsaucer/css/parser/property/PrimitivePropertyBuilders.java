@@ -1010,6 +1010,14 @@ public class PrimitivePropertyBuilders
         }
      }
 
+    public static class FSTableSampleRows extends PlainInteger
+    {
+        @Override
+    	protected boolean isNegativeValuesAllowed() {
+            return false;
+        }
+    }
+
     public static class FSTextDecorationExtent extends SingleIdent
     {
        private static final EnumSet<IdentValue> ALLOWED = EnumSet.of(
@@ -24,6 +24,8 @@ import java.awt.Cursor;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.github.neoflyingsaucer.css.constants.CSSName;
 import com.github.neoflyingsaucer.css.constants.IdentValue;
@@ -71,6 +73,11 @@ import com.github.neoflyingsaucer.util.XRRuntimeException;
  */
 public class CalculatedStyle {
 	
+    /**
+     * The properties a style resolves as it is created, see {@link #resolveAll()}.
+     */
+    private static final CSSName[] RESOLVED_PROPERTIES = resolvedProperties();
+
     /**
      * The parent-style we inherit from
      */
@@ -93,9 +100,11 @@ public class CalculatedStyle {
     private BackgroundSize _backgroundSize;
 
     /**
-     * Cache child styles of this style that have the same cascaded properties
+     * Cache child styles of this style that have the same cascaded properties.
+     * Styles may be derived from several threads at once, see
+     * {@link com.github.neoflyingsaucer.layout.ParallelStyleResolver}.
      */
-    private final java.util.HashMap<String, CalculatedStyle> _childCache = new java.util.HashMap<String, CalculatedStyle>();
+    private final ConcurrentMap<String, CalculatedStyle> _childCache = new ConcurrentHashMap<String, CalculatedStyle>(8, 0.75f, 2);
     /*private java.util.HashMap _childCache = new java.util.LinkedHashMap(5, 0.75f, true) {
         private static final int MAX_ENTRIES = 10;
 
@@ -143,6 +152,29 @@ public class CalculatedStyle {
         checkBordersAllowed();
     }
 
+    private static CSSName[] resolvedProperties() {
+        final List<CSSName> result = new ArrayList<CSSName>(CSSName.countCSSPrimitiveNames());
+        for (final Iterator<String> i = CSSName.allCSS2PrimitivePropertyNames(); i.hasNext();) {
+            final CSSName cssName = CSSName.getByPropertyName(i.next());
+            if (CSSName.isImplemented(cssName)) {
+                result.add(cssName);
+            }
+        }
+        return result.toArray(new CSSName[result.size()]);
+    }
+
+    /**
+     * Resolves every implemented property, inherited and initial values
+     * included, so that {@link #valueByName(CSSName)} only reads from then on.
+     * The font, line height, border, margin, padding and background size are
+     * still cached lazily, as they are only asked for during layout.
+     */
+    private void resolveAll() {
+        for (final CSSName cssName : RESOLVED_PROPERTIES) {
+            valueByName(cssName);
+        }
+    }
+
     private void checkPaddingAllowed() {
         final IdentValue v = getIdent(CSSName.DISPLAY);
         if (v == IdentValue.TABLE_HEADER_GROUP || v == IdentValue.TABLE_ROW_GROUP ||
@@ -177,13 +209,36 @@ public class CalculatedStyle {
      * @param matched the CascadedStyle to apply
      * @return The derived child style
      */
-    public synchronized CalculatedStyle deriveStyle(final CascadedStyle matched) {
+    public CalculatedStyle deriveStyle(final CascadedStyle matched) {
+        return deriveStyle(matched, false);
+    }
+
+    /**
+     * Derives a child style from this style. If <code>resolveAll</code> is
+     * set, a new style has every implemented property resolved before it is
+     * put in the child cache. Such a style only reads from then on, so it
+     * may be shared between the threads of
+     * {@link com.github.neoflyingsaucer.layout.ParallelStyleResolver}.
+     * Styles are otherwise resolved lazily, as most documents only ask
+     * for a few properties of each.
+     *
+     * @param matched the CascadedStyle to apply
+     * @param resolveAll whether to resolve every property of a new style
+     * @return The derived child style
+     */
+    public CalculatedStyle deriveStyle(final CascadedStyle matched, final boolean resolveAll) {
         final String fingerprint = matched.getFingerprint();
         CalculatedStyle cs = _childCache.get(fingerprint);
 
         if (cs == null) {
             cs = new CalculatedStyle(this, matched);
-            _childCache.put(fingerprint, cs);
+            if (resolveAll) {
+                cs.resolveAll();
+            }
+            final CalculatedStyle existing = _childCache.putIfAbsent(fingerprint, cs);
+            if (existing != null) {
+                cs = existing;
+            }
         }
         return cs;
     }
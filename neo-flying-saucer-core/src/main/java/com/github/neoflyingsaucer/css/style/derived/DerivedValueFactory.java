@@ -20,8 +20,8 @@
  */
 package com.github.neoflyingsaucer.css.style.derived;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.github.neoflyingsaucer.css.constants.CSSName;
 import com.github.neoflyingsaucer.css.constants.IdentValue;
@@ -32,7 +32,7 @@ import com.github.neoflyingsaucer.css.style.CalculatedStyle;
 import com.github.neoflyingsaucer.css.style.FSDerivedValue;
 
 public class DerivedValueFactory {
-    private static final Map<String, FSDerivedValue> CACHED_COLORS = new HashMap<String, FSDerivedValue>();
+    private static final ConcurrentMap<String, FSDerivedValue> CACHED_COLORS = new ConcurrentHashMap<String, FSDerivedValue>();
     
     public static FSDerivedValue newDerivedValue(
             final CalculatedStyle style, final CSSName cssName, final PropertyValue value) {
@@ -56,7 +56,10 @@ public class DerivedValueFactory {
                 FSDerivedValue color = CACHED_COLORS.get(value.getCssText());
                 if (color == null) {
                     color = new ColorValue(cssName, value);
-                    CACHED_COLORS.put(value.getCssText(), color);
+                    final FSDerivedValue existing = CACHED_COLORS.putIfAbsent(value.getCssText(), color);
+                    if (existing != null) {
+                        color = existing;
+                    }
                 }
                 return color;
             case PropertyValueImp.VALUE_TYPE_LIST:
@@ -13,6 +13,7 @@ import com.github.neoflyingsaucer.extend.output.JustificationInfo;
 public class DlTextRenderer implements TextRenderer
 {
 	private FontContext ctx;
+	private long measureCount;
 	
 	@Override
 	public void setup(FontContext context)
@@ -67,6 +68,15 @@ public class DlTextRenderer implements TextRenderer
 	@Override
 	public int getWidth(FontContext context, FSFont font, String string)
 	{
+		measureCount++;
 		return context.getWidth(font, string);
 	}
+	
+	/**
+	 * The number of times text has been measured by this renderer.
+	 */
+	public long getMeasureCount()
+	{
+		return measureCount;
+	}
 }
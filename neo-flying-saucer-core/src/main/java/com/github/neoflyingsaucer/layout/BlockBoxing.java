@@ -23,13 +23,20 @@ package com.github.neoflyingsaucer.layout;
 import java.awt.Dimension;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.RandomAccess;
 
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
 import com.github.neoflyingsaucer.css.constants.CSSName;
 import com.github.neoflyingsaucer.css.constants.IdentValue;
+import com.github.neoflyingsaucer.css.style.CalculatedStyle;
 import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.newtable.TableBox;
 import com.github.neoflyingsaucer.render.BlockBox;
 import com.github.neoflyingsaucer.render.Box;
+import com.github.neoflyingsaucer.render.InlineLayoutBox;
 import com.github.neoflyingsaucer.render.LineBox;
 import com.github.neoflyingsaucer.render.PageBox;
 
@@ -95,35 +102,42 @@ public class BlockBoxing {
                 }
             }
 
-            layoutBlockChild(
-                    c, block, child, false, childOffset, NO_PAGE_TRIM,
-                    relayoutData == null ? null : relayoutData.getLayoutState());
+            if (mayCheckKeepTogether &&
+                    layoutKeptTogether(c, block, child, childOffset, pageCount, relayoutData.getLayoutState())) {
+                c.getRootLayer().ensureHasPage(c, child);
+            } else {
+                layoutBlockChild(
+                        c, block, child, false, childOffset, NO_PAGE_TRIM,
+                        relayoutData == null ? null : relayoutData.getLayoutState());
 
-            if (c.isPrint()) 
-            {
-                boolean needPageClear = child.isNeedPageClear();
-                
-                if (needPageClear || mayCheckKeepTogether) 
+                if (c.isPrint()) 
                 {
-                    c.setMayCheckKeepTogether(mayCheckKeepTogether);
-                    boolean tryToAvoidPageBreak = child.getStyle().isAvoidPageBreakInside() && child.crossesPageBreak(c);
-                    boolean keepWithInline = child.isNeedsKeepWithInline(c);
+                    boolean needPageClear = child.isNeedPageClear();
                     
-                    if (tryToAvoidPageBreak || needPageClear || keepWithInline) {
-                        c.restoreStateForRelayout(relayoutData.getLayoutState());
-                        child.reset(c);
-                        layoutBlockChild(
-                                c, block, child, true, childOffset, pageCount, relayoutData.getLayoutState());
-
-                        if (tryToAvoidPageBreak && child.crossesPageBreak(c) && ! keepWithInline) {
+                    if (needPageClear || mayCheckKeepTogether) 
+                    {
+                        c.setMayCheckKeepTogether(mayCheckKeepTogether);
+                        boolean tryToAvoidPageBreak = child.getStyle().isAvoidPageBreakInside() && child.crossesPageBreak(c);
+                        boolean keepWithInline = child.isNeedsKeepWithInline(c);
+                        
+                        if (tryToAvoidPageBreak || needPageClear || keepWithInline) {
                             c.restoreStateForRelayout(relayoutData.getLayoutState());
                             child.reset(c);
+                            c.noteRelayout();
                             layoutBlockChild(
-                                    c, block, child, false, childOffset, pageCount, relayoutData.getLayoutState());
+                                    c, block, child, true, childOffset, pageCount, relayoutData.getLayoutState());
+
+                            if (tryToAvoidPageBreak && child.crossesPageBreak(c) && ! keepWithInline) {
+                                c.restoreStateForRelayout(relayoutData.getLayoutState());
+                                child.reset(c);
+                                c.noteRelayout();
+                                layoutBlockChild(
+                                        c, block, child, false, childOffset, pageCount, relayoutData.getLayoutState());
+                            }
                         }
                     }
+                    c.getRootLayer().ensureHasPage(c, child);
                 }
-                c.getRootLayer().ensureHasPage(c, child);
             }
 
             Dimension relativeOffset = child.getRelativeOffset();
@@ -269,26 +283,33 @@ public class BlockBoxing {
                 mayCheckKeepTogether = true;
                 c.setMayCheckKeepTogether(false);
             }
-            layoutBlockChild(
-                    c, block, child, false, childOffset, NO_PAGE_TRIM, relayoutData.getLayoutState());
-
-            if (mayCheckKeepTogether) {
-                c.setMayCheckKeepTogether(true);
-                boolean tryToAvoidPageBreak =
-                    child.getStyle().isAvoidPageBreakInside() && child.crossesPageBreak(c);
-                boolean needPageClear = child.isNeedPageClear();
-                boolean keepWithInline = child.isNeedsKeepWithInline(c);
-                if (tryToAvoidPageBreak || needPageClear || keepWithInline) {
-                    c.restoreStateForRelayout(relayoutData.getLayoutState());
-                    child.reset(c);
-                    layoutBlockChild(
-                            c, block, child, true, childOffset, pageCount, relayoutData.getLayoutState());
-
-                    if (tryToAvoidPageBreak && child.crossesPageBreak(c) && ! keepWithInline) {
+            c.noteRelayout();
+
+            if (! (mayCheckKeepTogether &&
+                    layoutKeptTogether(c, block, child, childOffset, pageCount, relayoutData.getLayoutState()))) {
+                layoutBlockChild(
+                        c, block, child, false, childOffset, NO_PAGE_TRIM, relayoutData.getLayoutState());
+
+                if (mayCheckKeepTogether) {
+                    c.setMayCheckKeepTogether(true);
+                    boolean tryToAvoidPageBreak =
+                        child.getStyle().isAvoidPageBreakInside() && child.crossesPageBreak(c);
+                    boolean needPageClear = child.isNeedPageClear();
+                    boolean keepWithInline = child.isNeedsKeepWithInline(c);
+                    if (tryToAvoidPageBreak || needPageClear || keepWithInline) {
                         c.restoreStateForRelayout(relayoutData.getLayoutState());
                         child.reset(c);
+                        c.noteRelayout();
                         layoutBlockChild(
-                                c, block, child, false, childOffset, pageCount, relayoutData.getLayoutState());
+                                c, block, child, true, childOffset, pageCount, relayoutData.getLayoutState());
+
+                        if (tryToAvoidPageBreak && child.crossesPageBreak(c) && ! keepWithInline) {
+                            c.restoreStateForRelayout(relayoutData.getLayoutState());
+                            child.reset(c);
+                            c.noteRelayout();
+                            layoutBlockChild(
+                                    c, block, child, false, childOffset, pageCount, relayoutData.getLayoutState());
+                        }
                     }
                 }
             }
@@ -325,11 +346,237 @@ public class BlockBoxing {
             c.setBreakAtLineContext(bContext);
             c.restoreStateForRelayout(layoutState);
             child.reset(c);
+            c.noteRelayout();
             layoutBlockChild0(c, parent, child, needPageClear, childOffset, trimmedPageCount);
             c.setBreakAtLineContext(null);
         }
     }
 
+    /**
+     * Lays out a child that should not be broken across pages. It is first
+     * laid out with page breaks held off. If nothing in that layout depended
+     * on where the child fell on the page, the layout is kept: where it is if
+     * the child fits on its page, or moved to the top of the next page if it
+     * fits there, which is where laying it out again with a page clear would
+     * put the same boxes. A child that still crosses a page break goes
+     * straight on to the usual relayouts. Children known to depend on where
+     * they fall are laid out as usual from the start.
+     *
+     * @return false if the child must be laid out as usual, in which case
+     * the layout state has been restored and the child reset.
+     */
+    private static boolean layoutKeptTogether(
+            LayoutContext c, BlockBox block, BlockBox child,
+            int childOffset, int pageCount, LayoutState layoutState)
+    {
+        if (! child.getStyle().isAvoidPageBreakInside() || child.getStyle().isKeepWithInline() ||
+                ! c.isPageBreaksAllowed() || c.getExtraSpaceTop() != 0 || c.getExtraSpaceBottom() != 0 ||
+                isMarginCollapseStarted(child) || ! c.getSharedContext().isMoveKeptTogetherBlocks() ||
+                isPositionDependent(c, child)) {
+            return false;
+        }
+
+        int positionDependentLayouts = c.getPositionDependentLayoutCount();
+
+        c.setNoPageBreak(c.getNoPageBreak() + 1);
+        layoutBlockChild(c, block, child, false, childOffset, NO_PAGE_TRIM, layoutState);
+        c.setNoPageBreak(c.getNoPageBreak() - 1);
+
+        PageBox page = c.getRootLayer().getFirstPage(c, child);
+
+        if (page != null && c.getPositionDependentLayoutCount() == positionDependentLayouts) {
+            if (child.crossesPageBreak(c)) {
+                // Laid out as usual the child would cross the break too,
+                // as page breaks only ever push content further down.
+                c.setMayCheckKeepTogether(true);
+
+                if (moveToNextPage(c, child, childOffset)) {
+                    c.noteMovedBlock();
+                } else {
+                    c.restoreStateForRelayout(layoutState);
+                    child.reset(c);
+                    c.noteRelayout();
+                    layoutBlockChild(c, block, child, true, childOffset, pageCount, layoutState);
+
+                    if (child.crossesPageBreak(c)) {
+                        c.restoreStateForRelayout(layoutState);
+                        child.reset(c);
+                        c.noteRelayout();
+                        layoutBlockChild(c, block, child, false, childOffset, pageCount, layoutState);
+                    }
+                }
+                return true;
+            } else if (isUnchangedOnPage(c, child, 0, page)) {
+                c.setMayCheckKeepTogether(true);
+                return true;
+            }
+        }
+
+        c.restoreStateForRelayout(layoutState);
+        child.reset(c);
+        c.noteDiscardedLayout();
+        return false;
+    }
+
+    /**
+     * Whether laying out the child is bound to depend on where it falls on
+     * the page, so that a layout with page breaks held off would only be
+     * thrown away. Paginated tables repeat their headers and footers on each
+     * page, and floats are placed against the block formatting context.
+     */
+    private static boolean isPositionDependent(LayoutContext c, BlockBox child)
+    {
+        if (child.getStyle().isPaginateTable()) {
+            return true;
+        }
+
+        return ! child.isAnonymous() && child.getElement() != null &&
+                containsPositionDependent(c, child.getElement());
+    }
+
+    private static boolean containsPositionDependent(LayoutContext c, Element element)
+    {
+        Map<Element, Boolean> cache = c.getPositionDependentCache();
+        Boolean known = cache.get(element);
+
+        if (known != null) {
+            return known.booleanValue();
+        }
+
+        boolean result = false;
+
+        for (Node n = element.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element) {
+                CalculatedStyle style = c.getSharedContext().getStyle((Element) n);
+
+                if (style.isFloated() || style.isPaginateTable() ||
+                        containsPositionDependent(c, (Element) n)) {
+                    result = true;
+                    break;
+                }
+            }
+        }
+
+        cache.put(element, Boolean.valueOf(result));
+        return result;
+    }
+
+    /**
+     * Whether the parent has already collapsed margins through the box, as
+     * it does through first and last children. Resetting the box for a
+     * relayout forgets that, so laying it out again can give a different
+     * result to laying it out the first time.
+     */
+    private static boolean isMarginCollapseStarted(Box box)
+    {
+        if (box instanceof BlockBox) {
+            BlockBox block = (BlockBox) box;
+
+            if (block.isTopMarginCalculated() || block.isBottomMarginCalculated()) {
+                return true;
+            }
+        }
+
+        for (int i = 0; i < box.getChildCount(); i++) {
+            if (isMarginCollapseStarted(box.getChild(i))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Moves a child laid out across a page break down to the top of the next
+     * page, if it fits there without anything in it changing.
+     *
+     * @return whether the child was moved
+     */
+    private static boolean moveToNextPage(LayoutContext c, BlockBox child, int childOffset)
+    {
+        if (child.getY() != childOffset || child.getStyle().isRelative() ||
+                c.getExtraSpaceTop() != 0 || c.getExtraSpaceBottom() != 0 ||
+                c.getBlockFormattingContext().getFloatManager().hasFloats()) {
+            return false;
+        }
+
+        int delta = child.forcePageBreakBefore(
+                c, child.getStyle().getIdent(CSSName.PAGE_BREAK_BEFORE), false);
+        PageBox page = c.getRootLayer().getPage(c, child.getAbsY() + delta);
+
+        if (delta == 0 || page == null || ! isSameWidthPages(c, child, page) ||
+                ! isUnchangedOnPage(c, child, delta, page)) {
+            child.setY(childOffset);
+            return false;
+        }
+
+        child.calcCanvasLocation();
+        child.calcChildLocations();
+        return true;
+    }
+
+    /**
+     * Auto width blocks take their width from the page they start on, so
+     * the pages the child was laid out on and the page it is moved to must
+     * all be the same width.
+     */
+    private static boolean isSameWidthPages(LayoutContext c, BlockBox child, PageBox target)
+    {
+        List<PageBox> pages = c.getRootLayer().getPages();
+        PageBox first = c.getRootLayer().getFirstPage(c, child);
+        int width = target.getContentWidth(c);
+
+        for (int i = first.getPageNo(); i < target.getPageNo(); i++) {
+            if (pages.get(i).getContentWidth(c) != width) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Whether a box moved down by delta would lie wholly within the page,
+     * so that no page break rule applies to it, and would keep its top
+     * margin and position if it started the page.
+     */
+    private static boolean isUnchangedOnPage(LayoutContext c, Box box, int delta, PageBox page)
+    {
+        int top = box.getAbsY() + delta;
+
+        if (top < page.getTop() || top + box.getHeight() >= page.getBottom()) {
+            return false;
+        }
+
+        if (top == page.getTop() && box instanceof BlockBox && box.isTopMarginAdjusted(c)) {
+            return false;
+        }
+
+        if (box instanceof TableBox && ((TableBox) box).calcPageClearance(c, page, top) > 0) {
+            return false;
+        }
+
+        if (box instanceof InlineLayoutBox) {
+            InlineLayoutBox iB = (InlineLayoutBox) box;
+
+            for (int i = 0; i < iB.getInlineChildCount(); i++) {
+                Object child = iB.getInlineChild(i);
+
+                if (child instanceof Box && ! isUnchangedOnPage(c, (Box) child, delta, page)) {
+                    return false;
+                }
+            }
+        }
+
+        for (int i = 0; i < box.getChildCount(); i++) {
+            if (! isUnchangedOnPage(c, box.getChild(i), delta, page)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     private static void layoutBlockChild0(LayoutContext c, BlockBox parent, BlockBox child,
             boolean needPageClear, int childOffset, int trimmedPageCount) 
     {
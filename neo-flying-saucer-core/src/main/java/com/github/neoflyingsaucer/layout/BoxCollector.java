@@ -19,7 +19,6 @@
  */
 package com.github.neoflyingsaucer.layout;
 
-import java.awt.Rectangle;
 import java.awt.Shape;
 import java.util.List;
 
@@ -89,8 +88,7 @@ public class BoxCollector {
         if (info == null) {
             return false;
         }
-        final Rectangle bounds = info.getAggregateBounds();
-        return clip.intersects(bounds);
+        return info.aggregateBoundsIntersect(clip);
     }
     
     public void collect(
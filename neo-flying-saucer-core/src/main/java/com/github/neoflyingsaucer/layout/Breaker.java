@@ -24,7 +24,7 @@ import java.text.BreakIterator;
 
 import com.github.neoflyingsaucer.css.constants.IdentValue;
 import com.github.neoflyingsaucer.css.style.CalculatedStyle;
-import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
 import com.github.neoflyingsaucer.extend.output.FSFont;
 
 /**
@@ -116,6 +116,7 @@ public class Breaker {
         iter.setText(currentString);
 
         final FSFont font = style.getFSFont(c);
+        final FSCancelToken cancelToken = c.getCancelToken();
         int width = 0;
         int next = 0;
         int last = 0;
@@ -137,7 +138,7 @@ public class Breaker {
             // Now iterate the possible line breaks until we reach the estimate.
             do
             {
-            	FSCancelController.cancelOpportunity(Breaker.class);
+            	cancelToken.check(Breaker.class);
             	
             	next = iter.next();
             	if (next == BreakIterator.DONE)
@@ -154,7 +155,7 @@ public class Breaker {
         // If we still have room go to one break past.
         while (width < avail)
         {
-        	FSCancelController.cancelOpportunity(Breaker.class);
+        	cancelToken.check(Breaker.class);
         	
         	next = iter.next();
         	if (next == BreakIterator.DONE)
@@ -169,7 +170,7 @@ public class Breaker {
         
         while (width >= avail)
         {
-        	FSCancelController.cancelOpportunity(Breaker.class);
+        	cancelToken.check(Breaker.class);
         	next = iter.previous();
         	if (next == 0 || next == BreakIterator.DONE)
         		break;
@@ -184,7 +185,7 @@ public class Breaker {
         {
             while (width >= avail && last > 0)
             {
-            	FSCancelController.cancelOpportunity(Breaker.class);
+            	cancelToken.check(Breaker.class);
             	
             	final String broken = currentString.substring(0, last);
             	width = c.getTextRenderer().getWidth(c.getFontContext(), font, broken);
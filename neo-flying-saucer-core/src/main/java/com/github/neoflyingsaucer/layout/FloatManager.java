@@ -22,8 +22,10 @@ package com.github.neoflyingsaucer.layout;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import com.github.neoflyingsaucer.css.style.CssContext;
 import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
@@ -35,17 +37,31 @@ import com.github.neoflyingsaucer.render.LineBox;
  * A class that manages all floated boxes in a given block formatting context.
  * It is responsible for positioning floats and calculating clearance for
  * non-floated (block) boxes.
+ * <p>
+ * Floats are kept for each side with their margin edges, so that lines and
+ * later floats can be checked against them without recalculating every
+ * float. The edges are recalculated when floats are moved through
+ * {@link #performFloatOperation(FloatOperation)} or laid out again.
  */
 public class FloatManager {
     private static final int LEFT = 1;
     private static final int RIGHT = 2;
 
-    private final List<BoxOffset> _leftFloats = new ArrayList<BoxOffset>();
-    private final List<BoxOffset> _rightFloats = new ArrayList<BoxOffset>();
+    private final FloatList _leftFloats = new FloatList();
+    private final FloatList _rightFloats = new FloatList();
 
     private Box _master;
 
+    private long _comparisons;
+
     public void floatBox(final LayoutContext c, final Layer layer, final BlockFormattingContext bfc, final BlockBox box) {
+        final FloatManager previous = box.getFloatedBoxData().getManager();
+        if (previous != null) {
+            // Laid out again without being removed, so any edge
+            // remembered for it is out of date.
+            previous.refresh();
+        }
+
         if (box.getStyle().isFloatedLeft()) {
             position(c, bfc, box, LEFT);
             save(box, layer, bfc, LEFT);
@@ -103,26 +119,26 @@ public class FloatManager {
         }
     }
 
-    private List<BoxOffset> getFloats(final int direction) {
+    private FloatList getFloats(final int direction) {
         return direction == LEFT ? _leftFloats : _rightFloats;
     }
 
-    private List<BoxOffset> getOpposingFloats(final int direction) {
+    private FloatList getOpposingFloats(final int direction) {
         return direction == LEFT ? _rightFloats : _leftFloats;
     }
 
     private void alignToLastFloat(final CssContext cssCtx,
                                   final BlockFormattingContext bfc, final BlockBox current, final int direction) {
 
-        final List<BoxOffset> floats = getFloats(direction);
+        final FloatList floats = getFloats(direction);
         if (floats.size() > 0) {
             final Point offset = bfc.getOffset();
-            final BoxOffset lastOffset = floats.get(floats.size() - 1);
+            final BoxOffset lastOffset = floats.getLast();
             final BlockBox last = lastOffset.getBox();
 
             final Rectangle currentBounds = current.getMarginEdge(cssCtx, -offset.x, -offset.y);
 
-            final Rectangle lastBounds = last.getMarginEdge(cssCtx, -lastOffset.getX(), -lastOffset.getY());
+            final Rectangle lastBounds = lastOffset.getMarginEdge();
 
             boolean moveOver = false;
 
@@ -153,15 +169,14 @@ public class FloatManager {
     private void alignToLastOpposingFloat(final CssContext cssCtx,
                                           final BlockFormattingContext bfc, final BlockBox current, final int direction) {
 
-        final List<BoxOffset> floats = getOpposingFloats(direction);
+        final FloatList floats = getOpposingFloats(direction);
         if (floats.size() > 0) {
             final Point offset = bfc.getOffset();
-            final BoxOffset lastOffset = floats.get(floats.size() - 1);
+            final BoxOffset lastOffset = floats.getLast();
 
             final Rectangle currentBounds = current.getMarginEdge(cssCtx, -offset.x, -offset.y);
 
-            final Rectangle lastBounds = lastOffset.getBox().getMarginEdge(cssCtx,
-                    -lastOffset.getX(), -lastOffset.getY());
+            final Rectangle lastBounds = lastOffset.getMarginEdge();
 
             if (currentBounds.y < lastBounds.y) {
                 currentBounds.translate(0, lastBounds.y - currentBounds.y);
@@ -186,25 +201,13 @@ public class FloatManager {
                 (current.getX() + current.getWidth()) <= current.getContainingBlock().getContentWidth();
     }
 
-    private int findLowestY(final CssContext cssCtx, final List<BoxOffset> floats) {
-        int result = 0;
-
-        for (final BoxOffset floater : floats) {
-        	FSCancelController.cancelOpportunity(FloatManager.class);
-        	
-            final Rectangle bounds = floater.getBox().getMarginEdge(
-                    cssCtx, -floater.getX(), -floater.getY());
-            if (bounds.y + bounds.height > result) {
-                result = bounds.y + bounds.height;
-            }
-        }
-
-        return result;
+    public boolean hasFloats() {
+        return ! _leftFloats.isEmpty() || ! _rightFloats.isEmpty();
     }
 
     public int getClearDelta(final CssContext cssCtx, final int bfcRelativeY) {
-        final int lowestLeftY = findLowestY(cssCtx, getFloats(LEFT));
-        final int lowestRightY = findLowestY(cssCtx, getFloats(RIGHT));
+        final int lowestLeftY = getFloats(LEFT).getLowestY();
+        final int lowestRightY = getFloats(RIGHT).getLowestY();
 
         final int lowestY = Math.max(lowestLeftY, lowestRightY);
 
@@ -212,32 +215,32 @@ public class FloatManager {
     }
 
     private boolean overlaps(final CssContext cssCtx, final BlockFormattingContext bfc,
-                             final BlockBox current, final List<BoxOffset> floats) {
+                             final BlockBox current, final FloatList floats) {
         final Point offset = bfc.getOffset();
         final Rectangle bounds = current.getMarginEdge(cssCtx, -offset.x, -offset.y);
 
-        for (BoxOffset floater : floats)
-        {
-        	FSCancelController.cancelOpportunity(FloatManager.class);
-        	
-        	Rectangle floaterBounds = floater.getBox().getMarginEdge(cssCtx,-floater.getX(), -floater.getY());
-        	
-        	if (floaterBounds.intersects(bounds))
-        		return true;
+        for (int i = floats.getCountAbove(bounds.y + bounds.height) - 1;
+                i >= 0 && floats.reachesBelow(i, bounds.y); i--) {
+            FSCancelController.cancelOpportunity(FloatManager.class);
+            _comparisons++;
+
+            if (floats.get(i).getMarginEdge().intersects(bounds)) {
+                return true;
+            }
         }
-        
+
         return false;
     }
 
     private void moveFloatBelow(final CssContext cssCtx, final BlockFormattingContext bfc,
-                                   final Box current, final List<BoxOffset> floats) {
+                                   final Box current, final FloatList floats) {
         if (floats.isEmpty()) {
             return;
         }
 
         final Point offset = bfc.getOffset();
         final int boxY = current.getY() - offset.y;
-        final int floatY = findLowestY(cssCtx, floats);
+        final int floatY = floats.getLowestY();
 
         if (floatY - boxY > 0) {
             current.setY(current.getY() + (floatY - boxY));
@@ -245,7 +248,7 @@ public class FloatManager {
     }
 
     private void moveClear(final CssContext cssCtx, final BlockFormattingContext bfc,
-                           final Box current, final List<BoxOffset> floats) {
+                           final Box current, final FloatList floats) {
         if (floats.size() == 0) {
             return;
         }
@@ -255,7 +258,7 @@ public class FloatManager {
         final Rectangle bounds = current.getBorderEdge(
                 current.getX()-offset.x, current.getY()-offset.y, cssCtx);
 
-        final int y = findLowestY(cssCtx, floats);
+        final int y = floats.getLowestY();
 
         if (bounds.y < y) {
             // Translate bottom margin edge of lowest float back to box coords
@@ -269,19 +272,8 @@ public class FloatManager {
     }
 
     public void removeFloat(final BlockBox floater) {
-        removeFloat(floater, getFloats(LEFT));
-        removeFloat(floater, getFloats(RIGHT));
-    }
-
-    private void removeFloat(final BlockBox floater, final List<BoxOffset> floats) {
-        for (final Iterator<BoxOffset> i = floats.iterator(); i.hasNext();) {
-        	FSCancelController.cancelOpportunity(FloatManager.class);
-        	
-            final BoxOffset boxOffset = i.next();
-            if (boxOffset.getBox().equals(floater)) {
-                i.remove();
-                floater.getFloatedBoxData().setManager(null);
-            }
+        if (getFloats(LEFT).remove(floater) | getFloats(RIGHT).remove(floater)) {
+            floater.getFloatedBoxData().setManager(null);
         }
     }
 
@@ -290,7 +282,7 @@ public class FloatManager {
         calcFloatLocations(getFloats(RIGHT));
     }
 
-    private void calcFloatLocations(final List<BoxOffset> floats) {
+    private void calcFloatLocations(final FloatList floats) {
         for (final BoxOffset boxOffset : floats) {
             boxOffset.getBox().calcCanvasLocation();
             boxOffset.getBox().calcChildLocations();
@@ -348,7 +340,7 @@ public class FloatManager {
 
     private BoxDistance getFloatDistance(final CssContext cssCtx, final BlockFormattingContext bfc,
                                  final LineBox line, final int containingBlockContentWidth,
-                                 final List<BoxOffset> floatsList, final int direction) {
+                                 final FloatList floatsList, final int direction) {
         if (floatsList.size() == 0) {
             return new BoxDistance(null, 0);
         }
@@ -361,18 +353,24 @@ public class FloatManager {
 
         applyLineHeightHack(cssCtx, line, lineBounds);
         BlockBox farthestOverBox = null;
-        for (int i = 0; i < floatsList.size(); i++) {
+        // Walk back from the last float that starts above the bottom of
+        // the line, so the box found is the last one in document order.
+        for (int i = floatsList.getCountAbove(lineBounds.y + lineBounds.height) - 1;
+                i >= 0 && floatsList.reachesBelow(i, lineBounds.y); i--) {
         	FSCancelController.cancelOpportunity(FloatManager.class);
+            _comparisons++;
         	
-            final BoxOffset floater = (BoxOffset) floatsList.get(i);
-            final Rectangle fr = floater.getBox().getMarginEdge(cssCtx, -floater.getX(), -floater.getY());
+            final BoxOffset floater = floatsList.get(i);
+            final Rectangle fr = floater.getMarginEdge();
             if (lineBounds.intersects(fr)) {
                 if (direction == LEFT && fr.x + fr.width > farthestOver) {
                     farthestOver = fr.x + fr.width;
                 } else if (direction == RIGHT && fr.x < farthestOver) {
                     farthestOver = fr.x;
                 }
-                farthestOverBox = floater.getBox();
+                if (farthestOverBox == null) {
+                    farthestOverBox = floater.getBox();
+                }
             }
         }
 
@@ -391,28 +389,22 @@ public class FloatManager {
         return _master;
     }
 
-    public Point getOffset(final BlockBox floater) {
-        // FIXME inefficient (but probably doesn't matter)
-        return getOffset(floater,
-                floater.getStyle().isFloatedLeft() ? getFloats(LEFT) : getFloats(RIGHT));
+    /**
+     * The number of times a float or line was checked against a float
+     * already placed.
+     */
+    public long getComparisonCount() {
+        return _comparisons;
     }
 
-    private Point getOffset(final BlockBox floater, final List<BoxOffset> floats) {
-
-    	for (final BoxOffset boxOffset : floats) {
-    		FSCancelController.cancelOpportunity(FloatManager.class);
-    		
-            final BlockBox box = boxOffset.getBox();
-
-            if (box.equals(floater)) {
-                return new Point(boxOffset.getX(), boxOffset.getY());
-            }
-        }
+    public Point getOffset(final BlockBox floater) {
+        final BoxOffset boxOffset =
+                (floater.getStyle().isFloatedLeft() ? getFloats(LEFT) : getFloats(RIGHT)).find(floater);
 
-        return null;
+        return boxOffset == null ? null : new Point(boxOffset.getX(), boxOffset.getY());
     }
 
-    private void performFloatOperation(final FloatOperation op, final List<BoxOffset> floats) {
+    private void performFloatOperation(final FloatOperation op, final FloatList floats) {
         for (final BoxOffset boxOffset : floats) {
             final BlockBox box = boxOffset.getBox();
 
@@ -426,17 +418,55 @@ public class FloatManager {
     public void performFloatOperation(final FloatOperation op) {
         performFloatOperation(op, getFloats(LEFT));
         performFloatOperation(op, getFloats(RIGHT));
+
+        // The operation may have moved the floats.
+        refresh();
+    }
+
+    private void refresh() {
+        getFloats(LEFT).refresh();
+        getFloats(RIGHT).refresh();
     }
 
     private static class BoxOffset {
         private final BlockBox _box;
         private final int _x;
         private final int _y;
+        private final Rectangle _marginEdge;
 
         public BoxOffset(final BlockBox box, final int x, final int y) {
             _box = box;
             _x = x;
             _y = y;
+            _marginEdge = new Rectangle();
+            refresh();
+        }
+
+        /**
+         * The margin edge of the box, relative to the block formatting context,
+         * as when it was added or last refreshed. Must not be modified.
+         */
+        public Rectangle getMarginEdge() {
+            return _marginEdge;
+        }
+
+        /**
+         * @return whether the margin edge has changed.
+         */
+        public boolean refresh() {
+            // As Box.getMarginEdge(cssCtx, -_x, -_y)
+            final int x = _box.getX() - _x;
+            final int y = _box.getY() - _y;
+            final int width = _box.getWidth();
+            final int height = _box.getHeight();
+
+            if (x == _marginEdge.x && y == _marginEdge.y &&
+                    width == _marginEdge.width && height == _marginEdge.height) {
+                return false;
+            }
+
+            _marginEdge.setBounds(x, y, width, height);
+            return true;
         }
 
         public BlockBox getBox() {
@@ -452,6 +482,145 @@ public class FloatManager {
         }
     }
 
+    /**
+     * The floats on one side, in the order they were added, with the lowest
+     * bottom edge among each float and those before it. Floats are normally
+     * added no higher than the ones before them, in which case the floats
+     * starting above a given line can be found by binary search.
+     */
+    private static class FloatList implements Iterable<BoxOffset> {
+        private final List<BoxOffset> _floats = new ArrayList<BoxOffset>();
+        private final Map<BlockBox, BoxOffset> _byBox = new IdentityHashMap<BlockBox, BoxOffset>();
+        private int[] _lowestBottoms = new int[16];
+        private boolean _ordered = true;
+
+        public void add(final BoxOffset boxOffset) {
+            _floats.add(boxOffset);
+            if (! _byBox.containsKey(boxOffset.getBox())) {
+                _byBox.put(boxOffset.getBox(), boxOffset);
+            }
+            index(_floats.size() - 1);
+        }
+
+        private void index(final int i) {
+            if (i == _lowestBottoms.length) {
+                final int[] grown = new int[i * 2];
+                System.arraycopy(_lowestBottoms, 0, grown, 0, i);
+                _lowestBottoms = grown;
+            }
+
+            final Rectangle edge = _floats.get(i).getMarginEdge();
+            final int bottom = edge.y + edge.height;
+
+            if (i == 0) {
+                // As the lowest Y was found before, never above zero.
+                _lowestBottoms[0] = Math.max(0, bottom);
+                _ordered = true;
+            } else {
+                _lowestBottoms[i] = Math.max(_lowestBottoms[i - 1], bottom);
+                if (edge.y < _floats.get(i - 1).getMarginEdge().y) {
+                    _ordered = false;
+                }
+            }
+        }
+
+        public boolean remove(final BlockBox box) {
+            if (_byBox.remove(box) == null) {
+                return false;
+            }
+
+            for (final Iterator<BoxOffset> i = _floats.iterator(); i.hasNext();) {
+                FSCancelController.cancelOpportunity(FloatManager.class);
+
+                if (i.next().getBox() == box) {
+                    i.remove();
+                }
+            }
+
+            reindex();
+            return true;
+        }
+
+        public void refresh() {
+            boolean changed = false;
+            for (final BoxOffset boxOffset : _floats) {
+                changed |= boxOffset.refresh();
+            }
+            if (changed) {
+                reindex();
+            }
+        }
+
+        private void reindex() {
+            _ordered = true;
+            for (int i = 0; i < _floats.size(); i++) {
+                index(i);
+            }
+        }
+
+        public BoxOffset find(final BlockBox box) {
+            return _byBox.get(box);
+        }
+
+        public BoxOffset get(final int i) {
+            return _floats.get(i);
+        }
+
+        public BoxOffset getLast() {
+            return _floats.get(_floats.size() - 1);
+        }
+
+        public int size() {
+            return _floats.size();
+        }
+
+        public boolean isEmpty() {
+            return _floats.isEmpty();
+        }
+
+        /**
+         * The bottom of the lowest float, or zero if there are none.
+         */
+        public int getLowestY() {
+            return _floats.isEmpty() ? 0 : _lowestBottoms[_floats.size() - 1];
+        }
+
+        /**
+         * The number of floats, from the first, that may start above
+         * <code>y</code>. Those after them cannot reach above it.
+         */
+        public int getCountAbove(final int y) {
+            if (! _ordered) {
+                return _floats.size();
+            }
+
+            int low = 0;
+            int high = _floats.size();
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (_floats.get(mid).getMarginEdge().y < y) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Whether any float up to and including float <code>i</code>
+         * reaches below <code>y</code>.
+         */
+        public boolean reachesBelow(final int i, final int y) {
+            return _lowestBottoms[i] > y;
+        }
+
+        @Override
+        public Iterator<BoxOffset> iterator() {
+            return _floats.iterator();
+        }
+    }
+
     private static class BoxDistance {
         private final BlockBox _box;
         private final int _distance;
@@ -888,6 +888,7 @@ public class InlineBoxing {
             }
         } else if (style.isRunning()) {
             block.setStaticEquivalent(current);
+            c.notePositionDependentLayout();
             c.getRootLayer().addRunningBlock(block);
         }
 
@@ -39,6 +39,7 @@ import com.github.neoflyingsaucer.css.style.CalculatedStyle;
 import com.github.neoflyingsaucer.css.style.CssContext;
 import com.github.neoflyingsaucer.css.style.EmptyStyle;
 import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.newtable.CollapsedBorderMerger;
 import com.github.neoflyingsaucer.newtable.CollapsedBorderValue;
 import com.github.neoflyingsaucer.newtable.TableBox;
 import com.github.neoflyingsaucer.newtable.TableCellBox;
@@ -484,9 +485,7 @@ public class Layer {
     }
     
     private void paintCollapsedTableBorders(final RenderingContext c, final List<CollapsedBorderSide> borders) {
-        for (final CollapsedBorderSide border : borders) {
-            border.getCell().paintCollapsedBorder(c, border.getSide());
-        }
+        CollapsedBorderMerger.paint(c, borders);
     }
     
     public void paintAsLayer(final RenderingContext c, final BlockBox startingPoint) {
@@ -585,15 +584,6 @@ public class Layer {
         return getParent() == null && isStackingContext();
     }
     
-    private void moveIfGreater(final Dimension result, final Dimension test) {
-        if (test.width > result.width) {
-            result.width = test.width;
-        }
-        if (test.height > result.height) {
-            result.height = test.height;
-        }
-    }
-    
     private PaintingInfo calcPaintingDimension(final LayoutContext c) 
     {
         getMaster().calcPaintingInfo(c, true);
@@ -608,7 +598,7 @@ public class Layer {
         	{
         		PaintingInfo info = child.calcPaintingDimension(c);
         		
-        		moveIfGreater(result.getOuterMarginCorner(), info.getOuterMarginCorner());
+        		result.includeOuterMarginCorner(info);
         	}
         }
 
@@ -737,6 +727,7 @@ public class Layer {
                     layoutAbsoluteChild(c, child);
                     if (child.getMaster().getStyle().isAvoidPageBreakInside() &&
                             child.getMaster().crossesPageBreak(c)) {
+                        c.notePositionDependentLayout();
                         child.getMaster().reset(c);
                         ((BlockBox)child.getMaster()).setNeedPageClear(true);
                         layoutAbsoluteChild(c, child);
@@ -23,11 +23,14 @@ import java.awt.Rectangle;
 import java.text.BreakIterator;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import org.w3c.dom.Element;
+
 import com.github.neoflyingsaucer.context.ContentFunctionFactory;
 import com.github.neoflyingsaucer.context.StyleReference;
 import com.github.neoflyingsaucer.css.constants.CSSName;
@@ -36,11 +39,14 @@ import com.github.neoflyingsaucer.css.parser.CounterData;
 import com.github.neoflyingsaucer.css.style.CalculatedStyle;
 import com.github.neoflyingsaucer.css.style.CssContext;
 import com.github.neoflyingsaucer.extend.*;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
 import com.github.neoflyingsaucer.extend.output.FSFont;
 import com.github.neoflyingsaucer.extend.output.FSFontMetrics;
 import com.github.neoflyingsaucer.extend.output.FontContext;
 import com.github.neoflyingsaucer.extend.output.FontSpecificationI;
 import com.github.neoflyingsaucer.extend.useragent.UserAgentCallback;
+import com.github.neoflyingsaucer.newtable.TableBox;
 import com.github.neoflyingsaucer.render.Box;
 import com.github.neoflyingsaucer.render.MarkerData;
 import com.github.neoflyingsaucer.render.PageBox;
@@ -68,6 +74,13 @@ public class LayoutContext implements CssContext {
 
     private final ContentFunctionFactory _contentFunctionFactory = new ContentFunctionFactory();
 
+    private final TextWidthCache _textWidthCache = new TextWidthCache();
+
+    private final FSCancelToken _cancelToken = FSCancelController.getThreadCancelToken();
+
+    private final Map<Object, TableBox> _marginTableCache = new HashMap<Object, TableBox>();
+    private final Map<Element, Boolean> _positionDependentCache = new IdentityHashMap<Element, Boolean>();
+
     private int _extraSpaceTop;
     private int _extraSpaceBottom;
     
@@ -84,6 +97,10 @@ public class LayoutContext implements CssContext {
     private boolean _mayCheckKeepTogether = true;
     
     private BreakAtLineContext _breakAtLineContext;
+
+    private int _positionDependentLayouts;
+    private int _relayouts;
+    private int _movedBlocks;
     
     // TODO: Should this go in shared context as break iterators may be slow to
     // start up?
@@ -210,6 +227,8 @@ public class LayoutContext implements CssContext {
     }
 
     public void pushLayer(final Box master) {
+        notePositionDependentLayout();
+
         Layer layer = null;
 
         if (_rootLayer == null) {
@@ -320,6 +339,35 @@ public class LayoutContext implements CssContext {
         return _contentFunctionFactory;
     }
 
+    public TextWidthCache getTextWidthCache() {
+        return _textWidthCache;
+    }
+
+    /**
+     * The cancel token of the thread which created this context. Check it
+     * in loops rather than going through {@link FSCancelController}.
+     */
+    public FSCancelToken getCancelToken() {
+        return _cancelToken;
+    }
+
+    /**
+     * Laid out page margin tables, shared between pages whose margin
+     * boxes have the same declarations and size.
+     */
+    public Map<Object, TableBox> getMarginTableCache() {
+        return _marginTableCache;
+    }
+
+    /**
+     * Whether the content of each element looked at so far holds floats
+     * or paginated tables, so that nested blocks kept together do not
+     * look through the same content again.
+     */
+    public Map<Element, Boolean> getPositionDependentCache() {
+        return _positionDependentCache;
+    }
+
     public SharedContext getSharedContext() {
         return _sharedContext;
     }
@@ -529,6 +577,52 @@ public class LayoutContext implements CssContext {
         _breakAtLineContext = breakAtLineContext;
     }
 
+    /**
+     * Notes that a layout decision was just made that depends on where a box
+     * falls on the page. A box laid out without any such decisions can be
+     * moved to another page without being laid out again.
+     */
+    public void notePositionDependentLayout() {
+        _positionDependentLayouts++;
+    }
+
+    public int getPositionDependentLayoutCount() {
+        return _positionDependentLayouts;
+    }
+
+    /**
+     * Notes that a block is being laid out again to satisfy the page break
+     * rules. Where it ends up depends on the page, so this is also a position
+     * dependent layout.
+     */
+    public void noteRelayout() {
+        _relayouts++;
+        _positionDependentLayouts++;
+    }
+
+    /**
+     * Notes that a block's layout was thrown away, to be laid out again as
+     * usual. It is counted with the relayouts.
+     */
+    public void noteDiscardedLayout() {
+        _relayouts++;
+    }
+
+    public int getRelayoutCount() {
+        return _relayouts;
+    }
+
+    /**
+     * Notes that a block was moved to the next page rather than laid out again.
+     */
+    public void noteMovedBlock() {
+        _movedBlocks++;
+    }
+
+    public int getMovedBlockCount() {
+        return _movedBlocks;
+    }
+
 	public BreakIterator getTextBreaker()
 	{
 		return _breakit;
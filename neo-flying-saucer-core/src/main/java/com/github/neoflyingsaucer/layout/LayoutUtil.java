@@ -63,6 +63,10 @@ public class LayoutUtil {
             final int avail, final List<FloatLayoutResult> pendingFloats) {
         final FloatLayoutResult result = new FloatLayoutResult();
 
+        // Floats are positioned against the block formatting context, so
+        // a block holding one can't simply be moved.
+        c.notePositionDependentLayout();
+
         final MarkerData markerData = c.getCurrentMarkerData();
         c.setCurrentMarkerData(null);
 
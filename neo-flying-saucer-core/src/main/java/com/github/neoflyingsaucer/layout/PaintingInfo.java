@@ -21,6 +21,7 @@ package com.github.neoflyingsaucer.layout;
 
 import java.awt.Dimension;
 import java.awt.Rectangle;
+import java.awt.Shape;
 
 /**
  * A bean which every box uses to provide its aggregate bounds (which may be 
@@ -28,41 +29,139 @@ import java.awt.Rectangle;
  * and its outer margin corner (which is used to calculate the size of the
  * canvas).  The aggregate bounds calculation does not take the value of the
  * overflow property into account.
+ * 
+ * Every box in the layout tree keeps one of these, so the values are held
+ * as ints rather than as a Dimension and a Rectangle. The getters return
+ * copies; use the methods here to change the values.
  */
 public class PaintingInfo {
-    private Dimension _outerMarginCorner;
-    private Rectangle _aggregateBounds;
+    private int _outerMarginCornerWidth;
+    private int _outerMarginCornerHeight;
+    
+    private int _aggregateX;
+    private int _aggregateY;
+    private int _aggregateWidth;
+    private int _aggregateHeight;
     
     public PaintingInfo() {
     }
     
     public Rectangle getAggregateBounds() {
-        return _aggregateBounds;
+        return new Rectangle(_aggregateX, _aggregateY, _aggregateWidth, _aggregateHeight);
     }
     
     public void setAggregateBounds(final Rectangle aggregateBounds) {
-        _aggregateBounds = aggregateBounds;
+        _aggregateX = aggregateBounds.x;
+        _aggregateY = aggregateBounds.y;
+        _aggregateWidth = aggregateBounds.width;
+        _aggregateHeight = aggregateBounds.height;
+    }
+    
+    /**
+     * As <code>getAggregateBounds().contains(x, y)</code>.
+     */
+    public boolean aggregateBoundsContain(final int x, final int y) {
+        int w = _aggregateWidth;
+        int h = _aggregateHeight;
+        if ((w | h) < 0) {
+            return false;
+        }
+        if (x < _aggregateX || y < _aggregateY) {
+            return false;
+        }
+        w += _aggregateX;
+        h += _aggregateY;
+        //    overflow || intersect
+        return ((w < _aggregateX || w > x) &&
+                (h < _aggregateY || h > y));
+    }
+    
+    /**
+     * As <code>clip.intersects(getAggregateBounds())</code>.
+     */
+    public boolean aggregateBoundsIntersect(final Shape clip) {
+        return clip.intersects(_aggregateX, _aggregateY, _aggregateWidth, _aggregateHeight);
     }
     
     public Dimension getOuterMarginCorner() {
-        return _outerMarginCorner;
+        return new Dimension(_outerMarginCornerWidth, _outerMarginCornerHeight);
     }
     
     public void setOuterMarginCorner(final Dimension outerMarginCorner) {
-        _outerMarginCorner = outerMarginCorner;
+        _outerMarginCornerWidth = outerMarginCorner.width;
+        _outerMarginCornerHeight = outerMarginCorner.height;
+    }
+    
+    /**
+     * Moves the outer margin corner out to cover that of <code>other</code>.
+     */
+    public void includeOuterMarginCorner(final PaintingInfo other) {
+        if (other._outerMarginCornerWidth > _outerMarginCornerWidth) {
+            _outerMarginCornerWidth = other._outerMarginCornerWidth;
+        }
+        if (other._outerMarginCornerHeight > _outerMarginCornerHeight) {
+            _outerMarginCornerHeight = other._outerMarginCornerHeight;
+        }
+    }
+    
+    /**
+     * Grows this info to cover that of a child, both the outer margin corner
+     * and the aggregate bounds, the latter as {@link Rectangle#add(Rectangle)}.
+     */
+    public void include(final PaintingInfo child) {
+        includeOuterMarginCorner(child);
+        
+        long tx2 = _aggregateWidth;
+        long ty2 = _aggregateHeight;
+        if ((tx2 | ty2) < 0) {
+            _aggregateX = child._aggregateX;
+            _aggregateY = child._aggregateY;
+            _aggregateWidth = child._aggregateWidth;
+            _aggregateHeight = child._aggregateHeight;
+        }
+        long rx2 = child._aggregateWidth;
+        long ry2 = child._aggregateHeight;
+        if ((rx2 | ry2) < 0) {
+            return;
+        }
+        int tx1 = _aggregateX;
+        int ty1 = _aggregateY;
+        tx2 += tx1;
+        ty2 += ty1;
+        final int rx1 = child._aggregateX;
+        final int ry1 = child._aggregateY;
+        rx2 += rx1;
+        ry2 += ry1;
+        if (tx1 > rx1) tx1 = rx1;
+        if (ty1 > ry1) ty1 = ry1;
+        if (tx2 < rx2) tx2 = rx2;
+        if (ty2 < ry2) ty2 = ry2;
+        tx2 -= tx1;
+        ty2 -= ty1;
+        if (tx2 > Integer.MAX_VALUE) tx2 = Integer.MAX_VALUE;
+        if (ty2 > Integer.MAX_VALUE) ty2 = Integer.MAX_VALUE;
+        _aggregateX = tx1;
+        _aggregateY = ty1;
+        _aggregateWidth = (int) tx2;
+        _aggregateHeight = (int) ty2;
     }
     
     public PaintingInfo copyOf() {
         final PaintingInfo result = new PaintingInfo();
-        result.setOuterMarginCorner(new Dimension(_outerMarginCorner));
-        result.setAggregateBounds(new Rectangle(_aggregateBounds));
+        result._outerMarginCornerWidth = _outerMarginCornerWidth;
+        result._outerMarginCornerHeight = _outerMarginCornerHeight;
+        result._aggregateX = _aggregateX;
+        result._aggregateY = _aggregateY;
+        result._aggregateWidth = _aggregateWidth;
+        result._aggregateHeight = _aggregateHeight;
         
         return result;
     }
     
     public void translate(final int tx, final int ty) {
-        _aggregateBounds.translate(tx, ty);
-        _outerMarginCorner.setSize(
-                _outerMarginCorner.getWidth()+tx, _outerMarginCorner.getHeight()+ty);
+        _aggregateX += tx;
+        _aggregateY += ty;
+        _outerMarginCornerWidth += tx;
+        _outerMarginCornerHeight += ty;
     }
 }
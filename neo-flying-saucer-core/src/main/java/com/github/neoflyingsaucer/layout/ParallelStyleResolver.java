@@ -0,0 +1,155 @@
+package com.github.neoflyingsaucer.layout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelledException;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorHandler;
+import com.github.neoflyingsaucer.extend.controller.error.FSSerialErrorHandler;
+
+/**
+ * Resolves the style of every element in a document before box building
+ * starts, spreading independent subtrees over an executor. The results
+ * end up in the style map of the {@link SharedContext} so the calls
+ * to <code>getStyle</code> made while building boxes are all cache hits.
+ *
+ * The top of the tree is resolved on the calling thread, breadth first,
+ * until there are enough subtrees to keep each thread busy. Each
+ * remaining subtree is then resolved depth first by one task.
+ *
+ * Styles derived here have every property resolved before they are
+ * shared, so a task only ever reads the styles made by other tasks.
+ */
+public class ParallelStyleResolver {
+    /**
+     * How many subtrees to aim for per thread, so that one large
+     * subtree does not leave the other threads idle.
+     */
+    private static final int SUBTREES_PER_THREAD = 4;
+
+    private final SharedContext sharedContext;
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    public ParallelStyleResolver(SharedContext sharedContext, ExecutorService executor, int parallelism) {
+        assert(sharedContext != null);
+        this.sharedContext = sharedContext;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    public void resolve(Document doc) {
+        Element root = doc.getDocumentElement();
+
+        if (root == null)
+            return;
+
+        if (executor == null || parallelism <= 1) {
+            resolveSubtree(root);
+            return;
+        }
+
+        List<Element> frontier = new ArrayList<Element>(1);
+        frontier.add(root);
+        int target = parallelism * SUBTREES_PER_THREAD;
+
+        while (!frontier.isEmpty() && frontier.size() < target) {
+            List<Element> next = new ArrayList<Element>();
+
+            for (Element e : frontier) {
+                sharedContext.getResolvedStyle(e);
+                addChildElements(e, next);
+            }
+
+            frontier = next;
+        }
+
+        if (frontier.isEmpty())
+            return;
+
+        FSCancelToken cancelToken = FSCancelController.getThreadCancelToken();
+        FSErrorHandler errorHandler = new FSSerialErrorHandler(FSErrorController.getThreadErrorHandler());
+        List<Future<?>> futures = new ArrayList<Future<?>>(frontier.size());
+
+        for (Element e : frontier) {
+            futures.add(executor.submit(new SubtreeTask(e, cancelToken, errorHandler)));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FSCancelledException("Style resolution interrupted", ParallelStyleResolver.class);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            else if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw new RuntimeException(cause);
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private void resolveSubtree(Element e) {
+        FSCancelController.cancelOpportunity(ParallelStyleResolver.class);
+        sharedContext.getResolvedStyle(e);
+
+        for (Node n = e.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element)
+                resolveSubtree((Element) n);
+        }
+    }
+
+    private static void addChildElements(Element parent, List<Element> out) {
+        for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element)
+                out.add((Element) n);
+        }
+    }
+
+    private class SubtreeTask implements Runnable {
+        private final Element subtree;
+        private final FSCancelToken cancelToken;
+        private final FSErrorHandler errorHandler;
+
+        private SubtreeTask(Element subtree, FSCancelToken cancelToken, FSErrorHandler errorHandler) {
+            this.subtree = subtree;
+            this.cancelToken = cancelToken;
+            this.errorHandler = errorHandler;
+        }
+
+        @Override
+        public void run() {
+            FSCancelToken oldCancelToken = FSCancelController.getThreadCancelToken();
+            FSErrorHandler oldErrorHandler = FSErrorController.getThreadErrorHandler();
+
+            FSCancelController.setThreadCancelToken(cancelToken);
+            FSErrorController.setThreadErrorHandler(errorHandler);
+
+            try {
+                resolveSubtree(subtree);
+            } finally {
+                FSCancelController.setThreadCancelToken(oldCancelToken);
+                FSErrorController.setThreadErrorHandler(oldErrorHandler);
+            }
+        }
+    }
+}
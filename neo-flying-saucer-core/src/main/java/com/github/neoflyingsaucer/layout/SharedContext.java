@@ -27,6 +27,7 @@ import java.awt.Toolkit;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -98,10 +99,11 @@ public class SharedContext {
 
     private final static float DEFAULT_DPI = 72;
     private boolean print;
+    private boolean moveKeptTogetherBlocks = true;
 
     private int dotsPerPixel = 1;
 
-    private Map<Element, CalculatedStyle> styleMap;
+    private volatile Map<Element, CalculatedStyle> styleMap;
 
     private ReplacedElementFactory replacedElementFactory;
     private Rectangle temp_canvas;
@@ -503,6 +505,19 @@ public class SharedContext {
         setMedia(print ? "print" : "screen");
     }
 
+    /**
+     * Whether a block that should not be broken across pages is first laid
+     * out with page breaks held off, so that it can be moved to the next
+     * page as it is rather than laid out again. On by default.
+     */
+    public boolean isMoveKeptTogetherBlocks() {
+        return moveKeptTogetherBlocks;
+    }
+
+    public void setMoveKeptTogetherBlocks(final boolean moveKeptTogetherBlocks) {
+        this.moveKeptTogetherBlocks = moveKeptTogetherBlocks;
+    }
+
     public void setFontResolver(final FontResolver resolver) {
         font_resolver = resolver;
     }
@@ -520,13 +535,24 @@ public class SharedContext {
     }
 
     public CalculatedStyle getStyle(final Element e, final boolean restyle) {
-        if (styleMap == null) {
-            styleMap = new HashMap<Element, CalculatedStyle>(1024, 0.75f);
-        }
+        return getStyle(e, restyle, false);
+    }
+
+    /**
+     * Like {@link #getStyle(Element)}, but every property of a new style is
+     * resolved before the style can be seen by other threads, see
+     * {@link CalculatedStyle#deriveStyle}.
+     */
+    CalculatedStyle getResolvedStyle(final Element e) {
+        return getStyle(e, false, true);
+    }
+
+    private CalculatedStyle getStyle(final Element e, final boolean restyle, final boolean resolveAll) {
+        final Map<Element, CalculatedStyle> map = getStyleMap();
 
         CalculatedStyle result = null;
         if (! restyle) {
-            result = styleMap.get(e);
+            result = map.get(e);
         }
         if (result == null) {
             CalculatedStyle parentCalculatedStyle;
@@ -542,18 +568,36 @@ public class SharedContext {
         		if (parent instanceof Document) {
         			parentCalculatedStyle = new EmptyStyle();
         		} else {
-        			parentCalculatedStyle = getStyle((Element)parent, false);
+        			parentCalculatedStyle = getStyle((Element)parent, false, resolveAll);
         		}
         	}
 
-            result = parentCalculatedStyle.deriveStyle(getCss().getCascadedStyle(getBaseURL(), e, restyle));
+            result = parentCalculatedStyle.deriveStyle(getCss().getCascadedStyle(getBaseURL(), e, restyle), resolveAll);
 
-            styleMap.put(e, result);
+            map.put(e, result);
         }
 
         return result;
     }
 
+    /**
+     * The style map may be filled from several threads by
+     * {@link ParallelStyleResolver} before box building starts.
+     */
+    private Map<Element, CalculatedStyle> getStyleMap() {
+        Map<Element, CalculatedStyle> result = styleMap;
+        if (result == null) {
+            synchronized (this) {
+                result = styleMap;
+                if (result == null) {
+                    result = new ConcurrentHashMap<Element, CalculatedStyle>(1024, 0.75f, 4);
+                    styleMap = result;
+                }
+            }
+        }
+        return result;
+    }
+
     public void reset() {
        styleMap = null;
        idMap = null;
@@ -0,0 +1,147 @@
+package com.github.neoflyingsaucer.layout;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.github.neoflyingsaucer.extend.TextRenderer;
+import com.github.neoflyingsaucer.extend.output.FSFont;
+import com.github.neoflyingsaucer.extend.output.FontContext;
+
+/**
+ * Remembers the measured width of words and single characters for the
+ * length of a layout run. Intrinsic (min/max) width calculation measures
+ * the same words over and over, especially in auto layout tables, which
+ * measure every cell and then measure them all again on relayout.
+ *
+ * Fonts are compared with <code>equals</code>, which the font
+ * implementations define in terms of the underlying font and size.
+ */
+public class TextWidthCache {
+    /**
+     * Beyond this many words for one font the word memo is dropped and
+     * started again, to bound memory on huge documents.
+     */
+    private static final int MAX_WORDS_PER_FONT = 8192;
+
+    /**
+     * Characters below this are kept in a flat array per font.
+     */
+    private static final int CHAR_TABLE_SIZE = 256;
+
+    private final Map<FSFont, FontWidths> _fonts = new HashMap<FSFont, FontWidths>();
+
+    private int _measureCount;
+    private int _avoidedCount;
+
+    private static class FontWidths {
+        private final Map<String, Integer> words = new HashMap<String, Integer>();
+        private final int[] chars = new int[CHAR_TABLE_SIZE];
+        private Map<Character, Integer> otherChars;
+
+        private FontWidths() {
+            Arrays.fill(chars, -1);
+        }
+    }
+
+    private FontWidths getFontWidths(final FSFont font) {
+        FontWidths widths = _fonts.get(font);
+        if (widths == null) {
+            widths = new FontWidths();
+            _fonts.put(font, widths);
+        }
+        return widths;
+    }
+
+    private int measure(final TextRenderer renderer, final FontContext fontContext, final FSFont font, final String text) {
+        _measureCount++;
+        return renderer.getWidth(fontContext, font, text);
+    }
+
+    /**
+     * Returns the width of text (usually a single word) in the given font.
+     */
+    public int getWidth(final TextRenderer renderer, final FontContext fontContext, final FSFont font, final String text) {
+        final FontWidths widths = getFontWidths(font);
+        final Integer cached = widths.words.get(text);
+
+        if (cached != null) {
+            _avoidedCount++;
+            return cached.intValue();
+        }
+
+        final int width = measure(renderer, fontContext, font, text);
+
+        if (widths.words.size() >= MAX_WORDS_PER_FONT) {
+            widths.words.clear();
+        }
+
+        widths.words.put(text, Integer.valueOf(width));
+        return width;
+    }
+
+    /**
+     * Returns the width of a single character in the given font.
+     */
+    public int getCharWidth(final TextRenderer renderer, final FontContext fontContext, final FSFont font, final char ch) {
+        final FontWidths widths = getFontWidths(font);
+
+        if (ch < CHAR_TABLE_SIZE) {
+            int width = widths.chars[ch];
+            if (width == -1) {
+                width = measure(renderer, fontContext, font, Character.toString(ch));
+                widths.chars[ch] = width;
+            } else {
+                _avoidedCount++;
+            }
+            return width;
+        }
+
+        if (widths.otherChars == null) {
+            widths.otherChars = new HashMap<Character, Integer>();
+        }
+
+        final Character key = Character.valueOf(ch);
+        final Integer cached = widths.otherChars.get(key);
+
+        if (cached != null) {
+            _avoidedCount++;
+            return cached.intValue();
+        }
+
+        final int width = measure(renderer, fontContext, font, Character.toString(ch));
+        widths.otherChars.put(key, Integer.valueOf(width));
+        return width;
+    }
+
+    /**
+     * Returns the width of the widest character of text in the given font.
+     */
+    public int getMaxCharWidth(final TextRenderer renderer, final FontContext fontContext, final FSFont font, final String text) {
+        int result = 0;
+        final int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            final int width = getCharWidth(renderer, fontContext, font, text.charAt(i));
+            if (width > result) {
+                result = width;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * The number of times text was actually measured.
+     */
+    public int getMeasureCount() {
+        return _measureCount;
+    }
+
+    /**
+     * The number of measurements answered from this cache.
+     */
+    public int getAvoidedCount() {
+        return _avoidedCount;
+    }
+}
@@ -0,0 +1,219 @@
+package com.github.neoflyingsaucer.newtable;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.github.neoflyingsaucer.css.constants.IdentValue;
+import com.github.neoflyingsaucer.css.parser.FSColor;
+import com.github.neoflyingsaucer.css.parser.FSRGBColor;
+import com.github.neoflyingsaucer.css.style.derived.BorderPropertySet;
+import com.github.neoflyingsaucer.extend.OutputDevice;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.layout.CollapsedBorderSide;
+import com.github.neoflyingsaucer.render.BorderPainter;
+import com.github.neoflyingsaucer.render.RenderingContext;
+
+/**
+ * Paints the collapsed borders of a table, joining the sides of
+ * neighbouring cells that lie on the same grid line into one line or
+ * rectangle. Left to each cell, a large grid paints one short segment per
+ * cell side.
+ *
+ * Borders are painted in priority order, so where borders of different
+ * colours cross, the one painted last shows. Only runs of sides that come
+ * one after another in that order, and are all solid and all the same
+ * opaque colour, are joined up. Painting such a run in any order, joined
+ * or not, gives the same pixels. Other sides are painted one by one as
+ * before.
+ */
+public class CollapsedBorderMerger {
+    private static class Segment {
+        private final boolean horizontal;
+        private final int lineWidth;
+        /* Where the line or rectangle starts across the grid line. */
+        private final int across;
+        private final int start;
+        private int end;
+
+        private Segment(boolean horizontal, int lineWidth, int across, int start, int end) {
+            this.horizontal = horizontal;
+            this.lineWidth = lineWidth;
+            this.across = across;
+            this.start = start;
+            this.end = end;
+        }
+
+        private boolean isSameLine(Segment other) {
+            return horizontal == other.horizontal &&
+                   lineWidth == other.lineWidth &&
+                   across == other.across;
+        }
+    }
+
+    private static final Comparator<Segment> SEGMENT_ORDER = new Comparator<Segment>() {
+        @Override
+        public int compare(Segment s1, Segment s2) {
+            if (s1.horizontal != s2.horizontal)
+                return s1.horizontal ? -1 : 1;
+            if (s1.lineWidth != s2.lineWidth)
+                return s1.lineWidth < s2.lineWidth ? -1 : 1;
+            if (s1.across != s2.across)
+                return s1.across < s2.across ? -1 : 1;
+            if (s1.start != s2.start)
+                return s1.start < s2.start ? -1 : 1;
+            return 0;
+        }
+    };
+
+    private CollapsedBorderMerger() { }
+
+    /**
+     * @param borders the collapsed border sides of one table, sorted by priority.
+     */
+    public static void paint(RenderingContext c, List<CollapsedBorderSide> borders) {
+        FSColor runColor = null;
+        List<Segment> run = new ArrayList<Segment>();
+
+        for (CollapsedBorderSide side : borders) {
+            FSCancelController.cancelOpportunity(CollapsedBorderMerger.class);
+
+            TableCellBox cell = side.getCell();
+            BorderPropertySet border = cell.getCollapsedPaintingBorder();
+
+            if (!isPainted(border, side.getSide()))
+                continue;
+
+            FSColor color = getColor(border, side.getSide());
+
+            if (getStyle(border, side.getSide()) != IdentValue.SOLID || !isOpaque(color)) {
+                paintRun(c.getOutputDevice(), runColor, run);
+                cell.paintCollapsedBorder(c, side.getSide());
+                continue;
+            }
+
+            if (runColor != null && !runColor.equals(color))
+                paintRun(c.getOutputDevice(), runColor, run);
+
+            runColor = color;
+            run.add(createSegment(cell.getCollapsedBorderBounds(c), border, side.getSide()));
+        }
+
+        paintRun(c.getOutputDevice(), runColor, run);
+    }
+
+    /**
+     * Paints a run of sides, joining up those on the same line, and empties it.
+     */
+    private static void paintRun(OutputDevice out, FSColor color, List<Segment> run) {
+        if (run.isEmpty())
+            return;
+
+        Collections.sort(run, SEGMENT_ORDER);
+        out.setColor(color);
+
+        Segment joined = run.get(0);
+
+        for (int i = 1; i < run.size(); i++) {
+            Segment next = run.get(i);
+
+            if (next.isSameLine(joined) && next.start <= joined.end) {
+                joined.end = Math.max(joined.end, next.end);
+            } else {
+                paintSegment(out, joined);
+                joined = next;
+            }
+        }
+
+        paintSegment(out, joined);
+        run.clear();
+    }
+
+    /**
+     * The same tests {@link BorderPainter#paint} makes before painting a side.
+     */
+    private static boolean isPainted(BorderPropertySet border, int side) {
+        switch (side) {
+        case BorderPainter.TOP:
+            return !border.noTop() && border.topColor() != FSRGBColor.TRANSPARENT;
+        case BorderPainter.RIGHT:
+            return !border.noRight() && border.rightColor() != FSRGBColor.TRANSPARENT;
+        case BorderPainter.BOTTOM:
+            return !border.noBottom() && border.bottomColor() != FSRGBColor.TRANSPARENT;
+        case BorderPainter.LEFT:
+            return !border.noLeft() && border.leftColor() != FSRGBColor.TRANSPARENT;
+        default:
+            return false;
+        }
+    }
+
+    private static IdentValue getStyle(BorderPropertySet border, int side) {
+        switch (side) {
+        case BorderPainter.TOP:
+            return border.topStyle();
+        case BorderPainter.RIGHT:
+            return border.rightStyle();
+        case BorderPainter.BOTTOM:
+            return border.bottomStyle();
+        default:
+            return border.leftStyle();
+        }
+    }
+
+    private static FSColor getColor(BorderPropertySet border, int side) {
+        switch (side) {
+        case BorderPainter.TOP:
+            return border.topColor();
+        case BorderPainter.RIGHT:
+            return border.rightColor();
+        case BorderPainter.BOTTOM:
+            return border.bottomColor();
+        default:
+            return border.leftColor();
+        }
+    }
+
+    /**
+     * Overlapping translucent segments paint darker where they overlap,
+     * so joining them would change how they look.
+     */
+    private static boolean isOpaque(FSColor color) {
+        return !(color instanceof FSRGBColor) || ((FSRGBColor) color).getAlpha() >= 1f;
+    }
+
+    /**
+     * The area {@link BorderPainter} paints for one solid side, without
+     * bevelled corners: a one pixel line along the edge of the bounds, or a
+     * rectangle as deep as the border is wide.
+     */
+    private static Segment createSegment(Rectangle bounds, BorderPropertySet border, int side) {
+        switch (side) {
+        case BorderPainter.TOP:
+            return new Segment(true, (int) border.top(), bounds.y, bounds.x, bounds.x + bounds.width);
+        case BorderPainter.BOTTOM:
+            return new Segment(true, (int) border.bottom(), bounds.y + bounds.height - (int) border.bottom(), bounds.x, bounds.x + bounds.width);
+        case BorderPainter.LEFT:
+            return new Segment(false, (int) border.left(), bounds.x, bounds.y, bounds.y + bounds.height);
+        default:
+            return new Segment(false, (int) border.right(), bounds.x + bounds.width - (int) border.right(), bounds.y, bounds.y + bounds.height);
+        }
+    }
+
+    private static void paintSegment(OutputDevice out, Segment segment) {
+        int length = segment.end - segment.start;
+
+        if (segment.lineWidth == 1) {
+            // As BorderPainter, draw a 1px border with a line.
+            if (segment.horizontal)
+                out.drawBorderLine(new Rectangle(segment.start, segment.across, length, 1), BorderPainter.TOP, 1, true);
+            else
+                out.drawBorderLine(new Rectangle(segment.across, segment.start, 1, length), BorderPainter.LEFT, 1, true);
+        } else if (segment.horizontal) {
+            out.fillRect(segment.start, segment.across, length, segment.lineWidth);
+        } else {
+            out.fillRect(segment.across, segment.start, segment.lineWidth, length);
+        }
+    }
+}
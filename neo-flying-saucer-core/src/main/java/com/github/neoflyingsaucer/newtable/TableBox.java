@@ -146,7 +146,12 @@ public class TableBox extends BlockBox {
         if (isMarginAreaRoot()) {
             _tableLayout = new MarginTableLayout(this);
         } else if (getStyle().isIdent(CSSName.TABLE_LAYOUT, IdentValue.AUTO) || getStyle().isAutoWidth()) {
-            _tableLayout = new AutoTableLayout(this);
+            final int sampleRows = (int) getStyle().asFloat(CSSName.FS_TABLE_SAMPLE_ROWS);
+            if (sampleRows > 0) {
+                _tableLayout = new SampledTableLayout(this, sampleRows);
+            } else {
+                _tableLayout = new AutoTableLayout(this);
+            }
         } else {
             _tableLayout = new FixedTableLayout(this);
         }
@@ -305,6 +310,7 @@ public class TableBox extends BlockBox {
         // If we have a running footer, we need its dimensions right away
         final boolean running = c.isPrint() && getStyle().isPaginateTable();
         if (running) {
+            c.notePositionDependentLayout();
             final int headerHeight = layoutRunningHeader(c);
             final int footerHeight = layoutRunningFooter(c);
             final int spacingHeight = footerHeight == 0 ? 0 : getStyle().getBorderVSpacing(c);
@@ -550,34 +556,55 @@ public class TableBox extends BlockBox {
     private void calcPageClearance(final LayoutContext c) {
         if (c.isPrint() && getStyle().isCollapseBorders()) {
             final PageBox page = c.getRootLayer().getFirstPage(c, this);
-            if (page != null) {
-                final TableRowBox row = getFirstRow();
-                if (row != null) {
-                    int spill = 0;
-                    for (final Iterator<Box> i = row.getChildIterator(); i.hasNext(); ) {
-                    	FSCancelController.cancelOpportunity(TableBox.class);
-                    	
-                        final TableCellBox cell = (TableCellBox)i.next();
-                        final BorderPropertySet collapsed = cell.getCollapsedPaintingBorder();
-                        final int tmp = (int)collapsed.top() / 2;
-                        if (tmp > spill) {
-                            spill = tmp;
-                        }
-                    }
-
-                    final int borderTop = getAbsY() + (int)getMargin(c).top() - spill;
-                    final int delta = page.getTop() - borderTop;
-                    if (delta > 0) {
-                        setY(getY() + delta);
-                        setPageClearance(delta);
-                        calcCanvasLocation();
-                        c.translate(0, delta);
-                    }
+            if (page != null && getFirstRow() != null) {
+                final int borderTop = getAbsY() + (int)getMargin(c).top() - calcTopBorderSpill();
+                final int delta = page.getTop() - borderTop;
+                if (delta > 0) {
+                    c.notePositionDependentLayout();
+                    setY(getY() + delta);
+                    setPageClearance(delta);
+                    calcCanvasLocation();
+                    c.translate(0, delta);
                 }
             }
         }
     }
 
+    /**
+     * How far this table, laid out with its top at absY, might have to be
+     * moved down to keep its collapsed top border on the page. Zero or less
+     * if it can stay where it is.
+     */
+    public int calcPageClearance(final CssContext c, final PageBox page, final int absY) {
+        if (! getStyle().isCollapseBorders() || getFirstRow() == null) {
+            return 0;
+        }
+
+        // The top margin may yet be reset to the style margin.
+        final int marginTop = Math.min((int)getMargin(c).top(), (int)getStyleMargin(c).top());
+        final int borderTop = absY + marginTop - calcTopBorderSpill();
+        return page.getTop() - borderTop;
+    }
+
+    /**
+     * How far the collapsed top border of the first row reaches above the
+     * table, which is half the widest top border.
+     */
+    private int calcTopBorderSpill() {
+        int spill = 0;
+        for (final Iterator<Box> i = getFirstRow().getChildIterator(); i.hasNext(); ) {
+        	FSCancelController.cancelOpportunity(TableBox.class);
+        	
+            final TableCellBox cell = (TableCellBox)i.next();
+            final BorderPropertySet collapsed = cell.getCollapsedPaintingBorder();
+            final int tmp = (int)collapsed.top() / 2;
+            if (tmp > spill) {
+                spill = tmp;
+            }
+        }
+        return spill;
+    }
+
     private void calcWidth() {
         if (getMinWidth() > getWidth()) {
             setContentWidth(getContentWidth() + getMinWidth() - getWidth());
@@ -949,6 +976,37 @@ public class TableBox extends BlockBox {
         }
     }
 
+    /**
+     * A specialization of <code>AutoTableLayout</code> which only measures
+     * the cells of header and footer sections and of the first
+     * <code>-fs-table-sample-rows</code> body rows when working out column
+     * widths. The remaining rows are laid out into the resulting columns
+     * without being measured, much as with <code>table-layout: fixed</code>.
+     * Text in those rows wraps within its column, and content which cannot
+     * be broken is treated as it is in a fixed layout column that is too
+     * narrow.
+     *
+     * Only the min/max width measurement is cut down. Rows are still all
+     * built and laid out by the sections, as they are for every table
+     * layout (<code>FixedTableLayout.layout</code> only sets the column
+     * positions too), and are not streamed.
+     */
+    private static class SampledTableLayout extends AutoTableLayout {
+        private final int _sampleRows;
+
+        public SampledTableLayout(final TableBox table, final int sampleRows) {
+            super(table);
+            _sampleRows = sampleRows;
+        }
+
+        protected int getMeasuredRowCount(final TableSectionBox section, final int bodyRowsMeasured) {
+            if (section.isHeader() || section.isFooter()) {
+                return section.numRows();
+            }
+            return Math.max(0, Math.min(section.numRows(), _sampleRows - bodyRowsMeasured));
+        }
+    }
+
     private static class FixedTableLayout implements TableLayout {
         private final TableBox _table;
         private List<Length> _widths;
@@ -1244,15 +1302,28 @@ public class TableBox extends BlockBox {
             return 1;
         }
 
+        /**
+         * The number of rows, from the top of <code>section</code>, whose
+         * cells contribute to the column widths. <code>bodyRowsMeasured</code>
+         * is the number of rows already measured in earlier body sections.
+         */
+        protected int getMeasuredRowCount(final TableSectionBox section, final int bodyRowsMeasured) {
+            return section.numRows();
+        }
+
         private void recalcColumn(final LayoutContext c, final int effCol) {
             final Layout l = _layoutStruct[effCol];
+            int bodyRowsMeasured = 0;
 
             // first we iterate over all rows.
             for (final Iterator<Box> j = _table.getChildIterator(); j.hasNext();) {
             	FSCancelController.cancelOpportunity(TableBox.class);
             	
                 final TableSectionBox section = (TableSectionBox) j.next();
-                final int numRows = section.numRows();
+                final int numRows = getMeasuredRowCount(section, bodyRowsMeasured);
+                if (! (section.isHeader() || section.isFooter())) {
+                    bodyRowsMeasured += numRows;
+                }
                 for (int i = 0; i < numRows; i++) {
                     final TableCellBox cell = section.cellAt(i, effCol);
                     if (cell == TableCellBox.SPANNING_CELL || cell == null) {
@@ -767,7 +767,7 @@ public class TableCellBox extends BlockBox {
         return result;
     }
     
-    private Rectangle getCollapsedBorderBounds(final CssContext c) {
+    Rectangle getCollapsedBorderBounds(final CssContext c) {
         final BorderPropertySet border = getCollapsedPaintingBorder();
         final Rectangle bounds = getPaintingBorderEdge(c);
         bounds.x -= (int) border.left() / 2;
@@ -461,6 +461,7 @@ public class TableRowBox extends BlockBox {
     }
     
     private void relayoutCell(final LayoutContext c, final TableCellBox cell, final int contentStart) {
+        c.notePositionDependentLayout();
         final int width = cell.getWidth();
         cell.reset(c);
         cell.setLayoutWidth(c, width);
@@ -787,6 +787,7 @@ public class BlockBox extends Box implements InlinePaintable {
                 c.getExtraSpaceTop() > 0 && (getStyle().isSpecifiedAsBlock() || getStyle().isListItem())) {
             final PageBox first = c.getRootLayer().getFirstPage(c, this);
             if (first != null && first.getTop() + c.getExtraSpaceTop() > getAbsY()) {
+                c.notePositionDependentLayout();
                 final int diff = first.getTop() + c.getExtraSpaceTop() - getAbsY();
                 setY(getY() + diff);
                 c.translate(0, diff);
@@ -840,6 +841,7 @@ public class BlockBox extends Box implements InlinePaintable {
         addBoxID(c);
 
         if (c.isPrint() && getStyle().isIdent(CSSName.FS_PAGE_SEQUENCE, IdentValue.START)) {
+            c.notePositionDependentLayout();
             c.getRootLayer().addPageSequence(this);
         }
 
@@ -852,6 +854,9 @@ public class BlockBox extends Box implements InlinePaintable {
         if (c.isPrint()) {
             final PageBox firstPage = c.getRootLayer().getFirstPage(c, this);
             if (firstPage != null && firstPage.getTop() == getAbsY() - getPageClearance()) {
+                if (isTopMarginAdjusted(c)) {
+                    c.notePositionDependentLayout();
+                }
                 resetTopMargin(c);
             }
         }
@@ -1060,6 +1065,7 @@ public class BlockBox extends Box implements InlinePaintable {
         }
 
         if (i != cCount) {
+            c.notePositionDependentLayout();
             final int orphans = (int)getStyle().asFloat(CSSName.ORPHANS);
             if (i - noContentLBs < orphans) {
                 setNeedPageClear(true);
@@ -1866,9 +1872,7 @@ public class BlockBox extends Box implements InlinePaintable {
                     new FloatManager.FloatOperation() {
                         public void operate(final Box floater) {
                             final PaintingInfo info = floater.calcPaintingInfo(c, useCache);
-                            moveIfGreater(
-                                    result.getOuterMarginCorner(),
-                                    info.getOuterMarginCorner());
+                            result.includeOuterMarginCorner(info);
                         }
                     });
         }
@@ -191,7 +191,7 @@ public abstract class Box implements Styleable {
     public void addChild(Box child)
     {
         if (_boxes == null) {
-            _boxes = new ArrayList<Box>();
+            _boxes = new ArrayList<Box>(4);
         }
         if (child == null) {
             throw new NullPointerException("trying to add null child");
@@ -647,6 +647,8 @@ public abstract class Box implements Styleable {
      */
     public int forcePageBreakBefore(LayoutContext c, IdentValue pageBreakValue, boolean pendingPageName)
     {
+        c.notePositionDependentLayout();
+
         // The page where this box starts.
     	PageBox page = c.getRootLayer().getFirstPage(c, this);
         
@@ -712,6 +714,8 @@ public abstract class Box implements Styleable {
      */
     public void forcePageBreakAfter(LayoutContext c, IdentValue pageBreakValue) 
     {
+        c.notePositionDependentLayout();
+
         boolean needSecondPageBreak = false;
         
         PageBox page = c.getRootLayer().getLastPage(c, this);
@@ -782,7 +786,7 @@ public abstract class Box implements Styleable {
     public Box find(CssContext cssCtx, int absX, int absY, boolean findAnonymous) {
         PaintingInfo pI = getPaintingInfo();
         
-        if (pI != null && ! pI.getAggregateBounds().contains(absX, absY)) {
+        if (pI != null && ! pI.aggregateBoundsContain(absX, absY)) {
             return null;
         }
 
@@ -864,6 +868,15 @@ public abstract class Box implements Styleable {
         return getContainingBlock().getContentWidth();
     }
 
+    /**
+     * Whether {@link #resetTopMargin} would change the top margin, as it
+     * does if the margin was collapsed with a neighbour's.
+     */
+    public boolean isTopMarginAdjusted(CssContext cssContext) {
+        return _workingMargin != null &&
+                _workingMargin.top() != getStyleMargin(cssContext).top();
+    }
+
     protected void resetTopMargin(CssContext cssContext) {
         if (_workingMargin != null) {
             RectPropertySet styleMargin = getStyleMargin(cssContext);
@@ -914,8 +927,22 @@ public abstract class Box implements Styleable {
         for (int i = 0; i < getChildCount(); i++) {
             Box child = getChild(i);
             PaintingInfo info = child.calcPaintingInfo(c, useCache);
-            moveIfGreater(result.getOuterMarginCorner(), info.getOuterMarginCorner());
-            result.getAggregateBounds().add(info.getAggregateBounds());
+            result.include(info);
+        }
+    }
+
+    /**
+     * @deprecated painting info copies its outer margin corner in and out,
+     * so moving a returned corner no longer changes it. Use
+     * {@link PaintingInfo#includeOuterMarginCorner(PaintingInfo)}.
+     */
+    @Deprecated
+    protected void moveIfGreater(Dimension result, Dimension test) {
+        if (test.width > result.width) {
+            result.width = test.width;
+        }
+        if (test.height > result.height) {
+            result.height = test.height;
         }
     }
 
@@ -938,15 +965,6 @@ public abstract class Box implements Styleable {
         }
     }
 
-    protected void moveIfGreater(Dimension result, Dimension test) {
-        if (test.width > result.width) {
-            result.width = test.width;
-        }
-        if (test.height > result.height) {
-            result.height = test.height;
-        }
-    }
-
     public void restyle(LayoutContext c) {
         Element e = getElement();
         CalculatedStyle style = null;
@@ -143,22 +143,19 @@ public class InlineBox implements Styleable {
     }
 
     private int getTextWidth(final LayoutContext c, final String s) {
-        return c.getTextRenderer().getWidth(
+        return c.getTextWidthCache().getWidth(
+                c.getTextRenderer(),
                 c.getFontContext(),
                 c.getFont(getStyle().getFont(c)),
                 s);
     }
 
     private int getMaxCharWidth(final LayoutContext c, final String s) {
-        final char[] chars = s.toCharArray();
-        int result = 0;
-        for (int i = 0; i < chars.length; i++) {
-            final int width = getTextWidth(c, Character.toString(chars[i]));
-            if (width > result) {
-                result = width;
-            }
-        }
-        return result;
+        return c.getTextWidthCache().getMaxCharWidth(
+                c.getTextRenderer(),
+                c.getFontContext(),
+                c.getFont(getStyle().getFont(c)),
+                s);
     }
 
     private void calcMaxWidthFromLineLength(final LayoutContext c, final int cbWidth, final boolean trim) {
@@ -200,7 +197,8 @@ public class InlineBox implements Styleable {
     }
 
     public int getSpaceWidth(final LayoutContext c) {
-        return c.getTextRenderer().getWidth(
+        return c.getTextWidthCache().getWidth(
+                c.getTextRenderer(),
                 c.getFontContext(),
                 getStyle().getFSFont(c),
                 WhitespaceStripper.SPACE);
@@ -130,7 +130,7 @@ public class InlineLayoutBox extends Box implements InlinePaintable {
     
     public void addInlineChild(final LayoutContext c, final Object child, final boolean callUnmarkPending) {
         if (_inlineChildren == null) {
-            _inlineChildren = new ArrayList<Object>();
+            _inlineChildren = new ArrayList<Object>(2);
         }
         
         _inlineChildren.add(child);
@@ -746,8 +746,7 @@ public class InlineLayoutBox extends Box implements InlinePaintable {
             final Object obj = getInlineChild(i);
             if (obj instanceof Box) {
                 final PaintingInfo info = ((Box)obj).calcPaintingInfo(c, useCache);
-                moveIfGreater(result.getOuterMarginCorner(), info.getOuterMarginCorner());
-                result.getAggregateBounds().add(info.getAggregateBounds());
+                result.include(info);
             } 
         }
     }
@@ -808,7 +807,7 @@ public class InlineLayoutBox extends Box implements InlinePaintable {
     
     public Box find(final CssContext cssCtx, final int absX, final int absY, final boolean findAnonymous) {
         final PaintingInfo pI = getPaintingInfo();
-        if (pI != null && ! pI.getAggregateBounds().contains(absX, absY)) {
+        if (pI != null && ! pI.aggregateBoundsContain(absX, absY)) {
             return null;
         }
         
@@ -499,7 +499,7 @@ public class LineBox extends Box implements InlinePaintable {
     
     public Box find(final CssContext cssCtx, final int absX, final int absY, final boolean findAnonymous) {
         final PaintingInfo pI = getPaintingInfo();
-        if (pI !=null && ! pI.getAggregateBounds().contains(absX, absY)) {
+        if (pI !=null && ! pI.aggregateBoundsContain(absX, absY)) {
             return null;
         }
         
@@ -650,6 +650,7 @@ public class LineBox extends Box implements InlinePaintable {
                forcePageBreakBefore(c, IdentValue.ALWAYS, false);
                calcCanvasLocation();
            } else if (pageBox.getTop() + c.getExtraSpaceTop() > getAbsY()) {
+               c.notePositionDependentLayout();
                final int diff = pageBox.getTop() + c.getExtraSpaceTop() - getAbsY();
                
                setY(getY() + diff);
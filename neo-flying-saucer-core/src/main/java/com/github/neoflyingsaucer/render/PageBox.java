@@ -24,8 +24,10 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.w3c.dom.Element;
 
@@ -33,6 +35,7 @@ import com.github.neoflyingsaucer.css.constants.CSSName;
 import com.github.neoflyingsaucer.css.constants.CSSPrimitiveUnit;
 import com.github.neoflyingsaucer.css.constants.IdentValue;
 import com.github.neoflyingsaucer.css.constants.MarginBoxName;
+import com.github.neoflyingsaucer.css.extend.ContentFunction;
 import com.github.neoflyingsaucer.css.newmatch.PageInfo;
 import com.github.neoflyingsaucer.css.parser.FSFunction;
 import com.github.neoflyingsaucer.css.parser.PropertyValue;
@@ -414,10 +417,22 @@ public class PageBox {
 
     private void layoutMarginAreas(final LayoutContext c) {
         final RectPropertySet margin = getMargin(c);
+        final Map<Object, TableBox> cache = c.getMarginTableCache();
         for (int i = 0; i < MARGIN_AREA_DEFS.length; i++) {
             final MarginArea area = MARGIN_AREA_DEFS[i];
             
             final Dimension dim = area.getLayoutDimension(c, this, margin);
+            
+            MarginAreaKey key = null;
+            if (isReusable(c, area.getMarginBoxNames())) {
+                key = new MarginAreaKey(i, dim, _pageInfo, area.getMarginBoxNames());
+                final TableBox cached = cache.get(key);
+                if (cached != null) {
+                    _marginAreas[i] = new MarginAreaContainer(area, cached);
+                    continue;
+                }
+            }
+            
             final TableBox table = BoxBuilder.createMarginTable(
                     c, _pageInfo, 
                     area.getMarginBoxNames(),
@@ -439,10 +454,54 @@ public class PageBox {
                     c.setNoPageBreak(0);
                 }
                 _marginAreas[i] = new MarginAreaContainer(area, table);
+                if (key != null) {
+                    cache.put(key, table);
+                }
             }
         }
     }
     
+    /**
+     * Whether the layout of these margin boxes can be shared with other
+     * pages. Running elements are different on every page, so they rule
+     * this out, as do static content functions, which are evaluated
+     * during layout. Page counters are dynamic and are worked out again
+     * each time the margin box is painted.
+     */
+    private boolean isReusable(final LayoutContext c, final MarginBoxName[] names) {
+        for (final MarginBoxName name : names) {
+            final List<PropertyDeclaration> decls = _pageInfo.getMarginBoxes().get(name);
+            if (decls == null) {
+                continue;
+            }
+            for (final PropertyDeclaration decl : decls) {
+                if (decl.getCSSName() != CSSName.CONTENT) {
+                    continue;
+                }
+                final List<?> values = ((PropertyValue)decl.getValue()).getValues();
+                if (values == null) {
+                    continue;
+                }
+                for (final Object valueObj : values) {
+                    final PropertyValue value = (PropertyValue)valueObj;
+                    if (value.getPropertyValueType() != PropertyValueImp.VALUE_TYPE_FUNCTION) {
+                        continue;
+                    }
+                    final FSFunction function = value.getFunction();
+                    if (BoxBuilder.isElementFunction(function)) {
+                        return false;
+                    }
+                    final ContentFunction contentFunction = 
+                        c.getContentFunctionFactory().lookupFunction(c, function).orElse(null);
+                    if (contentFunction != null && contentFunction.isStatic()) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+    
     public boolean isLeftPage() {
         return _pageNo % 2 != 0;
     }
@@ -508,6 +567,51 @@ public class PageBox {
         }
     }
     
+    /**
+     * Identifies a laid out margin area. Declarations are compared by
+     * identity, so pages share a layout only when the same page rules
+     * apply to them.
+     */
+    private static final class MarginAreaKey {
+        private final int _area;
+        private final int _width;
+        private final int _height;
+        private final List<PropertyDeclaration> _pageProperties;
+        private final List<List<PropertyDeclaration>> _marginBoxes;
+        
+        public MarginAreaKey(final int area, final Dimension dim, final PageInfo pageInfo, final MarginBoxName[] names) {
+            _area = area;
+            _width = (int)dim.getWidth();
+            _height = (int)dim.getHeight();
+            _pageProperties = pageInfo.getProperties();
+            _marginBoxes = new ArrayList<List<PropertyDeclaration>>(names.length);
+            for (final MarginBoxName name : names) {
+                _marginBoxes.add(pageInfo.getMarginBoxes().get(name));
+            }
+        }
+        
+        public boolean equals(final Object obj) {
+            if (! (obj instanceof MarginAreaKey)) {
+                return false;
+            }
+            final MarginAreaKey other = (MarginAreaKey)obj;
+            return _area == other._area &&
+                    _width == other._width &&
+                    _height == other._height &&
+                    _pageProperties.equals(other._pageProperties) &&
+                    _marginBoxes.equals(other._marginBoxes);
+        }
+        
+        public int hashCode() {
+            int result = _area;
+            result = 31 * result + _width;
+            result = 31 * result + _height;
+            result = 31 * result + _pageProperties.hashCode();
+            result = 31 * result + _marginBoxes.hashCode();
+            return result;
+        }
+    }
+    
     private static abstract class MarginArea {
         private final MarginBoxName[] _marginBoxNames;
         private TableBox _table;
@@ -24,6 +24,8 @@ import java.awt.Rectangle;
 import com.github.neoflyingsaucer.context.StyleReference;
 import com.github.neoflyingsaucer.css.style.CssContext;
 import com.github.neoflyingsaucer.extend.*;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
 import com.github.neoflyingsaucer.extend.output.FSFont;
 import com.github.neoflyingsaucer.extend.output.FSFontMetrics;
 import com.github.neoflyingsaucer.extend.output.FontContext;
@@ -53,6 +55,8 @@ public class RenderingContext implements CssContext {
     
     private int initialPageNo;
     
+    private final FSCancelToken cancelToken = FSCancelController.getThreadCancelToken();
+    
     /**
      * needs a new instance every run
      */
@@ -64,6 +68,13 @@ public class RenderingContext implements CssContext {
         this.sharedContext = sharedContext;
     }
 
+    /**
+     * The cancel token of the thread which created this context.
+     */
+    public FSCancelToken getCancelToken() {
+        return cancelToken;
+    }
+
     public void setBaseURL(final String url) {
         sharedContext.setBaseURL(url);
     }
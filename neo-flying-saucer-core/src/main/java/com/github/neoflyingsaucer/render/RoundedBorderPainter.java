@@ -8,6 +8,10 @@ import java.awt.Stroke;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import com.github.neoflyingsaucer.css.constants.IdentValue;
 import com.github.neoflyingsaucer.css.parser.FSRGBColor;
@@ -21,6 +25,94 @@ public class RoundedBorderPainter {
     public static final int RIGHT = 8;
     public static final int ALL = TOP + LEFT + BOTTOM + RIGHT;
     
+    private static final int SHAPE_CACHE_SIZE = 512;
+    
+    /**
+     * Border sides already built, keyed on everything that goes into their
+     * shape except the position of the box. Pages of boxes with the same
+     * size and border, such as cards or buttons, only build each side once.
+     */
+    private static final Map<ShapeKey, BorderShape> SHAPE_CACHE = Collections.synchronizedMap(
+    		new LinkedHashMap<ShapeKey, BorderShape>(SHAPE_CACHE_SIZE, 0.75f, true) {
+    			private static final long serialVersionUID = 1L;
+
+    			@Override
+    			protected boolean removeEldestEntry(final Map.Entry<ShapeKey, BorderShape> eldest) {
+    				return size() > SHAPE_CACHE_SIZE;
+    			}
+    		});
+    
+    private static class BorderShape {
+    	/* Never handed out, callers get a moved copy. */
+    	private final Path2D path;
+    	private final int xOffset;
+    	private final int yOffset;
+    	
+    	private BorderShape(final Path2D path, final int xOffset, final int yOffset) {
+    		this.path = path;
+    		this.xOffset = xOffset;
+    		this.yOffset = yOffset;
+    	}
+    }
+    
+    private static class ShapeKey {
+    	private final int width;
+    	private final int height;
+    	private final int side;
+    	private final boolean drawInterior;
+    	private final float scaledOffset;
+    	private final float widthScale;
+    	/* Border widths and radii, in the order of BorderPropertySet. */
+    	private final float[] border;
+    	private final int hash;
+    	
+    	private ShapeKey(final int width, final int height, final int side, final BorderPropertySet border, 
+    			final boolean drawInterior, final float scaledOffset, final float widthScale) {
+    		this.width = width;
+    		this.height = height;
+    		this.side = side;
+    		this.drawInterior = drawInterior;
+    		this.scaledOffset = scaledOffset;
+    		this.widthScale = widthScale;
+    		this.border = new float[] {
+    				border.top(), border.right(), border.bottom(), border.left(),
+    				border.radiusTopLeftOne(), border.radiusTopLeftTwo(),
+    				border.radiusTopRightOne(), border.radiusTopRightTwo(),
+    				border.radiusBottomRightOne(), border.radiusBottomRightTwo(),
+    				border.radiusBottomLeftOne(), border.radiusBottomLeftTwo() };
+    		
+    		int h = width;
+    		h = 31 * h + height;
+    		h = 31 * h + side;
+    		h = 31 * h + (drawInterior ? 1 : 0);
+    		h = 31 * h + Float.floatToIntBits(scaledOffset);
+    		h = 31 * h + Float.floatToIntBits(widthScale);
+    		h = 31 * h + Arrays.hashCode(this.border);
+    		this.hash = h;
+    	}
+    	
+    	@Override
+    	public int hashCode() {
+    		return hash;
+    	}
+    	
+    	@Override
+    	public boolean equals(final Object obj) {
+    		if (!(obj instanceof ShapeKey)) {
+    			return false;
+    		}
+    		final ShapeKey other = (ShapeKey) obj;
+    		return hash == other.hash &&
+    				width == other.width &&
+    				height == other.height &&
+    				side == other.side &&
+    				drawInterior == other.drawInterior &&
+    				Float.floatToIntBits(scaledOffset) == Float.floatToIntBits(other.scaledOffset) &&
+    				Float.floatToIntBits(widthScale) == Float.floatToIntBits(other.widthScale) &&
+    				Arrays.equals(border, other.border);
+    	}
+    }
+    
     /**
      * Generates a full round rectangle that is made of bounds and border
      * @param bounds Dimmensions of the rect
@@ -82,7 +174,25 @@ public class RoundedBorderPainter {
      * @return a path for the side chosen!
      */
     public static Path2D generateBorderShape(final Rectangle bounds, final int side, final BorderPropertySet border, final boolean drawInterior, final float scaledOffset, final float widthScale) {
+    	final ShapeKey key = new ShapeKey(bounds.width, bounds.height, side, border, drawInterior, scaledOffset, widthScale);
+    	
+    	BorderShape shape = SHAPE_CACHE.get(key);
+    	if (shape == null) {
+    		shape = createBorderShape(bounds.width, bounds.height, side, border, drawInterior, scaledOffset, widthScale);
+    		SHAPE_CACHE.put(key, shape);
+    	}
     	
+    	// Copy the cached path, moving it into place in the same single
+    	// step as when it was built here, so the coordinates come out the same.
+    	return new Path2D.Float(shape.path, 
+    			AffineTransform.getTranslateInstance(bounds.x + shape.xOffset, bounds.y + shape.yOffset));
+    }
+    
+    /**
+     * Builds one side of a border for a box at the origin, rotated into
+     * place but not yet moved to its corner of the box.
+     */
+    private static BorderShape createBorderShape(final int width, final int height, final int side, final BorderPropertySet border, final boolean drawInterior, final float scaledOffset, final float widthScale) {
     	float sideWidth = -1, topWidth = widthScale, leftWidth = widthScale, rightWidth = widthScale;
     	double rotation = 0;
     	float interiorWidth = 0, interiorHeight = 0,
@@ -91,7 +201,7 @@ public class RoundedBorderPainter {
     	int xOffset = 0, yOffset = 0;
     	
     	if ((side & BorderPainter.TOP) == BorderPainter.TOP) {
-    		sideWidth = bounds.width;
+    		sideWidth = width;
     		
     		topWidth = widthScale*border.top();
     		leftWidth = widthScale*border.left();
@@ -100,14 +210,14 @@ public class RoundedBorderPainter {
     		leftRadius = new BorderRadiusPair(border.radiusTopLeftOne(), border.radiusTopLeftTwo());
     		rightRadius = new BorderRadiusPair(border.radiusTopRightOne(), border.radiusTopRightTwo());
 
-    		interiorWidth = bounds.width - (1+scaledOffset)*widthScale*border.left() - (1+scaledOffset)*widthScale*border.right();
-    		interiorHeight = bounds.height - (1+scaledOffset)*widthScale*border.top() - (1+scaledOffset)*widthScale*border.bottom();
-    		exteriorWidth = bounds.width - scaledOffset*widthScale*border.left() - scaledOffset*widthScale*border.right();
-    		exteriorHeight = bounds.height - scaledOffset*widthScale*border.top() - scaledOffset*widthScale*border.bottom();
+    		interiorWidth = width - (1+scaledOffset)*widthScale*border.left() - (1+scaledOffset)*widthScale*border.right();
+    		interiorHeight = height - (1+scaledOffset)*widthScale*border.top() - (1+scaledOffset)*widthScale*border.bottom();
+    		exteriorWidth = width - scaledOffset*widthScale*border.left() - scaledOffset*widthScale*border.right();
+    		exteriorHeight = height - scaledOffset*widthScale*border.top() - scaledOffset*widthScale*border.bottom();
     		
     		rotation = 0;
     	} else if ((side & BorderPainter.RIGHT) == BorderPainter.RIGHT) {
-    		sideWidth = bounds.height;
+    		sideWidth = height;
     		
     		topWidth = widthScale*border.right();
     		leftWidth = widthScale*border.top();
@@ -116,16 +226,16 @@ public class RoundedBorderPainter {
     		leftRadius = new BorderRadiusPair(border.radiusTopRightOne(), border.radiusTopRightTwo());
     		rightRadius = new BorderRadiusPair(border.radiusBottomRightOne(), border.radiusBottomRightTwo());
     		
-    		interiorHeight = bounds.width - (1+scaledOffset)*widthScale*border.left() - (1+scaledOffset)*widthScale*border.right();
-    		interiorWidth = bounds.height - (1+scaledOffset)*widthScale*border.top() - (1+scaledOffset)*widthScale*border.bottom();
-    		exteriorHeight = bounds.width - scaledOffset*widthScale*border.left() - scaledOffset*widthScale*border.right();
-     		exteriorWidth = bounds.height - scaledOffset*widthScale*border.top() - scaledOffset*widthScale*border.bottom();
+    		interiorHeight = width - (1+scaledOffset)*widthScale*border.left() - (1+scaledOffset)*widthScale*border.right();
+    		interiorWidth = height - (1+scaledOffset)*widthScale*border.top() - (1+scaledOffset)*widthScale*border.bottom();
+    		exteriorHeight = width - scaledOffset*widthScale*border.left() - scaledOffset*widthScale*border.right();
+     		exteriorWidth = height - scaledOffset*widthScale*border.top() - scaledOffset*widthScale*border.bottom();
 
-    		xOffset = bounds.width;
+    		xOffset = width;
     		yOffset = 0;
     		rotation = Math.PI / 2;
     	} else if ((side & BorderPainter.BOTTOM) == BorderPainter.BOTTOM) {
-    		sideWidth = bounds.width;
+    		sideWidth = width;
     		
     		topWidth = widthScale*border.bottom();
     		leftWidth = widthScale*border.right();
@@ -134,16 +244,16 @@ public class RoundedBorderPainter {
     		leftRadius = new BorderRadiusPair(border.radiusBottomRightOne(), border.radiusBottomRightTwo());
     		rightRadius = new BorderRadiusPair(border.radiusBottomLeftOne(), border.radiusBottomLeftTwo());
 
-    		interiorWidth = bounds.width - (1+scaledOffset)*widthScale*border.left() - (1+scaledOffset)*widthScale*border.right();
-    		interiorHeight = bounds.height - (1+scaledOffset)*widthScale*border.top() - (1+scaledOffset)*widthScale*border.bottom();
-    		exteriorWidth = bounds.width - scaledOffset*widthScale*border.left() - scaledOffset*widthScale*border.right();
-    		exteriorHeight = bounds.height - scaledOffset*widthScale*border.top() - scaledOffset*widthScale*border.bottom();
+    		interiorWidth = width - (1+scaledOffset)*widthScale*border.left() - (1+scaledOffset)*widthScale*border.right();
+    		interiorHeight = height - (1+scaledOffset)*widthScale*border.top() - (1+scaledOffset)*widthScale*border.bottom();
+    		exteriorWidth = width - scaledOffset*widthScale*border.left() - scaledOffset*widthScale*border.right();
+    		exteriorHeight = height - scaledOffset*widthScale*border.top() - scaledOffset*widthScale*border.bottom();
 
-    		xOffset = bounds.width;
-    		yOffset = bounds.height;
+    		xOffset = width;
+    		yOffset = height;
     		rotation = Math.PI;
     	} else if ((side & BorderPainter.LEFT) == BorderPainter.LEFT) {
-    		sideWidth = bounds.height;
+    		sideWidth = height;
     		
     		topWidth = widthScale*border.left();
     		leftWidth = widthScale*border.bottom();
@@ -152,13 +262,13 @@ public class RoundedBorderPainter {
     		leftRadius = new BorderRadiusPair(border.radiusBottomLeftOne(), border.radiusBottomLeftTwo());
     		rightRadius = new BorderRadiusPair(border.radiusTopLeftOne(), border.radiusTopLeftTwo());
     		
-    		interiorHeight = bounds.width - (1+scaledOffset)*widthScale*border.left() - (1+scaledOffset)*widthScale*border.right();
-    		interiorWidth = bounds.height - (1+scaledOffset)*widthScale*border.top() - (1+scaledOffset)*widthScale*border.bottom();
-    		exteriorHeight = (bounds.width - scaledOffset*widthScale*border.left() - scaledOffset*widthScale*border.right());
-     		exteriorWidth = bounds.height - scaledOffset*widthScale*border.top() - scaledOffset*widthScale*border.bottom();
+    		interiorHeight = width - (1+scaledOffset)*widthScale*border.left() - (1+scaledOffset)*widthScale*border.right();
+    		interiorWidth = height - (1+scaledOffset)*widthScale*border.top() - (1+scaledOffset)*widthScale*border.bottom();
+    		exteriorHeight = (width - scaledOffset*widthScale*border.left() - scaledOffset*widthScale*border.right());
+     		exteriorWidth = height - scaledOffset*widthScale*border.top() - scaledOffset*widthScale*border.bottom();
    		 
     		xOffset = 0;
-    		yOffset = bounds.height;
+    		yOffset = height;
     		rotation = 3 * Math.PI / 2;
     	}
     	
@@ -264,9 +374,8 @@ public class RoundedBorderPainter {
     	
 		
 		path.transform(AffineTransform.getRotateInstance(rotation, 0, 0));
-		path.transform(AffineTransform.getTranslateInstance(bounds.x + xOffset, bounds.y + yOffset));
     	
-    	return path;
+    	return new BorderShape(path, xOffset, yOffset);
     }
     
     /**
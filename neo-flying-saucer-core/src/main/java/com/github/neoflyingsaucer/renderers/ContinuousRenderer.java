@@ -3,6 +3,8 @@ package com.github.neoflyingsaucer.renderers;
 import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import org.w3c.dom.Document;
 
@@ -10,6 +12,11 @@ import com.github.neoflyingsaucer.css.sheet.FontFaceRule;
 import com.github.neoflyingsaucer.displaylist.DisplayListImpl;
 import com.github.neoflyingsaucer.displaylist.DlOutputDevice;
 import com.github.neoflyingsaucer.displaylist.DlTextRenderer;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
+import com.github.neoflyingsaucer.extend.controller.error.LangId;
+import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsController;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsStage;
 import com.github.neoflyingsaucer.extend.output.DisplayList;
 import com.github.neoflyingsaucer.extend.output.FSFontFaceItem;
 import com.github.neoflyingsaucer.extend.output.FontContext;
@@ -22,6 +29,7 @@ import com.github.neoflyingsaucer.extend.useragent.UserAgentCallback;
 import com.github.neoflyingsaucer.layout.BoxBuilder;
 import com.github.neoflyingsaucer.layout.Layer;
 import com.github.neoflyingsaucer.layout.LayoutContext;
+import com.github.neoflyingsaucer.layout.ParallelStyleResolver;
 import com.github.neoflyingsaucer.layout.SharedContext;
 import com.github.neoflyingsaucer.render.BlockBox;
 import com.github.neoflyingsaucer.render.Box;
@@ -37,6 +45,8 @@ public class ContinuousRenderer
 	private String uri;
 	private FontContext fontContext;
 	private Rectangle viewportSize;
+	private ExecutorService styleExecutor;
+	private int styleParallelism;
 
 	private final UserAgentCallback cb;
 	private final SharedContext sharedContext;
@@ -81,6 +91,29 @@ public class ContinuousRenderer
 	{
 		fontContext = ctx;
 	}
+
+	/**
+	 * Optionally resolve the style of every element on the given executor
+	 * before box building starts. Worthwhile for large documents only.
+	 * @param executor the executor to use or null to resolve styles as needed during box building.
+	 * @param parallelism the number of threads the executor will run at once.
+	 */
+	public void setStyleExecutor(ExecutorService executor, int parallelism)
+	{
+		styleExecutor = executor;
+		styleParallelism = parallelism;
+	}
+
+	/**
+	 * Optionally load and parse the stylesheets the document links to, and
+	 * those they import, on the given executor rather than one after another.
+	 * Worthwhile for documents with several external stylesheets.
+	 * @param executor the executor to use or null to load stylesheets on the calling thread.
+	 */
+	public void setStylesheetExecutor(Executor executor)
+	{
+		sharedContext.getCss().setExecutor(executor);
+	}
 	
 	public void setViewportSize(int width, int height)
 	{
@@ -108,21 +141,37 @@ public class ContinuousRenderer
             	return;
 
             LayoutContext c = newLayoutContext();
+            LayoutMetrics metrics = new LayoutMetrics(sharedContext);
 
             BlockBox root = (BlockBox) getRootBox();
 
             if (root != null) {
                 root.reset(c);
             } else {
+                if (styleExecutor != null)
+                {
+                	long start = System.nanoTime();
+                	new ParallelStyleResolver(sharedContext, styleExecutor, styleParallelism).resolve(doc);
+                	FSMetricsController.recordTime(FSMetricsStage.CASCADE, System.nanoTime() - start);
+                }
+
+                long start = System.nanoTime();
                 root = BoxBuilder.createRootBox(c, doc);
+                FSMetricsController.recordTime(FSMetricsStage.BOX_BUILD, System.nanoTime() - start);
                 setRootBox(root);
             }
 
             sharedContext.getFontResolver().importFontFaceItems(getFontFaceItems());
             
             sharedContext.set_TempCanvas(viewportSize);
+            long start = System.nanoTime();
             root.setContainingBlock(new ViewportBox(viewportSize));
             root.layout(c);
+            FSMetricsController.recordTime(FSMetricsStage.LAYOUT, System.nanoTime() - start);
+
+            FSErrorController.log(ContinuousRenderer.class, FSErrorLevel.DEBUG, LangId.TEXT_WIDTHS_MEASURED,
+            		c.getTextWidthCache().getMeasureCount(), c.getTextWidthCache().getAvoidedCount());
+            metrics.report(c, root);
     }
 
     private SharedContext newSharedContext(final UserAgentCallback userAgent) 
@@ -173,7 +222,9 @@ public class ContinuousRenderer
             
             RenderingContext c = newRenderingContext();
             
+            long start = System.nanoTime();
             getRootLayer().paint(c);
+            FSMetricsController.recordTime(FSMetricsStage.PAINT, System.nanoTime() - start);
     }
     
     public Layer getRootLayer() {
@@ -0,0 +1,166 @@
+package com.github.neoflyingsaucer.renderers;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.neoflyingsaucer.css.style.CalculatedStyle;
+import com.github.neoflyingsaucer.displaylist.DisplayListImpl;
+import com.github.neoflyingsaucer.displaylist.DlOutputDevice;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsController;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsStage;
+import com.github.neoflyingsaucer.extend.output.DisplayList;
+import com.github.neoflyingsaucer.extend.output.DisplayListOuputDevice;
+import com.github.neoflyingsaucer.extend.output.FontContext;
+import com.github.neoflyingsaucer.layout.Layer;
+import com.github.neoflyingsaucer.layout.SharedContext;
+import com.github.neoflyingsaucer.render.Box;
+import com.github.neoflyingsaucer.render.PageBox;
+import com.github.neoflyingsaucer.render.RenderingContext;
+
+/**
+ * A document as laid out into pages by {@link PagedRenderer}. Any number
+ * of pages may be painted from it, into any number of output devices,
+ * without styling or laying out the document again. It keeps the shared
+ * context it was laid out with, which the renderer does not use again.
+ *
+ * Pages may be rendered from several threads at once. Painting a page
+ * still moves fixed position boxes onto it, so the painting itself is
+ * done one page at a time, but replaying the display lists into output
+ * devices, which is most of the work, is not.
+ */
+public class LaidOutDocument
+{
+	private final SharedContext sharedContext;
+	private final FontContext fontContext;
+	private final Box rootBox;
+	private final int[] pageWidths;
+	private final int[] pageHeights;
+
+	LaidOutDocument(SharedContext sharedContext, FontContext fontContext, Box rootBox, RenderingContext c)
+	{
+		this.sharedContext = sharedContext;
+		this.fontContext = fontContext;
+		this.rootBox = rootBox;
+
+		List<PageBox> pages = getRootLayer().getPages();
+		this.pageWidths = new int[pages.size()];
+		this.pageHeights = new int[pages.size()];
+
+		for (int i = 0; i < pages.size(); i++)
+		{
+			pageWidths[i] = pages.get(i).getWidth(c);
+			pageHeights[i] = pages.get(i).getHeight(c);
+		}
+	}
+
+	public Box getRootBox()
+	{
+		return rootBox;
+	}
+
+	public Layer getRootLayer()
+	{
+		return rootBox.getLayer();
+	}
+
+	public int getPageCount()
+	{
+		return pageWidths.length;
+	}
+
+	public int getPageWidth(int pageNo)
+	{
+		return pageWidths[pageNo];
+	}
+
+	public int getPageHeight(int pageNo)
+	{
+		return pageHeights[pageNo];
+	}
+
+	/**
+	 * Paints a page into a new display list.
+	 */
+	public DisplayList renderToList(int pageNo)
+	{
+		if (pageNo < 0 || pageNo >= getPageCount())
+			throw new IllegalArgumentException("Page " + pageNo + " is not between 0 and " + getPageCount());
+
+		long start = System.nanoTime();
+		DisplayList displayList = new DisplayListImpl();
+
+		synchronized (this)
+		{
+			paintPage(pageNo, displayList);
+		}
+
+		FSMetricsController.recordTime(FSMetricsStage.PAINT, System.nanoTime() - start);
+		return displayList;
+	}
+
+	/**
+	 * Paints the pages from <code>firstPage</code> to <code>lastPage</code> inclusive.
+	 */
+	public List<DisplayList> renderToLists(int firstPage, int lastPage)
+	{
+		List<DisplayList> result = new ArrayList<DisplayList>(Math.max(lastPage - firstPage + 1, 0));
+
+		for (int pageNo = firstPage; pageNo <= lastPage; pageNo++)
+		{
+			result.add(renderToList(pageNo));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Paints a page and replays it into the output device. Any setting up
+	 * the device needs for each page, such as starting a new PDF page, is
+	 * left to the caller.
+	 */
+	public void render(int pageNo, DisplayListOuputDevice out)
+	{
+		out.render(renderToList(pageNo));
+	}
+
+	private void paintPage(int pageNo, DisplayList displayList)
+	{
+		RenderingContext c = newRenderingContext();
+		DlOutputDevice dlOut = new DlOutputDevice(displayList, sharedContext, rootBox);
+		c.setOutputDevice(dlOut);
+
+		Layer root = getRootLayer();
+		PageBox page = root.getPages().get(pageNo);
+		c.setPage(pageNo, page);
+
+		Shape working = c.getOutputDevice().getClip();
+
+		page.paintBackground(c, 0, Layer.PAGED_MODE_PRINT);
+		page.paintMarginAreas(c, 0, Layer.PAGED_MODE_PRINT);
+		page.paintBorder(c, 0, Layer.PAGED_MODE_PRINT);
+
+		Rectangle content = page.getPrintClippingBounds(c);
+
+		c.getOutputDevice().clip(content);
+
+		int top = -page.getPaintingTop() + page.getMarginBorderPadding(c, CalculatedStyle.TOP);
+		int left = page.getMarginBorderPadding(c, CalculatedStyle.LEFT);
+
+		c.getOutputDevice().translate(left, top);
+		root.paint(c);
+		c.getOutputDevice().translate(-left, -top);
+
+		c.getOutputDevice().setClip(working);
+	}
+
+	private RenderingContext newRenderingContext()
+	{
+		RenderingContext result = sharedContext.newRenderingContextInstance();
+		result.setFontContext(fontContext);
+		result.setRootLayer(getRootLayer());
+		result.setPageCount(getPageCount());
+		return result;
+	}
+}
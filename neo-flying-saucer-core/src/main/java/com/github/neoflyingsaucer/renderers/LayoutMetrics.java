@@ -0,0 +1,67 @@
+package com.github.neoflyingsaucer.renderers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.neoflyingsaucer.displaylist.DlTextRenderer;
+import com.github.neoflyingsaucer.extend.TextRenderer;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsController;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsCounter;
+import com.github.neoflyingsaucer.layout.LayoutContext;
+import com.github.neoflyingsaucer.layout.SharedContext;
+import com.github.neoflyingsaucer.render.Box;
+
+/**
+ * Reports the counts gathered while a document was styled and laid out.
+ * Create one before layout starts and call {@link #report} when it ends.
+ */
+final class LayoutMetrics
+{
+	private final SharedContext sharedContext;
+	private final long measuresBefore;
+
+	LayoutMetrics(SharedContext sharedContext)
+	{
+		this.sharedContext = sharedContext;
+		this.measuresBefore = getMeasureCount(sharedContext.getTextRenderer());
+	}
+
+	private static long getMeasureCount(TextRenderer renderer)
+	{
+		return renderer instanceof DlTextRenderer ? ((DlTextRenderer) renderer).getMeasureCount() : 0;
+	}
+
+	void report(LayoutContext c, Box root)
+	{
+		if (!FSMetricsController.isEnabled())
+			return;
+
+		long measures = getMeasureCount(sharedContext.getTextRenderer()) - measuresBefore;
+
+		FSMetricsController.increment(FSMetricsCounter.ELEMENTS, sharedContext.getCss().getElementsMatched());
+		FSMetricsController.increment(FSMetricsCounter.SELECTORS_TESTED, sharedContext.getCss().getSelectorsTested());
+		FSMetricsController.increment(FSMetricsCounter.TEXT_MEASUREMENTS, measures);
+		FSMetricsController.increment(FSMetricsCounter.TEXT_WIDTH_CACHE_HITS, c.getTextWidthCache().getAvoidedCount());
+		FSMetricsController.increment(FSMetricsCounter.BOXES, countBoxes(root));
+		FSMetricsController.increment(FSMetricsCounter.RELAYOUTS, c.getRelayoutCount());
+		FSMetricsController.increment(FSMetricsCounter.MOVED_BLOCKS, c.getMovedBlockCount());
+	}
+
+	private static long countBoxes(Box root)
+	{
+		long count = 0;
+		List<Box> stack = new ArrayList<Box>();
+		stack.add(root);
+
+		while (!stack.isEmpty())
+		{
+			Box box = stack.remove(stack.size() - 1);
+			count++;
+
+			for (int i = 0; i < box.getChildCount(); i++)
+				stack.add(box.getChild(i));
+		}
+
+		return count;
+	}
+}
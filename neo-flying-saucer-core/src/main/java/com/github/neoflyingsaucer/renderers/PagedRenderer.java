@@ -2,11 +2,12 @@ package com.github.neoflyingsaucer.renderers;
 
 import java.awt.Dimension;
 import java.awt.Rectangle;
-import java.awt.Shape;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -14,11 +15,14 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import com.github.neoflyingsaucer.css.sheet.FontFaceRule;
-import com.github.neoflyingsaucer.css.style.CalculatedStyle;
-import com.github.neoflyingsaucer.displaylist.DisplayListImpl;
-import com.github.neoflyingsaucer.displaylist.DlOutputDevice;
 import com.github.neoflyingsaucer.displaylist.DlTextRenderer;
 import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
+import com.github.neoflyingsaucer.extend.controller.error.LangId;
+import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsController;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsCounter;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsStage;
 import com.github.neoflyingsaucer.extend.output.DisplayList;
 import com.github.neoflyingsaucer.extend.output.FSFontFaceItem;
 import com.github.neoflyingsaucer.extend.output.FontContext;
@@ -31,6 +35,7 @@ import com.github.neoflyingsaucer.extend.useragent.UserAgentCallback;
 import com.github.neoflyingsaucer.layout.BoxBuilder;
 import com.github.neoflyingsaucer.layout.Layer;
 import com.github.neoflyingsaucer.layout.LayoutContext;
+import com.github.neoflyingsaucer.layout.ParallelStyleResolver;
 import com.github.neoflyingsaucer.layout.SharedContext;
 import com.github.neoflyingsaucer.render.BlockBox;
 import com.github.neoflyingsaucer.render.Box;
@@ -48,15 +53,19 @@ public class PagedRenderer
 	private Document doc;
 	private String uri;
 	private FontContext fontContext;
-	private DisplayList displayList;
 	private RenderingContext c;
+	private LaidOutDocument document;
 	
 	private final UserAgentCallback cb;
-	private final SharedContext sharedContext;
+	private SharedContext sharedContext;
 	private final float dpi;
 	private final int dpp;
-	private DlOutputDevice dlOut;
 	private LayoutContext c1;
+	private LayoutMetrics layoutMetrics;
+	private long paginationNanos;
+	private ExecutorService styleExecutor;
+	private int styleParallelism;
+	private Executor stylesheetExecutor;
 	
 	public PagedRenderer(UserAgentCallback cb, float dpi, int dpp)
 	{
@@ -107,7 +116,37 @@ public class PagedRenderer
 	{
 		fontContext = ctx;
 	}
+
+	/**
+	 * Optionally resolve the style of every element on the given executor
+	 * before box building starts. Worthwhile for large documents only.
+	 * @param executor the executor to use or null to resolve styles as needed during box building.
+	 * @param parallelism the number of threads the executor will run at once.
+	 */
+	public void setStyleExecutor(ExecutorService executor, int parallelism)
+	{
+		styleExecutor = executor;
+		styleParallelism = parallelism;
+	}
+
+	/**
+	 * Optionally load and parse the stylesheets the document links to, and
+	 * those they import, on the given executor rather than one after another.
+	 * Worthwhile for documents with several external stylesheets.
+	 * @param executor the executor to use or null to load stylesheets on the calling thread.
+	 */
+	public void setStylesheetExecutor(Executor executor)
+	{
+		stylesheetExecutor = executor;
+		sharedContext.getCss().setExecutor(executor);
+	}
 	
+	/**
+	 * Returns the shared context the next call to {@link #prepare()} lays out
+	 * with. Each laid out document keeps the shared context it was laid out
+	 * with, so after the first call to prepare this is a new shared context
+	 * set up like the last one.
+	 */
 	public SharedContext getSharedContext()
 	{
         return sharedContext;
@@ -115,8 +154,18 @@ public class PagedRenderer
 	
 	public DisplayList renderToList(int pageNo)
 	{
-		paintPage(pageNo);
-		return displayList;
+		return document.renderToList(pageNo);
+	}
+	
+	/**
+	 * Returns the document as laid out by the last call to {@link #prepare()},
+	 * from which pages may be rendered as often as needed. Calling prepare
+	 * again lays out a new box tree, with a new shared context, and leaves
+	 * this one as it was.
+	 */
+	public LaidOutDocument getLaidOutDocument()
+	{
+		return document;
 	}
 	
     private Rectangle getInitialExtents(LayoutContext c)
@@ -131,13 +180,23 @@ public class PagedRenderer
             	return;
 
             c1 = newLayoutContext();
+            layoutMetrics = new LayoutMetrics(sharedContext);
 
             BlockBox root = (BlockBox) getRootBox();
 
             if (root != null) {
                 root.reset(c1);
             } else {
+                if (styleExecutor != null)
+                {
+                	long start = System.nanoTime();
+                	new ParallelStyleResolver(sharedContext, styleExecutor, styleParallelism).resolve(doc);
+                	FSMetricsController.recordTime(FSMetricsStage.CASCADE, System.nanoTime() - start);
+                }
+
+                long start = System.nanoTime();
                 root = BoxBuilder.createRootBox(c1, doc);
+                FSMetricsController.recordTime(FSMetricsStage.BOX_BUILD, System.nanoTime() - start);
                 setRootBox(root);
             }
     }
@@ -146,13 +205,21 @@ public class PagedRenderer
     {
         BlockBox root = (BlockBox) getRootBox();
     	
+    	long start = System.nanoTime();
     	root.setContainingBlock(new ViewportBox(getInitialExtents(c1)));
         root.layout(c1);
+        FSMetricsController.recordTime(FSMetricsStage.LAYOUT, System.nanoTime() - start);
 
+        start = System.nanoTime();
         Dimension intrinsicSize = root.getLayer().getPaintingDimension(c1);
         
         root.getLayer().trimEmptyPages(c, intrinsicSize.height);
         root.getLayer().layoutPages(c1);
+        paginationNanos = System.nanoTime() - start;
+
+        FSErrorController.log(PagedRenderer.class, FSErrorLevel.DEBUG, LangId.TEXT_WIDTHS_MEASURED,
+        		c1.getTextWidthCache().getMeasureCount(), c1.getTextWidthCache().getAvoidedCount());
+        layoutMetrics.report(c1, root);
     }
 
     private SharedContext newSharedContext(UserAgentCallback userAgent, float dpi, float dpp) 
@@ -182,6 +249,24 @@ public class PagedRenderer
         return context;
     }
 
+    /**
+     * A shared context set up with the same resolvers and settings as
+     * <code>old</code>, but with no document.
+     */
+    private SharedContext newSharedContext(SharedContext old)
+    {
+        SharedContext context = newSharedContext(cb, dpi, dpp);
+        context.setImageResolver(old.getImageResolver());
+        context.setFontResolver(old.getFontResolver());
+        if (old.getReplacedElementResolver() != null)
+            context.setReplacedElementResolver(old.getReplacedElementResolver());
+        context.setMedia(old.getMedia());
+        context.setLocale(old.getLocale());
+        context.setMoveKeptTogetherBlocks(old.isMoveKeptTogetherBlocks());
+        context.getCss().setExecutor(stylesheetExecutor);
+        return context;
+    }
+
     private LayoutContext newLayoutContext()
     {
         LayoutContext result = getSharedContext().newLayoutContextInstance();
@@ -212,6 +297,16 @@ public class PagedRenderer
 	
     public void prepare() 
     {
+    	if (document != null)
+    	{
+    		// The old box tree and shared context belong to the laid out
+    		// document now. Its pages may still be painted, which reads the
+    		// page styles held by the shared context.
+    		setRootBox(null);
+    		sharedContext = newSharedContext(sharedContext);
+    		document = null;
+    	}
+    	
     	if (this.doc == null)
     	{
     		HTMLResourceI res = ResourceLoadHelper.loadHtmlDocument(uri, cb);
@@ -233,48 +328,17 @@ public class PagedRenderer
         
         c.setPageCount(getRootLayer().getPages().size());
         c.setFontContext(fontContext);
+        
+        // Laying out pages and placing them for printing are recorded
+        // together, once per document.
+        long start = System.nanoTime();
         assignPagePrintPositions(c);
+        FSMetricsController.recordTime(FSMetricsStage.PAGINATION, paginationNanos + System.nanoTime() - start);
+        FSMetricsController.increment(FSMetricsCounter.PAGES, getPageCount());
         
-        dlOut = new DlOutputDevice(null, getSharedContext(), getRootBox());
-        c.setOutputDevice(dlOut);
+        document = new LaidOutDocument(getSharedContext(), fontContext, getRootBox(), c);
     }
     
-	private Dimension paintPage(int pageNo)
-	{
-		  	Layer root = getRootLayer();
-		  	displayList = new DisplayListImpl();
-
-	        if (pageNo < 0 || pageNo >= root.getPages().size()) {
-	            throw new IllegalArgumentException("Page " + pageNo + " is not between 0 " + "and " + root.getPages().size());
-	        }
-
-	        PageBox page = root.getPages().get(pageNo);
-	        c.setPage(pageNo, page);
-	        
-	        dlOut.setDisplayList(displayList);
-	        
-	        Shape working = c.getOutputDevice().getClip();
-	        
-	        page.paintBackground(c, 0, Layer.PAGED_MODE_PRINT);
-	        page.paintMarginAreas(c, 0, Layer.PAGED_MODE_PRINT);
-	        page.paintBorder(c, 0, Layer.PAGED_MODE_PRINT);
-
-	        Rectangle content = page.getPrintClippingBounds(c);
-	        
-        	c.getOutputDevice().clip(content);
-	        
-        	int top = -page.getPaintingTop() + page.getMarginBorderPadding(c, CalculatedStyle.TOP);
-        	int left = page.getMarginBorderPadding(c, CalculatedStyle.LEFT);
-
-        	c.getOutputDevice().translate(left, top);
-	        	root.paint(c);
-        	c.getOutputDevice().translate(-left, -top);
-
-	        c.getOutputDevice().setClip(working);
-	        
-	        return new Dimension(page.getWidth(c), page.getHeight(c));
-	}
-
 	public Layer getRootLayer() {
         return getRootBox() == null ? null : getRootBox().getLayer();
 	}
@@ -294,12 +358,12 @@ public class PagedRenderer
 
 	public int getPageHeight(int pageNo) 
 	{
-		return getRootLayer().getPages().get(pageNo).getHeight(c);
+		return document.getPageHeight(pageNo);
 	}
 	
 	public int getPageWidth(int pageNo) 
 	{
-		return getRootLayer().getPages().get(pageNo).getWidth(c);
+		return document.getPageWidth(pageNo);
 	}
 	
 	public List<FSFontFaceItem> getFontFaceItems()
@@ -5,6 +5,7 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 
 import com.github.neoflyingsaucer.css.constants.CSSName;
+import com.github.neoflyingsaucer.css.constants.IdentValue;
 import com.github.neoflyingsaucer.css.parser.CSSErrorHandler;
 import com.github.neoflyingsaucer.css.parser.CSSParser;
 import com.github.neoflyingsaucer.css.parser.PropertyValue;
@@ -105,4 +106,29 @@ public class CSSParserTest
 	{
 		parseDeclaration("background: linear-gradient(to top, red, blue);");
 	}
+
+	@Test
+	public void testIdentCase()
+	{
+		Ruleset rs = parseDeclaration("Text-ALIGN: CENTER");
+		assertEquals(CSSName.TEXT_ALIGN, firstProperty(rs));
+		assertEquals("center", firstValue(rs).getStringValue());
+
+		// Known identifiers come back as the one shared string.
+		assertSame(IdentValue.CENTER.toString(), firstValue(rs).getStringValue());
+	}
+
+	@Test
+	public void testEscapes()
+	{
+		Ruleset rs = parseDeclaration("text-\\61lign: c\\65nter");
+		assertEquals(CSSName.TEXT_ALIGN, firstProperty(rs));
+		assertEquals("center", firstValue(rs).getStringValue());
+
+		rs = parseDeclaration("font-family: \"A\\\"B\", x\\y");
+		assertArrayEquals(new String[] { "A\"B", "xy" }, firstValue(rs).getStringArrayValue());
+
+		rs = parseDeclaration("background-image: url('a\\ b.png')");
+		assertEquals("a b.png", firstValue(rs).getStringValue());
+	}
 }
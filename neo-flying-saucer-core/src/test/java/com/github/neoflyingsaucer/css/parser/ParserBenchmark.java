@@ -0,0 +1,167 @@
+package com.github.neoflyingsaucer.css.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+import com.github.neoflyingsaucer.css.sheet.MediaRule;
+import com.github.neoflyingsaucer.css.sheet.Stylesheet;
+import com.github.neoflyingsaucer.css.sheet.StylesheetInfo.CSSOrigin;
+import com.github.neoflyingsaucer.extend.controller.error.LangId;
+
+/**
+ * Parses a large stylesheet over and over and reports the average parse
+ * time and, where the JVM can measure it, the memory allocated per parse.
+ *
+ * Pass the path of a stylesheet to parse (a framework stylesheet such as
+ * Bootstrap with its theme is a good test), or nothing to parse a
+ * generated stylesheet of about the same size and mix.
+ */
+public class ParserBenchmark {
+    private static final int WARMUP = 50;
+    private static final int RUNS = 50;
+
+    public static void main(final String[] args) throws Exception {
+        final String css = args.length > 0 ?
+                readFile(args[0]) :
+                generateStylesheet(500 * 1024);
+
+        final CSSErrorHandler errorHandler = new CSSErrorHandler() {
+            @Override
+            public void error(String uri, int line, LangId msgId, Object... args) {
+            }
+        };
+
+        System.out.println("Stylesheet of " + css.length() / 1024 + " KB");
+
+        for (int i = 0; i < WARMUP; i++) {
+            parse(errorHandler, css, true);
+            parse(errorHandler, css, false);
+        }
+
+        run(errorHandler, css, true);
+        run(errorHandler, css, false);
+    }
+
+    private static String readFile(final String path) throws IOException {
+        final InputStream in = new FileInputStream(path);
+
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buf = new byte[8192];
+            int n;
+
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void run(final CSSErrorHandler errorHandler, final String css, final boolean fromReader) throws IOException {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final long startBytes = getAllocatedBytes(threads);
+        final long start = System.nanoTime();
+        int rulesets = 0;
+
+        for (int i = 0; i < RUNS; i++) {
+            rulesets = parse(errorHandler, css, fromReader);
+        }
+
+        final long end = System.nanoTime();
+        final long endBytes = getAllocatedBytes(threads);
+
+        System.out.println((fromReader ? "From a Reader: " : "From a String: ") + rulesets + " rulesets");
+        System.out.println("Average " + (end - start) / RUNS / 1000000 + " ms");
+
+        if (startBytes >= 0 && endBytes >= 0) {
+            System.out.println("Average " + (endBytes - startBytes) / RUNS / 1024 + " KB allocated");
+        }
+    }
+
+    private static int parse(final CSSErrorHandler errorHandler, final String css, final boolean fromReader) throws IOException {
+        final CSSParser p = new CSSParser(errorHandler, null);
+        final Stylesheet stylesheet = fromReader ?
+                p.parseStylesheet("benchmark.css", CSSOrigin.AUTHOR, new StringReader(css)) :
+                p.parseStylesheet("benchmark.css", CSSOrigin.AUTHOR, css);
+        int rulesets = 0;
+
+        for (final Object rule : stylesheet.getContents()) {
+            rulesets += rule instanceof MediaRule ? ((MediaRule) rule).getContents().size() : 1;
+        }
+
+        return rulesets;
+    }
+
+    /**
+     * The bytes allocated by this thread so far, or -1 if the JVM can't say.
+     * Only some JVMs count allocations, through their own extension of
+     * ThreadMXBean, so it is looked up by name.
+     */
+    private static long getAllocatedBytes(final ThreadMXBean threads) {
+        try {
+            final Method method = Class.forName("com.sun.management.ThreadMXBean")
+                    .getMethod("getThreadAllocatedBytes", long.class);
+            return ((Long) method.invoke(threads, Long.valueOf(Thread.currentThread().getId()))).longValue();
+        } catch (final Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * A stylesheet made of the kind of rules a CSS framework is made of:
+     * class selectors with states, vendor prefixed properties, shorthands,
+     * colours, gradients and media queries.
+     */
+    private static String generateStylesheet(final int size) {
+        final String[] names = { "btn", "nav", "card", "alert", "badge", "form-control", "dropdown", "modal", "table", "list-group" };
+        final String[] variants = { "primary", "secondary", "success", "danger", "warning", "info", "light", "dark" };
+        final StringBuilder css = new StringBuilder(size + 1024);
+        int i = 0;
+
+        while (css.length() < size) {
+            final String name = names[i % names.length];
+            final String variant = variants[i / names.length % variants.length];
+            final int n = i / (names.length * variants.length);
+
+            if (i % 25 == 0) {
+                css.append("/* ").append(name).append(" component */\n");
+                css.append("@media (min-width: ").append(576 + i % 4 * 192).append("px) {\n");
+            }
+
+            css.append('.').append(name).append('-').append(variant).append(n).append(", .");
+            css.append(name).append('-').append(variant).append(n).append(":hover > a, .");
+            css.append(name).append('-').append(variant).append(n).append(".active:first-child {\n");
+            css.append("  display: inline-block;\n");
+            css.append("  padding: 0.375em 0.75em;\n");
+            css.append("  margin: 0 ").append(i % 16).append("px 1em;\n");
+            css.append("  font-family: -apple-system, \"Segoe UI\", Roboto, \"Helvetica Neue\", Arial, sans-serif;\n");
+            css.append("  font-size: 1em;\n");
+            css.append("  line-height: 1.5;\n");
+            css.append("  color: #").append(Integer.toHexString(0x100000 + i * 7919 % 0xefffff)).append(";\n");
+            css.append("  background-color: rgba(").append(i % 256).append(", 123, 255, 0.5);\n");
+            css.append("  background-image: linear-gradient(180deg, #fff, #e9ecef);\n");
+            css.append("  border: 1px solid transparent;\n");
+            css.append("  border-radius: 0.25em;\n");
+            css.append("  -webkit-user-select: none;\n");
+            css.append("  box-shadow: 0 0 0 0.2em rgba(0, 123, 255, 0.25);\n");
+            css.append("  text-align: center !important;\n");
+            css.append("}\n");
+
+            if (i % 25 == 0) {
+                css.append("}\n");
+            }
+            i++;
+        }
+
+        return css.toString();
+    }
+}
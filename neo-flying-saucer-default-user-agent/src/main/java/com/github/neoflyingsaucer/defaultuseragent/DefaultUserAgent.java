@@ -19,15 +19,15 @@
  */
 package com.github.neoflyingsaucer.defaultuseragent;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.concurrent.ExecutorService;
 
 import com.github.neoflyingsaucer.event.DocumentListener;
 import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
@@ -48,9 +48,62 @@ import com.github.neoflyingsaucer.util.ImageUtil;
 public class DefaultUserAgent implements UserAgentCallback, DocumentListener 
 {
     private ResourceCache _resourceCache = new ResourceCacheImpl(32, 5, 20);
+    private ResourceLoader _resourceLoader = new HttpResourceLoader();
+    private ResourcePrefetcher _prefetcher;
+    private int _prefetchWaitTimeout = ResourcePrefetcher.DEFAULT_WAIT_TIMEOUT_MS;
 
     public DefaultUserAgent() {}
 
+    /**
+     * Optionally start fetching the stylesheets, images and fonts of each document
+     * as soon as it is parsed, several at a time, rather than one by one as layout
+     * asks for them.
+     * @param executor the executor to fetch on or null to fetch as needed.
+     */
+    public void setPrefetchExecutor(ExecutorService executor)
+    {
+    	_prefetcher = executor != null ? new ResourcePrefetcher(this, executor) : null;
+    	
+    	if (_prefetcher != null)
+    		_prefetcher.setWaitTimeout(_prefetchWaitTimeout);
+    }
+
+    /**
+     * How long to wait for a prefetched resource before loading it again
+     * directly. Defaults to {@link ResourcePrefetcher#DEFAULT_WAIT_TIMEOUT_MS}.
+     */
+    public void setPrefetchWaitTimeout(int millis)
+    {
+    	_prefetchWaitTimeout = millis;
+    	
+    	if (_prefetcher != null)
+    		_prefetcher.setWaitTimeout(millis);
+    }
+
+    private Optional<HTMLResourceI> loaded(HTMLResourceI resource)
+    {
+    	if (_prefetcher != null)
+    		_prefetcher.prefetch(resource.getDocument(), resource.getURI());
+    	
+    	return Optional.of(resource);
+    }
+
+    /**
+     * Fetches the bytes at uri, using the prefetched copy if there is one.
+     */
+    private Optional<LoadedResource> load(String uri)
+    {
+    	if (_prefetcher != null)
+    	{
+    		Optional<LoadedResource> prefetched = _prefetcher.take(uri);
+    		
+    		if (prefetched.isPresent())
+    			return prefetched;
+    	}
+    	
+    	return _resourceLoader.load(uri);
+    }
+
     /**
      * Retrieves the CSS located at the given URI.  It's assumed the URI does point to a CSS file--the URI will
      * be accessed (using java.io or java.net), opened, read and then passed into the CSS parser.
@@ -62,26 +115,23 @@ public class DefaultUserAgent implements UserAgentCallback, DocumentListener
     @Override
     public Optional<CSSResourceI> getCSSResource(String uri)
     {
-        try
-        {
-        	StreamResource sr = new StreamResource(uri);
-        	sr.connect();
-        	final InputStream bs = sr.bufferedStream();
-        	
-        	return Optional.<CSSResourceI>of(new CSSResource(sr.getFinalUri(), new InputStreamReader(bs, "UTF-8"))
-        	{
-        		@Override
-        		public void onClose() throws IOException 
-        		{
-        			bs.close();
-        		}
-        	});
-		}
-        catch (IOException e) 
-        {
-        	FSErrorController.log(DefaultUserAgent.class, FSErrorLevel.ERROR, LangId.COULDNT_LOAD_CSS, uri);
-			return Optional.empty();
-		}
+    	Optional<LoadedResource> resource = load(uri);
+    	
+    	if (resource.isPresent())
+    	{
+    		try
+    		{
+    			return Optional.<CSSResourceI>of(new CSSResource(resource.get().getFinalUri(),
+    					new InputStreamReader(new ByteArrayInputStream(resource.get().getData()), "UTF-8")));
+    		}
+    		catch (UnsupportedEncodingException e)
+    		{
+    			// Reported below.
+    		}
+    	}
+    	
+    	FSErrorController.log(DefaultUserAgent.class, FSErrorLevel.ERROR, LangId.COULDNT_LOAD_CSS, uri);
+    	return Optional.empty();
     }
 
     /**
@@ -103,27 +153,17 @@ public class DefaultUserAgent implements UserAgentCallback, DocumentListener
         }
         else
         {
-           	StreamResource sr = new StreamResource(uri);
-           	sr.connect();
-           	InputStream is = null;
-
-           	try 
-			{
-				is = sr.bufferedStream();
-				ir = createImageResource(uri, is);
-			}
-			catch (FileNotFoundException e)
-			{
-				FSErrorController.log(DefaultUserAgent.class, FSErrorLevel.ERROR, LangId.COULDNT_LOAD_IMAGE, uri);
-			} 
-			catch (IOException e) 
-			{
-				FSErrorController.log(DefaultUserAgent.class, FSErrorLevel.ERROR, LangId.COULDNT_LOAD_IMAGE, uri);
-			}
-
-			if (ir == null) {
-                ir = createImageResource(uri, null);
-            }
+        	Optional<LoadedResource> resource = load(uri);
+        	
+        	if (resource.isPresent())
+        	{
+        		ir = createImageResource(uri, new ByteArrayInputStream(resource.get().getData()));
+        	}
+        	else
+        	{
+        		FSErrorController.log(DefaultUserAgent.class, FSErrorLevel.ERROR, LangId.COULDNT_LOAD_IMAGE, uri);
+        		ir = createImageResource(uri, null);
+        	}
         }
         return Optional.<ImageResourceI>ofNullable(ir);
     }
@@ -152,75 +192,30 @@ public class DefaultUserAgent implements UserAgentCallback, DocumentListener
     @Override
     public Optional<HTMLResourceI> getHTMLResource(String uri) 
     {
-        HTMLResourceHelper xmlResource;
-        InputStream bs = null;
-        StreamResource sr;
-        
-        try
-        {
-        	sr = new StreamResource(uri);
-        	sr.connect();
-        	bs = sr.bufferedStream();
-        	xmlResource = HTMLResourceHelper.load(bs);
-        }
-        catch (IOException e) 
-        {
+    	Optional<LoadedResource> resource = load(uri);
+    	
+    	if (!resource.isPresent())
+    	{
         	FSErrorController.log(DefaultUserAgent.class, FSErrorLevel.ERROR, LangId.COULDNT_LOAD_HTML_DOCUMENT, uri);
 			return Optional.empty();
-		} 
-        finally 
-        {
-            if (bs != null) {
-                try {
-                    bs.close();
-                } catch (final IOException e) {
-                    // swallow
-                }
-            }
-        }
+    	}
+    	
+        HTMLResourceHelper xmlResource = HTMLResourceHelper.load(new ByteArrayInputStream(resource.get().getData()));
         
         if (xmlResource.getDocument() != null)
-        	return Optional.<HTMLResourceI>of(new HTMLResource(sr.getFinalUri(), xmlResource.getDocument()));
+        	return loaded(new HTMLResource(resource.get().getFinalUri(), xmlResource.getDocument()));
         else
         	return Optional.empty();
     }
 
     @Override
     public Optional<byte[]> getBinaryResource(String uri) {
-
-    	StreamResource sr = new StreamResource(uri);
-    	sr.connect();
-    	InputStream is = null;
+    	Optional<LoadedResource> resource = load(uri);
     	
-        try
-        {
-        	is = sr.bufferedStream();
-        	final ByteArrayOutputStream result = new ByteArrayOutputStream();
-
-            final byte[] buf = new byte[10240];
-            int i;
-            while ((i = is.read(buf)) != -1) {
-                result.write(buf, 0, i);
-            }
-            is.close();
-            is = null;
-
-            return Optional.of(result.toByteArray());
-        } 
-        catch (final IOException e)
-        {
-            return Optional.empty();
-        } 
-        finally 
-        {
-            if (is != null) {
-                try {
-                    is.close();
-                } catch (final IOException e) {
-                    // ignore
-                }
-            }
-        }
+    	if (resource.isPresent())
+    		return Optional.of(resource.get().getData());
+    	
+    	return Optional.empty();
     }
 
     /**
@@ -327,6 +322,21 @@ public class DefaultUserAgent implements UserAgentCallback, DocumentListener
 	{
 		_resourceCache = cache;
 	}
+
+	public ResourceLoader getResourceLoader()
+	{
+		return _resourceLoader;
+	}
+
+	/**
+	 * Replaces the network layer used to fetch resources. The default
+	 * is an {@link HttpResourceLoader}.
+	 */
+	public void setResourceLoader(ResourceLoader loader)
+	{
+		assert(loader != null);
+		_resourceLoader = loader;
+	}
 	
 	@Override
 	public Optional<HTMLResourceI> parseHTMLResource(String uri, String html) 
@@ -334,7 +344,7 @@ public class DefaultUserAgent implements UserAgentCallback, DocumentListener
 		HTMLResourceHelper helper = HTMLResourceHelper.load(html); 
 
 		if (helper.getDocument() != null)
-			return Optional.<HTMLResourceI>of(new HTMLResource(uri, helper.getDocument()));
+			return loaded(new HTMLResource(uri, helper.getDocument()));
 		else
 			return Optional.empty();
 	}
@@ -345,7 +355,7 @@ public class DefaultUserAgent implements UserAgentCallback, DocumentListener
 		HTMLResourceHelper helper = HTMLResourceHelper.load(html); 
 
 		if (helper.getDocument() != null)
-			return Optional.<HTMLResourceI>of(new HTMLResource(uri, helper.getDocument()));
+			return loaded(new HTMLResource(uri, helper.getDocument()));
 		else
 			return Optional.empty();
 	}
@@ -356,7 +366,7 @@ public class DefaultUserAgent implements UserAgentCallback, DocumentListener
 		HTMLResourceHelper helper = HTMLResourceHelper.load(html); 
 
 		if (helper.getDocument() != null)
-			return Optional.<HTMLResourceI>of(new HTMLResource(uri, helper.getDocument()));
+			return loaded(new HTMLResource(uri, helper.getDocument()));
 		else
 			return Optional.empty();
 	}
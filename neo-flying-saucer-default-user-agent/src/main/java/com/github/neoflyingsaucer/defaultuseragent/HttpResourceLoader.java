@@ -0,0 +1,418 @@
+package com.github.neoflyingsaucer.defaultuseragent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
+import com.github.neoflyingsaucer.extend.controller.error.LangId;
+import com.github.neoflyingsaucer.extend.useragent.Optional;
+
+/**
+ * The default {@link ResourceLoader}, built on <code>URLConnection</code>.
+ *
+ * Connections have connect and read timeouts, redirects are followed
+ * (including between http and https) up to a limit, and the number of
+ * requests in flight to any one host can be capped. Responses are always
+ * read to the end and closed, so the JDK can keep the connection alive
+ * and reuse it for the next request to the same host.
+ *
+ * Responses that carry an ETag or Last-Modified header are remembered,
+ * up to a byte budget, and the next request for the same URI is made
+ * conditional. If the server answers 304 Not Modified the remembered
+ * bytes are used.
+ */
+public class HttpResourceLoader implements ResourceLoader
+{
+	private volatile int connectTimeout = 10 * 1000;
+	private volatile int readTimeout = 30 * 1000;
+	private volatile int maxRedirects = 5;
+	private volatile int maxConnectionsPerHost;
+
+	private final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<String, Semaphore>();
+	private final ConcurrentMap<String, HostStatistics> hostStatistics = new ConcurrentHashMap<String, HostStatistics>();
+
+	private final long validatedBudget;
+	private final LinkedHashMap<String, Validated> validated = new LinkedHashMap<String, Validated>(16, 0.75f, true);
+	private long validatedWeight;
+
+	/**
+	 * Remembers up to 8MB of responses for revalidation.
+	 */
+	public HttpResourceLoader()
+	{
+		this(8L << 20);
+	}
+
+	/**
+	 * @param revalidationBytes the total size of responses to remember for
+	 * conditional requests, or zero to never make conditional requests.
+	 */
+	public HttpResourceLoader(long revalidationBytes)
+	{
+		this.validatedBudget = revalidationBytes;
+	}
+
+	/**
+	 * Request times for one host.
+	 */
+	public static class HostStatistics
+	{
+		private final AtomicLong requests = new AtomicLong();
+		private final AtomicLong notModified = new AtomicLong();
+		private final AtomicLong totalMillis = new AtomicLong();
+		private final AtomicLong maxMillis = new AtomicLong();
+
+		private void record(long millis)
+		{
+			requests.incrementAndGet();
+			totalMillis.addAndGet(millis);
+
+			long max;
+
+			do
+			{
+				max = maxMillis.get();
+			}
+			while (millis > max && !maxMillis.compareAndSet(max, millis));
+		}
+
+		public long getRequestCount()
+		{
+			return requests.get();
+		}
+
+		/**
+		 * The number of requests answered with 304 Not Modified.
+		 */
+		public long getNotModifiedCount()
+		{
+			return notModified.get();
+		}
+
+		public long getTotalMillis()
+		{
+			return totalMillis.get();
+		}
+
+		public long getMaxMillis()
+		{
+			return maxMillis.get();
+		}
+
+		public long getMeanMillis()
+		{
+			long count = requests.get();
+			return count == 0 ? 0 : totalMillis.get() / count;
+		}
+	}
+
+	private static class Validated
+	{
+		private final String etag;
+		private final long lastModified;
+		private final byte[] data;
+
+		private Validated(String etag, long lastModified, byte[] data)
+		{
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.data = data;
+		}
+	}
+
+	public void setConnectTimeout(int millis)
+	{
+		connectTimeout = millis;
+	}
+
+	public void setReadTimeout(int millis)
+	{
+		readTimeout = millis;
+	}
+
+	public void setMaxRedirects(int redirects)
+	{
+		maxRedirects = redirects;
+	}
+
+	/**
+	 * Limits how many requests may be in flight to any one host at once.
+	 * Zero, the default, means no limit. Set this before the loader is used.
+	 */
+	public void setMaxConnectionsPerHost(int connections)
+	{
+		maxConnectionsPerHost = connections;
+		hostPermits.clear();
+	}
+
+	/**
+	 * The hosts requests have been made to.
+	 */
+	public Set<String> getHosts()
+	{
+		return Collections.unmodifiableSet(new HashSet<String>(hostStatistics.keySet()));
+	}
+
+	/**
+	 * Request times for host, or null if no requests have been made to it.
+	 */
+	public HostStatistics getStatistics(String host)
+	{
+		return hostStatistics.get(host);
+	}
+
+	@Override
+	public Optional<LoadedResource> load(String uri)
+	{
+		String current = uri;
+
+		try
+		{
+			for (int redirects = 0; ; redirects++)
+			{
+				URL url = new URL(current);
+				URLConnection conn = url.openConnection();
+				conn.setConnectTimeout(connectTimeout);
+				conn.setReadTimeout(readTimeout);
+				conn.setRequestProperty("Accept-Encoding", "gzip");
+
+				if (!(conn instanceof HttpURLConnection))
+					return Optional.of(new LoadedResource(current, read(conn, conn.getInputStream())));
+
+				HttpURLConnection http = (HttpURLConnection) conn;
+				http.setInstanceFollowRedirects(false);
+
+				Validated previous = getValidated(current);
+
+				if (previous != null)
+				{
+					if (previous.etag != null)
+						http.setRequestProperty("If-None-Match", previous.etag);
+					if (previous.lastModified > 0)
+						http.setIfModifiedSince(previous.lastModified);
+				}
+
+				String host = url.getHost();
+				Semaphore permits = getPermits(host);
+
+				if (permits != null)
+					permits.acquireUninterruptibly();
+
+				long start = System.currentTimeMillis();
+				HostStatistics statistics = getHostStatistics(host);
+
+				try
+				{
+					int code = http.getResponseCode();
+
+					if (code == HttpURLConnection.HTTP_MOVED_PERM ||
+						code == HttpURLConnection.HTTP_MOVED_TEMP ||
+						code == HttpURLConnection.HTTP_SEE_OTHER ||
+						code == 307 || code == 308)
+					{
+						String location = http.getHeaderField("Location");
+						discard(http);
+
+						if (location == null)
+						{
+							FSErrorController.log(HttpResourceLoader.class, FSErrorLevel.ERROR, LangId.UNEXPECTED_HTTP_STATUS, current, code);
+							return Optional.empty();
+						}
+						else if (redirects >= maxRedirects)
+						{
+							FSErrorController.log(HttpResourceLoader.class, FSErrorLevel.ERROR, LangId.TOO_MANY_REDIRECTS, uri, maxRedirects);
+							return Optional.empty();
+						}
+
+						// Location may be relative, and may switch between http and https.
+						current = new URL(url, location).toString();
+						continue;
+					}
+					else if (code == HttpURLConnection.HTTP_NOT_MODIFIED && previous != null)
+					{
+						discard(http);
+						statistics.notModified.incrementAndGet();
+						return Optional.of(new LoadedResource(current, previous.data));
+					}
+					else if (code == HttpURLConnection.HTTP_NOT_FOUND || code == HttpURLConnection.HTTP_GONE)
+					{
+						discard(http);
+						FSErrorController.log(HttpResourceLoader.class, FSErrorLevel.ERROR, LangId.ITEM_AT_URI_NOT_FOUND, current);
+						return Optional.empty();
+					}
+					else if (code < 200 || code >= 300)
+					{
+						discard(http);
+						FSErrorController.log(HttpResourceLoader.class, FSErrorLevel.ERROR, LangId.UNEXPECTED_HTTP_STATUS, current, code);
+						return Optional.empty();
+					}
+
+					byte[] data = read(http, http.getInputStream());
+					remember(current, http, data);
+					return Optional.of(new LoadedResource(current, data));
+				}
+				finally
+				{
+					statistics.record(System.currentTimeMillis() - start);
+
+					if (permits != null)
+						permits.release();
+				}
+			}
+		}
+		catch (MalformedURLException e)
+		{
+			FSErrorController.log(HttpResourceLoader.class, FSErrorLevel.ERROR, LangId.INVALID_URI, current);
+		}
+		catch (FileNotFoundException e)
+		{
+			FSErrorController.log(HttpResourceLoader.class, FSErrorLevel.ERROR, LangId.ITEM_AT_URI_NOT_FOUND, current);
+		}
+		catch (IOException e)
+		{
+			FSErrorController.log(HttpResourceLoader.class, FSErrorLevel.ERROR, LangId.GENERIC_IO_EXCEPTION, current);
+		}
+
+		return Optional.empty();
+	}
+
+	private Semaphore getPermits(String host)
+	{
+		int max = maxConnectionsPerHost;
+
+		if (max <= 0)
+			return null;
+
+		Semaphore permits = hostPermits.get(host);
+
+		if (permits == null)
+		{
+			Semaphore created = new Semaphore(max);
+			permits = hostPermits.putIfAbsent(host, created);
+
+			if (permits == null)
+				permits = created;
+		}
+
+		return permits;
+	}
+
+	private HostStatistics getHostStatistics(String host)
+	{
+		HostStatistics statistics = hostStatistics.get(host);
+
+		if (statistics == null)
+		{
+			HostStatistics created = new HostStatistics();
+			statistics = hostStatistics.putIfAbsent(host, created);
+
+			if (statistics == null)
+				statistics = created;
+		}
+
+		return statistics;
+	}
+
+	private Validated getValidated(String uri)
+	{
+		if (validatedBudget <= 0)
+			return null;
+
+		synchronized (validated)
+		{
+			return validated.get(uri);
+		}
+	}
+
+	private void remember(String uri, HttpURLConnection http, byte[] data)
+	{
+		String etag = http.getHeaderField("ETag");
+		long lastModified = http.getLastModified();
+
+		if ((etag == null && lastModified <= 0) || data.length > validatedBudget)
+			return;
+
+		synchronized (validated)
+		{
+			Validated old = validated.put(uri, new Validated(etag, lastModified, data));
+
+			if (old != null)
+				validatedWeight -= old.data.length;
+
+			validatedWeight += data.length;
+
+			Iterator<Validated> it = validated.values().iterator();
+
+			while (validatedWeight > validatedBudget && it.hasNext())
+			{
+				validatedWeight -= it.next().data.length;
+				it.remove();
+			}
+		}
+	}
+
+	private static byte[] read(URLConnection conn, InputStream in) throws IOException
+	{
+		InputStream is = "gzip".equals(conn.getContentEncoding()) ? new GZIPInputStream(in) : in;
+
+		try
+		{
+			ByteArrayOutputStream result = new ByteArrayOutputStream();
+			byte[] buf = new byte[10240];
+			int i;
+
+			while ((i = is.read(buf)) != -1)
+				result.write(buf, 0, i);
+
+			return result.toByteArray();
+		}
+		finally
+		{
+			is.close();
+		}
+	}
+
+	/**
+	 * Reads and closes an unwanted response body so the connection can be reused.
+	 */
+	private static void discard(HttpURLConnection http)
+	{
+		InputStream is = http.getErrorStream();
+
+		try
+		{
+			if (is == null)
+				is = http.getInputStream();
+
+			byte[] buf = new byte[1024];
+
+			while (is.read(buf) != -1)
+			{
+				// discard
+			}
+
+			is.close();
+		}
+		catch (IOException e)
+		{
+			// The connection won't be reused.
+		}
+	}
+}
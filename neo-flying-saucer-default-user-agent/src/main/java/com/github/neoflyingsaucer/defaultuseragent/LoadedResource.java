@@ -0,0 +1,29 @@
+package com.github.neoflyingsaucer.defaultuseragent;
+
+/**
+ * The bytes of a fetched resource and where they finally came from.
+ */
+public class LoadedResource
+{
+	private final String finalUri;
+	private final byte[] data;
+
+	public LoadedResource(String finalUri, byte[] data)
+	{
+		this.finalUri = finalUri;
+		this.data = data;
+	}
+
+	/**
+	 * The URI the resource was fetched from, after any redirects.
+	 */
+	public String getFinalUri()
+	{
+		return finalUri;
+	}
+
+	public byte[] getData()
+	{
+		return data;
+	}
+}
@@ -71,7 +71,12 @@ public class ResourceCacheImpl implements ResourceCache
 		if (resolvedUri != null)
 		{
 			FSErrorController.log(ResourceCacheImpl.class, FSErrorLevel.INFO, LangId.RECEIVING_STYLESHEET, resolvedUri);
-			_cache.put(resolvedUri, sheet);
+
+			// Stylesheets may be loaded on several threads at once.
+			synchronized (_cache)
+			{
+				_cache.put(resolvedUri, sheet);
+			}
 		}
 		else
 		{
@@ -82,7 +87,10 @@ public class ResourceCacheImpl implements ResourceCache
 	@Override
 	public Optional<StylesheetI> getCssStylesheet(String resolvedUri) 
 	{
-		return Optional.ofNullable(_cache.get(resolvedUri));
+		synchronized (_cache)
+		{
+			return Optional.ofNullable(_cache.get(resolvedUri));
+		}
 	}
 
 	@Override
@@ -0,0 +1,18 @@
+package com.github.neoflyingsaucer.defaultuseragent;
+
+import com.github.neoflyingsaucer.extend.useragent.Optional;
+
+/**
+ * The network layer used by {@link DefaultUserAgent} to fetch the bytes
+ * of stylesheets, images, fonts and documents. Implementations must be
+ * safe to call from several threads at once, as resources may be
+ * prefetched in parallel.
+ */
+public interface ResourceLoader
+{
+	/**
+	 * Fetches the resource at uri. Problems should be logged with
+	 * <code>FSErrorController</code> and Optional.empty() returned.
+	 */
+	public Optional<LoadedResource> load(String uri);
+}
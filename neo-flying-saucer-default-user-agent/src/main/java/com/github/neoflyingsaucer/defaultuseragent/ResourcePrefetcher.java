@@ -0,0 +1,304 @@
+package com.github.neoflyingsaucer.defaultuseragent;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelledException;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorHandler;
+import com.github.neoflyingsaucer.extend.controller.error.FSListErrorHandler;
+import com.github.neoflyingsaucer.extend.useragent.Optional;
+
+/**
+ * Fetches the resources a document refers to in parallel, so that by the
+ * time layout asks the user agent for them they are already in memory.
+ * Stylesheets from <code>link</code> elements, <code>img</code> sources and
+ * every <code>url(...)</code> in style elements, style attributes and
+ * fetched stylesheets (which covers background images and
+ * <code>@font-face</code> sources) are fetched. Imported stylesheets are
+ * scanned in turn.
+ *
+ * Each fetched resource is handed out once by {@link #take(String)}.
+ * Failed fetches are forgotten, leaving the user agent to fetch the
+ * resource again and report the error as usual. Resources the document
+ * did not ask for are dropped when the next document is prefetched.
+ *
+ * A fetch which has not finished within the wait timeout is cancelled and
+ * left to the user agent to load itself.
+ */
+public class ResourcePrefetcher
+{
+	private static final Pattern CSS_URL = Pattern.compile(
+			"url\\(\\s*(?:\"([^\"]*)\"|'([^']*)'|([^)\\s]*))\\s*\\)");
+	private static final Pattern CSS_IMPORT = Pattern.compile(
+			"@import\\s+(?:url\\(\\s*)?(?:\"([^\"]*)\"|'([^']*)'|([^)\\s;]*))");
+
+	public static final int DEFAULT_WAIT_TIMEOUT_MS = 10000;
+
+	/**
+	 * How long to wait for a fetch between checks of the cancel token.
+	 */
+	private static final int CANCEL_CHECK_INTERVAL_MS = 50;
+
+	private final DefaultUserAgent uac;
+	private final ExecutorService executor;
+	private volatile ConcurrentMap<String, Future<LoadedResource>> fetches = new ConcurrentHashMap<String, Future<LoadedResource>>();
+	private volatile int waitTimeout = DEFAULT_WAIT_TIMEOUT_MS;
+
+	public ResourcePrefetcher(DefaultUserAgent uac, ExecutorService executor)
+	{
+		assert(uac != null && executor != null);
+		this.uac = uac;
+		this.executor = executor;
+	}
+
+	/**
+	 * Starts fetching everything doc refers to and returns at once. Fetches
+	 * for the previous document which were never taken are cancelled and
+	 * forgotten.
+	 * @param baseUri the URI of the document, may be null if all references are absolute.
+	 */
+	public void prefetch(Document doc, String baseUri)
+	{
+		ConcurrentMap<String, Future<LoadedResource>> previous = fetches;
+		ConcurrentMap<String, Future<LoadedResource>> documentFetches = new ConcurrentHashMap<String, Future<LoadedResource>>();
+
+		fetches = documentFetches;
+
+		for (Future<LoadedResource> fetch : previous.values())
+			fetch.cancel(false);
+
+		previous.clear();
+
+		Element root = doc.getDocumentElement();
+
+		if (root != null)
+			scanElement(root, baseUri, documentFetches);
+	}
+
+	/**
+	 * How long {@link #take(String)} waits for a fetch to finish before
+	 * giving up on it.
+	 * Defaults to {@link #DEFAULT_WAIT_TIMEOUT_MS}.
+	 */
+	public void setWaitTimeout(int millis)
+	{
+		assert(millis >= 0);
+		waitTimeout = millis;
+	}
+
+	/**
+	 * The number of resources fetched, or being fetched, for the current
+	 * document which have not been taken yet.
+	 */
+	public int getPendingCount()
+	{
+		return fetches.size();
+	}
+
+	/**
+	 * Waits for and returns a resource if it was prefetched. Returns
+	 * Optional.empty() if it was not, if the fetch failed, or if it did not
+	 * finish within the wait timeout, so that the caller loads it itself.
+	 * The cancel token of this thread is checked while waiting.
+	 */
+	public Optional<LoadedResource> take(String uri)
+	{
+		if (uri == null)
+			return Optional.empty();
+
+		Future<LoadedResource> fetch = fetches.remove(uri);
+
+		if (fetch == null)
+			return Optional.empty();
+
+		FSCancelToken cancelToken = FSCancelController.getThreadCancelToken();
+		long deadline = System.currentTimeMillis() + waitTimeout;
+
+		try
+		{
+			while (true)
+			{
+				try
+				{
+					cancelToken.checkNow(ResourcePrefetcher.class);
+				}
+				catch (FSCancelledException e)
+				{
+					fetch.cancel(true);
+					throw e;
+				}
+
+				long remaining = deadline - System.currentTimeMillis();
+
+				if (remaining <= 0)
+				{
+					// The fetch has stalled. The caller's own load has the
+					// loader's timeouts and reports the error if it fails.
+					fetch.cancel(true);
+					return Optional.empty();
+				}
+
+				try
+				{
+					return Optional.ofNullable(fetch.get(Math.min(remaining, CANCEL_CHECK_INTERVAL_MS), TimeUnit.MILLISECONDS));
+				}
+				catch (TimeoutException e)
+				{
+					// Check the token again and go on waiting.
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return Optional.empty();
+		}
+		catch (ExecutionException e)
+		{
+			return Optional.empty();
+		}
+		catch (CancellationException e)
+		{
+			return Optional.empty();
+		}
+	}
+
+	private void scanElement(Element e, String baseUri, ConcurrentMap<String, Future<LoadedResource>> documentFetches)
+	{
+		String name = e.getNodeName().toLowerCase();
+
+		if (name.equals("link"))
+		{
+			String rel = e.getAttribute("rel");
+
+			if (rel != null && rel.toLowerCase().contains("stylesheet"))
+				fetch(baseUri, e.getAttribute("href"), true, documentFetches);
+		}
+		else if (name.equals("img"))
+		{
+			fetch(baseUri, e.getAttribute("src"), false, documentFetches);
+		}
+		else if (name.equals("style"))
+		{
+			scanCss(e.getTextContent(), baseUri, documentFetches);
+		}
+
+		if (e.hasAttribute("style"))
+			scanCss(e.getAttribute("style"), baseUri, documentFetches);
+
+		for (Node n = e.getFirstChild(); n != null; n = n.getNextSibling())
+		{
+			if (n instanceof Element)
+				scanElement((Element) n, baseUri, documentFetches);
+		}
+	}
+
+	private void scanCss(String css, String baseUri, ConcurrentMap<String, Future<LoadedResource>> documentFetches)
+	{
+		if (css == null)
+			return;
+
+		Matcher m = CSS_IMPORT.matcher(css);
+
+		while (m.find())
+			fetch(baseUri, firstGroup(m), true, documentFetches);
+
+		m = CSS_URL.matcher(css);
+
+		while (m.find())
+			fetch(baseUri, firstGroup(m), false, documentFetches);
+	}
+
+	private static String firstGroup(Matcher m)
+	{
+		for (int i = 1; i <= m.groupCount(); i++)
+		{
+			if (m.group(i) != null)
+				return m.group(i);
+		}
+
+		return null;
+	}
+
+	private void fetch(String baseUri, String uri, final boolean stylesheet, final ConcurrentMap<String, Future<LoadedResource>> documentFetches)
+	{
+		if (uri == null || uri.length() == 0 || uri.startsWith("data:"))
+			return;
+
+		Optional<String> resolved = uac.resolveURI(baseUri, uri);
+
+		if (!resolved.isPresent())
+			return;
+
+		final String resolvedUri = resolved.get();
+		FutureTask<LoadedResource> task = new FutureTask<LoadedResource>(new Callable<LoadedResource>()
+		{
+			@Override
+			public LoadedResource call() throws Exception
+			{
+				return load(resolvedUri, stylesheet, documentFetches);
+			}
+		});
+
+		// The same resource is often referred to more than once. Once the
+		// next document has started, stylesheets of this one are not
+		// scanned any further.
+		if (documentFetches == fetches && documentFetches.putIfAbsent(resolvedUri, task) == null)
+			executor.execute(task);
+	}
+
+	private LoadedResource load(String uri, boolean stylesheet, ConcurrentMap<String, Future<LoadedResource>> documentFetches)
+	{
+		FSErrorHandler oldErrorHandler = FSErrorController.getThreadErrorHandler();
+
+		// Errors are reported when the resource is fetched for real.
+		FSErrorController.setThreadErrorHandler(new FSListErrorHandler());
+
+		try
+		{
+			Optional<LoadedResource> resource = uac.getResourceLoader().load(uri);
+
+			if (!resource.isPresent())
+				return null;
+
+			if (stylesheet)
+				scanCss(decode(resource.get().getData()), resource.get().getFinalUri(), documentFetches);
+
+			return resource.get();
+		}
+		finally
+		{
+			FSErrorController.setThreadErrorHandler(oldErrorHandler);
+		}
+	}
+
+	private static String decode(byte[] data)
+	{
+		try
+		{
+			return new String(data, "UTF-8");
+		}
+		catch (UnsupportedEncodingException e)
+		{
+			return null;
+		}
+	}
+}
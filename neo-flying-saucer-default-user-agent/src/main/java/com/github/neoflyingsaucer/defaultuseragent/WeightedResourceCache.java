@@ -0,0 +1,404 @@
+package com.github.neoflyingsaucer.defaultuseragent;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import com.github.neoflyingsaucer.css.sheet.MediaRule;
+import com.github.neoflyingsaucer.css.sheet.Ruleset;
+import com.github.neoflyingsaucer.css.sheet.Stylesheet;
+import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
+import com.github.neoflyingsaucer.extend.controller.error.LangId;
+import com.github.neoflyingsaucer.extend.output.FSImage;
+import com.github.neoflyingsaucer.extend.useragent.Optional;
+import com.github.neoflyingsaucer.extend.useragent.ResourceCache;
+import com.github.neoflyingsaucer.extend.useragent.StylesheetI;
+
+/**
+ * A thread safe resource cache which limits each type of resource by an
+ * estimate of the memory it takes up rather than by a count, so that one
+ * large image can push out several small ones. It may be shared by all
+ * the user agents in a JVM.
+ *
+ * Each type of resource is split over a few independently locked
+ * stripes, each of which evicts its least recently used entries once it
+ * is over its share of the budget. Entries may also be given a time to
+ * live.
+ */
+public class WeightedResourceCache implements ResourceCache
+{
+	private static final int STRIPES = 4;
+
+	private final Tier<String, StylesheetI> _cssTier;
+	private final Tier<String, Document> _htmlTier;
+	private final Tier<ImageKey, FSImage> _imgTier;
+
+	/**
+	 * @param cssBytes the estimated size of parsed stylesheets to keep.
+	 * @param htmlBytes the estimated size of parsed documents to keep.
+	 * @param imgBytes the size of decoded images to keep.
+	 * @param ttlMillis how long to keep entries for, or zero to keep them until evicted.
+	 */
+	public WeightedResourceCache(long cssBytes, long htmlBytes, long imgBytes, long ttlMillis)
+	{
+		_cssTier = new Tier<String, StylesheetI>(cssBytes, ttlMillis);
+		_htmlTier = new Tier<String, Document>(htmlBytes, ttlMillis);
+		_imgTier = new Tier<ImageKey, FSImage>(imgBytes, ttlMillis);
+	}
+
+	/**
+	 * 8MB of stylesheets, 16MB of documents and 64MB of images, kept until evicted.
+	 */
+	public WeightedResourceCache()
+	{
+		this(8L << 20, 16L << 20, 64L << 20, 0);
+	}
+
+	private static class Entry<V>
+	{
+		private final V value;
+		private final long weight;
+		private final long expires;
+
+		private Entry(V value, long weight, long expires)
+		{
+			this.value = value;
+			this.weight = weight;
+			this.expires = expires;
+		}
+	}
+
+	private static class Stripe<K, V>
+	{
+		private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+		private final long budget;
+		private long weight;
+
+		private Stripe(long budget)
+		{
+			this.budget = budget;
+		}
+
+		private synchronized Entry<V> get(K key, long now)
+		{
+			Entry<V> entry = map.get(key);
+
+			if (entry != null && entry.expires != 0 && entry.expires <= now)
+			{
+				map.remove(key);
+				weight -= entry.weight;
+				return null;
+			}
+
+			return entry;
+		}
+
+		/**
+		 * Returns the number of entries evicted to make room.
+		 */
+		private synchronized int put(K key, Entry<V> entry)
+		{
+			Entry<V> old = map.put(key, entry);
+
+			if (old != null)
+				weight -= old.weight;
+
+			weight += entry.weight;
+
+			int evicted = 0;
+			Iterator<Map.Entry<K, Entry<V>>> it = map.entrySet().iterator();
+
+			while (weight > budget && it.hasNext())
+			{
+				Entry<V> eldest = it.next().getValue();
+				it.remove();
+				weight -= eldest.weight;
+				evicted++;
+			}
+
+			return evicted;
+		}
+
+		private synchronized long getWeight()
+		{
+			return weight;
+		}
+	}
+
+	private static class Tier<K, V>
+	{
+		private final Object[] stripes = new Object[STRIPES];
+		private final long stripeBudget;
+		private final long ttl;
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+		private final AtomicLong evictions = new AtomicLong();
+
+		private Tier(long budget, long ttl)
+		{
+			this.stripeBudget = budget / STRIPES;
+			this.ttl = ttl;
+
+			for (int i = 0; i < STRIPES; i++)
+				stripes[i] = new Stripe<K, V>(stripeBudget);
+		}
+
+		@SuppressWarnings("unchecked")
+		private Stripe<K, V> stripe(K key)
+		{
+			int h = key.hashCode();
+			h ^= (h >>> 16);
+			return (Stripe<K, V>) stripes[(h & 0x7fffffff) % STRIPES];
+		}
+
+		private V get(K key)
+		{
+			Entry<V> entry = stripe(key).get(key, System.currentTimeMillis());
+
+			if (entry == null)
+			{
+				misses.incrementAndGet();
+				return null;
+			}
+
+			hits.incrementAndGet();
+			return entry.value;
+		}
+
+		private void put(K key, V value, long weight)
+		{
+			// Something bigger than a whole stripe would only empty it.
+			if (weight > stripeBudget)
+				return;
+
+			long expires = ttl > 0 ? System.currentTimeMillis() + ttl : 0;
+			int evicted = stripe(key).put(key, new Entry<V>(value, weight, expires));
+
+			if (evicted > 0)
+				evictions.addAndGet(evicted);
+		}
+
+		@SuppressWarnings("unchecked")
+		private long getWeight()
+		{
+			long result = 0;
+
+			for (Object stripe : stripes)
+				result += ((Stripe<K, V>) stripe).getWeight();
+
+			return result;
+		}
+	}
+
+	private static class ImageKey
+	{
+		private final Class<?> cls;
+		private final String uri;
+
+		private ImageKey(Class<?> cls, String uri)
+		{
+			this.cls = cls;
+			this.uri = uri;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * (cls == null ? 0 : cls.hashCode()) + uri.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (!(obj instanceof ImageKey))
+				return false;
+
+			ImageKey other = (ImageKey) obj;
+			return (cls == null ? other.cls == null : cls.equals(other.cls)) && uri.equals(other.uri);
+		}
+	}
+
+	/**
+	 * Decoded images take four bytes a pixel.
+	 */
+	private static long weigh(FSImage img)
+	{
+		return 64L + 4L * Math.max(0, img.getWidth()) * Math.max(0, img.getHeight());
+	}
+
+	/**
+	 * A rough figure for a parsed stylesheet, based on how many rules and
+	 * declarations it has.
+	 */
+	private static long weigh(StylesheetI sheet)
+	{
+		long result = 256;
+
+		if (sheet instanceof Stylesheet)
+		{
+			for (Object rule : ((Stylesheet) sheet).getContents())
+			{
+				if (rule instanceof Ruleset)
+				{
+					result += weigh((Ruleset) rule);
+				}
+				else if (rule instanceof MediaRule)
+				{
+					for (Ruleset ruleset : ((MediaRule) rule).getContents())
+						result += weigh(ruleset);
+				}
+				else
+				{
+					result += 256;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private static long weigh(Ruleset ruleset)
+	{
+		return 64L + 128L * (ruleset.getFSSelectors().size() + ruleset.getPropertyDeclarations().size());
+	}
+
+	/**
+	 * A rough figure for a parsed document, based on how many nodes and
+	 * characters of text it has.
+	 */
+	private static long weigh(Document doc)
+	{
+		long result = 256;
+		Node n = doc.getDocumentElement();
+
+		while (n != null)
+		{
+			result += 96;
+
+			String value = n.getNodeValue();
+
+			if (value != null)
+				result += 2L * value.length();
+
+			if (n.getFirstChild() != null)
+			{
+				n = n.getFirstChild();
+			}
+			else
+			{
+				while (n != null && n.getNextSibling() == null)
+					n = n.getParentNode();
+
+				if (n != null)
+					n = n.getNextSibling();
+			}
+		}
+
+		return result;
+	}
+
+	@Override
+	public Optional<Document> getHtmlDocument(String resolvedUri)
+	{
+		if (resolvedUri == null)
+			return Optional.empty();
+
+		return Optional.ofNullable(_htmlTier.get(resolvedUri));
+	}
+
+	@Override
+	public void putHtmlDocument(String resolvedUri, Document doc)
+	{
+		if (resolvedUri != null && doc != null)
+			_htmlTier.put(resolvedUri, doc, weigh(doc));
+	}
+
+	@Override
+	public Optional<StylesheetI> getCssStylesheet(String resolvedUri)
+	{
+		if (resolvedUri == null)
+			return Optional.empty();
+
+		return Optional.ofNullable(_cssTier.get(resolvedUri));
+	}
+
+	@Override
+	public void putCssStylesheet(String resolvedUri, StylesheetI sheet)
+	{
+		if (resolvedUri != null)
+		{
+			FSErrorController.log(WeightedResourceCache.class, FSErrorLevel.INFO, LangId.RECEIVING_STYLESHEET, resolvedUri);
+
+			if (sheet != null)
+				_cssTier.put(resolvedUri, sheet, weigh(sheet));
+		}
+		else
+		{
+			FSErrorController.log(WeightedResourceCache.class, FSErrorLevel.WARNING, LangId.RESOURCE_WITH_NO_URI);
+		}
+	}
+
+	@Override
+	public void putImage(String resolvedUri, Class<?> imgType, FSImage img)
+	{
+		if (resolvedUri != null)
+		{
+			FSErrorController.log(WeightedResourceCache.class, FSErrorLevel.INFO, LangId.RECEIVING_IMAGE, resolvedUri);
+
+			if (img != null)
+				_imgTier.put(new ImageKey(imgType, resolvedUri), img, weigh(img));
+		}
+		else
+		{
+			FSErrorController.log(WeightedResourceCache.class, FSErrorLevel.WARNING, LangId.RESOURCE_WITH_NO_URI);
+		}
+	}
+
+	@Override
+	public Optional<FSImage> getImage(String resolvedUri, Class<?> imgType)
+	{
+		if (resolvedUri == null)
+			return Optional.empty();
+
+		return Optional.ofNullable(_imgTier.get(new ImageKey(imgType, resolvedUri)));
+	}
+
+	/**
+	 * The number of lookups, of any type, answered from the cache.
+	 */
+	public long getHitCount()
+	{
+		return _cssTier.hits.get() + _htmlTier.hits.get() + _imgTier.hits.get();
+	}
+
+	/**
+	 * The number of lookups, of any type, not answered from the cache.
+	 */
+	public long getMissCount()
+	{
+		return _cssTier.misses.get() + _htmlTier.misses.get() + _imgTier.misses.get();
+	}
+
+	/**
+	 * The number of entries removed to keep within budget.
+	 */
+	public long getEvictionCount()
+	{
+		return _cssTier.evictions.get() + _htmlTier.evictions.get() + _imgTier.evictions.get();
+	}
+
+	/**
+	 * The estimated size in bytes of everything in the cache.
+	 */
+	public long getWeight()
+	{
+		return _cssTier.getWeight() + _htmlTier.getWeight() + _imgTier.getWeight();
+	}
+}
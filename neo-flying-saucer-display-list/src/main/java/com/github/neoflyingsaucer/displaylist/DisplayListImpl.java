@@ -5,17 +5,19 @@ import java.util.Collections;
 import java.util.List;
 
 import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
 import com.github.neoflyingsaucer.extend.output.DisplayList;
 import com.github.neoflyingsaucer.extend.output.DlItem;
 
 public class DisplayListImpl implements DisplayList
 {
 	private List<DlItem> dl = new ArrayList<DlItem>(1000);
+	private final FSCancelToken cancelToken = FSCancelController.getThreadCancelToken();
 
 	@Override
 	public void add(DlItem item)
 	{
-		FSCancelController.cancelOpportunity(DisplayListImpl.class);
+		cancelToken.check(DisplayListImpl.class);
 		dl.add(item);
 	}
 	
@@ -1,25 +1,61 @@
 package com.github.neoflyingsaucer.extend.controller.cancel;
 
-public class FSCancelController 
+public class FSCancelController
 {
-	private static final ThreadLocal<FSCancelHandler> THREAD_CANCEL_HANDLER = new ThreadLocal<FSCancelHandler>() {
+	private static final ThreadLocal<FSCancelToken> THREAD_CANCEL_TOKEN = new ThreadLocal<FSCancelToken>() {
 		@Override
-		protected FSCancelHandler initialValue() {
-			return new FSDefaultCancelHandler();
+		protected FSCancelToken initialValue() {
+			return new FSCancelToken(new FSDefaultCancelHandler());
 		}
 	};
-	
+
 	private FSCancelController() { }
-	
+
+	/**
+	 * Checks the token for this thread. Loops which run many times should
+	 * look the token up once, or take it from their context, and check it directly.
+	 */
 	public static void cancelOpportunity(Class<?> sourceClass)
 	{
-		FSCancelHandler handler = THREAD_CANCEL_HANDLER.get();
-		handler.cancelOpportunity(sourceClass);
+		THREAD_CANCEL_TOKEN.get().check(sourceClass);
 	}
-	
+
+	/**
+	 * Sets the handler for this thread. The default and timed handlers
+	 * are asked every {@link FSCancelToken#DEFAULT_CHECK_INTERVAL} cancel
+	 * opportunities, other handlers on each one.
+	 */
 	public static void setThreadCancelHandler(FSCancelHandler handler)
 	{
 		assert(handler != null);
-		THREAD_CANCEL_HANDLER.set(handler);
+		THREAD_CANCEL_TOKEN.set(new FSCancelToken(handler));
+	}
+
+	/**
+	 * Returns the handler for this thread, so that work handed off
+	 * to other threads can be made to obey the same cancel policy.
+	 */
+	public static FSCancelHandler getThreadCancelHandler()
+	{
+		return THREAD_CANCEL_TOKEN.get().getHandler();
+	}
+
+	/**
+	 * Shares a token with this thread, so that work handed off to it
+	 * stops when the token is cancelled.
+	 */
+	public static void setThreadCancelToken(FSCancelToken token)
+	{
+		assert(token != null);
+		THREAD_CANCEL_TOKEN.set(token);
+	}
+
+	/**
+	 * Returns the token for this thread. Calling {@link FSCancelToken#cancel()}
+	 * on it from another thread stops the work on this one.
+	 */
+	public static FSCancelToken getThreadCancelToken()
+	{
+		return THREAD_CANCEL_TOKEN.get();
 	}
 }
@@ -0,0 +1,117 @@
+package com.github.neoflyingsaucer.extend.controller.cancel;
+
+/**
+ * A cheap cancel check for tight loops. Each check reads a volatile flag
+ * and only asks the handler, which may read the clock, every so many
+ * checks. Once {@link #cancel()} has been called from any thread, every
+ * later check throws straight away.
+ *
+ * A cancel from the handler, or from interrupting the checking thread,
+ * is not remembered. The handler is asked again next time, so a thread
+ * whose interrupt has been cleared can go on using the token.
+ *
+ * A token may be shared by the threads working on one document. The
+ * check count is then approximate, which only moves when the handler
+ * is asked.
+ */
+public class FSCancelToken
+{
+	public static final int DEFAULT_CHECK_INTERVAL = 64;
+
+	private final FSCancelHandler handler;
+	private final int interval;
+	private volatile boolean cancelled;
+	private volatile boolean interruptible;
+	private int countdown;
+
+	/**
+	 * The handlers in this package are asked every
+	 * {@link #DEFAULT_CHECK_INTERVAL} checks. Any other handler is asked
+	 * on every check, as it was before tokens were introduced.
+	 */
+	public FSCancelToken(FSCancelHandler handler)
+	{
+		this(handler, getDefaultInterval(handler));
+	}
+
+	/**
+	 * @param interval how many checks to make between asking the handler.
+	 */
+	public FSCancelToken(FSCancelHandler handler, int interval)
+	{
+		assert(handler != null && interval > 0);
+		this.handler = handler;
+		this.interval = interval;
+		this.countdown = interval;
+	}
+
+	private static int getDefaultInterval(FSCancelHandler handler)
+	{
+		if (handler instanceof FSDefaultCancelHandler || handler instanceof FSTimedCancelHandler)
+			return DEFAULT_CHECK_INTERVAL;
+
+		return 1;
+	}
+
+	public void check(Class<?> sourceClass)
+	{
+		if (cancelled)
+			throw new FSCancelledException("Cancelled", sourceClass);
+
+		if (--countdown <= 0)
+		{
+			countdown = interval;
+			poll(sourceClass);
+		}
+	}
+
+	/**
+	 * Checks the token and asks the handler straight away, for code which
+	 * waits between checks rather than looping.
+	 */
+	public void checkNow(Class<?> sourceClass)
+	{
+		if (cancelled)
+			throw new FSCancelledException("Cancelled", sourceClass);
+
+		poll(sourceClass);
+	}
+
+	private void poll(Class<?> sourceClass)
+	{
+		if (interruptible && Thread.currentThread().isInterrupted())
+			throw new FSCancelledException("Thread interrupted", sourceClass);
+
+		handler.cancelOpportunity(sourceClass);
+	}
+
+	/**
+	 * Cancels the work checking this token. May be called from any thread.
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	/**
+	 * Whether {@link #cancel()} has been called.
+	 */
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	/**
+	 * Whether to also cancel when the checking thread is interrupted,
+	 * whatever the handler does. Off by default.
+	 */
+	public void setInterruptible(boolean interruptible)
+	{
+		this.interruptible = interruptible;
+	}
+
+	public FSCancelHandler getHandler()
+	{
+		return handler;
+	}
+}
@@ -1,39 +1,79 @@
 package com.github.neoflyingsaucer.extend.controller.error;
 
 import java.text.MessageFormat;
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class FSDefaultErrorHandler implements FSErrorHandler 
+import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
+
+public class FSDefaultErrorHandler implements FSFilteringErrorHandler 
 {
 	public ResourceBundle bundle;
-	private Map<Class<?>, Logger> loggers = new HashMap<Class<?>, Logger>();
+	private final ConcurrentMap<Class<?>, Logger> loggers = new ConcurrentHashMap<Class<?>, Logger>();
 	
 	public FSDefaultErrorHandler(Locale locale)
 	{
 		this.bundle = ResourceBundle.getBundle("languages.ErrorMessages", locale);
 	}
 	
-	@Override
-	public void onError(FSError error) 
+	private Logger getLogger(Class<?> sourceClass)
 	{
-		String msg = error.formatMessage(bundle);
-		Logger logger;
+		if (sourceClass == null)
+			sourceClass = FSDefaultErrorHandler.class;
 		
-		if (loggers.containsKey(error.getSourceClass()))
+		Logger logger = loggers.get(sourceClass);
+		
+		if (logger == null)
 		{
-			logger = loggers.get(error.getSourceClass());
+			logger = LoggerFactory.getLogger(sourceClass);
+			Logger existing = loggers.putIfAbsent(sourceClass, logger);
+			
+			if (existing != null)
+				logger = existing;
 		}
-		else
+		
+		return logger;
+	}
+	
+	private static boolean isEnabled(Logger logger, FSErrorLevel level)
+	{
+		switch (level)
 		{
-			logger = LoggerFactory.getLogger(error.getSourceClass());
-			loggers.put(error.getSourceClass(), logger);
+		case DEBUG:
+			return logger.isDebugEnabled();
+		case INFO:
+			return logger.isInfoEnabled();
+		case TRACE:
+			return logger.isTraceEnabled();
+		case WARNING:
+			return logger.isWarnEnabled();
+		case ERROR:
+		default:
+			return logger.isErrorEnabled();
 		}
+	}
+	
+	@Override
+	public boolean isEnabled(FSErrorLevel level, Class<?> sourceClass)
+	{
+		return isEnabled(getLogger(sourceClass), level);
+	}
+	
+	@Override
+	public void onError(FSError error) 
+	{
+		Logger logger = getLogger(error.getSourceClass());
+		
+		// Errors may be passed straight to onError, so check again before formatting.
+		if (!isEnabled(logger, error.getLevel()))
+			return;
+		
+		String msg = error.formatMessage(bundle);
 		
 		if (error.getErrorType() == FSErrorType.CSS_ERROR)
 		{
@@ -6,6 +6,8 @@ import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
 
 public class FSErrorController 
 {
+	private static final Object[] NO_ARGS = new Object[0];
+	
 	private static final ThreadLocal<FSErrorHandler> THREAD_ERROR_HANDLER = new ThreadLocal<FSErrorHandler>() {
 		@Override
 		protected FSErrorHandler initialValue() {
@@ -21,10 +23,60 @@ public class FSErrorController
 		errorHandler.onError(err);
 	}
 	
+	/**
+	 * Whether a message of this level from sourceClass would be used. Check
+	 * this before working out arguments which are expensive to compute.
+	 */
+	public static boolean isEnabled(FSErrorLevel level, Class<?> sourceClass)
+	{
+		return isEnabled(THREAD_ERROR_HANDLER.get(), level, sourceClass);
+	}
+	
+	/**
+	 * Whether handler would use a message of this level from sourceClass.
+	 * Handlers which do not filter use every message.
+	 */
+	public static boolean isEnabled(FSErrorHandler handler, FSErrorLevel level, Class<?> sourceClass)
+	{
+		return !(handler instanceof FSFilteringErrorHandler) ||
+				((FSFilteringErrorHandler) handler).isEnabled(level, sourceClass);
+	}
+	
+	/*
+	 * The fixed argument versions of log avoid allocating an argument array
+	 * for messages that are going to be thrown away.
+	 */
+	
+	public static void log(Class<?> sourceClass, FSErrorLevel level, LangId languageId)
+	{
+		FSErrorHandler errorHandler = THREAD_ERROR_HANDLER.get();
+
+		if (isEnabled(errorHandler, level, sourceClass))
+			errorHandler.onError(new FSError(-1, languageId, FSErrorType.LOGGING, null, sourceClass, level, NO_ARGS));
+	}
+	
+	public static void log(Class<?> sourceClass, FSErrorLevel level, LangId languageId, Object arg)
+	{
+		FSErrorHandler errorHandler = THREAD_ERROR_HANDLER.get();
+
+		if (isEnabled(errorHandler, level, sourceClass))
+			errorHandler.onError(new FSError(-1, languageId, FSErrorType.LOGGING, null, sourceClass, level, arg));
+	}
+	
+	public static void log(Class<?> sourceClass, FSErrorLevel level, LangId languageId, Object arg1, Object arg2)
+	{
+		FSErrorHandler errorHandler = THREAD_ERROR_HANDLER.get();
+
+		if (isEnabled(errorHandler, level, sourceClass))
+			errorHandler.onError(new FSError(-1, languageId, FSErrorType.LOGGING, null, sourceClass, level, arg1, arg2));
+	}
+	
 	public static void log(Class<?> sourceClass, FSErrorLevel level, LangId languageId, Object... args)
 	{
-		FSError err = new FSError(-1, languageId, FSErrorType.LOGGING, null, sourceClass, level, args);
-		onError(err);
+		FSErrorHandler errorHandler = THREAD_ERROR_HANDLER.get();
+
+		if (isEnabled(errorHandler, level, sourceClass))
+			errorHandler.onError(new FSError(-1, languageId, FSErrorType.LOGGING, null, sourceClass, level, args));
 	}
 	
 	public static void setThreadErrorHandler(FSErrorHandler handler)
@@ -32,4 +84,13 @@ public class FSErrorController
 		assert(handler != null);
 		THREAD_ERROR_HANDLER.set(handler);
 	}
+	
+	/**
+	 * Returns the handler for this thread, so that work handed off
+	 * to other threads can report to the same place.
+	 */
+	public static FSErrorHandler getThreadErrorHandler()
+	{
+		return THREAD_ERROR_HANDLER.get();
+	}
 }
@@ -0,0 +1,18 @@
+package com.github.neoflyingsaucer.extend.controller.error;
+
+import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
+
+/**
+ * An error handler which only wants some messages. Messages it does not
+ * want are never created, which saves formatting their arguments.
+ * Handlers which only implement {@link FSErrorHandler} are given every
+ * message.
+ */
+public interface FSFilteringErrorHandler extends FSErrorHandler
+{
+	/**
+	 * Whether errors of this level from sourceClass would be used at all.
+	 * If not, they are never created.
+	 */
+	public boolean isEnabled(FSErrorLevel level, Class<?> sourceClass);
+}
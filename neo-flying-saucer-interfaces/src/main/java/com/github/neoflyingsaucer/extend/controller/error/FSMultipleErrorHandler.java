@@ -1,10 +1,12 @@
 package com.github.neoflyingsaucer.extend.controller.error;
 
+import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
+
 /**
  * Use this class to combine multiple error handlers. For example the List error handler
  * and default (logging) handler.
  */
-public class FSMultipleErrorHandler implements FSErrorHandler
+public class FSMultipleErrorHandler implements FSFilteringErrorHandler
 {
 	private final FSErrorHandler[] handlers;
 	
@@ -18,7 +20,20 @@ public class FSMultipleErrorHandler implements FSErrorHandler
 	{
 		for (FSErrorHandler handler : handlers)
 		{
-			handler.onError(error);
+			if (FSErrorController.isEnabled(handler, error.getLevel(), error.getSourceClass()))
+				handler.onError(error);
+		}
+	}
+
+	@Override
+	public boolean isEnabled(FSErrorLevel level, Class<?> sourceClass)
+	{
+		for (FSErrorHandler handler : handlers)
+		{
+			if (FSErrorController.isEnabled(handler, level, sourceClass))
+				return true;
 		}
+		
+		return false;
 	}
 }
@@ -0,0 +1,30 @@
+package com.github.neoflyingsaucer.extend.controller.error;
+
+import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
+
+/**
+ * Error handlers are written for a single thread. Use this class to share
+ * one with work handed off to other threads, so that errors from all of
+ * them are passed on one at a time.
+ */
+public class FSSerialErrorHandler implements FSFilteringErrorHandler
+{
+	private final FSErrorHandler delegate;
+
+	public FSSerialErrorHandler(FSErrorHandler delegate)
+	{
+		this.delegate = delegate;
+	}
+
+	@Override
+	public synchronized void onError(FSError error)
+	{
+		delegate.onError(error);
+	}
+
+	@Override
+	public synchronized boolean isEnabled(FSErrorLevel level, Class<?> sourceClass)
+	{
+		return FSErrorController.isEnabled(delegate, level, sourceClass);
+	}
+}
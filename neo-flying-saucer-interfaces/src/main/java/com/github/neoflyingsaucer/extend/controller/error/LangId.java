@@ -420,5 +420,20 @@ public enum LangId
 	/**
 	 * 0 arguments.
 	 */
-	SET_MORE_THAN_ONE_PSEUDO;
+	SET_MORE_THAN_ONE_PSEUDO,
+	
+	/**
+	 * 2 arguments.
+	 */
+	TEXT_WIDTHS_MEASURED,
+	
+	/**
+	 * 2 arguments.
+	 */
+	TOO_MANY_REDIRECTS,
+	
+	/**
+	 * 2 arguments.
+	 */
+	UNEXPECTED_HTTP_STATUS;
 }
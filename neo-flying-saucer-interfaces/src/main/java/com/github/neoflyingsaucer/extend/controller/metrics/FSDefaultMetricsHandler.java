@@ -0,0 +1,17 @@
+package com.github.neoflyingsaucer.extend.controller.metrics;
+
+/**
+ * Discards everything.
+ */
+public class FSDefaultMetricsHandler implements FSMetricsHandler 
+{
+	@Override
+	public void recordTime(FSMetricsStage stage, long nanos)
+	{
+	}
+
+	@Override
+	public void increment(FSMetricsCounter counter, long amount)
+	{
+	}
+}
@@ -0,0 +1,167 @@
+package com.github.neoflyingsaucer.extend.controller.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Keeps totals of everything recorded, along with the most recent samples
+ * of each stage and counter for working out percentiles. Each call to
+ * the handler is one sample, so, for example, PAINT percentiles are per
+ * page while LAYOUT percentiles are per document.
+ *
+ * It is thread safe, so one instance may be set as the handler of every
+ * thread rendering documents.
+ */
+public class FSMemoryMetricsHandler implements FSMetricsHandler 
+{
+	private final Series[] stages;
+	private final Series[] counters;
+	
+	/**
+	 * Keeps the last 1024 samples of each stage and counter.
+	 */
+	public FSMemoryMetricsHandler()
+	{
+		this(1024);
+	}
+	
+	/**
+	 * @param samples the number of recent samples of each stage and counter
+	 * to keep for percentiles.
+	 */
+	public FSMemoryMetricsHandler(int samples)
+	{
+		assert(samples > 0);
+		
+		stages = new Series[FSMetricsStage.values().length];
+		counters = new Series[FSMetricsCounter.values().length];
+		
+		for (int i = 0; i < stages.length; i++)
+			stages[i] = new Series(samples);
+		
+		for (int i = 0; i < counters.length; i++)
+			counters[i] = new Series(samples);
+	}
+	
+	private static class Series
+	{
+		private final long[] samples;
+		private int next;
+		private long count;
+		private long total;
+		private long max;
+		
+		private Series(int size)
+		{
+			samples = new long[size];
+		}
+		
+		private synchronized void add(long value)
+		{
+			samples[next] = value;
+			next = (next + 1) % samples.length;
+			count++;
+			total += value;
+			max = Math.max(max, value);
+		}
+		
+		private synchronized long getCount()
+		{
+			return count;
+		}
+		
+		private synchronized long getTotal()
+		{
+			return total;
+		}
+		
+		private synchronized long getMax()
+		{
+			return max;
+		}
+		
+		private long getPercentile(double percentile)
+		{
+			long[] sorted;
+			
+			synchronized (this)
+			{
+				sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+			}
+			
+			if (sorted.length == 0)
+				return 0;
+			
+			Arrays.sort(sorted);
+			int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+			return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+		}
+		
+		private synchronized void reset()
+		{
+			next = 0;
+			count = 0;
+			total = 0;
+			max = 0;
+		}
+	}
+	
+	@Override
+	public void recordTime(FSMetricsStage stage, long nanos)
+	{
+		stages[stage.ordinal()].add(nanos);
+	}
+
+	@Override
+	public void increment(FSMetricsCounter counter, long amount)
+	{
+		counters[counter.ordinal()].add(amount);
+	}
+	
+	/**
+	 * The number of times stage has been recorded.
+	 */
+	public long getCount(FSMetricsStage stage)
+	{
+		return stages[stage.ordinal()].getCount();
+	}
+	
+	public long getTotalNanos(FSMetricsStage stage)
+	{
+		return stages[stage.ordinal()].getTotal();
+	}
+	
+	public long getMaxNanos(FSMetricsStage stage)
+	{
+		return stages[stage.ordinal()].getMax();
+	}
+	
+	/**
+	 * @param percentile from 0 to 100, e.g. 99 for the 99th percentile of the recent samples.
+	 */
+	public long getPercentileNanos(FSMetricsStage stage, double percentile)
+	{
+		return stages[stage.ordinal()].getPercentile(percentile);
+	}
+	
+	public long getTotal(FSMetricsCounter counter)
+	{
+		return counters[counter.ordinal()].getTotal();
+	}
+	
+	/**
+	 * @param percentile from 0 to 100, e.g. 50 for the median of the recent samples.
+	 */
+	public long getPercentile(FSMetricsCounter counter, double percentile)
+	{
+		return counters[counter.ordinal()].getPercentile(percentile);
+	}
+	
+	public void reset()
+	{
+		for (Series series : stages)
+			series.reset();
+		
+		for (Series series : counters)
+			series.reset();
+	}
+}
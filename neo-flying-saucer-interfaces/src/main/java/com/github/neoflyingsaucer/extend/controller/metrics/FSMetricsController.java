@@ -0,0 +1,50 @@
+package com.github.neoflyingsaucer.extend.controller.metrics;
+
+public class FSMetricsController 
+{
+	private static final ThreadLocal<FSMetricsHandler> THREAD_METRICS_HANDLER = new ThreadLocal<FSMetricsHandler>() {
+		@Override
+		protected FSMetricsHandler initialValue() {
+			return new FSDefaultMetricsHandler();
+		}
+	};
+	
+	private FSMetricsController() { }
+	
+	/**
+	 * @param nanos the time taken, as measured by System.nanoTime().
+	 */
+	public static void recordTime(FSMetricsStage stage, long nanos)
+	{
+		THREAD_METRICS_HANDLER.get().recordTime(stage, nanos);
+	}
+	
+	public static void increment(FSMetricsCounter counter, long amount)
+	{
+		THREAD_METRICS_HANDLER.get().increment(counter, amount);
+	}
+	
+	/**
+	 * Whether anything is listening, so that counts which take work to
+	 * gather need not be gathered.
+	 */
+	public static boolean isEnabled()
+	{
+		return !(THREAD_METRICS_HANDLER.get() instanceof FSDefaultMetricsHandler);
+	}
+	
+	public static void setThreadMetricsHandler(FSMetricsHandler handler)
+	{
+		assert(handler != null);
+		THREAD_METRICS_HANDLER.set(handler);
+	}
+	
+	/**
+	 * Returns the handler for this thread, so that work handed off
+	 * to other threads can be measured by the same handler.
+	 */
+	public static FSMetricsHandler getThreadMetricsHandler()
+	{
+		return THREAD_METRICS_HANDLER.get();
+	}
+}
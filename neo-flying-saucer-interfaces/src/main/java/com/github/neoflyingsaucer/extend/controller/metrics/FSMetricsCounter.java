@@ -0,0 +1,41 @@
+package com.github.neoflyingsaucer.extend.controller.metrics;
+
+public enum FSMetricsCounter
+{
+	/**
+	 * Elements matched against the stylesheets.
+	 */
+	ELEMENTS,
+	
+	/**
+	 * Boxes in the laid out document.
+	 */
+	BOXES,
+	
+	PAGES,
+	
+	/**
+	 * Selectors tested against elements while matching.
+	 */
+	SELECTORS_TESTED,
+	
+	/**
+	 * Text widths measured by the font context.
+	 */
+	TEXT_MEASUREMENTS,
+	
+	/**
+	 * Text widths found in the text width cache rather than measured.
+	 */
+	TEXT_WIDTH_CACHE_HITS,
+	
+	/**
+	 * Blocks laid out again to satisfy the page break rules.
+	 */
+	RELAYOUTS,
+	
+	/**
+	 * Blocks moved past a page break rather than laid out again.
+	 */
+	MOVED_BLOCKS;
+}
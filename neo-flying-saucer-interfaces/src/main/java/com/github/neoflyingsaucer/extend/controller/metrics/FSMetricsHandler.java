@@ -0,0 +1,7 @@
+package com.github.neoflyingsaucer.extend.controller.metrics;
+
+public interface FSMetricsHandler 
+{
+	public void recordTime(FSMetricsStage stage, long nanos);
+	public void increment(FSMetricsCounter counter, long amount);
+}
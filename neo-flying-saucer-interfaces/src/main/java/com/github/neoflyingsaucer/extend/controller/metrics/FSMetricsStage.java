@@ -0,0 +1,20 @@
+package com.github.neoflyingsaucer.extend.controller.metrics;
+
+/**
+ * The stages of turning HTML into output that are timed. Styles are
+ * resolved as boxes are built unless they are resolved up front, so
+ * BOX_BUILD usually includes the cascade. PAINT is recorded for each page,
+ * and OUTPUT for each image drawn or each PDF document written.
+ */
+public enum FSMetricsStage
+{
+	HTML_PARSE,
+	DOM_CONVERSION,
+	STYLESHEET_LOAD,
+	CASCADE,
+	BOX_BUILD,
+	LAYOUT,
+	PAGINATION,
+	PAINT,
+	OUTPUT;
+}
@@ -0,0 +1,409 @@
+package com.github.neoflyingsaucer.j2dout;
+
+import java.awt.BasicStroke;
+import java.awt.Font;
+import java.awt.Point;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlDrawShape;
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlFont;
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlGlyphVector;
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlImage;
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlLine;
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlLinearGradient;
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlOval;
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlRectangle;
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlReplaced;
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlString;
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlStringEx;
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlStroke;
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlTranslate;
+import com.github.neoflyingsaucer.displaylist.DlInstruction.Operation;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
+import com.github.neoflyingsaucer.extend.output.DisplayList;
+import com.github.neoflyingsaucer.extend.output.DlItem;
+import com.github.neoflyingsaucer.extend.output.ReplacedElement;
+import com.github.neoflyingsaucer.j2dout.Java2DReplacedElementResolver.Java2DImageReplacedElement;
+
+/**
+ * Splits the output of a display list into horizontal bands and records,
+ * once, which items reach into each band, tracking the device rows of each
+ * drawing item through the translations and strokes before it. Rendering
+ * a few rows of the output, such as a band or the clip of a repaint, then
+ * replays only the items of the bands they fall in.
+ *
+ * Items which change the graphics state are replayed before the drawing
+ * items that need them. A translation is replayed always, while a color,
+ * stroke, opacity, font or antialiasing change is left out of a band when
+ * another of the same kind replaces it before anything in the band is drawn.
+ */
+public class Java2DBandIndex
+{
+	private static final byte KEEP = -1;
+	private static final byte COLOR = 0;
+	private static final byte STROKE = 1;
+	private static final byte OPACITY = 2;
+	private static final byte FONT = 3;
+	private static final byte ANTIALIAS = 4;
+	private static final int SLOT_COUNT = 5;
+
+	private final List<DlItem> items;
+	private final int height;
+	private final int bandHeight;
+	private final double scale;
+
+	private final List<Band> bands = new ArrayList<Band>();
+	private final IntList always = new IntList();
+	private final int[] current = new int[SLOT_COUNT];
+
+	private float ty;
+	private float strokeMargin = 0.5f;
+	private Font font;
+	private final Map<Font, Rectangle2D> fontBounds = new IdentityHashMap<Font, Rectangle2D>();
+	private final FontRenderContext frc = new FontRenderContext(null, true, true);
+
+	/**
+	 * @param dl the display list to index.
+	 * @param height the height of the output in pixels. Items entirely
+	 * below it are left out.
+	 * @param bandHeight the height of each band in pixels.
+	 * @param scale the number of output pixels per display list unit.
+	 */
+	public Java2DBandIndex(DisplayList dl, int height, int bandHeight, double scale)
+	{
+		assert(bandHeight > 0 && scale > 0);
+		this.items = dl.getDisplayList();
+		this.height = height;
+		this.bandHeight = bandHeight;
+		this.scale = scale;
+
+		Arrays.fill(current, -1);
+		FSCancelToken cancelToken = FSCancelController.getThreadCancelToken();
+
+		for (int i = 0; i < items.size(); i++)
+		{
+			cancelToken.check(Java2DBandIndex.class);
+			measure(i, items.get(i));
+		}
+	}
+
+	public int getBandHeight()
+	{
+		return bandHeight;
+	}
+
+	/**
+	 * The items, in display list order, to replay to render the output
+	 * from row <code>top</code> down to, but not including,
+	 * row <code>bottom</code>. Items in the same bands as those rows but
+	 * outside them may be included.
+	 */
+	public DisplayList getDisplayList(int top, int bottom)
+	{
+		top = Math.max(top, 0);
+		bottom = Math.min(bottom, Math.min(height, bands.size() * bandHeight));
+
+		int first = top / bandHeight;
+		int last = (bottom - 1) / bandHeight;
+		int count = always.size;
+
+		for (int band = first; band <= last && top < bottom; band++)
+			count += bands.get(band).items.size;
+
+		int[] indexes = new int[count];
+		int size = always.copyTo(indexes, 0);
+
+		for (int band = first; band <= last && top < bottom; band++)
+			size = bands.get(band).items.copyTo(indexes, size);
+
+		if (first != last || always.size != 0)
+			Arrays.sort(indexes);
+
+		List<DlItem> result = new ArrayList<DlItem>(count);
+
+		for (int i = 0; i < count; i++)
+		{
+			if (i == 0 || indexes[i] != indexes[i - 1])
+				result.add(items.get(indexes[i]));
+		}
+
+		return new ItemList(result);
+	}
+
+	private void measure(int i, DlItem item)
+	{
+		switch (item.getType())
+		{
+		case LINE:
+		{
+			DlLine line = (DlLine) item;
+			setRows(i, Math.min(line.y1, line.y2), Math.max(line.y1, line.y2), strokeMargin);
+			break;
+		}
+		case RECTANGLE:
+		{
+			DlRectangle rect = (DlRectangle) item;
+			setRows(i, rect.y, rect.y + rect.height, rect.op == Operation.STROKE ? strokeMargin : 0);
+			break;
+		}
+		case OVAL:
+		{
+			DlOval oval = (DlOval) item;
+			setRows(i, oval.y, oval.y + oval.height, oval.op == Operation.STROKE ? strokeMargin : 0);
+			break;
+		}
+		case DRAW_SHAPE:
+		{
+			DlDrawShape draw = (DlDrawShape) item;
+			Rectangle2D bounds = draw.shape.getBounds2D();
+			setRows(i, bounds.getMinY(), bounds.getMaxY(), draw.op == Operation.STROKE ? strokeMargin : 0);
+			break;
+		}
+		case IMAGE:
+		{
+			DlImage img = (DlImage) item;
+			setRows(i, img.y, img.y + img.image.getHeight(), 0);
+			break;
+		}
+		case REPLACED:
+		{
+			ReplacedElement replaced = ((DlReplaced) item).replaced;
+
+			if (replaced instanceof Java2DImageReplacedElement)
+			{
+				Point location = replaced.getLocation();
+				setRows(i, location.y, location.y + ((Java2DImageReplacedElement) replaced).getImage().getHeight(), 0);
+			}
+			else
+			{
+				setUnbounded(i);
+			}
+			break;
+		}
+		case LINEAR_GRADIENT:
+		{
+			DlLinearGradient linear = (DlLinearGradient) item;
+			setRows(i, linear.y, linear.y + linear.height, 0);
+			break;
+		}
+		case STRING:
+		{
+			setTextRows(i, (int) ((DlString) item).y);
+			break;
+		}
+		case STRING_EX:
+		{
+			setTextRows(i, (int) ((DlStringEx) item).y);
+			break;
+		}
+		case GLYPH_VECTOR:
+		{
+			DlGlyphVector g = (DlGlyphVector) item;
+			Rectangle2D bounds = ((Java2DGlyphVector) g.vec).getGlyphVector().getVisualBounds();
+			setRows(i, (int) g.y + bounds.getMinY(), (int) g.y + bounds.getMaxY(), 0);
+			break;
+		}
+		case TRANSLATE:
+		{
+			ty += ((DlTranslate) item).ty;
+			setState(i, KEEP);
+			break;
+		}
+		case STROKE:
+		{
+			BasicStroke stroke = ((DlStroke) item).stroke;
+			float reach = stroke.getLineJoin() == BasicStroke.JOIN_MITER ? Math.max(stroke.getMiterLimit(), 1f) : 1f;
+			strokeMargin = stroke.getLineWidth() * reach / 2;
+			setState(i, STROKE);
+			break;
+		}
+		case FONT:
+		{
+			font = ((Java2DFont) ((DlFont) item).font).getAWTFont();
+			setState(i, FONT);
+			break;
+		}
+		case RGBCOLOR:
+		{
+			setState(i, COLOR);
+			break;
+		}
+		case OPACITY:
+		{
+			setState(i, OPACITY);
+			break;
+		}
+		case AA_OFF:
+		case AA_DEFAULT:
+		{
+			setState(i, ANTIALIAS);
+			break;
+		}
+		case CMYKCOLOR:
+		case BOOKMARK:
+		case EXTERNAL_LINK:
+		case INTERNAL_LINK:
+		{
+			// Not drawn by Java2DOut.
+			break;
+		}
+		default:
+			setState(i, KEEP);
+			break;
+		}
+	}
+
+	private void setTextRows(int i, int baseline)
+	{
+		if (font == null)
+		{
+			setUnbounded(i);
+			return;
+		}
+
+		Rectangle2D bounds = fontBounds.get(font);
+
+		if (bounds == null)
+		{
+			bounds = font.getMaxCharBounds(frc);
+			fontBounds.put(font, bounds);
+		}
+
+		setRows(i, baseline + bounds.getMinY(), baseline + bounds.getMaxY(), 0);
+	}
+
+	/**
+	 * Takes rows in display list units, widened by the margin plus a
+	 * unit and a pixel to cover antialiasing.
+	 */
+	private void setRows(int i, double top, double bottom, float margin)
+	{
+		float deviceTop = (float) ((ty + top - margin - 1) * scale) - 1;
+		float deviceBottom = (float) ((ty + bottom + margin + 1) * scale) + 1;
+
+		if (deviceBottom < 0 || deviceTop >= height)
+			return;
+
+		int first = (int) Math.max(deviceTop, 0) / bandHeight;
+		int last = (int) Math.min(deviceBottom, height - 1) / bandHeight;
+
+		while (bands.size() <= last)
+			bands.add(new Band());
+
+		for (int b = first; b <= last; b++)
+			bands.get(b).add(i, current);
+	}
+
+	/**
+	 * An item whose rows are not known is replayed into every band, along
+	 * with the state it is drawn in.
+	 */
+	private void setUnbounded(int i)
+	{
+		int[] state = current.clone();
+		Arrays.sort(state);
+
+		for (int index : state)
+		{
+			if (index >= 0)
+				always.add(index);
+		}
+
+		always.add(i);
+	}
+
+	private void setState(int i, byte slot)
+	{
+		if (slot == KEEP)
+			always.add(i);
+		else
+			current[slot] = i;
+	}
+
+	/**
+	 * The indexes of the items of one band, in display list order.
+	 */
+	private static class Band
+	{
+		private final IntList items = new IntList();
+		private final int[] replayed = new int[SLOT_COUNT];
+
+		private Band()
+		{
+			Arrays.fill(replayed, -1);
+		}
+
+		/**
+		 * Adds a drawing item after any state changes in force for it
+		 * which the band does not have yet.
+		 */
+		private void add(int i, int[] state)
+		{
+			int first = items.size;
+
+			for (int slot = 0; slot < SLOT_COUNT; slot++)
+			{
+				if (state[slot] != replayed[slot])
+				{
+					items.add(state[slot]);
+					replayed[slot] = state[slot];
+				}
+			}
+
+			if (items.size - first > 1)
+				Arrays.sort(items.data, first, items.size);
+
+			items.add(i);
+		}
+	}
+
+	private static class IntList
+	{
+		private int[] data = new int[16];
+		private int size;
+
+		private void add(int value)
+		{
+			if (size == data.length)
+				data = Arrays.copyOf(data, size * 2);
+
+			data[size++] = value;
+		}
+
+		private int copyTo(int[] dest, int offset)
+		{
+			System.arraycopy(data, 0, dest, offset, size);
+			return offset + size;
+		}
+	}
+
+	private static class ItemList implements DisplayList
+	{
+		private final List<DlItem> items;
+
+		private ItemList(List<DlItem> items)
+		{
+			this.items = Collections.unmodifiableList(items);
+		}
+
+		@Override
+		public void add(DlItem item)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<DlItem> getDisplayList()
+		{
+			return items;
+		}
+	}
+}
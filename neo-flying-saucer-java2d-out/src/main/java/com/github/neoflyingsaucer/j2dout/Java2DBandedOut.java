@@ -0,0 +1,531 @@
+package com.github.neoflyingsaucer.j2dout;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelledException;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorHandler;
+import com.github.neoflyingsaucer.extend.controller.error.FSSerialErrorHandler;
+import com.github.neoflyingsaucer.extend.output.DisplayList;
+import com.github.neoflyingsaucer.extend.output.FSGlyphVector;
+
+/**
+ * Rasterises a display list one horizontal band at a time, rather than
+ * into one image the size of the page. Each band gets its own small image
+ * and only the drawing items which reach into it are replayed, along with
+ * the state changes they need, as found by a {@link Java2DBandIndex}.
+ * Bands may be rendered on an executor, and are handed on in order from
+ * top to bottom, so only a few bands are held in memory at once however
+ * tall the output is.
+ *
+ * {@link #toImage(DisplayList)} wraps the bands in an image which renders
+ * them as it is read, for image writers which read row by row, such as PNG.
+ */
+public class Java2DBandedOut
+{
+	public static final int DEFAULT_BAND_HEIGHT = 256;
+
+	/**
+	 * Receives the bands of an image in order, on the thread that called
+	 * {@link Java2DBandedOut#render(DisplayList, BandHandler)}.
+	 */
+	public interface BandHandler
+	{
+		/**
+		 * @param y the row of the output the top of the band belongs at.
+		 */
+		public void writeBand(BufferedImage band, int y) throws IOException;
+	}
+
+	private final int width;
+	private final int height;
+	private final Object aaHint;
+	private final RenderingHints hints = new RenderingHints(null);
+
+	private int bandHeight = DEFAULT_BAND_HEIGHT;
+	private int imageType = BufferedImage.TYPE_INT_ARGB;
+	private double scale = 1;
+	private boolean indexed = true;
+	private ExecutorService executor;
+	private int maxBandsInFlight = 1;
+
+	/**
+	 * @param width the width of the output in pixels.
+	 * @param height the height of the output in pixels.
+	 * @param aaDefaultHint as for {@link Java2DOut}.
+	 */
+	public Java2DBandedOut(int width, int height, Object aaDefaultHint)
+	{
+		assert(width > 0 && height > 0);
+		this.width = width;
+		this.height = height;
+		this.aaHint = aaDefaultHint;
+	}
+
+	/**
+	 * Sets a hint on the graphics of every band before replaying into it.
+	 */
+	public void setRenderingHint(RenderingHints.Key key, Object value)
+	{
+		hints.put(key, value);
+	}
+
+	public void setBandHeight(int bandHeight)
+	{
+		assert(bandHeight > 0);
+		this.bandHeight = bandHeight;
+	}
+
+	public void setImageType(int imageType)
+	{
+		this.imageType = imageType;
+	}
+
+	/**
+	 * Sets the number of output pixels per display list unit, for example
+	 * 300f / 72f to rasterise a page laid out at 72 DPI at 300 DPI.
+	 */
+	public void setScale(double scale)
+	{
+		assert(scale > 0);
+		this.scale = scale;
+	}
+
+	/**
+	 * Whether to work out once which band each drawing item reaches into,
+	 * so that a band skips items outside it. On by default. When off every
+	 * item is replayed into every band.
+	 */
+	public void setIndexed(boolean indexed)
+	{
+		this.indexed = indexed;
+	}
+
+	/**
+	 * Renders bands on the executor, with up to <code>maxBandsInFlight</code>
+	 * being rendered or waiting to be handed on at once. With no executor,
+	 * the default, bands are rendered on the calling thread.
+	 */
+	public void setExecutor(ExecutorService executor, int maxBandsInFlight)
+	{
+		assert(maxBandsInFlight > 0);
+		this.executor = executor;
+		this.maxBandsInFlight = maxBandsInFlight;
+	}
+
+	public int getBandCount()
+	{
+		return (height + bandHeight - 1) / bandHeight;
+	}
+
+	/**
+	 * Renders every band of the display list and hands each to the handler
+	 * in order, top first.
+	 */
+	public void render(DisplayList dl, BandHandler handler) throws IOException
+	{
+		BandQueue queue = new BandQueue(dl, newIndex(dl));
+
+		try
+		{
+			for (int band = 0; band < getBandCount(); band++)
+			{
+				handler.writeBand(queue.next(), band * bandHeight);
+			}
+		}
+		finally
+		{
+			queue.cancel();
+		}
+	}
+
+	/**
+	 * Returns an image which renders the bands of the display list as it is
+	 * read. Reading it from top to bottom, as image writers do, keeps only
+	 * the bands in flight in memory. Reading it in any other order works
+	 * but renders bands again.
+	 */
+	public RenderedImage toImage(DisplayList dl)
+	{
+		return new BandedImage(dl, newIndex(dl));
+	}
+
+	private Java2DBandIndex newIndex(DisplayList dl)
+	{
+		return indexed ? new Java2DBandIndex(dl, height, bandHeight, scale) : null;
+	}
+
+	/**
+	 * @param index null to replay every item into the band.
+	 */
+	private BufferedImage renderBand(DisplayList dl, Java2DBandIndex index, int band)
+	{
+		int top = band * bandHeight;
+		int h = Math.min(bandHeight, height - top);
+		BufferedImage img = new BufferedImage(width, h, imageType);
+		Graphics2D g2d = img.createGraphics();
+
+		try
+		{
+			g2d.addRenderingHints(hints);
+			g2d.translate(0, -top);
+			g2d.scale(scale, scale);
+
+			new BandOut(g2d, aaHint).render(index == null ? dl : index.getDisplayList(top, top + h));
+		}
+		finally
+		{
+			g2d.dispose();
+		}
+
+		return img;
+	}
+
+	/**
+	 * Hands out bands in order, keeping up to <code>maxBandsInFlight</code>
+	 * rendering ahead on the executor.
+	 */
+	private class BandQueue
+	{
+		private final DisplayList dl;
+		private final Java2DBandIndex index;
+		private final ArrayDeque<Future<BufferedImage>> pending = new ArrayDeque<Future<BufferedImage>>();
+		private final FSCancelToken cancelToken;
+		private final FSErrorHandler errorHandler;
+		private int submitted;
+		private int taken;
+
+		private BandQueue(DisplayList dl, Java2DBandIndex index)
+		{
+			this.dl = dl;
+			this.index = index;
+			this.cancelToken = FSCancelController.getThreadCancelToken();
+			this.errorHandler = executor == null ? null : new FSSerialErrorHandler(FSErrorController.getThreadErrorHandler());
+		}
+
+		private int getNextBand()
+		{
+			return taken;
+		}
+
+		private BufferedImage next()
+		{
+			assert(taken < getBandCount());
+
+			if (executor == null)
+				return renderBand(dl, index, taken++);
+
+			while (submitted < getBandCount() && pending.size() < maxBandsInFlight)
+			{
+				pending.add(executor.submit(new BandTask(dl, index, submitted++, cancelToken, errorHandler)));
+			}
+
+			Future<BufferedImage> future = pending.poll();
+			taken++;
+
+			try
+			{
+				return future.get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new FSCancelledException("Rasterising interrupted", Java2DBandedOut.class);
+			}
+			catch (ExecutionException e)
+			{
+				Throwable cause = e.getCause();
+
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				else if (cause instanceof Error)
+					throw (Error) cause;
+
+				throw new RuntimeException(cause);
+			}
+		}
+
+		private void cancel()
+		{
+			for (Future<?> future : pending)
+			{
+				future.cancel(false);
+			}
+
+			pending.clear();
+		}
+	}
+
+	private class BandTask implements Callable<BufferedImage>
+	{
+		private final DisplayList dl;
+		private final Java2DBandIndex index;
+		private final int band;
+		private final FSCancelToken cancelToken;
+		private final FSErrorHandler errorHandler;
+
+		private BandTask(DisplayList dl, Java2DBandIndex index, int band, FSCancelToken cancelToken, FSErrorHandler errorHandler)
+		{
+			this.dl = dl;
+			this.index = index;
+			this.band = band;
+			this.cancelToken = cancelToken;
+			this.errorHandler = errorHandler;
+		}
+
+		@Override
+		public BufferedImage call()
+		{
+			FSCancelToken oldCancelToken = FSCancelController.getThreadCancelToken();
+			FSErrorHandler oldErrorHandler = FSErrorController.getThreadErrorHandler();
+
+			FSCancelController.setThreadCancelToken(cancelToken);
+			FSErrorController.setThreadErrorHandler(errorHandler);
+
+			try
+			{
+				return renderBand(dl, index, band);
+			}
+			finally
+			{
+				FSCancelController.setThreadCancelToken(oldCancelToken);
+				FSErrorController.setThreadErrorHandler(oldErrorHandler);
+			}
+		}
+	}
+
+	/**
+	 * Bands may replay the same glyph vector at once, and glyph vectors
+	 * fill in their caches as they are drawn.
+	 */
+	private static class BandOut extends Java2DOut
+	{
+		private BandOut(Graphics2D g2d, Object aaDefaultHint)
+		{
+			super(g2d, aaDefaultHint);
+		}
+
+		@Override
+		protected void drawGlyphVector(FSGlyphVector vec, int x, int y)
+		{
+			GlyphVector vector = ((Java2DGlyphVector) vec).getGlyphVector();
+
+			synchronized (vector)
+			{
+				g2d.drawGlyphVector(vector, x, y);
+			}
+		}
+	}
+
+	/**
+	 * An image with one tile per band. Tiles are taken from a band queue
+	 * while they are read in order from the top, and rendered on their own
+	 * otherwise.
+	 */
+	private class BandedImage implements RenderedImage
+	{
+		private final DisplayList dl;
+		private final Java2DBandIndex index;
+		private final ColorModel colorModel;
+		private final SampleModel sampleModel;
+		private BandQueue queue;
+		private BufferedImage current;
+		private int currentBand = -1;
+
+		private BandedImage(DisplayList dl, Java2DBandIndex index)
+		{
+			this.dl = dl;
+			this.index = index;
+			this.colorModel = new BufferedImage(1, 1, imageType).getColorModel();
+			this.sampleModel = colorModel.createCompatibleSampleModel(width, bandHeight);
+		}
+
+		private synchronized BufferedImage getBand(int band)
+		{
+			if (band == currentBand)
+				return current;
+
+			if (queue == null && band == 0)
+				queue = new BandQueue(dl, index);
+
+			if (queue != null && queue.getNextBand() == band)
+			{
+				current = queue.next();
+
+				if (band == getBandCount() - 1)
+				{
+					queue.cancel();
+					queue = null;
+				}
+			}
+			else
+			{
+				current = renderBand(dl, index, band);
+			}
+
+			currentBand = band;
+			return current;
+		}
+
+		@Override
+		public Raster getTile(int tileX, int tileY)
+		{
+			return getBand(tileY).getRaster().createTranslatedChild(0, tileY * bandHeight);
+		}
+
+		@Override
+		public Raster getData()
+		{
+			return getData(new Rectangle(0, 0, width, height));
+		}
+
+		@Override
+		public Raster getData(Rectangle rect)
+		{
+			WritableRaster raster = colorModel.createCompatibleWritableRaster(rect.width, rect.height);
+			return copyData(raster.createWritableTranslatedChild(rect.x, rect.y));
+		}
+
+		@Override
+		public WritableRaster copyData(WritableRaster raster)
+		{
+			if (raster == null)
+				raster = colorModel.createCompatibleWritableRaster(width, height);
+
+			int top = Math.max(raster.getMinY(), 0);
+			int bottom = Math.min(raster.getMinY() + raster.getHeight(), height);
+
+			for (int band = top / bandHeight; band * bandHeight < bottom; band++)
+			{
+				Raster tile = getTile(0, band);
+				Rectangle r = tile.getBounds().intersection(raster.getBounds());
+
+				if (!r.isEmpty())
+					raster.setDataElements(0, 0, tile.createChild(r.x, r.y, r.width, r.height, r.x, r.y, null));
+			}
+
+			return raster;
+		}
+
+		@Override
+		public Vector<RenderedImage> getSources()
+		{
+			return null;
+		}
+
+		@Override
+		public Object getProperty(String name)
+		{
+			return Image.UndefinedProperty;
+		}
+
+		@Override
+		public String[] getPropertyNames()
+		{
+			return null;
+		}
+
+		@Override
+		public ColorModel getColorModel()
+		{
+			return colorModel;
+		}
+
+		@Override
+		public SampleModel getSampleModel()
+		{
+			return sampleModel;
+		}
+
+		@Override
+		public int getWidth()
+		{
+			return width;
+		}
+
+		@Override
+		public int getHeight()
+		{
+			return height;
+		}
+
+		@Override
+		public int getMinX()
+		{
+			return 0;
+		}
+
+		@Override
+		public int getMinY()
+		{
+			return 0;
+		}
+
+		@Override
+		public int getNumXTiles()
+		{
+			return 1;
+		}
+
+		@Override
+		public int getNumYTiles()
+		{
+			return getBandCount();
+		}
+
+		@Override
+		public int getMinTileX()
+		{
+			return 0;
+		}
+
+		@Override
+		public int getMinTileY()
+		{
+			return 0;
+		}
+
+		@Override
+		public int getTileWidth()
+		{
+			return width;
+		}
+
+		@Override
+		public int getTileHeight()
+		{
+			return bandHeight;
+		}
+
+		@Override
+		public int getTileGridXOffset()
+		{
+			return 0;
+		}
+
+		@Override
+		public int getTileGridYOffset()
+		{
+			return 0;
+		}
+	}
+}
@@ -37,4 +37,18 @@ public class Java2DFont implements FSFont {
     public Font getAWTFont() {
         return _font;
     }
+
+    /**
+     * The resolver hands out a new wrapper each time, so compare the
+     * wrapped font to let callers key caches by font.
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof Java2DFont && ((Java2DFont) obj)._font.equals(_font);
+    }
+
+    @Override
+    public int hashCode() {
+        return _font.hashCode();
+    }
 }
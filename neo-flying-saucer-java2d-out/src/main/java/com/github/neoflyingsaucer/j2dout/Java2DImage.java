@@ -1,29 +1,73 @@
 package com.github.neoflyingsaucer.j2dout;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import org.imgscalr.Scalr;
 import org.imgscalr.Scalr.Mode;
 
+import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
+import com.github.neoflyingsaucer.extend.controller.error.LangId;
 import com.github.neoflyingsaucer.extend.output.FSImage;
 
 public class Java2DImage implements FSImage
 {
-	private final BufferedImage img;
+	private static final BufferedImage NULL_IMG = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+
+	private BufferedImage img;
+	
+	private final byte[] bytes;
+	private final String uri;
+	private final int width;
+	private final int height;
 	
 	public Java2DImage(BufferedImage img)
 	{
 		this.img = img;
+		this.bytes = null;
+		this.uri = null;
+		this.width = 0;
+		this.height = 0;
+	}
+	
+	/**
+	 * An image which is not decoded until it is painted or scaled. When
+	 * it is scaled down only as many pixels as are needed are decoded.
+	 * @param bytes the encoded image.
+	 * @param width the width of the image, in pixels.
+	 * @param height the height of the image, in pixels.
+	 */
+	public Java2DImage(byte[] bytes, String uri, int width, int height)
+	{
+		this.img = null;
+		this.bytes = bytes;
+		this.uri = uri;
+		this.width = width;
+		this.height = height;
 	}
 	
-	public BufferedImage getAWTImage()
+	public synchronized BufferedImage getAWTImage()
 	{
+		if (img == null && bytes != null)
+			img = decode(1);
+		
 		return img;
 	}
 	
 	@Override
 	public int getWidth()
 	{
+		if (bytes != null)
+			return width;
+		
 		if (img == null)
 			return 0;
 		
@@ -33,6 +77,9 @@ public class Java2DImage implements FSImage
 	@Override
 	public int getHeight()
 	{
+		if (bytes != null)
+			return height;
+		
 		if (img == null)
 			return 0;
 		
@@ -44,18 +91,85 @@ public class Java2DImage implements FSImage
 	{
 		if (width > 0 || height > 0)
 		{
+			BufferedImage src = getScaleSource(width, height);
 			BufferedImage newImg;
 			
 			if (width > 0 && height > 0)
-				newImg = Scalr.resize(img, Mode.FIT_EXACT,  width, height);
+				newImg = Scalr.resize(src, Mode.FIT_EXACT,  width, height);
 			else if (width < 0)
-				newImg = Scalr.resize(img, Mode.FIT_TO_HEIGHT, height); 
+				newImg = Scalr.resize(src, Mode.FIT_TO_HEIGHT, height); 
 			else 
-				newImg = Scalr.resize(img, Mode.FIT_TO_WIDTH, width);
+				newImg = Scalr.resize(src, Mode.FIT_TO_WIDTH, width);
 
 			return new Java2DImage(newImg);
 		}
 
 		return this;
 	}
+	
+	/**
+	 * The image to scale from. If it hasn't been decoded yet it is
+	 * decoded at the smallest whole fraction of its size that is still
+	 * at least as big as the size it is being scaled to.
+	 */
+	private synchronized BufferedImage getScaleSource(int scaledWidth, int scaledHeight)
+	{
+		if (img != null || bytes == null || this.width <= 0 || this.height <= 0)
+			return getAWTImage();
+		
+		int subsampling;
+		
+		if (scaledWidth > 0 && scaledHeight > 0)
+			subsampling = Math.min(this.width / scaledWidth, this.height / scaledHeight);
+		else if (scaledWidth > 0)
+			subsampling = this.width / scaledWidth;
+		else
+			subsampling = this.height / scaledHeight;
+		
+		return subsampling > 1 ? decode(subsampling) : getAWTImage();
+	}
+	
+	private BufferedImage decode(int subsampling)
+	{
+		try
+		{
+			ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes));
+			
+			try
+			{
+				Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+				
+				if (readers.hasNext())
+				{
+					ImageReader reader = readers.next();
+					
+					try
+					{
+						reader.setInput(in, true, true);
+						ImageReadParam param = reader.getDefaultReadParam();
+						
+						if (subsampling > 1)
+							param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+						
+						return reader.read(0, param);
+					}
+					finally
+					{
+						reader.dispose();
+					}
+				}
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (IOException e)
+		{
+			// Logged below.
+		}
+		
+		FSErrorController.log(Java2DImage.class, FSErrorLevel.ERROR, LangId.COULDNT_LOAD_IMAGE, uri);
+		return NULL_IMG;
+	}
 }
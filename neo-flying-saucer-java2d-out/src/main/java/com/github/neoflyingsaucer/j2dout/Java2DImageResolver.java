@@ -1,10 +1,15 @@
 package com.github.neoflyingsaucer.j2dout;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
 import com.github.neoflyingsaucer.extend.controller.error.LangId;
@@ -16,6 +21,18 @@ public class Java2DImageResolver implements ImageResolver
 {
 	private static final BufferedImage NULL_IMG = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
 	
+	private boolean decodeOnDemand;
+	
+	/**
+	 * If set, images are only decoded when they are painted or scaled, and
+	 * an image which is scaled down is decoded at close to the scaled size
+	 * rather than at full size. Off by default.
+	 */
+	public void setDecodeOnDemand(boolean decodeOnDemand)
+	{
+		this.decodeOnDemand = decodeOnDemand;
+	}
+	
 	@Override
 	public FSImage resolveImage(String uri, InputStream strm)
 	{
@@ -26,6 +43,9 @@ public class Java2DImageResolver implements ImageResolver
 		
 		try
 		{
+			if (decodeOnDemand)
+				return resolveOnDemand(uri, strm);
+			
 			img = ImageIO.read(strm);
 		}
 		catch (IOException e)
@@ -42,6 +62,47 @@ public class Java2DImageResolver implements ImageResolver
 		
 		return new Java2DImage(img);
 	}
+	
+	/**
+	 * Reads only the size of the image, keeping the encoded bytes to
+	 * decode later.
+	 */
+	private FSImage resolveOnDemand(String uri, InputStream strm) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[10240];
+		int l;
+		
+		while ((l = strm.read(buf)) != -1)
+			out.write(buf, 0, l);
+		
+		byte[] bytes = out.toByteArray();
+		ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes));
+		
+		try
+		{
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+			
+			if (!readers.hasNext())
+				return new Java2DImage(null);
+			
+			ImageReader reader = readers.next();
+			
+			try
+			{
+				reader.setInput(in, true, true);
+				return new Java2DImage(bytes, uri, reader.getWidth(0), reader.getHeight(0));
+			}
+			finally
+			{
+				reader.dispose();
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
 
 	@Override
 	public Class<?> getImageClass()
@@ -31,6 +31,9 @@ import com.github.neoflyingsaucer.displaylist.DlInstruction.DlStroke;
 import com.github.neoflyingsaucer.displaylist.DlInstruction.DlTranslate;
 import com.github.neoflyingsaucer.displaylist.DlInstruction.Operation;
 import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsController;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsStage;
 import com.github.neoflyingsaucer.extend.output.DisplayList;
 import com.github.neoflyingsaucer.extend.output.DisplayListOuputDevice;
 import com.github.neoflyingsaucer.extend.output.DlItem;
@@ -55,9 +58,12 @@ public class Java2DOut implements DisplayListOuputDevice
 	@Override
 	public void render(DisplayList dl)
 	{
+		long start = System.nanoTime();
+		FSCancelToken cancelToken = FSCancelController.getThreadCancelToken();
+		
 		for (DlItem item : dl.getDisplayList())
 		{
-			FSCancelController.cancelOpportunity(Java2DOut.class);
+			cancelToken.check(Java2DOut.class);
 			
 			switch (item.getType())
 			{
@@ -201,6 +207,8 @@ public class Java2DOut implements DisplayListOuputDevice
 				break;
 			}
 		}
+		
+		FSMetricsController.recordTime(FSMetricsStage.OUTPUT, System.nanoTime() - start);
 	}
 
 	protected void drawLinearGradient(DlLinearGradient linear)
@@ -31,6 +31,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
 import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
 import com.github.neoflyingsaucer.extend.controller.error.LangId;
 import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
@@ -68,8 +69,9 @@ public class DOMBuilder {
 
       List<org.jsoup.nodes.Element> styleElements = new ArrayList<org.jsoup.nodes.Element>();
       Map<String, String> nsMap = new HashMap<String, String>();
+      FSCancelToken cancelToken = FSCancelController.getThreadCancelToken();
 
-      createDOM(jsoupDocument, document, document, nsMap, styleElements);
+      createDOM(jsoupDocument, document, document, nsMap, styleElements, cancelToken);
 
       // Now we insert the found style elements into the last head section.
       NodeList nl = document.getElementsByTagName("head");
@@ -92,7 +94,7 @@ public class DOMBuilder {
       
       for(org.jsoup.nodes.Element e : styleElements)
       {
-    	  createDOM(e, head, document, nsMap, new ArrayList<org.jsoup.nodes.Element>(0));
+    	  createDOM(e, head, document, nsMap, new ArrayList<org.jsoup.nodes.Element>(0), cancelToken);
       }
       
     } catch (ParserConfigurationException pce) {
@@ -113,15 +115,16 @@ public class DOMBuilder {
    * The W3C {@link Node} that receives the DOM content.
    */
   private static void createDOM(org.jsoup.nodes.Node node, Node out,
-      Document doc, Map<String, String> ns, java.util.List<org.jsoup.nodes.Element> styleElements) 
+      Document doc, Map<String, String> ns, java.util.List<org.jsoup.nodes.Element> styleElements,
+      FSCancelToken cancelToken) 
   {
-    FSCancelController.cancelOpportunity(DOMBuilder.class);
+    cancelToken.check(DOMBuilder.class);
 	  
     if (node instanceof org.jsoup.nodes.Document) {
 
       org.jsoup.nodes.Document d = ((org.jsoup.nodes.Document) node);
       for (org.jsoup.nodes.Node n : d.childNodes()) {
-        createDOM(n, out, doc, ns, styleElements);
+        createDOM(n, out, doc, ns, styleElements, cancelToken);
       }
 
     }
@@ -165,11 +168,11 @@ public class DOMBuilder {
           _e.setIdAttribute(attName, true);
         }
         
-        FSCancelController.cancelOpportunity(DOMBuilder.class);
+        cancelToken.check(DOMBuilder.class);
       }
 
       for (org.jsoup.nodes.Node n : e.childNodes()) {
-        createDOM(n, _e, doc, ns, styleElements);
+        createDOM(n, _e, doc, ns, styleElements, cancelToken);
       }
 
     } else if (node instanceof org.jsoup.nodes.TextNode) {
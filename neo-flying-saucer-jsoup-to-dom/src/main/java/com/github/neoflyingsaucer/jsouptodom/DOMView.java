@@ -0,0 +1,185 @@
+package com.github.neoflyingsaucer.jsouptodom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.DocumentType;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.w3c.dom.Document;
+
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
+import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
+import com.github.neoflyingsaucer.extend.controller.error.LangId;
+
+/**
+ * Makes a read only W3C DOM view of a Jsoup document, rather than
+ * copying it into a JAXP document as {@link DOMBuilder} does. The view
+ * is a thin node for each element, text and data node which shares the
+ * tag name, attribute and text strings of the Jsoup nodes, so once it is
+ * made the Jsoup tree can be dropped and the document is only held in
+ * memory once.
+ *
+ * The view has the same shape as the copy: style elements outside head
+ * are moved into the last head, comments and doctypes are left out, and
+ * so is text at the top level. Anything which tries to change the view
+ * gets a DOMException.
+ */
+public class DOMView
+{
+	private DOMView() { }
+
+	/**
+	 * The style elements of the Jsoup document are moved into head.
+	 */
+	public static Document wrap(org.jsoup.nodes.Document jsoupDocument)
+	{
+		hoistStyleElements(jsoupDocument);
+
+		String uri = jsoupDocument.baseUri();
+		ViewDocument doc = new ViewDocument(uri == null || uri.isEmpty() ? null : uri);
+
+		build(doc, jsoupDocument, doc, new HashMap<String, String>(), FSCancelController.getThreadCancelToken());
+		return doc;
+	}
+
+	private static void hoistStyleElements(org.jsoup.nodes.Document jsoupDocument)
+	{
+		List<Element> styles = new ArrayList<Element>();
+		Element head = null;
+
+		for (Element e : jsoupDocument.getAllElements())
+		{
+			if (e.tagName().equals("head"))
+			{
+				head = e;
+			}
+			else if (e.tagName().equals("style") &&
+					 e.parentNode() instanceof Element &&
+					 !(e.parentNode() instanceof org.jsoup.nodes.Document) &&
+					 !((Element) e.parentNode()).tagName().equals("head"))
+			{
+				styles.add(e);
+			}
+		}
+
+		if (styles.isEmpty())
+			return;
+
+		FSErrorController.log(DOMView.class, FSErrorLevel.INFO, LangId.STYLE_ELEM_MOVED_TO_HEAD, styles.size());
+
+		if (head == null)
+		{
+			Element root = jsoupDocument.children().first();
+
+			if (root == null)
+				return;
+
+			head = jsoupDocument.createElement("head");
+			root.prependChild(head);
+		}
+
+		for (Element style : styles)
+			head.appendChild(style);
+	}
+
+	private static void build(ViewNode out, Node in, ViewDocument doc, Map<String, String> ns, FSCancelToken cancelToken)
+	{
+		int size = in.childNodeSize();
+
+		if (size == 0)
+			return;
+
+		ViewNode[] children = new ViewNode[size];
+		int count = 0;
+
+		for (int i = 0; i < size; i++)
+		{
+			cancelToken.check(DOMView.class);
+
+			Node n = in.childNode(i);
+			ViewNode child;
+
+			if (n instanceof Element)
+			{
+				Element e = (Element) n;
+				child = new ViewElement(doc, e.tagName(), getAttributes(e, ns));
+				build(child, e, doc, ns, cancelToken);
+			}
+			else if (out == doc ||
+					 n instanceof org.jsoup.nodes.Comment ||
+					 n instanceof DocumentType)
+			{
+				continue;
+			}
+			else if (n instanceof TextNode)
+			{
+				child = new ViewText(doc, ((TextNode) n).getWholeText());
+			}
+			else if (n instanceof DataNode)
+			{
+				child = new ViewCDATASection(doc, ((DataNode) n).getWholeData());
+			}
+			else
+			{
+				FSErrorController.log(DOMView.class, FSErrorLevel.ERROR, LangId.NODE_TYPE_NOT_HANDLED, n.getClass());
+				continue;
+			}
+
+			child.parent = out;
+			child.index = count;
+			children[count++] = child;
+		}
+
+		out.children = count == size ? children : count == 0 ? ViewNode.NO_CHILDREN : Arrays.copyOf(children, count);
+	}
+
+	/**
+	 * Returns the attributes as name, value pairs. Drops xmlns attributes and
+	 * renames attributes which look like qualified names with an undeclared
+	 * prefix, as {@link DOMBuilder} does.
+	 */
+	private static String[] getAttributes(Element e, Map<String, String> ns)
+	{
+		int size = e.attributes().size();
+
+		if (size == 0)
+			return ViewElement.NO_ATTRIBUTES;
+
+		String[] result = new String[size * 2];
+		int count = 0;
+
+		for (Attribute a : e.attributes())
+		{
+			String name = a.getKey();
+
+			if (name.equals("xmlns"))
+				continue;
+
+			int colon = name.indexOf(':');
+
+			if (colon > 0)
+			{
+				String prefix = name.substring(0, colon);
+
+				if (prefix.equals("xmlns"))
+					ns.put(name.substring(name.lastIndexOf(':') + 1), a.getValue());
+				else if (!prefix.equals("xml") && ns.get(prefix) == null)
+					name = name.replace(':', '_');
+			}
+
+			result[count++] = name;
+			result[count++] = a.getValue();
+		}
+
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+}
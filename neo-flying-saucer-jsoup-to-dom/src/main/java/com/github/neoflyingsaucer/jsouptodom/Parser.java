@@ -6,25 +6,42 @@ import java.io.InputStream;
 
 import org.jsoup.Jsoup;
 
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsController;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsStage;
+
 public class Parser 
 {
 	private Parser() { }
 
 	public static org.w3c.dom.Document parseHtml(String html)
 	{
+		long start = System.nanoTime();
 		org.jsoup.nodes.Document doc = Jsoup.parse(html);
-		return DOMBuilder.jsoup2DOM(doc); 
+		FSMetricsController.recordTime(FSMetricsStage.HTML_PARSE, System.nanoTime() - start);
+		return convert(doc); 
 	}
 
 	public static org.w3c.dom.Document parseHtml(InputStream html) throws IOException
 	{
+		long start = System.nanoTime();
 		org.jsoup.nodes.Document doc = Jsoup.parse(html, "UTF-8", "");
-		return DOMBuilder.jsoup2DOM(doc); 
+		FSMetricsController.recordTime(FSMetricsStage.HTML_PARSE, System.nanoTime() - start);
+		return convert(doc); 
 	}
 
 	public static org.w3c.dom.Document parseHtml(File html) throws IOException
 	{
+		long start = System.nanoTime();
 		org.jsoup.nodes.Document doc = Jsoup.parse(html, "UTF-8", "");
-		return DOMBuilder.jsoup2DOM(doc); 
+		FSMetricsController.recordTime(FSMetricsStage.HTML_PARSE, System.nanoTime() - start);
+		return convert(doc); 
+	}
+	
+	private static org.w3c.dom.Document convert(org.jsoup.nodes.Document doc)
+	{
+		long start = System.nanoTime();
+		org.w3c.dom.Document result = DOMView.wrap(doc);
+		FSMetricsController.recordTime(FSMetricsStage.DOM_CONVERSION, System.nanoTime() - start);
+		return result;
 	}
 }
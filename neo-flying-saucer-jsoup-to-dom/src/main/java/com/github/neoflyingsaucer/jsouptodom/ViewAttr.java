@@ -0,0 +1,90 @@
+package com.github.neoflyingsaucer.jsouptodom;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.TypeInfo;
+
+/**
+ * Attribute nodes are made on request, so the same attribute may be
+ * returned as different objects.
+ */
+class ViewAttr extends ViewNode implements Attr
+{
+	private final ViewElement ownerElement;
+	private final String name;
+	private final String value;
+
+	ViewAttr(ViewElement ownerElement, String name, String value)
+	{
+		super((ViewDocument) ownerElement.getOwnerDocument());
+		this.ownerElement = ownerElement;
+		this.name = name;
+		this.value = value;
+	}
+
+	@Override
+	public String getNodeName()
+	{
+		return name;
+	}
+
+	@Override
+	public short getNodeType()
+	{
+		return ATTRIBUTE_NODE;
+	}
+
+	@Override
+	public String getNodeValue()
+	{
+		return value;
+	}
+
+	@Override
+	public String getTextContent()
+	{
+		return value;
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public boolean getSpecified()
+	{
+		return true;
+	}
+
+	@Override
+	public String getValue()
+	{
+		return value;
+	}
+
+	@Override
+	public void setValue(String value)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Element getOwnerElement()
+	{
+		return ownerElement;
+	}
+
+	@Override
+	public TypeInfo getSchemaTypeInfo()
+	{
+		return null;
+	}
+
+	@Override
+	public boolean isId()
+	{
+		return "id".equals(name);
+	}
+}
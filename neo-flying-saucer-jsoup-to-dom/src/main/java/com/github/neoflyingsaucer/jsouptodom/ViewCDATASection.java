@@ -0,0 +1,26 @@
+package com.github.neoflyingsaucer.jsouptodom;
+
+import org.w3c.dom.CDATASection;
+
+/**
+ * The content of script and style elements.
+ */
+class ViewCDATASection extends ViewCharacterData implements CDATASection
+{
+	ViewCDATASection(ViewDocument owner, String data)
+	{
+		super(owner, data);
+	}
+
+	@Override
+	public String getNodeName()
+	{
+		return "#cdata-section";
+	}
+
+	@Override
+	public short getNodeType()
+	{
+		return CDATA_SECTION_NODE;
+	}
+}
@@ -0,0 +1,148 @@
+package com.github.neoflyingsaucer.jsouptodom;
+
+import org.w3c.dom.CharacterData;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.Text;
+
+/**
+ * Text and CDATA sections, which differ only in their node type.
+ */
+abstract class ViewCharacterData extends ViewNode implements Text
+{
+	private final String data;
+
+	ViewCharacterData(ViewDocument owner, String data)
+	{
+		super(owner);
+		this.data = data;
+	}
+
+	@Override
+	public String getData()
+	{
+		return data;
+	}
+
+	@Override
+	public String getNodeValue()
+	{
+		return getData();
+	}
+
+	@Override
+	public String getTextContent()
+	{
+		return getData();
+	}
+
+	@Override
+	void appendText(StringBuilder sb)
+	{
+		sb.append(getData());
+	}
+
+	/**
+	 * getLength() here is the length of the data, so
+	 * the node can't be its own (empty) child list.
+	 */
+	@Override
+	public NodeList getChildNodes()
+	{
+		return ViewNodeList.EMPTY;
+	}
+
+	@Override
+	public int getLength()
+	{
+		return getData().length();
+	}
+
+	@Override
+	public void setData(String data)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public String substringData(int offset, int count)
+	{
+		String data = getData();
+
+		if (offset < 0 || offset > data.length() || count < 0)
+			throw new DOMException(DOMException.INDEX_SIZE_ERR, "Offset or count out of range");
+
+		return data.substring(offset, Math.min(data.length(), offset + count));
+	}
+
+	@Override
+	public void appendData(String arg)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public void insertData(int offset, String arg)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public void deleteData(int offset, int count)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public void replaceData(int offset, int count, String arg)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Text splitText(int offset)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public boolean isElementContentWhitespace()
+	{
+		return false;
+	}
+
+	/**
+	 * The data of this node and the text nodes either side of it.
+	 */
+	@Override
+	public String getWholeText()
+	{
+		if (parent == null)
+			return getData();
+
+		int first = index;
+		int last = index;
+
+		while (first > 0 && parent.children[first - 1] instanceof CharacterData)
+			first--;
+
+		while (last < parent.children.length - 1 && parent.children[last + 1] instanceof CharacterData)
+			last++;
+
+		if (first == last)
+			return getData();
+
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = first; i <= last; i++)
+			sb.append(((CharacterData) parent.children[i]).getData());
+
+		return sb.toString();
+	}
+
+	@Override
+	public Text replaceWholeText(String content)
+	{
+		throw readOnly();
+	}
+}
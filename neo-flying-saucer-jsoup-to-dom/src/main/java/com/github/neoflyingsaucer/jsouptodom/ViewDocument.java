@@ -0,0 +1,251 @@
+package com.github.neoflyingsaucer.jsouptodom;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.CDATASection;
+import org.w3c.dom.Comment;
+import org.w3c.dom.DOMConfiguration;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.Element;
+import org.w3c.dom.EntityReference;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.ProcessingInstruction;
+import org.w3c.dom.Text;
+
+class ViewDocument extends ViewNode implements Document
+{
+	private final String documentUri;
+
+	ViewDocument(String documentUri)
+	{
+		super(null);
+		this.documentUri = documentUri;
+	}
+
+	@Override
+	public String getNodeName()
+	{
+		return "#document";
+	}
+
+	@Override
+	public short getNodeType()
+	{
+		return DOCUMENT_NODE;
+	}
+
+	@Override
+	public String getTextContent()
+	{
+		return null;
+	}
+
+	@Override
+	public DocumentType getDoctype()
+	{
+		return null;
+	}
+
+	@Override
+	public DOMImplementation getImplementation()
+	{
+		return null;
+	}
+
+	@Override
+	public Element getDocumentElement()
+	{
+		// Only elements are kept at the top level.
+		return children.length == 0 ? null : (Element) children[0];
+	}
+
+	@Override
+	public NodeList getElementsByTagName(String tagname)
+	{
+		List<Node> result = new ArrayList<Node>();
+		collectElements(tagname, result);
+		return new ViewNodeList(result);
+	}
+
+	@Override
+	public NodeList getElementsByTagNameNS(String namespaceURI, String localName)
+	{
+		if (namespaceURI == null || "*".equals(namespaceURI))
+			return getElementsByTagName(localName);
+
+		return ViewNodeList.EMPTY;
+	}
+
+	@Override
+	public Element getElementById(String elementId)
+	{
+		List<Node> all = new ArrayList<Node>();
+		collectElements("*", all);
+
+		for (Node n : all)
+		{
+			Element e = (Element) n;
+
+			if (elementId.equals(e.getAttribute("id")))
+				return e;
+		}
+
+		return null;
+	}
+
+	@Override
+	public String getInputEncoding()
+	{
+		return null;
+	}
+
+	@Override
+	public String getXmlEncoding()
+	{
+		return null;
+	}
+
+	@Override
+	public boolean getXmlStandalone()
+	{
+		return false;
+	}
+
+	@Override
+	public String getXmlVersion()
+	{
+		return "1.0";
+	}
+
+	@Override
+	public boolean getStrictErrorChecking()
+	{
+		return true;
+	}
+
+	@Override
+	public String getDocumentURI()
+	{
+		return documentUri;
+	}
+
+	@Override
+	public DOMConfiguration getDomConfig()
+	{
+		return null;
+	}
+
+	@Override
+	public void normalizeDocument()
+	{
+		// Nothing can change.
+	}
+
+	@Override
+	public Element createElement(String tagName)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public DocumentFragment createDocumentFragment()
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Text createTextNode(String data)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Comment createComment(String data)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public CDATASection createCDATASection(String data)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public ProcessingInstruction createProcessingInstruction(String target, String data)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Attr createAttribute(String name)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public EntityReference createEntityReference(String name)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Node importNode(Node importedNode, boolean deep)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Element createElementNS(String namespaceURI, String qualifiedName)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Attr createAttributeNS(String namespaceURI, String qualifiedName)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public void setXmlStandalone(boolean xmlStandalone)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public void setXmlVersion(String xmlVersion)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public void setStrictErrorChecking(boolean strictErrorChecking)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public void setDocumentURI(String documentURI)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Node adoptNode(Node source)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Node renameNode(Node n, String namespaceURI, String qualifiedName)
+	{
+		throw readOnly();
+	}
+}
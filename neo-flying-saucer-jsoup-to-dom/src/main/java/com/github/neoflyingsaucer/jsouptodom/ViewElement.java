@@ -0,0 +1,214 @@
+package com.github.neoflyingsaucer.jsouptodom;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+
+/**
+ * Attributes are kept as name, value pairs in one array, as elements
+ * rarely have more than a few. Like the elements of the copied DOM this
+ * view replaces, they have no namespace and their names are matched
+ * exactly.
+ */
+class ViewElement extends ViewNode implements org.w3c.dom.Element
+{
+	static final String[] NO_ATTRIBUTES = new String[0];
+
+	private final String tagName;
+	private final String[] attributes;
+
+	ViewElement(ViewDocument owner, String tagName, String[] attributes)
+	{
+		super(owner);
+		this.tagName = tagName;
+		this.attributes = attributes;
+	}
+
+	private int indexOf(String name)
+	{
+		for (int i = 0; i < attributes.length; i += 2)
+		{
+			if (attributes[i].equals(name))
+				return i;
+		}
+
+		return -1;
+	}
+
+	int getAttributeCount()
+	{
+		return attributes.length / 2;
+	}
+
+	String getAttributeName(int i)
+	{
+		return attributes[i * 2];
+	}
+
+	String getAttributeValue(int i)
+	{
+		return attributes[i * 2 + 1];
+	}
+
+	@Override
+	public String getNodeName()
+	{
+		return tagName;
+	}
+
+	@Override
+	public short getNodeType()
+	{
+		return ELEMENT_NODE;
+	}
+
+	@Override
+	public String getTagName()
+	{
+		return tagName;
+	}
+
+	@Override
+	public NamedNodeMap getAttributes()
+	{
+		return new ViewNamedNodeMap(this);
+	}
+
+	@Override
+	public boolean hasAttributes()
+	{
+		return attributes.length != 0;
+	}
+
+	@Override
+	public String getAttribute(String name)
+	{
+		int i = indexOf(name);
+		return i == -1 ? "" : attributes[i + 1];
+	}
+
+	@Override
+	public boolean hasAttribute(String name)
+	{
+		return indexOf(name) != -1;
+	}
+
+	@Override
+	public Attr getAttributeNode(String name)
+	{
+		int i = indexOf(name);
+		return i == -1 ? null : new ViewAttr(this, name, attributes[i + 1]);
+	}
+
+	@Override
+	public NodeList getElementsByTagName(String name)
+	{
+		List<Node> result = new ArrayList<Node>();
+		collectElements(name, result);
+		return new ViewNodeList(result);
+	}
+
+	@Override
+	public String getAttributeNS(String namespaceURI, String localName)
+	{
+		return "";
+	}
+
+	@Override
+	public Attr getAttributeNodeNS(String namespaceURI, String localName)
+	{
+		return null;
+	}
+
+	@Override
+	public boolean hasAttributeNS(String namespaceURI, String localName)
+	{
+		return false;
+	}
+
+	@Override
+	public NodeList getElementsByTagNameNS(String namespaceURI, String localName)
+	{
+		if (namespaceURI == null || "*".equals(namespaceURI))
+			return getElementsByTagName(localName);
+
+		return ViewNodeList.EMPTY;
+	}
+
+	@Override
+	public TypeInfo getSchemaTypeInfo()
+	{
+		return null;
+	}
+
+	@Override
+	public void setAttribute(String name, String value)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public void removeAttribute(String name)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Attr setAttributeNode(Attr newAttr)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Attr removeAttributeNode(Attr oldAttr)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public void setAttributeNS(String namespaceURI, String qualifiedName, String value)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public void removeAttributeNS(String namespaceURI, String localName)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Attr setAttributeNodeNS(Attr newAttr)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public void setIdAttribute(String name, boolean isId)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public void setIdAttributeNS(String namespaceURI, String localName, boolean isId)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public void setIdAttributeNode(Attr idAttr, boolean isId)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "[" + getNodeName() + ": null]";
+	}
+}
@@ -0,0 +1,65 @@
+package com.github.neoflyingsaucer.jsouptodom;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+class ViewNamedNodeMap implements NamedNodeMap
+{
+	private final ViewElement owner;
+
+	ViewNamedNodeMap(ViewElement owner)
+	{
+		this.owner = owner;
+	}
+
+	@Override
+	public Node getNamedItem(String name)
+	{
+		return owner.getAttributeNode(name);
+	}
+
+	@Override
+	public int getLength()
+	{
+		return owner.getAttributeCount();
+	}
+
+	@Override
+	public Node item(int index)
+	{
+		if (index < 0 || index >= owner.getAttributeCount())
+			return null;
+
+		return new ViewAttr(owner, owner.getAttributeName(index), owner.getAttributeValue(index));
+	}
+
+	@Override
+	public Node getNamedItemNS(String namespaceURI, String localName)
+	{
+		return null;
+	}
+
+	@Override
+	public Node setNamedItem(Node arg)
+	{
+		throw ViewNode.readOnly();
+	}
+
+	@Override
+	public Node removeNamedItem(String name)
+	{
+		throw ViewNode.readOnly();
+	}
+
+	@Override
+	public Node setNamedItemNS(Node arg)
+	{
+		throw ViewNode.readOnly();
+	}
+
+	@Override
+	public Node removeNamedItemNS(String namespaceURI, String localName)
+	{
+		throw ViewNode.readOnly();
+	}
+}
@@ -0,0 +1,300 @@
+package com.github.neoflyingsaucer.jsouptodom;
+
+import java.util.List;
+
+import org.w3c.dom.CharacterData;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.UserDataHandler;
+
+/**
+ * The base of the read only DOM view over a Jsoup tree. The links
+ * between nodes are fixed when the view is built, so navigation is
+ * constant time and the view may be read from several threads at once.
+ *
+ * A node is its own child list, as in the usual DOM implementations.
+ */
+abstract class ViewNode implements Node, NodeList
+{
+	static final ViewNode[] NO_CHILDREN = new ViewNode[0];
+
+	private final ViewDocument owner;
+
+	ViewNode parent;
+	int index;
+	ViewNode[] children = NO_CHILDREN;
+
+	/**
+	 * @param owner the document, or null for the document itself.
+	 */
+	ViewNode(ViewDocument owner)
+	{
+		this.owner = owner;
+	}
+
+	static DOMException readOnly()
+	{
+		return new DOMException(DOMException.NO_MODIFICATION_ALLOWED_ERR, "The document is read only");
+	}
+
+	static DOMException notSupported()
+	{
+		return new DOMException(DOMException.NOT_SUPPORTED_ERR, "Not supported by the Jsoup view");
+	}
+
+	/**
+	 * Adds the elements below this node called name, or all of
+	 * them if name is "*", in document order.
+	 */
+	void collectElements(String name, List<Node> out)
+	{
+		for (ViewNode child : children)
+		{
+			if (child instanceof ViewElement)
+			{
+				if ("*".equals(name) || name.equals(child.getNodeName()))
+					out.add(child);
+
+				child.collectElements(name, out);
+			}
+		}
+	}
+
+	void appendText(StringBuilder sb)
+	{
+		for (ViewNode child : children)
+		{
+			if (child instanceof CharacterData)
+				sb.append(((CharacterData) child).getData());
+			else
+				child.appendText(sb);
+		}
+	}
+
+	@Override
+	public String getNodeValue()
+	{
+		return null;
+	}
+
+	@Override
+	public void setNodeValue(String nodeValue)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Node getParentNode()
+	{
+		return parent;
+	}
+
+	@Override
+	public NodeList getChildNodes()
+	{
+		return this;
+	}
+
+	@Override
+	public Node getFirstChild()
+	{
+		return children.length == 0 ? null : children[0];
+	}
+
+	@Override
+	public Node getLastChild()
+	{
+		return children.length == 0 ? null : children[children.length - 1];
+	}
+
+	@Override
+	public Node getPreviousSibling()
+	{
+		return parent == null || index == 0 ? null : parent.children[index - 1];
+	}
+
+	@Override
+	public Node getNextSibling()
+	{
+		return parent == null || index == parent.children.length - 1 ? null : parent.children[index + 1];
+	}
+
+	@Override
+	public NamedNodeMap getAttributes()
+	{
+		return null;
+	}
+
+	@Override
+	public Document getOwnerDocument()
+	{
+		return owner;
+	}
+
+	@Override
+	public Node insertBefore(Node newChild, Node refChild)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Node replaceChild(Node newChild, Node oldChild)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Node removeChild(Node oldChild)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public Node appendChild(Node newChild)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public boolean hasChildNodes()
+	{
+		return children.length != 0;
+	}
+
+	@Override
+	public Node cloneNode(boolean deep)
+	{
+		throw notSupported();
+	}
+
+	@Override
+	public void normalize()
+	{
+		// Nothing can change.
+	}
+
+	@Override
+	public boolean isSupported(String feature, String version)
+	{
+		return false;
+	}
+
+	@Override
+	public String getNamespaceURI()
+	{
+		return null;
+	}
+
+	@Override
+	public String getPrefix()
+	{
+		return null;
+	}
+
+	@Override
+	public void setPrefix(String prefix)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public String getLocalName()
+	{
+		return null;
+	}
+
+	@Override
+	public boolean hasAttributes()
+	{
+		return false;
+	}
+
+	@Override
+	public String getBaseURI()
+	{
+		return null;
+	}
+
+	@Override
+	public short compareDocumentPosition(Node other)
+	{
+		throw notSupported();
+	}
+
+	@Override
+	public String getTextContent()
+	{
+		StringBuilder sb = new StringBuilder();
+		appendText(sb);
+		return sb.toString();
+	}
+
+	@Override
+	public void setTextContent(String textContent)
+	{
+		throw readOnly();
+	}
+
+	@Override
+	public boolean isSameNode(Node other)
+	{
+		return this == other;
+	}
+
+	@Override
+	public String lookupPrefix(String namespaceURI)
+	{
+		return null;
+	}
+
+	@Override
+	public boolean isDefaultNamespace(String namespaceURI)
+	{
+		return namespaceURI == null;
+	}
+
+	@Override
+	public String lookupNamespaceURI(String prefix)
+	{
+		return null;
+	}
+
+	@Override
+	public boolean isEqualNode(Node arg)
+	{
+		throw notSupported();
+	}
+
+	@Override
+	public Object getFeature(String feature, String version)
+	{
+		return null;
+	}
+
+	@Override
+	public Object setUserData(String key, Object data, UserDataHandler handler)
+	{
+		throw notSupported();
+	}
+
+	@Override
+	public Object getUserData(String key)
+	{
+		return null;
+	}
+
+	@Override
+	public int getLength()
+	{
+		return children.length;
+	}
+
+	@Override
+	public Node item(int i)
+	{
+		return i >= 0 && i < children.length ? children[i] : null;
+	}
+}
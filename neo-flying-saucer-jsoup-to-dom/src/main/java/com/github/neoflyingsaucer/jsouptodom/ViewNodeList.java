@@ -0,0 +1,31 @@
+package com.github.neoflyingsaucer.jsouptodom;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+class ViewNodeList implements NodeList
+{
+	static final ViewNodeList EMPTY = new ViewNodeList(Collections.<Node>emptyList());
+
+	private final List<Node> nodes;
+
+	ViewNodeList(List<Node> nodes)
+	{
+		this.nodes = nodes;
+	}
+
+	@Override
+	public Node item(int index)
+	{
+		return index >= 0 && index < nodes.size() ? nodes.get(index) : null;
+	}
+
+	@Override
+	public int getLength()
+	{
+		return nodes.size();
+	}
+}
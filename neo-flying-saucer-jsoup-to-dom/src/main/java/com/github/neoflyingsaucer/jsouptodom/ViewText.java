@@ -0,0 +1,21 @@
+package com.github.neoflyingsaucer.jsouptodom;
+
+class ViewText extends ViewCharacterData
+{
+	ViewText(ViewDocument owner, String data)
+	{
+		super(owner, data);
+	}
+
+	@Override
+	public String getNodeName()
+	{
+		return "#text";
+	}
+
+	@Override
+	public short getNodeType()
+	{
+		return TEXT_NODE;
+	}
+}
@@ -1,6 +1,8 @@
 package com.github.neoflyingsaucer.pdf2dout;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -18,7 +20,6 @@ public class Pdf2BookmarkManager
 		private final DlBookmark bm;
 		private final PDPageXYZDestination destination;
 
-		private Bookmark parent;
 		private PDOutlineItem actual;
 		
 		private Bookmark(DlBookmark bm, PDPageXYZDestination destination)
@@ -35,6 +36,12 @@ public class Pdf2BookmarkManager
 		bookmarks.add(new Bookmark(bm, destination));
 	}
 
+	/**
+	 * Builds the outline in one pass. The parent of a bookmark is the
+	 * closest bookmark before it with a lower level, so a stack of the
+	 * open ancestors, each a lower level than the one above it, is enough
+	 * to find it.
+	 */
 	public void outputBookmarks(PDDocument doc)
 	{
 		if (bookmarks.isEmpty())
@@ -43,44 +50,33 @@ public class Pdf2BookmarkManager
 		PDDocumentOutline outline = new PDDocumentOutline();
     	PDOutlineItem root = new PDOutlineItem();
     	outline.addFirst( root );
+    	
+    	Deque<Bookmark> ancestors = new ArrayDeque<Bookmark>();
  
-    	for (int i = 0; i < bookmarks.size(); i++)
-    	{
-    		FSCancelController.cancelOpportunity(Pdf2BookmarkManager.class);
-    		
-    		Bookmark bm = bookmarks.get(i);
-        	int currentLevel = bm.bm.level;
-   	
-    		// First, find the parent.
-    		for (int j = i - 1; j >= 0; j--)
-    		{
-    			if (bookmarks.get(j).bm.level < currentLevel)
-    			{
-    				bm.parent = bookmarks.get(j);
-    				break;
-    			}
-
-    			FSCancelController.cancelOpportunity(Pdf2BookmarkManager.class);
-    		}
-    	}
-		
 		for (Bookmark book : bookmarks)
 		{
+			while (!ancestors.isEmpty() && ancestors.peek().bm.level >= book.bm.level)
+			{
+				ancestors.pop();
+			}
+			
 			PDOutlineItem item = new PDOutlineItem();
 			item.setDestination(book.destination);
 			item.setTitle(book.bm.content);
 			
 			book.actual = item;
 			
-			if (book.parent != null && book.parent.actual != null)
+			if (!ancestors.isEmpty())
 			{
-				book.parent.actual.addLast(item);
+				ancestors.peek().actual.addLast(item);
 			}
 			else
 			{
 				root.addLast( item );
 			}
 			
+			ancestors.push(book);
+			
 			FSCancelController.cancelOpportunity(Pdf2BookmarkManager.class);
 		}
 		
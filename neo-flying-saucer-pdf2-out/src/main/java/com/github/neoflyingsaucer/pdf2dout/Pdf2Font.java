@@ -43,4 +43,24 @@ public class Pdf2Font implements FSFont
     {
         return _font;
     }
+    
+    /**
+     * The resolver hands out a new wrapper each time, so compare the
+     * (shared) description and size to let callers key caches by font.
+     */
+    @Override
+    public boolean equals(Object obj)
+    {
+    	if (!(obj instanceof Pdf2Font))
+    		return false;
+    	
+    	Pdf2Font other = (Pdf2Font) obj;
+    	return other._font == _font && Float.floatToIntBits(other._size) == Float.floatToIntBits(_size);
+    }
+    
+    @Override
+    public int hashCode()
+    {
+    	return System.identityHashCode(_font) * 31 + Float.floatToIntBits(_size);
+    }
 }
@@ -1,10 +1,12 @@
 package com.github.neoflyingsaucer.pdf2dout;
 
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Iterator;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
 import javax.imageio.ImageTypeSpecifier;
 import javax.imageio.stream.ImageInputStream;
@@ -19,6 +21,9 @@ public class Pdf2Image implements FSImage
 	private final float _intrinsicWidth;
 	private final float _intrinsicHeight;
 	
+	private final int _pixelWidth;
+	private final int _pixelHeight;
+	
 	private final boolean _isJpeg;
 	
 	public Pdf2Image(byte[] image, String uri) throws IOException
@@ -35,8 +40,10 @@ public class Pdf2Image implements FSImage
 		    {
 		        ImageReader reader = readers.next();
 	            reader.setInput(in);
-	            _intrinsicWidth = reader.getWidth(0);
-	            _intrinsicHeight = reader.getHeight(0);
+	            _pixelWidth = reader.getWidth(0);
+	            _pixelHeight = reader.getHeight(0);
+	            _intrinsicWidth = _pixelWidth;
+	            _intrinsicHeight = _pixelHeight;
 	            
 	            String type = reader.getFormatName();
 	            
@@ -56,11 +63,18 @@ public class Pdf2Image implements FSImage
 	}
 	
 	public Pdf2Image(byte[] bytes, String uri, float width, float height, boolean isJpeg)
+    {
+		this(bytes, uri, width, height, 0, 0, isJpeg);
+	}
+
+	private Pdf2Image(byte[] bytes, String uri, float width, float height, int pixelWidth, int pixelHeight, boolean isJpeg)
     {
     	this._bytes = bytes;
     	this._uri = uri;
     	this._intrinsicWidth = width;
     	this._intrinsicHeight = height;
+    	this._pixelWidth = pixelWidth;
+    	this._pixelHeight = pixelHeight;
     	this._isJpeg = isJpeg;
 	}
 
@@ -76,7 +90,7 @@ public class Pdf2Image implements FSImage
             height *= factor;
         }
         
-        return new Pdf2Image(_bytes, _uri, width, height, _isJpeg);
+        return new Pdf2Image(_bytes, _uri, width, height, _pixelWidth, _pixelHeight, _isJpeg);
     }
 
 	@Override
@@ -130,7 +144,7 @@ public class Pdf2Image implements FSImage
 			setHeight = _intrinsicHeight;
 		}
 		
-		return new Pdf2Image(_bytes, _uri, setWidth, setHeight, _isJpeg);
+		return new Pdf2Image(_bytes, _uri, setWidth, setHeight, _pixelWidth, _pixelHeight, _isJpeg);
 	}
 
 	public byte[] getBytes()
@@ -147,4 +161,50 @@ public class Pdf2Image implements FSImage
 	{
 		return _isJpeg;
 	}
+
+	/**
+	 * The whole number factor by which the image could be shrunk and
+	 * still be at least width by height pixels, or 1 if it can't be
+	 * shrunk or its size in pixels isn't known.
+	 */
+	public int getSubsampling(int width, int height)
+	{
+		if (_pixelWidth <= 0 || _pixelHeight <= 0 || width <= 0 || height <= 0)
+			return 1;
+		
+		return Math.max(1, Math.min(_pixelWidth / width, _pixelHeight / height));
+	}
+
+	/**
+	 * Decodes the image, reading only every subsampling'th pixel in each
+	 * direction so that a large image is never held in memory at full size.
+	 */
+	public BufferedImage decode(int subsampling) throws IOException
+	{
+		ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(_bytes));
+
+		try {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+			
+			if (!readers.hasNext())
+				throw new IOException("Unrecognized Image format");
+			
+			ImageReader reader = readers.next();
+			
+			try {
+				reader.setInput(in, true, true);
+				ImageReadParam param = reader.getDefaultReadParam();
+				
+				if (subsampling > 1)
+					param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		} finally {
+			if (in != null)
+				in.close();
+		}
+	}
 }
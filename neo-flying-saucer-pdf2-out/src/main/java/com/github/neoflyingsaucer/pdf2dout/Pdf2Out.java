@@ -18,8 +18,6 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
 
-import javax.imageio.ImageIO;
-
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
@@ -27,6 +25,7 @@ import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
@@ -58,9 +57,12 @@ import com.github.neoflyingsaucer.displaylist.DlInstruction.DlStroke;
 import com.github.neoflyingsaucer.displaylist.DlInstruction.DlTranslate;
 import com.github.neoflyingsaucer.displaylist.DlInstruction.Operation;
 import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
 import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
 import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
 import com.github.neoflyingsaucer.extend.controller.error.LangId;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsController;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsStage;
 import com.github.neoflyingsaucer.extend.output.DisplayList;
 import com.github.neoflyingsaucer.extend.output.DisplayListOuputDevice;
 import com.github.neoflyingsaucer.extend.output.DlItem;
@@ -96,7 +98,12 @@ public class Pdf2Out implements DisplayListOuputDevice
 	private int specialPatternCount = 0;
 	private int nextGStateNumber = 0;
 	private Map<Float, String> opacityExtGStates = new HashMap<Float, String>();
+	
+	private float _imageDpi;
+	private long _outputNanos;
+	private float _jpegQuality;
     
+    private static final float DEFAULT_JPEG_QUALITY = 0.85f;
     private static final BasicStroke STROKE_ONE = new BasicStroke(1);
     private static final AffineTransform IDENTITY = new AffineTransform();
     private static final int FILL = 1;
@@ -115,12 +122,35 @@ public class Pdf2Out implements DisplayListOuputDevice
 		this._mode = mode;
 	}
 	
+	/**
+	 * Images with more pixels than they need to be painted at dpi dots
+	 * per inch are decoded at a reduced size before they are written.
+	 * Zero, the default, writes images at their original size.
+	 */
+	public void setImageResolution(float dpi)
+	{
+		this._imageDpi = dpi;
+	}
+	
+	/**
+	 * Writes images without transparency as JPEGs of this quality, from 0 to 1.
+	 * Zero, the default, copies JPEG images as they are, unless they
+	 * are reduced in size, and writes other images losslessly.
+	 */
+	public void setJpegQuality(float quality)
+	{
+		this._jpegQuality = quality;
+	}
+	
 	@Override
 	public void render(DisplayList dl)
 	{
+		long start = System.nanoTime();
+		FSCancelToken cancelToken = FSCancelController.getThreadCancelToken();
+		
 		for (DlItem item : dl.getDisplayList())
 		{
-			FSCancelController.cancelOpportunity(Pdf2Out.class);
+			cancelToken.check(Pdf2Out.class);
 			
 			switch (item.getType())
 			{
@@ -277,6 +307,8 @@ public class Pdf2Out implements DisplayListOuputDevice
 			}
 			}
 		}
+		
+		_outputNanos += System.nanoTime() - start;
 	}
 
 	/**
@@ -375,9 +407,14 @@ public class Pdf2Out implements DisplayListOuputDevice
 
 	public void finish()
 	{
+		long start = System.nanoTime();
 		bookmarkManager.outputBookmarks(_pdf);
 		pdfSavePdf(_pdf, _os);
 		pdfCloseDocument(_pdf);
+
+		// The whole document is one output, however many pages it has.
+		FSMetricsController.recordTime(FSMetricsStage.OUTPUT, _outputNanos + System.nanoTime() - start);
+		_outputNanos = 0;
 	}
 	
 	/**
@@ -581,7 +618,18 @@ public class Pdf2Out implements DisplayListOuputDevice
         String name = registerExtGState(_opacity, _currentPg);
 		pdfAppendRawCommand("/" + name + " gs\n", _content);
         
-        if (image.isJpeg())
+        int subsampling = 1;
+        
+        if (_imageDpi > 0)
+        {
+        	// The size the image is painted at, in points, after any transforms.
+        	double pointsPerPixel = 72d / _imageDpi;
+        	double width = fsImage.getWidth() * Math.hypot(_transform.getScaleX(), _transform.getShearY()) / pointsPerPixel;
+        	double height = fsImage.getHeight() * Math.hypot(_transform.getShearX(), _transform.getScaleY()) / pointsPerPixel;
+        	subsampling = image.getSubsampling((int) Math.ceil(width), (int) Math.ceil(height));
+        }
+        
+        if (image.isJpeg() && subsampling == 1 && _jpegQuality <= 0)
         {
         	PDImageXObject jpeg = pdfCreateJpeg(_pdf, new ByteArrayInputStream(image.getBytes()));
         	pdfDrawXObject(jpeg, inverse, _content);
@@ -593,8 +641,15 @@ public class Pdf2Out implements DisplayListOuputDevice
         	
         	try
         	{
-        		BufferedImage img = ImageIO.read(new ByteArrayInputStream(image.getBytes()));
-        		pixel = LosslessFactory.createFromImage( _pdf, img );
+        		BufferedImage img = image.decode(subsampling);
+        		boolean opaque = !img.getColorModel().hasAlpha();
+        		
+        		if (opaque && _jpegQuality > 0)
+        			pixel = JPEGFactory.createFromImage(_pdf, img, _jpegQuality);
+        		else if (opaque && image.isJpeg())
+        			pixel = JPEGFactory.createFromImage(_pdf, img, DEFAULT_JPEG_QUALITY);
+        		else
+        			pixel = LosslessFactory.createFromImage( _pdf, img );
         	}
         	catch (IOException e)
         	{
@@ -610,6 +665,7 @@ public class Pdf2Out implements DisplayListOuputDevice
 	{
 		_pdf = new PDDocument();
 		_os = os;
+		_outputNanos = 0;
 	}
 	
 	public void initializePage(float w, float h)
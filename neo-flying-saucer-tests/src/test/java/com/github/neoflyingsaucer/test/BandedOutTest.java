@@ -0,0 +1,171 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.imageio.ImageIO;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.extend.output.DisplayList;
+import com.github.neoflyingsaucer.j2dout.Java2DBandedOut;
+import com.github.neoflyingsaucer.j2dout.Java2DBandedOut.BandHandler;
+import com.github.neoflyingsaucer.j2dout.Java2DOut;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
+
+public class BandedOutTest
+{
+	private static final String HTML =
+		"<html><head><style>" +
+		"p { border: 3px solid blue; border-radius: 6px; padding: 4px; }" +
+		"div { height: 45px; background: linear-gradient(to right, red, yellow); }" +
+		"</style></head><body>" +
+		"<h1>Banded output</h1>" +
+		"<p>Text which crosses band edges, in a bordered paragraph.</p>" +
+		"<div></div>" +
+		"<ul><li>One</li><li>Two</li><li>Three</li></ul>" +
+		"<p style=\"font-size: 40px; font-style: italic;\">Large gyp</p>" +
+		"<table border=\"1\"><tr><td>a</td><td>b</td></tr><tr><td>c</td><td>d</td></tr></table>" +
+		"</body></html>";
+
+	private static PagedRenderer renderer;
+	private static DisplayList dl;
+	private static ExecutorService executor;
+
+	@BeforeClass
+	public static void layout()
+	{
+		renderer = Java2DTestRenderer.prepare(HTML);
+		dl = renderer.renderToList(0);
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterClass
+	public static void shutdown()
+	{
+		executor.shutdown();
+	}
+
+	private static BufferedImage renderWhole(double scale)
+	{
+		int width = (int) Math.ceil(renderer.getPageWidth(0) * scale);
+		int height = (int) Math.ceil(renderer.getPageHeight(0) * scale);
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+		Graphics2D g2d = img.createGraphics();
+		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+		g2d.scale(scale, scale);
+
+		new Java2DOut(g2d, RenderingHints.VALUE_ANTIALIAS_ON).render(dl);
+		g2d.dispose();
+		return img;
+	}
+
+	private static Java2DBandedOut createBanded(BufferedImage whole, double scale, int bandHeight)
+	{
+		Java2DBandedOut out = new Java2DBandedOut(whole.getWidth(), whole.getHeight(), RenderingHints.VALUE_ANTIALIAS_ON);
+		out.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		out.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+		out.setScale(scale);
+		out.setBandHeight(bandHeight);
+		out.setExecutor(executor, 3);
+		return out;
+	}
+
+	/**
+	 * @param tolerance how far each channel may be out. Bands are offset by
+	 * whole pixels, but after scaling by a fraction that can still round
+	 * antialiased edges differently.
+	 */
+	private static void assertSamePixels(BufferedImage expected, BufferedImage actual, int y, int tolerance)
+	{
+		for (int row = 0; row < actual.getHeight(); row++)
+		{
+			for (int x = 0; x < actual.getWidth(); x++)
+			{
+				int e = expected.getRGB(x, y + row);
+				int a = actual.getRGB(x, row);
+
+				for (int shift = 0; shift < 32; shift += 8)
+				{
+					if (Math.abs(((e >>> shift) & 0xff) - ((a >>> shift) & 0xff)) > tolerance)
+						assertEquals("pixel at " + x + "," + (y + row), Integer.toHexString(e), Integer.toHexString(a));
+				}
+			}
+		}
+	}
+
+	private static void assertBandsMatch(final BufferedImage whole, Java2DBandedOut out, final int tolerance) throws IOException
+	{
+		final List<Integer> tops = new ArrayList<Integer>();
+
+		out.render(dl, new BandHandler()
+		{
+			@Override
+			public void writeBand(BufferedImage band, int y)
+			{
+				tops.add(y);
+				assertSamePixels(whole, band, y, tolerance);
+			}
+		});
+
+		assertEquals(out.getBandCount(), tops.size());
+
+		for (int i = 0; i < tops.size(); i++)
+			assertEquals(Integer.valueOf(i * tops.get(1)), tops.get(i));
+	}
+
+	@Test
+	public void testBandsMatchWholePage() throws IOException
+	{
+		BufferedImage whole = renderWhole(1);
+		assertBandsMatch(whole, createBanded(whole, 1, 37), 0);
+	}
+
+	@Test
+	public void testBandsMatchWholePageScaled() throws IOException
+	{
+		double scale = 300.0 / 72.0;
+		BufferedImage whole = renderWhole(scale);
+		assertBandsMatch(whole, createBanded(whole, scale, 100), 8);
+	}
+
+	@Test
+	public void testUnindexedBandsMatchWholePage() throws IOException
+	{
+		BufferedImage whole = renderWhole(1);
+		Java2DBandedOut out = createBanded(whole, 1, 50);
+		out.setIndexed(false);
+		assertBandsMatch(whole, out, 0);
+	}
+
+	@Test
+	public void testWrittenImageMatchesWholePage() throws IOException
+	{
+		BufferedImage whole = renderWhole(1);
+		Java2DBandedOut out = createBanded(whole, 1, 64);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		assertTrue(ImageIO.write(out.toImage(dl), "png", bytes));
+
+		BufferedImage written = ImageIO.read(new ByteArrayInputStream(bytes.toByteArray()));
+		assertEquals(whole.getWidth(), written.getWidth());
+		assertEquals(whole.getHeight(), written.getHeight());
+		assertSamePixels(whole, written, 0, 0);
+	}
+}
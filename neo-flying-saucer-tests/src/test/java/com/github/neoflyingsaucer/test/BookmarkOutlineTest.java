@@ -0,0 +1,125 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineNode;
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlBookmark;
+import com.github.neoflyingsaucer.pdf2dout.Pdf2BookmarkManager;
+
+public class BookmarkOutlineTest
+{
+	private static final int COUNT = 100000;
+
+	private static int[] createLevels()
+	{
+		Random random = new Random(3);
+		int[] levels = new int[COUNT];
+		int level = 1;
+
+		for (int i = 0; i < COUNT; i++)
+		{
+			// Mostly small steps up and down, with the odd jump back out.
+			int r = random.nextInt(10);
+
+			if (r < 4)
+				level++;
+			else if (r < 8)
+				level--;
+			else if (r == 8)
+				level = 1 + random.nextInt(3);
+
+			level = Math.max(1, Math.min(level, 8));
+			levels[i] = level;
+		}
+
+		return levels;
+	}
+
+	/**
+	 * The parent of each bookmark, found by scanning backwards as the
+	 * bookmark manager used to, or -1 for a top level bookmark.
+	 */
+	private static int[] findParentsByScanning(int[] levels)
+	{
+		int[] parents = new int[levels.length];
+
+		for (int i = 0; i < levels.length; i++)
+		{
+			parents[i] = -1;
+
+			for (int j = i - 1; j >= 0; j--)
+			{
+				if (levels[j] < levels[i])
+				{
+					parents[i] = j;
+					break;
+				}
+			}
+		}
+
+		return parents;
+	}
+
+	private static int indexOf(PDOutlineItem item)
+	{
+		return Integer.parseInt(item.getTitle());
+	}
+
+	@Test
+	public void testOutlineMatchesBackwardScan() throws IOException
+	{
+		int[] levels = createLevels();
+		int[] parents = findParentsByScanning(levels);
+
+		Pdf2BookmarkManager manager = new Pdf2BookmarkManager();
+
+		for (int i = 0; i < COUNT; i++)
+			manager.addBookmark(new DlBookmark(levels[i], 0, String.valueOf(i), 0), null);
+
+		PDDocument doc = new PDDocument();
+
+		try
+		{
+			manager.outputBookmarks(doc);
+
+			PDOutlineItem root = doc.getDocumentCatalog().getDocumentOutline().getFirstChild();
+			assertNull(root.getNextSibling());
+
+			// Walk the outline depth first, which visits the bookmarks in
+			// document order, checking each is under the right parent.
+			int[] seenParents = new int[COUNT];
+			int seen = walk(root, -1, seenParents, 0);
+
+			assertEquals(COUNT, seen);
+
+			for (int i = 0; i < COUNT; i++)
+				assertEquals("bookmark " + i, parents[i], seenParents[i]);
+		}
+		finally
+		{
+			doc.close();
+		}
+	}
+
+	private static int walk(PDOutlineNode node, int parent, int[] seenParents, int seen)
+	{
+		for (PDOutlineItem child = node.getFirstChild(); child != null; child = child.getNextSibling())
+		{
+			int index = indexOf(child);
+			assertEquals(seen, index);
+
+			seenParents[index] = parent;
+			seen = walk(child, index, seenParents, seen + 1);
+		}
+
+		return seen;
+	}
+}
@@ -0,0 +1,219 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelHandler;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelledException;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSDefaultCancelHandler;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSTimedCancelHandler;
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
+
+public class CancelTokenTest
+{
+	private static class CountingHandler implements FSCancelHandler
+	{
+		private int calls;
+
+		@Override
+		public void cancelOpportunity(Class<?> sourceClass)
+		{
+			calls++;
+		}
+	}
+
+	@After
+	public void resetHandler()
+	{
+		Thread.interrupted();
+		FSCancelController.setThreadCancelHandler(new FSDefaultCancelHandler());
+	}
+
+	@Test
+	public void testHandlerAskedEveryInterval()
+	{
+		CountingHandler handler = new CountingHandler();
+		FSCancelToken token = new FSCancelToken(handler, 10);
+
+		for (int i = 0; i < 95; i++)
+			token.check(CancelTokenTest.class);
+
+		assertEquals(9, handler.calls);
+	}
+
+	@Test
+	public void testDeadlineCancels() throws InterruptedException
+	{
+		FSCancelToken token = new FSCancelToken(new FSTimedCancelHandler(1), 10);
+		Thread.sleep(5);
+
+		try
+		{
+			for (int i = 0; i < 10; i++)
+				token.check(CancelTokenTest.class);
+
+			fail("deadline passed but not cancelled");
+		}
+		catch (FSCancelledException e)
+		{
+			assertEquals(CancelTokenTest.class, e.getSourceClass());
+		}
+
+		// The handler cancels again when next asked.
+		assertFalse(token.isCancelled());
+
+		try
+		{
+			for (int i = 0; i < 10; i++)
+				token.check(String.class);
+
+			fail("deadline passed but not cancelled");
+		}
+		catch (FSCancelledException e)
+		{
+			assertEquals(String.class, e.getSourceClass());
+		}
+	}
+
+	@Test
+	public void testCancelRemembered()
+	{
+		FSCancelToken token = new FSCancelToken(new CountingHandler(), 10);
+		token.cancel();
+
+		for (int i = 0; i < 3; i++)
+		{
+			try
+			{
+				token.check(CancelTokenTest.class);
+				fail("cancelled token checked");
+			}
+			catch (FSCancelledException e)
+			{
+				assertEquals("Cancelled", e.getMessage());
+			}
+		}
+
+		assertTrue(token.isCancelled());
+	}
+
+	@Test
+	public void testOtherHandlersAskedEveryCheck()
+	{
+		CountingHandler handler = new CountingHandler();
+		FSCancelToken token = new FSCancelToken(handler);
+
+		for (int i = 0; i < 5; i++)
+			token.check(CancelTokenTest.class);
+
+		assertEquals(5, handler.calls);
+
+		FSCancelController.setThreadCancelHandler(handler);
+
+		for (int i = 0; i < 5; i++)
+			FSCancelController.cancelOpportunity(CancelTokenTest.class);
+
+		assertEquals(10, handler.calls);
+	}
+
+	@Test(expected = FSCancelledException.class)
+	public void testCancelFromAnotherThread() throws InterruptedException
+	{
+		final FSCancelToken token = new FSCancelToken(new CountingHandler());
+
+		Thread t = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				token.cancel();
+			}
+		});
+
+		t.start();
+		t.join();
+
+		token.check(CancelTokenTest.class);
+	}
+
+	@Test
+	public void testInterruptHonouredOnlyWhenAsked()
+	{
+		FSCancelToken token = new FSCancelToken(new CountingHandler(), 4);
+		Thread.currentThread().interrupt();
+
+		for (int i = 0; i < 8; i++)
+			token.check(CancelTokenTest.class);
+
+		assertFalse(token.isCancelled());
+
+		token.setInterruptible(true);
+
+		try
+		{
+			for (int i = 0; i < 4; i++)
+				token.check(CancelTokenTest.class);
+
+			fail("interrupted but not cancelled");
+		}
+		catch (FSCancelledException e)
+		{
+			assertEquals("Thread interrupted", e.getMessage());
+		}
+
+		// Once the interrupt is cleared, as a pooled thread does before its
+		// next task, the same token may be used again.
+		assertFalse(token.isCancelled());
+		Thread.interrupted();
+
+		for (int i = 0; i < 8; i++)
+			token.check(CancelTokenTest.class);
+	}
+
+	@Test
+	public void testThreadTokenUsableAfterInterrupt()
+	{
+		FSCancelController.setThreadCancelHandler(new FSDefaultCancelHandler());
+		Thread.currentThread().interrupt();
+
+		try
+		{
+			for (int i = 0; i < FSCancelToken.DEFAULT_CHECK_INTERVAL; i++)
+				FSCancelController.cancelOpportunity(CancelTokenTest.class);
+
+			fail("interrupted but not cancelled");
+		}
+		catch (FSCancelledException e)
+		{
+			assertEquals(CancelTokenTest.class, e.getSourceClass());
+		}
+
+		Thread.interrupted();
+
+		for (int i = 0; i < 2 * FSCancelToken.DEFAULT_CHECK_INTERVAL; i++)
+			FSCancelController.cancelOpportunity(CancelTokenTest.class);
+	}
+
+	@Test(expected = FSCancelledException.class)
+	public void testTimedOutLayoutCancelled() throws InterruptedException
+	{
+		StringBuilder html = new StringBuilder("<html><body>");
+
+		for (int i = 0; i < 500; i++)
+			html.append("<p>Paragraph number ").append(i).append(" with a few more words to break.</p>");
+
+		html.append("</body></html>");
+
+		FSCancelController.setThreadCancelHandler(new FSTimedCancelHandler(1));
+		Thread.sleep(5);
+
+		Java2DTestRenderer.prepare(html.toString());
+	}
+}
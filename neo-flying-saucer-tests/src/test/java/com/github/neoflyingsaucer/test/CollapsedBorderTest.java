@@ -0,0 +1,130 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.extend.output.DisplayList;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
+
+public class CollapsedBorderTest
+{
+	private static final int ROWS = 40;
+	private static final int COLS = 20;
+	private static final int BLUE = 0xff0000ff;
+
+	private static String createHtml(String border)
+	{
+		StringBuilder html = new StringBuilder("<html><head><style>");
+		html.append("@page { margin: 0; } body { margin: 10px; }");
+		html.append("table { border-collapse: collapse; }");
+		html.append("td { width: 20px; height: 8px; padding: 0; border: ").append(border).append(" solid #00f; }");
+		html.append("</style></head><body><table>");
+
+		for (int r = 0; r < ROWS; r++)
+		{
+			html.append("<tr>");
+
+			for (int c = 0; c < COLS; c++)
+				html.append("<td></td>");
+
+			html.append("</tr>");
+		}
+
+		html.append("</table></body></html>");
+		return html.toString();
+	}
+
+	/**
+	 * The start of each run of blue pixels along a row or column of the page.
+	 */
+	private static List<Integer> findLines(BufferedImage page, int fixed, boolean alongRow, int width)
+	{
+		List<Integer> result = new ArrayList<Integer>();
+		int length = alongRow ? page.getWidth() : page.getHeight();
+		int run = 0;
+
+		for (int i = 0; i < length; i++)
+		{
+			int rgb = alongRow ? page.getRGB(i, fixed) : page.getRGB(fixed, i);
+
+			if (rgb == BLUE)
+			{
+				if (run == 0)
+					result.add(i);
+				run++;
+			}
+			else if (run != 0)
+			{
+				assertEquals("line at " + (i - run), width, run);
+				run = 0;
+			}
+		}
+
+		return result;
+	}
+
+	private static void assertGrid(String border, int width)
+	{
+		PagedRenderer r = Java2DTestRenderer.prepare(createHtml(border));
+		DisplayList dl = r.renderToList(0);
+
+		// One line or rectangle per grid line, rather than one per cell side.
+		assertTrue(dl.getDisplayList().size() + " items", dl.getDisplayList().size() < 2 * (ROWS + COLS));
+
+		BufferedImage page = Java2DTestRenderer.paint(dl, r.getPageWidth(0), r.getPageHeight(0));
+
+		// The top left corner of the table, then through the middle of the
+		// first row of cells and down the middle of the first column.
+		int cornerX = 0;
+		int cornerY = 0;
+
+		while (page.getRGB(cornerX, cornerY) != BLUE)
+		{
+			cornerX++;
+			cornerY++;
+		}
+
+		List<Integer> xs = findLines(page, cornerY + width + 4, true, width);
+		List<Integer> ys = findLines(page, cornerX + width + 10, false, width);
+
+		assertEquals(COLS + 1, xs.size());
+		assertEquals(ROWS + 1, ys.size());
+
+		int top = ys.get(0);
+		int bottom = ys.get(ROWS) + width;
+		int left = xs.get(0);
+		int right = xs.get(COLS) + width;
+
+		// Every grid line runs the full length of the table without a gap.
+		for (int x : xs)
+		{
+			for (int y = top; y < bottom; y++)
+				assertEquals("pixel at " + x + "," + y, BLUE, page.getRGB(x, y));
+		}
+
+		for (int y : ys)
+		{
+			for (int x = left; x < right; x++)
+				assertEquals("pixel at " + x + "," + y, BLUE, page.getRGB(x, y));
+		}
+	}
+
+	@Test
+	public void testOnePixelGrid()
+	{
+		assertGrid("1px", 1);
+	}
+
+	@Test
+	public void testWideGrid()
+	{
+		assertGrid("3px", 3);
+	}
+}
@@ -0,0 +1,92 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.w3c.dom.CDATASection;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.Text;
+
+import com.github.neoflyingsaucer.jsouptodom.Parser;
+
+public class DOMViewTest
+{
+	private static final String HTML =
+		"<!DOCTYPE html><html><head><title>T</title></head>" +
+		"<body><p id=\"first\" class=\"a\" xmlns=\"http://www.w3.org/1999/xhtml\" xlink:href=\"x\">one<!-- gone -->two</p>" +
+		"<style>p { color: red; }</style><p>three</p></body></html>";
+
+	@Test
+	public void testStructure()
+	{
+		Document doc = Parser.parseHtml(HTML);
+		Element html = doc.getDocumentElement();
+
+		assertEquals("html", html.getTagName());
+		assertSame(doc, html.getParentNode());
+		assertNull(html.getNextSibling());
+
+		Element head = (Element) html.getFirstChild();
+		Element body = (Element) head.getNextSibling();
+
+		assertEquals("head", head.getNodeName());
+		assertEquals("body", body.getNodeName());
+		assertSame(head, body.getPreviousSibling());
+		assertSame(body, html.getLastChild());
+
+		NodeList ps = doc.getElementsByTagName("p");
+		assertEquals(2, ps.getLength());
+		assertEquals(2, body.getChildNodes().getLength());
+		assertSame(ps.item(1), body.getLastChild());
+		assertEquals("three", ps.item(1).getTextContent());
+	}
+
+	@Test
+	public void testStyleMovedToHead()
+	{
+		Document doc = Parser.parseHtml(HTML);
+		Element head = (Element) doc.getElementsByTagName("head").item(0);
+		Node style = head.getLastChild();
+
+		assertEquals("style", style.getNodeName());
+		assertEquals(1, style.getChildNodes().getLength());
+		assertTrue(style.getFirstChild() instanceof CDATASection);
+		assertEquals("p { color: red; }", style.getTextContent());
+		assertEquals(1, doc.getElementsByTagName("style").getLength());
+	}
+
+	@Test
+	public void testAttributesAndText()
+	{
+		Document doc = Parser.parseHtml(HTML);
+		Element p = (Element) doc.getElementsByTagName("p").item(0);
+
+		assertEquals("a", p.getAttribute("class"));
+		assertEquals("", p.getAttribute("missing"));
+		assertFalse(p.hasAttribute("xmlns"));
+		assertEquals("x", p.getAttribute("xlink_href"));
+		assertEquals(3, p.getAttributes().getLength());
+
+		// The comment is left out, leaving two text nodes side by side.
+		Text one = (Text) p.getFirstChild();
+		assertEquals("one", one.getData());
+		assertEquals("onetwo", one.getWholeText());
+		assertEquals(Node.TEXT_NODE, p.getLastChild().getNodeType());
+		assertEquals("onetwo", p.getTextContent());
+	}
+
+	@Test(expected = DOMException.class)
+	public void testReadOnly()
+	{
+		Document doc = Parser.parseHtml(HTML);
+		doc.getDocumentElement().appendChild(doc.getDocumentElement().getFirstChild());
+	}
+}
@@ -0,0 +1,107 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.extend.controller.error.FSDefaultErrorHandler;
+import com.github.neoflyingsaucer.extend.controller.error.FSError;
+import com.github.neoflyingsaucer.extend.controller.error.FSError.FSErrorLevel;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorHandler;
+import com.github.neoflyingsaucer.extend.controller.error.FSFilteringErrorHandler;
+import com.github.neoflyingsaucer.extend.controller.error.FSListErrorHandler;
+import com.github.neoflyingsaucer.extend.controller.error.FSMultipleErrorHandler;
+import com.github.neoflyingsaucer.extend.controller.error.LangId;
+
+public class ErrorControllerTest
+{
+	/**
+	 * Only wants errors.
+	 */
+	private static class ErrorsOnlyHandler extends FSListErrorHandler implements FSFilteringErrorHandler
+	{
+		@Override
+		public boolean isEnabled(FSErrorLevel level, Class<?> sourceClass)
+		{
+			return level == FSErrorLevel.ERROR;
+		}
+	}
+
+	@After
+	public void resetHandler()
+	{
+		FSErrorController.setThreadErrorHandler(new FSDefaultErrorHandler(Locale.US));
+	}
+
+	@Test
+	public void testDisabledLevelsNotPassedOn()
+	{
+		FSListErrorHandler handler = new ErrorsOnlyHandler();
+		FSErrorController.setThreadErrorHandler(handler);
+
+		FSErrorController.log(ErrorControllerTest.class, FSErrorLevel.INFO, LangId.RECEIVING_IMAGE, "a.png");
+		FSErrorController.log(ErrorControllerTest.class, FSErrorLevel.DEBUG, LangId.TEXT_WIDTHS_MEASURED, 1, 2);
+		FSErrorController.log(ErrorControllerTest.class, FSErrorLevel.ERROR, LangId.COULDNT_LOAD_IMAGE, "b.png");
+
+		assertEquals(1, handler.getErrorList().size());
+		assertEquals(LangId.COULDNT_LOAD_IMAGE, handler.getErrorList().get(0).getLanguageId());
+		assertEquals("b.png", handler.getErrorList().get(0).getArguments()[0]);
+
+		assertFalse(FSErrorController.isEnabled(FSErrorLevel.WARNING, ErrorControllerTest.class));
+		assertTrue(FSErrorController.isEnabled(FSErrorLevel.ERROR, ErrorControllerTest.class));
+	}
+
+	@Test
+	public void testMultipleHandlerFiltersEachHandler()
+	{
+		FSListErrorHandler all = new FSListErrorHandler();
+		FSListErrorHandler errors = new ErrorsOnlyHandler();
+		FSErrorController.setThreadErrorHandler(new FSMultipleErrorHandler(new FSErrorHandler[] { all, errors }));
+
+		FSErrorController.log(ErrorControllerTest.class, FSErrorLevel.INFO, LangId.RECEIVING_IMAGE, "a.png");
+		FSErrorController.log(ErrorControllerTest.class, FSErrorLevel.ERROR, LangId.COULDNT_LOAD_IMAGE, "b.png");
+
+		assertEquals(2, all.getErrorList().size());
+		assertEquals(1, errors.getErrorList().size());
+	}
+
+	@Test
+	public void testPlainHandlerGivenEverything()
+	{
+		final List<FSError> received = new ArrayList<FSError>();
+
+		// A handler written against the original interface.
+		FSErrorController.setThreadErrorHandler(new FSErrorHandler()
+		{
+			@Override
+			public void onError(FSError error)
+			{
+				received.add(error);
+			}
+		});
+
+		assertTrue(FSErrorController.isEnabled(FSErrorLevel.TRACE, ErrorControllerTest.class));
+
+		FSErrorController.log(ErrorControllerTest.class, FSErrorLevel.TRACE, LangId.RECEIVING_IMAGE, "a.png");
+		FSErrorController.log(ErrorControllerTest.class, FSErrorLevel.ERROR, LangId.COULDNT_LOAD_IMAGE, "b.png");
+
+		assertEquals(2, received.size());
+	}
+
+	@Test
+	public void testMessageFormatted()
+	{
+		FSError error = new FSError(-1, LangId.COULDNT_LOAD_IMAGE, null, null, ErrorControllerTest.class, FSErrorLevel.ERROR, "c.png");
+		String msg = error.formatMessage(new FSDefaultErrorHandler(Locale.US).bundle);
+
+		assertTrue(msg, msg.contains("c.png"));
+	}
+}
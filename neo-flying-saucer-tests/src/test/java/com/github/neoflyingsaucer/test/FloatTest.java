@@ -1,8 +1,25 @@
 package com.github.neoflyingsaucer.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 
+import com.github.neoflyingsaucer.defaultuseragent.DefaultUserAgent;
+import com.github.neoflyingsaucer.layout.FloatManager;
+import com.github.neoflyingsaucer.render.BlockBox;
+import com.github.neoflyingsaucer.render.Box;
+import com.github.neoflyingsaucer.render.InlineLayoutBox;
+import com.github.neoflyingsaucer.render.LineBox;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
 import com.github.neoflyingsaucer.test.support.BufferedImageTest;
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
 
 public class FloatTest
 {
@@ -163,4 +180,92 @@ public class FloatTest
 
 		BufferedImageTest.assertImgEquals(html, expected, 4, 1, "FloatLeftAcrossPages.2");
 	}
+
+	private static final int FLOATS = 2000;
+
+	private static void findFloats(Object box, List<BlockBox> result)
+	{
+		if (box instanceof BlockBox && ((BlockBox) box).isFloated())
+			result.add((BlockBox) box);
+
+		// Floats are kept with the line they were found on.
+		if (box instanceof LineBox)
+		{
+			for (Box floated : ((LineBox) box).getNonFlowContent())
+				findFloats(floated, result);
+		}
+
+		if (box instanceof InlineLayoutBox)
+		{
+			InlineLayoutBox iB = (InlineLayoutBox) box;
+
+			for (int i = 0; i < iB.getInlineChildCount(); i++)
+				findFloats(iB.getInlineChild(i), result);
+		}
+		else if (box instanceof Box)
+		{
+			Box b = (Box) box;
+
+			for (int i = 0; i < b.getChildCount(); i++)
+				findFloats(b.getChild(i), result);
+		}
+	}
+
+	/**
+	 * Lays out a gallery of floats in one block formatting context, with
+	 * text between them, and checks none of them overlap.
+	 */
+	@Test
+	public void testManyFloats()
+	{
+		StringBuilder html = new StringBuilder("<html><head><style>");
+		html.append("body { margin: 0; width: 500px; } div { float: left; width: 40px; margin: 2px; }");
+		html.append("div.r { float: right; } p { margin: 0; }");
+		html.append("</style></head><body>");
+
+		Random random = new Random(1);
+
+		for (int i = 0; i < FLOATS; i++)
+		{
+			html.append("<div").append(i % 7 == 0 ? " class=\"r\"" : "");
+			html.append(" style=\"height: ").append(20 + random.nextInt(40)).append("px\"></div>");
+
+			if (i % 5 == 0)
+				html.append("<p>Caption ").append(i).append("</p>");
+		}
+
+		html.append("</body></html>");
+
+		PagedRenderer r = Java2DTestRenderer.createRenderer(new DefaultUserAgent());
+		r.setDocumentHtml(html.toString());
+
+		r.prepare();
+
+		List<BlockBox> floats = new ArrayList<BlockBox>();
+		findFloats(r.getRootBox(), floats);
+		assertEquals(FLOATS, floats.size());
+
+		// Each float used to be checked against every float before it, more
+		// than once. Now only the floats level with it are checked.
+		FloatManager manager = floats.get(0).getFloatedBoxData().getManager();
+		long comparisons = manager.getComparisonCount();
+		assertTrue(comparisons + " comparisons", comparisons < FLOATS * 50L);
+
+		List<Rectangle> edges = new ArrayList<Rectangle>();
+
+		for (BlockBox floated : floats)
+		{
+			Rectangle edge = new Rectangle(floated.getAbsX(), floated.getAbsY(), floated.getWidth(), floated.getHeight());
+			assertTrue(edge.toString(), edge.x >= 0 && edge.x + edge.width <= 500);
+			edges.add(edge);
+		}
+
+		// Floats are only near the floats just before them, so checking a
+		// window of neighbours is enough to find any overlap.
+		for (int i = 0; i < edges.size(); i++)
+		{
+			for (int j = Math.max(0, i - 50); j < i; j++)
+				assertFalse(i + " overlaps " + j, edges.get(i).intersects(edges.get(j)));
+		}
+	}
 }
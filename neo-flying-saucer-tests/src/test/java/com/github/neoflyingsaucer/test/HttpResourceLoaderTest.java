@@ -0,0 +1,253 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.defaultuseragent.HttpResourceLoader;
+import com.github.neoflyingsaucer.defaultuseragent.LoadedResource;
+import com.github.neoflyingsaucer.extend.controller.error.FSErrorController;
+import com.github.neoflyingsaucer.extend.controller.error.FSListErrorHandler;
+import com.github.neoflyingsaucer.extend.useragent.Optional;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpResourceLoaderTest
+{
+	private static final String ETAG = "\"v1\"";
+
+	private HttpServer server;
+	private ExecutorService serverExecutor;
+	private String base;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+	private final AtomicInteger conditionalRequests = new AtomicInteger();
+
+	@Before
+	public void startServer() throws IOException
+	{
+		FSErrorController.setThreadErrorHandler(new FSListErrorHandler());
+
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				String path = exchange.getRequestURI().getPath();
+
+				if (path.startsWith("/hop"))
+				{
+					// /hop3 redirects to hop2, and so on down to /hop0, which is the resource.
+					int hops = Integer.parseInt(path.substring(4));
+
+					if (hops > 0)
+					{
+						exchange.getResponseHeaders().set("Location", "hop" + (hops - 1));
+						exchange.sendResponseHeaders(302, -1);
+						exchange.close();
+						return;
+					}
+
+					respond(exchange, "end of the chain");
+				}
+				else if (path.equals("/etag"))
+				{
+					if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+					{
+						conditionalRequests.incrementAndGet();
+						exchange.sendResponseHeaders(304, -1);
+						exchange.close();
+						return;
+					}
+
+					exchange.getResponseHeaders().set("ETag", ETAG);
+					respond(exchange, "tagged");
+				}
+				else if (path.equals("/slow"))
+				{
+					int now = inFlight.incrementAndGet();
+
+					while (true)
+					{
+						int max = maxInFlight.get();
+						if (now <= max || maxInFlight.compareAndSet(max, now))
+							break;
+					}
+
+					try
+					{
+						Thread.sleep(100);
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+					finally
+					{
+						inFlight.decrementAndGet();
+					}
+
+					respond(exchange, "slow");
+				}
+				else if (path.equals("/hang"))
+				{
+					try
+					{
+						Thread.sleep(2000);
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+
+					respond(exchange, "too late");
+				}
+				else
+				{
+					exchange.sendResponseHeaders(404, -1);
+					exchange.close();
+				}
+			}
+		});
+
+		serverExecutor = Executors.newFixedThreadPool(8);
+		server.setExecutor(serverExecutor);
+		server.start();
+
+		base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	private static void respond(HttpExchange exchange, String text) throws IOException
+	{
+		byte[] body = text.getBytes("UTF-8");
+		exchange.sendResponseHeaders(200, body.length);
+		OutputStream os = exchange.getResponseBody();
+		os.write(body);
+		os.close();
+	}
+
+	@After
+	public void stopServer()
+	{
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	private static String text(Optional<LoadedResource> resource) throws IOException
+	{
+		return new String(resource.get().getData(), "UTF-8");
+	}
+
+	@Test
+	public void testRedirectChainFollowed() throws IOException
+	{
+		HttpResourceLoader loader = new HttpResourceLoader();
+		Optional<LoadedResource> resource = loader.load(base + "hop3");
+
+		assertEquals("end of the chain", text(resource));
+		assertEquals(base + "hop0", resource.get().getFinalUri());
+	}
+
+	@Test
+	public void testTooManyRedirects()
+	{
+		HttpResourceLoader loader = new HttpResourceLoader();
+		loader.setMaxRedirects(2);
+
+		assertFalse(loader.load(base + "hop3").isPresent());
+		assertTrue(loader.load(base + "hop2").isPresent());
+	}
+
+	@Test
+	public void testNotFound()
+	{
+		assertFalse(new HttpResourceLoader().load(base + "missing").isPresent());
+	}
+
+	@Test
+	public void testConditionalRevalidation() throws IOException
+	{
+		HttpResourceLoader loader = new HttpResourceLoader();
+
+		assertEquals("tagged", text(loader.load(base + "etag")));
+		assertEquals("tagged", text(loader.load(base + "etag")));
+
+		assertEquals(1, conditionalRequests.get());
+		assertEquals(2, loader.getStatistics("127.0.0.1").getRequestCount());
+		assertEquals(1, loader.getStatistics("127.0.0.1").getNotModifiedCount());
+	}
+
+	@Test
+	public void testNoRevalidationWithoutBudget() throws IOException
+	{
+		HttpResourceLoader loader = new HttpResourceLoader(0);
+
+		assertEquals("tagged", text(loader.load(base + "etag")));
+		assertEquals("tagged", text(loader.load(base + "etag")));
+
+		assertEquals(0, conditionalRequests.get());
+	}
+
+	@Test
+	public void testConnectionsPerHostLimited() throws Exception
+	{
+		final HttpResourceLoader loader = new HttpResourceLoader();
+		loader.setMaxConnectionsPerHost(2);
+
+		ExecutorService clients = Executors.newFixedThreadPool(6);
+		List<Future<Optional<LoadedResource>>> results = new ArrayList<Future<Optional<LoadedResource>>>();
+
+		try
+		{
+			for (int i = 0; i < 6; i++)
+			{
+				results.add(clients.submit(new java.util.concurrent.Callable<Optional<LoadedResource>>()
+				{
+					@Override
+					public Optional<LoadedResource> call()
+					{
+						return loader.load(base + "slow");
+					}
+				}));
+			}
+
+			for (Future<Optional<LoadedResource>> result : results)
+				assertEquals("slow", text(result.get()));
+		}
+		finally
+		{
+			clients.shutdownNow();
+		}
+
+		assertTrue("max in flight " + maxInFlight.get(), maxInFlight.get() <= 2);
+		assertEquals(6, loader.getStatistics("127.0.0.1").getRequestCount());
+		assertTrue(loader.getStatistics("127.0.0.1").getMaxMillis() >= 100);
+	}
+
+	@Test
+	public void testReadTimeout()
+	{
+		HttpResourceLoader loader = new HttpResourceLoader();
+		loader.setReadTimeout(200);
+
+		long start = System.currentTimeMillis();
+		assertFalse(loader.load(base + "hang").isPresent());
+		assertTrue(System.currentTimeMillis() - start < 1500);
+	}
+}
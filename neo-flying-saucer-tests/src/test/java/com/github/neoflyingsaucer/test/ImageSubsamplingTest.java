@@ -0,0 +1,126 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.defaultuseragent.DefaultUserAgent;
+import com.github.neoflyingsaucer.extend.output.DisplayList;
+import com.github.neoflyingsaucer.extend.output.FSImage;
+import com.github.neoflyingsaucer.j2dout.Java2DImage;
+import com.github.neoflyingsaucer.j2dout.Java2DImageResolver;
+import com.github.neoflyingsaucer.pdf2dout.Pdf2FontContext;
+import com.github.neoflyingsaucer.pdf2dout.Pdf2FontResolver;
+import com.github.neoflyingsaucer.pdf2dout.Pdf2Image;
+import com.github.neoflyingsaucer.pdf2dout.Pdf2ImageResolver;
+import com.github.neoflyingsaucer.pdf2dout.Pdf2Out;
+import com.github.neoflyingsaucer.pdf2dout.Pdf2Out.PdfOutMode;
+import com.github.neoflyingsaucer.pdf2dout.Pdf2ReplacedElementResolver;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
+
+public class ImageSubsamplingTest
+{
+	private static final float DOTS_PER_POINT = 20f * 4f / 3f;
+	private static final int DOTS_PER_PIXEL = 20;
+
+	private static byte[] createImage(int width, int height, String format) throws IOException
+	{
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g2d = img.createGraphics();
+		Random random = new Random(1);
+
+		// Noise, so the image doesn't compress to nothing.
+		for (int i = 0; i < 2000; i++)
+		{
+			g2d.setColor(new Color(random.nextInt(0xffffff)));
+			g2d.fillRect(random.nextInt(width), random.nextInt(height), 40, 40);
+		}
+
+		g2d.dispose();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(img, format, out);
+		return out.toByteArray();
+	}
+
+	private static byte[] renderPdf(String html, float imageDpi)
+	{
+		ByteArrayOutputStream bs = new ByteArrayOutputStream();
+		PagedRenderer r = new PagedRenderer(new DefaultUserAgent(), DOTS_PER_POINT * 72f, DOTS_PER_PIXEL);
+		Pdf2Out out = new Pdf2Out(DOTS_PER_POINT, PdfOutMode.TEST_MODE);
+		out.setImageResolution(imageDpi);
+		out.initializePdf(bs);
+
+		r.setDocumentHtml(html);
+		r.setImageResolver(new Pdf2ImageResolver(DOTS_PER_PIXEL));
+		r.setFontContext(new Pdf2FontContext());
+		r.setFontResolver(new Pdf2FontResolver(out.getDocument()));
+		r.setReplacedElementResolver(new Pdf2ReplacedElementResolver());
+		r.prepare();
+
+		for (int i = 0; i < r.getPageCount(); i++)
+		{
+			DisplayList dl = r.renderToList(i);
+			out.initializePage(r.getPageWidth(i), r.getPageHeight(i));
+			out.render(dl);
+			out.finishPage();
+		}
+
+		out.finish();
+		return bs.toByteArray();
+	}
+
+	@Test
+	public void testPdfImageDecodedSubsampled() throws IOException
+	{
+		Pdf2Image img = new Pdf2Image(createImage(3000, 2000, "png"), "test.png");
+
+		assertEquals(10, img.getSubsampling(300, 200));
+		assertEquals(1, img.getSubsampling(4000, 200));
+
+		BufferedImage decoded = img.decode(10);
+		assertEquals(300, decoded.getWidth());
+		assertEquals(200, decoded.getHeight());
+	}
+
+	@Test
+	public void testPdfSmallerAtImageResolution() throws IOException
+	{
+		String src = "data:image/jpeg;base64," + Base64.encodeBase64String(createImage(2400, 1600, "jpeg"));
+		String html = "<html><body><img style=\"width: 2cm; height: 1.33cm;\" src=\"" + src + "\"></body></html>";
+
+		byte[] original = renderPdf(html, 0);
+		byte[] reduced = renderPdf(html, 150);
+
+		assertTrue("original " + original.length + ", reduced " + reduced.length, reduced.length * 4 < original.length);
+	}
+
+	@Test
+	public void testJava2DImageDecodedOnDemand() throws IOException
+	{
+		Java2DImageResolver resolver = new Java2DImageResolver();
+		resolver.setDecodeOnDemand(true);
+
+		FSImage img = resolver.resolveImage("test.png", new ByteArrayInputStream(createImage(3000, 2000, "png")));
+		assertEquals(3000, img.getWidth());
+		assertEquals(2000, img.getHeight());
+
+		FSImage scaled = img.scale(300, -1);
+		assertEquals(300, scaled.getWidth());
+		assertEquals(200, scaled.getHeight());
+
+		assertEquals(3000, ((Java2DImage) img).getAWTImage().getWidth());
+	}
+}
@@ -0,0 +1,181 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlInternalLink;
+import com.github.neoflyingsaucer.extend.output.DisplayList;
+import com.github.neoflyingsaucer.extend.output.DlItem;
+import com.github.neoflyingsaucer.layout.SharedContext;
+import com.github.neoflyingsaucer.renderers.LaidOutDocument;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
+
+public class LaidOutDocumentTest
+{
+	private static String createHtml()
+	{
+		StringBuilder html = new StringBuilder("<html><body>");
+		html.append("<div style=\"position: fixed; top: 0; right: 0; border: 1px solid red;\">Fixed</div>");
+
+		for (int i = 0; i < 120; i++)
+			html.append("<p>Paragraph number ").append(i).append(" which is laid out once.</p>");
+
+		html.append("</body></html>");
+		return html.toString();
+	}
+
+	private static PagedRenderer prepare()
+	{
+		return Java2DTestRenderer.prepare(createHtml());
+	}
+
+	private static int[] toPixels(LaidOutDocument doc, DisplayList dl, int pageNo)
+	{
+		BufferedImage img = Java2DTestRenderer.paint(dl, doc.getPageWidth(pageNo), doc.getPageHeight(pageNo));
+		return img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+	}
+
+	private static List<int[]> renderAll(LaidOutDocument doc)
+	{
+		List<int[]> pages = new ArrayList<int[]>();
+
+		for (int i = 0; i < doc.getPageCount(); i++)
+			pages.add(toPixels(doc, doc.renderToList(i), i));
+
+		return pages;
+	}
+
+	private static void assertSamePages(List<int[]> expected, List<int[]> actual)
+	{
+		assertEquals(expected.size(), actual.size());
+
+		for (int i = 0; i < expected.size(); i++)
+			assertArrayEquals("page " + i, expected.get(i), actual.get(i));
+	}
+
+	@Test
+	public void testRenderedRepeatedly()
+	{
+		PagedRenderer r = prepare();
+		LaidOutDocument doc = r.getLaidOutDocument();
+
+		assertTrue(doc.getPageCount() > 1);
+		assertEquals(r.getPageCount(), doc.getPageCount());
+		assertEquals(r.getPageHeight(0), doc.getPageHeight(0));
+
+		List<int[]> first = renderAll(doc);
+		assertSamePages(first, renderAll(doc));
+
+		List<DisplayList> lists = doc.renderToLists(1, doc.getPageCount() - 1);
+		assertEquals(doc.getPageCount() - 1, lists.size());
+		assertArrayEquals(first.get(1), toPixels(doc, lists.get(0), 1));
+	}
+
+	@Test
+	public void testUnchangedByNextPrepare()
+	{
+		PagedRenderer r = prepare();
+		LaidOutDocument doc = r.getLaidOutDocument();
+		List<int[]> before = renderAll(doc);
+
+		r.prepare();
+
+		assertNotSame(doc, r.getLaidOutDocument());
+		assertNotSame(doc.getRootBox(), r.getLaidOutDocument().getRootBox());
+		assertSamePages(before, renderAll(doc));
+		assertSamePages(before, renderAll(r.getLaidOutDocument()));
+	}
+
+	/**
+	 * A link on the first page to an element further down, after
+	 * <code>paragraphs</code> paragraphs.
+	 */
+	private static String createLinkedHtml(int paragraphs)
+	{
+		StringBuilder html = new StringBuilder("<html><body><p><a href=\"#target\">To the target</a></p>");
+
+		for (int i = 0; i < paragraphs; i++)
+			html.append("<p>Paragraph number ").append(i).append(".</p>");
+
+		html.append("<p id=\"target\">Target</p></body></html>");
+		return html.toString();
+	}
+
+	private static DlInternalLink findLink(DisplayList dl)
+	{
+		for (DlItem item : dl.getDisplayList())
+		{
+			if (item instanceof DlInternalLink)
+				return (DlInternalLink) item;
+		}
+
+		return null;
+	}
+
+	@Test
+	public void testLinksKeptByNextDocument()
+	{
+		PagedRenderer r = Java2DTestRenderer.prepare(createLinkedHtml(120));
+		LaidOutDocument doc = r.getLaidOutDocument();
+		SharedContext sharedContext = r.getSharedContext();
+
+		DlInternalLink before = findLink(doc.renderToList(0));
+		assertTrue(before.pageNo > 0);
+
+		// The next document has an element with the same id on its first page.
+		r.setDocumentHtml(createLinkedHtml(0));
+		r.prepare();
+
+		assertEquals(0, findLink(r.renderToList(0)).pageNo);
+
+		DlInternalLink after = findLink(doc.renderToList(0));
+		assertEquals(before.pageNo, after.pageNo);
+		assertEquals(before.y, after.y, 0);
+		assertNotSame(sharedContext, r.getSharedContext());
+	}
+
+	@Test
+	public void testRenderedConcurrently() throws Exception
+	{
+		final LaidOutDocument doc = prepare().getLaidOutDocument();
+		List<int[]> expected = renderAll(doc);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<List<int[]>>> futures = new ArrayList<Future<List<int[]>>>();
+
+		try
+		{
+			for (int i = 0; i < 4; i++)
+			{
+				futures.add(executor.submit(new Callable<List<int[]>>()
+				{
+					@Override
+					public List<int[]> call()
+					{
+						return renderAll(doc);
+					}
+				}));
+			}
+
+			for (Future<List<int[]>> future : futures)
+				assertSamePages(expected, future.get());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+}
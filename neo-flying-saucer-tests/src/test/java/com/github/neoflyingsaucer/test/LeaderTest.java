@@ -0,0 +1,126 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.extend.output.FSFont;
+import com.github.neoflyingsaucer.render.Box;
+import com.github.neoflyingsaucer.render.InlineLayoutBox;
+import com.github.neoflyingsaucer.render.InlineText;
+import com.github.neoflyingsaucer.render.RenderingContext;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
+
+public class LeaderTest
+{
+	private static final int ENTRIES = 300;
+	private static final String[] LEADERS = { "dotted", "solid", "'-='" };
+	private static final String[] VALUES = { ". ", "_", "-=" };
+
+	private static String createHtml()
+	{
+		StringBuilder html = new StringBuilder("<html><head><style>");
+		html.append("body { margin: 0; font-size: 12px; } div { width: 400px; }");
+
+		for (int i = 0; i < LEADERS.length; i++)
+			html.append(".l").append(i).append("::after { content: leader(").append(LEADERS[i]).append(") '").append(i * 37 + 1).append("'; }");
+
+		html.append("</style></head><body>");
+
+		for (int i = 0; i < ENTRIES; i++)
+		{
+			html.append("<div class=\"l").append(i % LEADERS.length).append("\">Entry ").append(i);
+
+			// Titles of different lengths need leaders of different lengths.
+			for (int j = 0; j < i % 17; j++)
+				html.append(" w");
+
+			html.append("</div>");
+		}
+
+		html.append("</body></html>");
+		return html.toString();
+	}
+
+	private static void findLeaders(Object box, List<InlineText> result)
+	{
+		if (box instanceof InlineText)
+		{
+			if (((InlineText) box).isDynamicFunction())
+				result.add((InlineText) box);
+		}
+		else if (box instanceof InlineLayoutBox)
+		{
+			InlineLayoutBox iB = (InlineLayoutBox) box;
+
+			for (int i = 0; i < iB.getInlineChildCount(); i++)
+				findLeaders(iB.getInlineChild(i), result);
+		}
+		else
+		{
+			Box b = (Box) box;
+
+			for (int i = 0; i < b.getChildCount(); i++)
+				findLeaders(b.getChild(i), result);
+		}
+	}
+
+	/**
+	 * The leader string for a leader of the given width, computed as the
+	 * leader function has always done, from scratch for every leader.
+	 */
+	private static String computeLeader(RenderingContext c, FSFont font, String value, int leaderWidth)
+	{
+		StringBuilder tmp = new StringBuilder();
+
+		for (int i = 0; i < 100; i++)
+			tmp.append(value);
+
+		float valueWidth = c.getTextRenderer().getWidth(c.getFontContext(), font, tmp.toString()) / 100f;
+		int spaceWidth = c.getTextRenderer().getWidth(c.getFontContext(), font, " ");
+		int count = (int) ((leaderWidth - (2 * spaceWidth)) / valueWidth);
+
+		StringBuilder buf = new StringBuilder(" ");
+
+		for (int i = 0; i < count; i++)
+			buf.append(value);
+
+		return buf.append(' ').toString();
+	}
+
+	@Test
+	public void testLeaderWidthsUnchanged()
+	{
+		PagedRenderer r = Java2DTestRenderer.prepare(createHtml());
+
+		// Painting fills in the leaders.
+		for (int page = 0; page < r.getPageCount(); page++)
+			r.renderToList(page);
+
+		List<InlineText> leaders = new ArrayList<InlineText>();
+		findLeaders(r.getRootBox(), leaders);
+		assertEquals(ENTRIES, leaders.size());
+
+		RenderingContext c = r.getSharedContext().newRenderingContextInstance();
+		c.setFontContext(Java2DTestRenderer.createFontContext());
+
+		for (int i = 0; i < ENTRIES; i++)
+		{
+			InlineText text = leaders.get(i);
+			InlineLayoutBox iB = text.getParent();
+			FSFont font = iB.getStyle().getFSFont(c);
+			String leader = text.getSubstring();
+
+			// The leader is pushed right by its left margin, so between them
+			// they fill the width the leader was given.
+			int leaderWidth = (int) iB.getMargin(c).left();
+			leaderWidth += c.getTextRenderer().getWidth(c.getFontContext(), font, leader);
+
+			assertEquals("entry " + i, computeLeader(c, font, VALUES[i % VALUES.length], leaderWidth), leader);
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.defaultuseragent.DefaultUserAgent;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSDefaultMetricsHandler;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMemoryMetricsHandler;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsController;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsCounter;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsStage;
+import com.github.neoflyingsaucer.pdf2dout.Pdf2FontContext;
+import com.github.neoflyingsaucer.pdf2dout.Pdf2FontResolver;
+import com.github.neoflyingsaucer.pdf2dout.Pdf2ImageResolver;
+import com.github.neoflyingsaucer.pdf2dout.Pdf2Out;
+import com.github.neoflyingsaucer.pdf2dout.Pdf2Out.PdfOutMode;
+import com.github.neoflyingsaucer.pdf2dout.Pdf2ReplacedElementResolver;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
+
+public class MetricsTest
+{
+	@After
+	public void resetHandler()
+	{
+		FSMetricsController.setThreadMetricsHandler(new FSDefaultMetricsHandler());
+	}
+
+	@Test
+	public void testPercentiles()
+	{
+		FSMemoryMetricsHandler metrics = new FSMemoryMetricsHandler(100);
+
+		for (int i = 1; i <= 200; i++)
+			metrics.recordTime(FSMetricsStage.PAINT, i);
+
+		// Only the last 100 samples are kept for percentiles.
+		assertEquals(200, metrics.getCount(FSMetricsStage.PAINT));
+		assertEquals(200 * 201 / 2, metrics.getTotalNanos(FSMetricsStage.PAINT));
+		assertEquals(200, metrics.getMaxNanos(FSMetricsStage.PAINT));
+		assertEquals(150, metrics.getPercentileNanos(FSMetricsStage.PAINT, 50));
+		assertEquals(199, metrics.getPercentileNanos(FSMetricsStage.PAINT, 99));
+		assertEquals(0, metrics.getPercentileNanos(FSMetricsStage.LAYOUT, 50));
+
+		metrics.reset();
+		assertEquals(0, metrics.getCount(FSMetricsStage.PAINT));
+	}
+
+	private static String createHtml()
+	{
+		StringBuilder html = new StringBuilder("<html><head><style>p { color: red; } .x { color: blue; }</style></head><body>");
+
+		for (int i = 0; i < 200; i++)
+			html.append("<p class=\"x\">Paragraph number ").append(i).append("</p>");
+
+		html.append("</body></html>");
+		return html.toString();
+	}
+
+	@Test
+	public void testStagesAndCountersRecorded()
+	{
+		FSMemoryMetricsHandler metrics = new FSMemoryMetricsHandler();
+		FSMetricsController.setThreadMetricsHandler(metrics);
+		assertTrue(FSMetricsController.isEnabled());
+
+		PagedRenderer r = Java2DTestRenderer.prepare(createHtml());
+
+		for (int i = 0; i < r.getPageCount(); i++)
+			Java2DTestRenderer.paintPage(r, i);
+
+		assertTrue(r.getPageCount() > 1);
+
+		assertEquals(1, metrics.getCount(FSMetricsStage.HTML_PARSE));
+		assertEquals(1, metrics.getCount(FSMetricsStage.DOM_CONVERSION));
+		assertEquals(1, metrics.getCount(FSMetricsStage.STYLESHEET_LOAD));
+		assertEquals(0, metrics.getCount(FSMetricsStage.CASCADE));
+		assertEquals(1, metrics.getCount(FSMetricsStage.BOX_BUILD));
+		assertEquals(1, metrics.getCount(FSMetricsStage.LAYOUT));
+		assertEquals(1, metrics.getCount(FSMetricsStage.PAGINATION));
+		assertEquals(r.getPageCount(), metrics.getCount(FSMetricsStage.PAINT));
+		assertEquals(r.getPageCount(), metrics.getCount(FSMetricsStage.OUTPUT));
+		assertTrue(metrics.getTotalNanos(FSMetricsStage.LAYOUT) > 0);
+
+		assertEquals(r.getPageCount(), metrics.getTotal(FSMetricsCounter.PAGES));
+		assertTrue(metrics.getTotal(FSMetricsCounter.ELEMENTS) >= 200);
+		assertTrue(metrics.getTotal(FSMetricsCounter.SELECTORS_TESTED) >= metrics.getTotal(FSMetricsCounter.ELEMENTS));
+		assertTrue(metrics.getTotal(FSMetricsCounter.BOXES) >= 200);
+		assertTrue(metrics.getTotal(FSMetricsCounter.TEXT_MEASUREMENTS) > 0);
+	}
+
+	@Test
+	public void testPdfOutputRecordedOnce()
+	{
+		FSMemoryMetricsHandler metrics = new FSMemoryMetricsHandler();
+		FSMetricsController.setThreadMetricsHandler(metrics);
+
+		PagedRenderer r = new PagedRenderer(new DefaultUserAgent(), 72, 1);
+		Pdf2Out out = new Pdf2Out(1, PdfOutMode.TEST_MODE);
+		out.initializePdf(new ByteArrayOutputStream());
+
+		r.setDocumentHtml(createHtml());
+		r.setImageResolver(new Pdf2ImageResolver(1));
+		r.setFontContext(new Pdf2FontContext());
+		r.setFontResolver(new Pdf2FontResolver(out.getDocument()));
+		r.setReplacedElementResolver(new Pdf2ReplacedElementResolver());
+		r.prepare();
+
+		for (int i = 0; i < r.getPageCount(); i++)
+		{
+			out.initializePage(r.getPageWidth(i), r.getPageHeight(i));
+			out.render(r.renderToList(i));
+			out.finishPage();
+		}
+
+		out.finish();
+
+		assertTrue(r.getPageCount() > 1);
+		assertEquals(r.getPageCount(), metrics.getCount(FSMetricsStage.PAINT));
+		assertEquals(1, metrics.getCount(FSMetricsStage.OUTPUT));
+		assertTrue(metrics.getTotalNanos(FSMetricsStage.OUTPUT) > 0);
+	}
+
+	@Test
+	public void testNothingCountedWhenDisabled()
+	{
+		assertFalse(FSMetricsController.isEnabled());
+
+		PagedRenderer r = Java2DTestRenderer.prepare(createHtml());
+
+		assertEquals(0, r.getSharedContext().getCss().getElementsMatched());
+		assertEquals(0, r.getSharedContext().getCss().getSelectorsTested());
+
+		FSMetricsController.setThreadMetricsHandler(new FSMemoryMetricsHandler());
+		r = Java2DTestRenderer.prepare(createHtml());
+
+		assertTrue(r.getSharedContext().getCss().getElementsMatched() >= 200);
+	}
+}
@@ -0,0 +1,267 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.defaultuseragent.DefaultUserAgent;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSDefaultMetricsHandler;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMemoryMetricsHandler;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsController;
+import com.github.neoflyingsaucer.extend.controller.metrics.FSMetricsCounter;
+import com.github.neoflyingsaucer.render.BlockBox;
+import com.github.neoflyingsaucer.render.Box;
+import com.github.neoflyingsaucer.render.LineBox;
+import com.github.neoflyingsaucer.render.PageBox;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
+
+public class PageBreakAvoidTest
+{
+	private static final int BLOCKS = 60;
+
+	@After
+	public void resetHandler()
+	{
+		FSMetricsController.setThreadMetricsHandler(new FSDefaultMetricsHandler());
+	}
+
+	private static String createHtml(String extra)
+	{
+		StringBuilder html = new StringBuilder("<html><head><style>");
+		html.append("@page { size: 400px 300px; margin: 10px; }");
+		html.append(".k { page-break-inside: avoid; border: 1px solid #000; padding: 4px; margin: 6px 0; }");
+		html.append(".f { float: left; width: 20px; height: 10px; }");
+		html.append("</style></head><body>");
+
+		for (int i = 0; i < BLOCKS; i++)
+		{
+			html.append("<div class=\"k\">").append(extra).append("Block ").append(i);
+
+			for (int j = 0; j < 10 + i % 7 * 6; j++)
+				html.append(" text");
+
+			html.append("</div>");
+		}
+
+		html.append("<p>The end</p></body></html>");
+		return html.toString();
+	}
+
+	private static PagedRenderer prepare(String html)
+	{
+		return Java2DTestRenderer.prepare(html);
+	}
+
+	private static PagedRenderer prepare(String html, boolean moveBlocks)
+	{
+		PagedRenderer r = Java2DTestRenderer.createRenderer(new DefaultUserAgent());
+		r.getSharedContext().setMoveKeptTogetherBlocks(moveBlocks);
+		r.setDocumentHtml(html);
+		r.prepare();
+		return r;
+	}
+
+	/**
+	 * Kept together blocks of every kind the layout treats differently:
+	 * plain text, floats, paginated and plain tables, lists, nested blocks
+	 * and blocks with collapsing margins.
+	 */
+	private static String createMixedHtml()
+	{
+		StringBuilder html = new StringBuilder("<html><head><style>");
+		html.append("@page { size: 400px 300px; margin: 10px; }");
+		html.append(".k { page-break-inside: avoid; border: 1px solid #000; padding: 4px; margin: 6px 0; }");
+		html.append(".m { page-break-inside: avoid; margin: 12px 0; } .m p { margin: 8px 0; }");
+		html.append(".f { float: right; width: 30px; height: 24px; }");
+		html.append("table.p { -fs-table-paginate: paginate; } td { border: 1px solid #000; }");
+		html.append("</style></head><body>");
+
+		for (int i = 0; i < BLOCKS; i++)
+		{
+			switch (i % 6)
+			{
+			case 0:
+				html.append("<div class=\"k\">Block ").append(i);
+				break;
+			case 1:
+				// The float has a formatting context of its own, so the
+				// blocks after it may still be moved.
+				html.append("<div class=\"k\" style=\"overflow: hidden\"><span class=\"f\"></span>Float ").append(i);
+				break;
+			case 2:
+				html.append("<div class=\"k\"><table class=\"p\"><thead><tr><td>Head</td></tr></thead>");
+				html.append("<tr><td>Row</td></tr><tr><td>Row</td></tr><tr><td>Row</td></tr></table>Table ").append(i);
+				break;
+			case 3:
+				html.append("<div class=\"k\"><ul><li>One</li><li>Two</li><li>Three</li></ul>List ").append(i);
+				break;
+			case 4:
+				html.append("<div class=\"m\"><p>Margins ").append(i).append("</p><p>");
+				break;
+			default:
+				html.append("<div class=\"k\"><div class=\"k\">Nested ").append(i).append("</div>");
+				break;
+			}
+
+			for (int j = 0; j < 6 + i % 5 * 8; j++)
+				html.append(" text");
+
+			html.append(i % 6 == 4 ? "</p></div>" : "</div>");
+		}
+
+		html.append("</body></html>");
+		return html.toString();
+	}
+
+	private static void collectGeometry(Box box, StringBuilder result)
+	{
+		result.append(box.getClass().getSimpleName()).append(' ').append(box.getAbsX()).append(',').append(box.getAbsY());
+		result.append(' ').append(box.getWidth()).append('x').append(box.getHeight()).append('\n');
+
+		if (box instanceof LineBox)
+		{
+			for (Box floated : ((LineBox) box).getNonFlowContent())
+				collectGeometry(floated, result);
+		}
+
+		for (int i = 0; i < box.getChildCount(); i++)
+			collectGeometry(box.getChild(i), result);
+	}
+
+	private static String getGeometry(PagedRenderer r)
+	{
+		StringBuilder result = new StringBuilder();
+		collectGeometry(r.getRootBox(), result);
+		return result.toString();
+	}
+
+	private static void findBlocks(Box box, List<Box> result)
+	{
+		if (box instanceof BlockBox && ! box.isAnonymous() && box.getElement() != null && "k".equals(box.getElement().getAttribute("class")))
+			result.add(box);
+
+		for (int i = 0; i < box.getChildCount(); i++)
+			findBlocks(box.getChild(i), result);
+	}
+
+	private static int findPage(List<PageBox> pages, int y)
+	{
+		for (int i = 0; i < pages.size(); i++)
+		{
+			if (y >= pages.get(i).getTop() && y < pages.get(i).getBottom())
+				return i;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Each block, short enough to fit on a page, should start and end on
+	 * the same page.
+	 */
+	private static void assertBlocksUnbroken(PagedRenderer r)
+	{
+		List<Box> blocks = new ArrayList<Box>();
+		findBlocks(r.getRootBox(), blocks);
+		assertEquals(BLOCKS, blocks.size());
+
+		List<PageBox> pages = r.getRootBox().getLayer().getPages();
+		assertTrue(pages.size() > 5);
+
+		for (int i = 0; i < BLOCKS; i++)
+		{
+			Box block = blocks.get(i);
+			int first = findPage(pages, block.getAbsY());
+
+			assertTrue("block " + i, first >= 0);
+			assertEquals("block " + i, first, findPage(pages, block.getAbsY() + block.getHeight() - 1));
+		}
+	}
+
+	@Test
+	public void testBlocksMovedRatherThanLaidOutAgain()
+	{
+		FSMemoryMetricsHandler metrics = new FSMemoryMetricsHandler();
+		FSMetricsController.setThreadMetricsHandler(metrics);
+
+		PagedRenderer r = prepare(createHtml(""));
+		assertBlocksUnbroken(r);
+
+		// Plain text blocks that would cross a page break are moved to the
+		// next page as they are.
+		assertTrue(metrics.getTotal(FSMetricsCounter.MOVED_BLOCKS) > 5);
+		assertEquals(0, metrics.getTotal(FSMetricsCounter.RELAYOUTS));
+	}
+
+	@Test
+	public void testBlocksWithFloatsLaidOutAgain()
+	{
+		FSMemoryMetricsHandler metrics = new FSMemoryMetricsHandler();
+		FSMetricsController.setThreadMetricsHandler(metrics);
+
+		PagedRenderer r = prepare(createHtml("<span class=\"f\"></span>"));
+		assertBlocksUnbroken(r);
+
+		// Floats are placed against the page, so those blocks are laid out
+		// again instead.
+		assertEquals(0, metrics.getTotal(FSMetricsCounter.MOVED_BLOCKS));
+		assertTrue(metrics.getTotal(FSMetricsCounter.RELAYOUTS) > 5);
+	}
+
+	@Test
+	public void testNestedBlocksWithFloatsLaidOutAgain()
+	{
+		FSMemoryMetricsHandler metrics = new FSMemoryMetricsHandler();
+		FSMetricsController.setThreadMetricsHandler(metrics);
+
+		// The float is found once from the outer block, and the blocks
+		// inside it take the answer from there.
+		PagedRenderer r = prepare(createHtml("<div style=\"page-break-inside: avoid\"><div style=\"page-break-inside: avoid\"><span class=\"f\"></span>Inner</div></div>"));
+		assertBlocksUnbroken(r);
+
+		assertEquals(0, metrics.getTotal(FSMetricsCounter.MOVED_BLOCKS));
+		assertTrue(metrics.getTotal(FSMetricsCounter.RELAYOUTS) > 5);
+	}
+
+	@Test
+	public void testPaginatedTablesNotLaidOutMore()
+	{
+		String html = createHtml("<table style=\"-fs-table-paginate: paginate\"><thead><tr><td>Head</td></tr></thead><tr><td>Row</td></tr></table>");
+
+		FSMemoryMetricsHandler moved = new FSMemoryMetricsHandler();
+		FSMetricsController.setThreadMetricsHandler(moved);
+		assertBlocksUnbroken(prepare(html, true));
+
+		FSMemoryMetricsHandler usual = new FSMemoryMetricsHandler();
+		FSMetricsController.setThreadMetricsHandler(usual);
+		assertBlocksUnbroken(prepare(html, false));
+
+		// Paginated tables depend on the page they fall on, so they are
+		// laid out as usual rather than laid out once more to find that out.
+		assertEquals(0, moved.getTotal(FSMetricsCounter.MOVED_BLOCKS));
+		assertTrue(usual.getTotal(FSMetricsCounter.RELAYOUTS) > 5);
+		assertEquals(usual.getTotal(FSMetricsCounter.RELAYOUTS), moved.getTotal(FSMetricsCounter.RELAYOUTS));
+	}
+
+	@Test
+	public void testSameLayoutWhetherMovedOrLaidOutAgain()
+	{
+		String html = createMixedHtml();
+
+		FSMemoryMetricsHandler metrics = new FSMemoryMetricsHandler();
+		FSMetricsController.setThreadMetricsHandler(metrics);
+
+		PagedRenderer moved = prepare(html, true);
+		PagedRenderer usual = prepare(html, false);
+
+		assertTrue(metrics.getTotal(FSMetricsCounter.MOVED_BLOCKS) > 0);
+		assertEquals(usual.getPageCount(), moved.getPageCount());
+		assertEquals(getGeometry(usual), getGeometry(moved));
+	}
+}
@@ -0,0 +1,116 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlString;
+import com.github.neoflyingsaucer.displaylist.DlInstruction.DlStringEx;
+import com.github.neoflyingsaucer.extend.output.DisplayList;
+import com.github.neoflyingsaucer.extend.output.DlItem;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
+
+public class PageMarginBoxTest
+{
+	private static final int PAGES = 12;
+
+	/**
+	 * The footer, allowing for each piece of content being painted as a
+	 * separate string.
+	 */
+	private static final Pattern FOOTER = Pattern.compile("Page \\|?(\\d+)\\|? of \\|?(\\d+)\\|");
+
+	/**
+	 * One page per paragraph, with a static header, which pages share,
+	 * and a page number footer, which must still differ on every page.
+	 */
+	private static String createHtml()
+	{
+		StringBuilder html = new StringBuilder("<html><head><style>");
+		html.append("@page { size: 300px 200px; margin: 40px;");
+		html.append(" @top-center { content: \"Header\"; }");
+		html.append(" @bottom-center { content: \"Page \" counter(page) \" of \" counter(pages); }");
+		html.append(" @bottom-right { content: \"#\" counter(page); text-align: right; } }");
+		html.append("p { page-break-before: always; margin: 0; } p:first-child { page-break-before: auto; }");
+		html.append("</style></head><body>");
+
+		for (int i = 0; i < PAGES; i++)
+			html.append("<p>Paragraph ").append(i).append("</p>");
+
+		html.append("</body></html>");
+		return html.toString();
+	}
+
+	private static String getText(DisplayList dl)
+	{
+		StringBuilder sb = new StringBuilder();
+
+		for (DlItem item : dl.getDisplayList())
+		{
+			if (item instanceof DlString)
+				sb.append(((DlString) item).txt).append('|');
+			else if (item instanceof DlStringEx)
+				sb.append(((DlStringEx) item).txt).append('|');
+		}
+
+		return sb.toString();
+	}
+
+	private static float getX(DisplayList dl, String txt)
+	{
+		for (DlItem item : dl.getDisplayList())
+		{
+			if (item instanceof DlString && ((DlString) item).txt.equals(txt))
+				return ((DlString) item).x;
+			else if (item instanceof DlStringEx && ((DlStringEx) item).txt.equals(txt))
+				return ((DlStringEx) item).x;
+		}
+
+		throw new AssertionError(txt + " not painted");
+	}
+
+	@Test
+	public void testEachPagePaintsItsOwnNumber()
+	{
+		PagedRenderer r = Java2DTestRenderer.prepare(createHtml());
+		int pages = r.getPageCount();
+
+		assertEquals(PAGES, pages);
+
+		for (int i = 0; i < pages; i++)
+		{
+			String text = getText(r.renderToList(i));
+			Matcher m = FOOTER.matcher(text);
+
+			assertTrue(text, text.contains("Header"));
+			assertTrue(text, m.find());
+			assertEquals(text, String.valueOf(i + 1), m.group(1));
+			assertEquals(text, String.valueOf(pages), m.group(2));
+			assertFalse(text, m.find());
+		}
+
+		// Painting a page again gives the same numbers.
+		assertEquals(getText(r.renderToList(2)), getText(r.renderToList(2)));
+	}
+
+	@Test
+	public void testNumbersRealignedOnEachPage()
+	{
+		PagedRenderer r = Java2DTestRenderer.prepare(createHtml());
+
+		// The right aligned number is wider from page 10, so it starts
+		// further left.
+		float x1 = getX(r.renderToList(0), "#");
+		float x9 = getX(r.renderToList(8), "#");
+		float x10 = getX(r.renderToList(9), "#");
+
+		assertEquals(x1, x9, 0.01f);
+		assertTrue(x1 + " " + x10, x10 < x1);
+	}
+}
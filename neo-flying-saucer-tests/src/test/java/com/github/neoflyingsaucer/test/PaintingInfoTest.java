@@ -0,0 +1,91 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.layout.PaintingInfo;
+
+public class PaintingInfoTest
+{
+	private static Rectangle randomRectangle(Random random)
+	{
+		// Include empty and negative sizes, which Rectangle treats specially.
+		return new Rectangle(random.nextInt(200) - 100, random.nextInt(200) - 100,
+				random.nextInt(120) - 10, random.nextInt(120) - 10);
+	}
+
+	private static PaintingInfo create(Rectangle bounds, Dimension corner)
+	{
+		PaintingInfo result = new PaintingInfo();
+		result.setAggregateBounds(bounds);
+		result.setOuterMarginCorner(corner);
+		return result;
+	}
+
+	@Test
+	public void testIncludeMatchesRectangle()
+	{
+		Random random = new Random(42);
+
+		for (int i = 0; i < 10000; i++)
+		{
+			Rectangle bounds = randomRectangle(random);
+			Rectangle childBounds = randomRectangle(random);
+			Dimension corner = new Dimension(random.nextInt(100), random.nextInt(100));
+			Dimension childCorner = new Dimension(random.nextInt(100), random.nextInt(100));
+
+			PaintingInfo info = create(bounds, corner);
+			info.include(create(childBounds, childCorner));
+
+			Rectangle expected = new Rectangle(bounds);
+			expected.add(childBounds);
+			assertEquals(expected, info.getAggregateBounds());
+
+			Dimension expectedCorner = new Dimension(Math.max(corner.width, childCorner.width),
+					Math.max(corner.height, childCorner.height));
+			assertEquals(expectedCorner, info.getOuterMarginCorner());
+		}
+	}
+
+	@Test
+	public void testContainMatchesRectangle()
+	{
+		Random random = new Random(7);
+
+		for (int i = 0; i < 10000; i++)
+		{
+			Rectangle bounds = randomRectangle(random);
+			PaintingInfo info = create(bounds, new Dimension());
+
+			int x = random.nextInt(240) - 120;
+			int y = random.nextInt(240) - 120;
+			assertEquals(bounds + " " + x + "," + y, bounds.contains(x, y), info.aggregateBoundsContain(x, y));
+
+			Rectangle clip = randomRectangle(random);
+			assertEquals(bounds + " " + clip, clip.intersects(bounds), info.aggregateBoundsIntersect(clip));
+		}
+	}
+
+	@Test
+	public void testGettersReturnCopies()
+	{
+		PaintingInfo info = create(new Rectangle(1, 2, 3, 4), new Dimension(5, 6));
+
+		info.getAggregateBounds().add(new Rectangle(100, 100, 10, 10));
+		info.getOuterMarginCorner().setSize(100, 100);
+
+		assertEquals(new Rectangle(1, 2, 3, 4), info.getAggregateBounds());
+		assertEquals(new Dimension(5, 6), info.getOuterMarginCorner());
+
+		PaintingInfo copy = info.copyOf();
+		copy.translate(10, 20);
+		assertEquals(new Rectangle(11, 22, 3, 4), copy.getAggregateBounds());
+		assertEquals(new Dimension(15, 26), copy.getOuterMarginCorner());
+		assertEquals(new Rectangle(1, 2, 3, 4), info.getAggregateBounds());
+	}
+}
@@ -0,0 +1,198 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.github.neoflyingsaucer.css.constants.CSSName;
+import com.github.neoflyingsaucer.css.style.CalculatedStyle;
+import com.github.neoflyingsaucer.css.style.FSDerivedValue;
+import com.github.neoflyingsaucer.defaultuseragent.DefaultUserAgent;
+import com.github.neoflyingsaucer.render.RenderingContext;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
+
+public class ParallelStyleResolverTest
+{
+	private static final int THREADS = 4;
+	private static final int SECTIONS = 60;
+
+	private static ThreadPoolExecutor executor;
+
+	@BeforeClass
+	public static void startExecutor()
+	{
+		executor = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+	}
+
+	@AfterClass
+	public static void shutdownExecutor()
+	{
+		executor.shutdown();
+	}
+
+	/**
+	 * Sections of nested elements with inherited, relative and initial
+	 * values, matched by class, position and style attribute, so that many
+	 * styles are shared between subtrees and many are not.
+	 */
+	private static String createHtml()
+	{
+		StringBuilder html = new StringBuilder("<html><head><style>");
+		html.append("body { font-family: serif; font-size: 14px; color: #222; }");
+		html.append(".s0 { font-size: 1.2em; line-height: 1.5; } .s1 { font-size: 90%; color: navy; }");
+		html.append(".s2 { border: 2px solid; border-color: inherit; padding: 0.5em; }");
+		html.append("p:first-child { font-weight: bold; } p + p { margin-top: 2ex; }");
+		html.append("div > span { text-decoration: underline; } .s3 span { font-style: italic; color: inherit; }");
+		html.append("li { list-style-type: square; } ul ul li { list-style-type: circle; }");
+		html.append("</style></head><body>");
+
+		for (int i = 0; i < SECTIONS; i++)
+		{
+			html.append("<div class=\"s").append(i % 4).append("\"");
+
+			if (i % 5 == 0)
+				html.append(" style=\"color: #").append(i % 10).append("0").append(i % 7).append("000; font-size: ").append(10 + i % 6).append("px\"");
+
+			html.append("><h2>Section ").append(i).append("</h2>");
+
+			for (int j = 0; j < 4; j++)
+				html.append("<p>Paragraph <span>").append(j).append("</span> of <b>section <i>").append(i).append("</i></b>.</p>");
+
+			html.append("<ul><li>One</li><li>Two<ul><li style=\"margin-left: ").append(i % 3).append("em\">Nested</li></ul></li></ul>");
+			html.append("<table><tr><td>a</td><td style=\"vertical-align: middle\">b</td></tr></table></div>");
+		}
+
+		html.append("</body></html>");
+		return html.toString();
+	}
+
+	private static PagedRenderer prepare(boolean parallel)
+	{
+		PagedRenderer r = Java2DTestRenderer.createRenderer(new DefaultUserAgent());
+
+		if (parallel)
+			r.setStyleExecutor(executor, THREADS);
+
+		r.setDocumentHtml(createHtml());
+		r.prepare();
+		return r;
+	}
+
+	private static void collectStyles(PagedRenderer r, RenderingContext c, List<CSSName> properties, Element e, List<String> result)
+	{
+		CalculatedStyle style = r.getSharedContext().getStyle(e);
+		StringBuilder sb = new StringBuilder(e.getNodeName());
+
+		for (CSSName name : properties)
+		{
+			FSDerivedValue value = style.valueByName(name);
+			sb.append(' ').append(name).append(": ").append(value.asString()).append(';');
+		}
+
+		sb.append(" font: ").append(style.getFont(c).size).append(';');
+		sb.append(" line height: ").append(style.getLineHeight(c)).append(';');
+		result.add(sb.toString());
+
+		for (Node n = e.getFirstChild(); n != null; n = n.getNextSibling())
+		{
+			if (n instanceof Element)
+				collectStyles(r, c, properties, (Element) n, result);
+		}
+	}
+
+	private static List<CSSName> getImplementedProperties()
+	{
+		List<CSSName> properties = new ArrayList<CSSName>();
+
+		for (Iterator<String> i = CSSName.allCSS2PrimitivePropertyNames(); i.hasNext();)
+		{
+			CSSName name = CSSName.getByPropertyName(i.next());
+
+			if (CSSName.isImplemented(name))
+				properties.add(name);
+		}
+
+		return properties;
+	}
+
+	private static List<String> getStyles(PagedRenderer r)
+	{
+		List<CSSName> properties = getImplementedProperties();
+		RenderingContext c = r.getSharedContext().newRenderingContextInstance();
+		c.setFontContext(Java2DTestRenderer.createFontContext());
+
+		List<String> result = new ArrayList<String>();
+		collectStyles(r, c, properties, r.getRootBox().getElement().getOwnerDocument().getDocumentElement(), result);
+		return result;
+	}
+
+	@Test
+	public void testSameStylesAsSequential()
+	{
+		List<String> expected = getStyles(prepare(false));
+		long tasks = executor.getCompletedTaskCount();
+
+		for (int i = 0; i < 3; i++)
+		{
+			List<String> styles = getStyles(prepare(true));
+
+			assertEquals(expected.size(), styles.size());
+
+			for (int j = 0; j < expected.size(); j++)
+				assertEquals("element " + j, expected.get(j), styles.get(j));
+		}
+
+		// Each run spreads the subtrees over the threads.
+		assertTrue(executor.getCompletedTaskCount() - tasks >= 3 * THREADS);
+	}
+
+	private static void collectAssigned(PagedRenderer r, Element e, List<Integer> result)
+	{
+		result.add(r.getSharedContext().getStyle(e).countAssigned());
+
+		for (Node n = e.getFirstChild(); n != null; n = n.getNextSibling())
+		{
+			if (n instanceof Element)
+				collectAssigned(r, (Element) n, result);
+		}
+	}
+
+	private static List<Integer> getAssigned(PagedRenderer r)
+	{
+		List<Integer> result = new ArrayList<Integer>();
+		collectAssigned(r, r.getRootBox().getElement().getOwnerDocument().getDocumentElement(), result);
+		return result;
+	}
+
+	@Test
+	public void testOnlyPrePassResolvesEveryProperty()
+	{
+		int implemented = getImplementedProperties().size();
+		int lazy = 0;
+
+		// Without the pre-pass, styles only hold what layout asked for.
+		for (int assigned : getAssigned(prepare(false)))
+		{
+			if (assigned < implemented)
+				lazy++;
+		}
+
+		assertTrue(lazy > 0);
+
+		for (int assigned : getAssigned(prepare(true)))
+			assertTrue(assigned >= implemented);
+	}
+}
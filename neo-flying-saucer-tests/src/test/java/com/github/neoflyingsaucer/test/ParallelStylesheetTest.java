@@ -0,0 +1,214 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.github.neoflyingsaucer.css.constants.CSSName;
+import com.github.neoflyingsaucer.css.style.CalculatedStyle;
+import com.github.neoflyingsaucer.defaultuseragent.DefaultUserAgent;
+import com.github.neoflyingsaucer.extend.useragent.CSSResourceI;
+import com.github.neoflyingsaucer.extend.useragent.Optional;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
+import com.github.neoflyingsaucer.resource.CSSResource;
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
+
+public class ParallelStylesheetTest
+{
+	private static final String BASE = "http://stylesheets.test/";
+	private static final int SHEETS = 8;
+	private static final long DELAY = 100;
+	private static final CSSName[] PROPERTIES = { CSSName.COLOR, CSSName.BACKGROUND_COLOR,
+		CSSName.MARGIN_LEFT, CSSName.FONT_SIZE, CSSName.FONT_WEIGHT, CSSName.TEXT_ALIGN };
+
+	/**
+	 * Serves the stylesheets from memory, each after a delay as if it
+	 * came over a slow network.
+	 */
+	private static class SlowUserAgent extends DefaultUserAgent
+	{
+		private final Map<String, String> sheets;
+
+		private SlowUserAgent(Map<String, String> sheets)
+		{
+			this.sheets = sheets;
+		}
+
+		@Override
+		public Optional<CSSResourceI> getCSSResource(String uri)
+		{
+			String css = sheets.get(uri);
+
+			if (css == null)
+				return super.getCSSResource(uri);
+
+			try
+			{
+				Thread.sleep(DELAY);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+
+			return Optional.<CSSResourceI>of(new CSSResource(uri, new StringReader(css)));
+		}
+	}
+
+	/**
+	 * Linked stylesheets that each style their own class and all style the
+	 * same classes, some through imports two deep, so that the result
+	 * depends on the order they are applied in.
+	 */
+	private static Map<String, String> createSheets()
+	{
+		Map<String, String> sheets = new HashMap<String, String>();
+
+		for (int i = 0; i < SHEETS; i++)
+		{
+			StringBuilder css = new StringBuilder();
+
+			if (i % 3 == 1)
+				css.append("@import url('").append(BASE).append("import").append(i).append(".css');");
+
+			css.append(".s").append(i).append(" { margin-left: ").append(i + 1).append("px; }");
+			css.append(".all { color: #").append(i).append(i).append("0000; }");
+			css.append(".imported { background-color: #0000").append(i).append(i).append("; }");
+			css.append(".late { font-size: ").append(10 + i).append("px; }");
+			sheets.put(BASE + "sheet" + i + ".css", css.toString());
+
+			if (i % 3 == 1)
+			{
+				sheets.put(BASE + "import" + i + ".css",
+						"@import url('" + BASE + "nested" + i + ".css');" +
+						".imported { background-color: #ff0000; font-weight: bold; }" +
+						".late { font-size: 40px; text-align: right; }");
+				sheets.put(BASE + "nested" + i + ".css",
+						".imported { background-color: #00ff00; text-align: center; }");
+			}
+		}
+
+		return sheets;
+	}
+
+	private static String createHtml()
+	{
+		StringBuilder html = new StringBuilder("<html><head>");
+
+		for (int i = 0; i < SHEETS; i++)
+			html.append("<link rel=\"stylesheet\" type=\"text/css\" href=\"").append(BASE).append("sheet").append(i).append(".css\"/>");
+
+		html.append("<style>.last { color: #abcdef; }</style></head><body>");
+
+		for (int i = 0; i < SHEETS; i++)
+			html.append("<div class=\"s").append(i).append(" all imported late\">Text ").append(i).append("</div>");
+
+		html.append("<p class=\"all last\">The end</p></body></html>");
+		return html.toString();
+	}
+
+	private static PagedRenderer prepare(ExecutorService executor)
+	{
+		PagedRenderer r = Java2DTestRenderer.createRenderer(new SlowUserAgent(createSheets()));
+		r.setStylesheetExecutor(executor);
+		r.setDocumentHtml(createHtml());
+		r.prepare();
+		return r;
+	}
+
+	private static void collectStyles(PagedRenderer r, Element e, List<String> result)
+	{
+		CalculatedStyle style = r.getSharedContext().getStyle(e);
+
+		for (CSSName name : PROPERTIES)
+			result.add(e.getNodeName() + "." + e.getAttribute("class") + " " + name + ": " + style.valueByName(name).asString());
+
+		for (Node n = e.getFirstChild(); n != null; n = n.getNextSibling())
+		{
+			if (n instanceof Element)
+				collectStyles(r, (Element) n, result);
+		}
+	}
+
+	private static List<String> getStyles(PagedRenderer r)
+	{
+		List<String> result = new ArrayList<String>();
+		collectStyles(r, r.getRootBox().getElement().getOwnerDocument().getDocumentElement(), result);
+		return result;
+	}
+
+	@Test
+	public void testSameStylesInLessTime()
+	{
+		long start = System.nanoTime();
+		List<String> expected = getStyles(prepare(null));
+		long sequential = System.nanoTime() - start;
+
+		ExecutorService executor = Executors.newFixedThreadPool(SHEETS);
+
+		try
+		{
+			// Loaded once to start the threads.
+			prepare(executor);
+
+			start = System.nanoTime();
+			List<String> styles = getStyles(prepare(executor));
+			long parallel = System.nanoTime() - start;
+
+			assertEquals(expected, styles);
+
+			// Fourteen stylesheets one after another, against the linked
+			// stylesheets and then two levels of imports.
+			assertTrue(sequential / 1000000 + " ms sequential, " + parallel / 1000000 + " ms parallel",
+					parallel < sequential / 2);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testCascadeOrder()
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+
+		try
+		{
+			PagedRenderer r = prepare(executor);
+			Element body = (Element) r.getRootBox().getElement().getOwnerDocument().getElementsByTagName("body").item(0);
+			Element div = (Element) body.getElementsByTagName("div").item(2);
+			Element p = (Element) body.getElementsByTagName("p").item(0);
+
+			CalculatedStyle divStyle = r.getSharedContext().getStyle(div);
+			CalculatedStyle pStyle = r.getSharedContext().getStyle(p);
+
+			// The last linked stylesheet wins, then the inline stylesheet
+			// after it.
+			assertEquals("#770000", divStyle.valueByName(CSSName.COLOR).asString());
+			assertEquals("#abcdef", pStyle.valueByName(CSSName.COLOR).asString());
+			assertEquals(3f, divStyle.valueByName(CSSName.MARGIN_LEFT).asFloat(), 0f);
+
+			// Imported rules lose to the rules of the stylesheet importing
+			// them, but still apply where nothing later overrides them.
+			assertEquals("#000077", divStyle.valueByName(CSSName.BACKGROUND_COLOR).asString());
+			assertEquals("bold", divStyle.valueByName(CSSName.FONT_WEIGHT).asString());
+			assertEquals("right", divStyle.valueByName(CSSName.TEXT_ALIGN).asString());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,279 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import com.github.neoflyingsaucer.defaultuseragent.DefaultUserAgent;
+import com.github.neoflyingsaucer.defaultuseragent.ResourcePrefetcher;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelToken;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelledException;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class PrefetchTest
+{
+	private static final int IMAGE_COUNT = 8;
+
+	/**
+	 * How long an image request waits for the others before giving up, so
+	 * that fetching one at a time fails rather than hangs.
+	 */
+	private static final int TOGETHER_TIMEOUT_S = 10;
+
+	private HttpServer server;
+	private ExecutorService serverExecutor;
+	private ExecutorService prefetchExecutor;
+	private final ConcurrentHashMap<String, AtomicInteger> requests = new ConcurrentHashMap<String, AtomicInteger>();
+	private final CountDownLatch imagesInFlight = new CountDownLatch(IMAGE_COUNT);
+	private final AtomicInteger imagesNotTogether = new AtomicInteger();
+	private final CountDownLatch stallReleased = new CountDownLatch(1);
+
+	@Before
+	public void startServer() throws IOException
+	{
+		final byte[] png = createPng();
+		final byte[] css = "body { background-image: url(bg.png); } .unused { background-image: url(unused.png); }".getBytes("UTF-8");
+
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				String path = exchange.getRequestURI().getPath();
+				AtomicInteger count = new AtomicInteger();
+				AtomicInteger existing = requests.putIfAbsent(path, count);
+				int n = (existing != null ? existing : count).incrementAndGet();
+
+				// Each image is only served once all of them have been
+				// asked for.
+				if (path.startsWith("/img"))
+				{
+					imagesInFlight.countDown();
+
+					try
+					{
+						if (!imagesInFlight.await(TOGETHER_TIMEOUT_S, TimeUnit.SECONDS))
+							imagesNotTogether.incrementAndGet();
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+				}
+
+				// The first request for a stalled resource is not answered
+				// until the test is over.
+				if (path.startsWith("/stall") && n == 1)
+				{
+					try
+					{
+						stallReleased.await(TOGETHER_TIMEOUT_S, TimeUnit.SECONDS);
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+				}
+
+				byte[] body = path.endsWith(".css") ? css : png;
+				exchange.getResponseHeaders().set("Content-Type", path.endsWith(".css") ? "text/css" : "image/png");
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream os = exchange.getResponseBody();
+				os.write(body);
+				os.close();
+			}
+		});
+
+		serverExecutor = Executors.newFixedThreadPool(IMAGE_COUNT + 2);
+		server.setExecutor(serverExecutor);
+		server.start();
+
+		prefetchExecutor = Executors.newFixedThreadPool(IMAGE_COUNT + 2);
+	}
+
+	@After
+	public void stopServer()
+	{
+		stallReleased.countDown();
+		server.stop(0);
+		serverExecutor.shutdownNow();
+		prefetchExecutor.shutdownNow();
+	}
+
+	private static byte[] createPng() throws IOException
+	{
+		BufferedImage img = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2d = img.createGraphics();
+		g2d.fillRect(0, 0, 2, 2);
+		g2d.dispose();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(img, "png", out);
+		return out.toByteArray();
+	}
+
+	private static Document parse(String html) throws Exception
+	{
+		DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+		return builder.parse(new InputSource(new StringReader(html)));
+	}
+
+	private String createHtml()
+	{
+		String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("<html><head><link rel=\"stylesheet\" href=\"").append(base).append("style.css\"/></head><body>");
+
+		for (int i = 0; i < IMAGE_COUNT; i++)
+			sb.append("<img src=\"").append(base).append("img").append(i).append(".png\"/>");
+
+		sb.append("</body></html>");
+		return sb.toString();
+	}
+
+	@Test
+	public void testResourcesFetchedInParallel() throws InterruptedException
+	{
+		DefaultUserAgent uac = new DefaultUserAgent();
+		uac.setPrefetchExecutor(prefetchExecutor);
+
+		PagedRenderer r = Java2DTestRenderer.prepare(uac, createHtml());
+		r.renderToList(0);
+
+		// Wait for the fetches nothing asked for.
+		prefetchExecutor.shutdown();
+		assertTrue(prefetchExecutor.awaitTermination(TOGETHER_TIMEOUT_S, TimeUnit.SECONDS));
+
+		// The stylesheet, the images and the background images it refers to.
+		assertEquals(IMAGE_COUNT + 3, requests.size());
+
+		for (Map.Entry<String, AtomicInteger> entry : requests.entrySet())
+			assertEquals(entry.getKey(), 1, entry.getValue().get());
+
+		// All of the images were requested at the same time.
+		assertEquals(0, imagesInFlight.getCount());
+		assertEquals(0, imagesNotTogether.get());
+	}
+
+	@Test
+	public void testUnusedFetchesDropped() throws Exception
+	{
+		DefaultUserAgent uac = new DefaultUserAgent();
+		ResourcePrefetcher prefetcher = new ResourcePrefetcher(uac, prefetchExecutor);
+		String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+		prefetcher.prefetch(parse(createHtml()), base);
+
+		assertTrue(prefetcher.take(base + "img0.png").isPresent());
+		assertTrue(prefetcher.take(base + "style.css").isPresent());
+
+		// The stylesheet's background images were never taken.
+		assertEquals(IMAGE_COUNT - 1 + 2, prefetcher.getPendingCount());
+
+		prefetcher.prefetch(parse("<html><body><p>No resources</p></body></html>"), base);
+
+		assertEquals(0, prefetcher.getPendingCount());
+		assertFalse(prefetcher.take(base + "img1.png").isPresent());
+	}
+
+	@Test
+	public void testStalledFetchLoadedDirectly() throws Exception
+	{
+		DefaultUserAgent uac = new DefaultUserAgent();
+		uac.setPrefetchExecutor(prefetchExecutor);
+		uac.setPrefetchWaitTimeout(200);
+		String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+		long start = System.currentTimeMillis();
+		PagedRenderer r = Java2DTestRenderer.prepare(uac, "<html><body><img src=\"" + base + "stall.png\"/></body></html>");
+		r.renderToList(0);
+
+		// The prefetch was given up on and the image fetched again, well
+		// before the stalled request would have been answered.
+		assertTrue(System.currentTimeMillis() - start < TOGETHER_TIMEOUT_S * 1000 / 2);
+		assertEquals(2, requests.get("/stall.png").get());
+	}
+
+	@Test
+	public void testCancelWhileWaiting() throws Exception
+	{
+		DefaultUserAgent uac = new DefaultUserAgent();
+		ResourcePrefetcher prefetcher = new ResourcePrefetcher(uac, prefetchExecutor);
+		String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+		prefetcher.prefetch(parse("<html><body><img src=\"" + base + "stall.png\"/></body></html>"), base);
+
+		FSCancelToken oldToken = FSCancelController.getThreadCancelToken();
+		final FSCancelToken token = new FSCancelToken(oldToken.getHandler());
+		FSCancelController.setThreadCancelToken(token);
+
+		Thread canceller = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					Thread.sleep(200);
+				}
+				catch (InterruptedException e)
+				{
+					return;
+				}
+
+				token.cancel();
+			}
+		};
+
+		long start = System.currentTimeMillis();
+		canceller.start();
+
+		try
+		{
+			prefetcher.take(base + "stall.png");
+			fail("Cancelling the token did not stop the wait");
+		}
+		catch (FSCancelledException e)
+		{
+			assertTrue(System.currentTimeMillis() - start < ResourcePrefetcher.DEFAULT_WAIT_TIMEOUT_MS / 2);
+		}
+		finally
+		{
+			FSCancelController.setThreadCancelToken(oldToken);
+			canceller.join();
+		}
+	}
+}
@@ -0,0 +1,347 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.test.support.ImageComparator;
+import com.github.neoflyingsaucer.test.support.RegressionRunner;
+import com.github.neoflyingsaucer.test.support.RegressionRunner.CaseResult;
+import com.github.neoflyingsaucer.test.support.RegressionRunner.Status;
+
+public class RegressionRunnerTest
+{
+	private static final int CASES = 6;
+
+	private File root;
+	private File cases;
+	private File baselines;
+	private File output;
+
+	private static void write(File file, String content) throws IOException
+	{
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+
+		try
+		{
+			writer.write(content);
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	private static String read(File file) throws IOException
+	{
+		Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+
+		try
+		{
+			StringBuilder sb = new StringBuilder();
+			char[] buf = new char[4096];
+			int read;
+
+			while ((read = reader.read(buf)) != -1)
+				sb.append(buf, 0, read);
+
+			return sb.toString();
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	private static void delete(File file)
+	{
+		File[] children = file.listFiles();
+
+		if (children != null)
+		{
+			for (File child : children)
+				delete(child);
+		}
+
+		file.delete();
+	}
+
+	private static void addEntry(ZipOutputStream zip, String name, byte[] content) throws IOException
+	{
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write(content);
+		zip.closeEntry();
+	}
+
+	private static byte[] readBytes(File file) throws IOException
+	{
+		FileInputStream in = new FileInputStream(file);
+
+		try
+		{
+			byte[] content = new byte[(int) file.length()];
+			int read = 0;
+
+			while (read < content.length)
+				read += in.read(content, read, content.length - read);
+
+			return content;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * A snapshot laid out as regress-output-R8.zip is: a support directory
+	 * and, for each test, test.xhtml with test.xhtml.png when baselines
+	 * are given.
+	 */
+	private static File createSnapshot(File zipFile, File baselineDir) throws IOException
+	{
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipFile));
+
+		try
+		{
+			zip.putNextEntry(new ZipEntry("support/"));
+			zip.closeEntry();
+			addEntry(zip, "support/blocks.css", "div { border: 2px solid #00f; margin: 4px; padding: 3px; }".getBytes("UTF-8"));
+
+			for (int i = 0; i < 3; i++)
+			{
+				StringBuilder html = new StringBuilder("<html xmlns=\"http://www.w3.org/1999/xhtml\"><head>");
+				html.append("<link rel=\"stylesheet\" type=\"text/css\" href=\"support/blocks.css\"/></head><body>");
+
+				for (int j = 0; j < 4 + i * 20; j++)
+					html.append("<div>Test ").append(i).append(" block ").append(j).append("</div>");
+
+				html.append("</body></html>");
+				addEntry(zip, "test" + i + ".xhtml", html.toString().getBytes("UTF-8"));
+
+				if (baselineDir != null)
+					addEntry(zip, "test" + i + ".xhtml.png", readBytes(new File(baselineDir, "test" + i + ".xhtml.png")));
+			}
+		}
+		finally
+		{
+			zip.close();
+		}
+
+		return zipFile;
+	}
+
+	@Before
+	public void createCases() throws IOException
+	{
+		root = File.createTempFile("regression", "");
+		root.delete();
+		cases = new File(root, "cases");
+		baselines = new File(root, "baselines");
+		output = new File(root, "output");
+		cases.mkdirs();
+
+		for (int i = 0; i < CASES; i++)
+		{
+			StringBuilder html = new StringBuilder("<html><head><style>");
+			html.append("@page { size: 200px 150px; margin: 10px; }");
+			html.append("div { border: 2px solid #00f; border-radius: 6px; margin: 4px; padding: 3px; }");
+			html.append("</style></head><body>");
+
+			// The last case runs over more than one page.
+			for (int j = 0; j < (i == CASES - 1 ? 12 : 3); j++)
+				html.append("<div>Case ").append(i).append(" block ").append(j).append("</div>");
+
+			html.append("</body></html>");
+			write(new File(cases, "case" + i + ".html"), html.toString());
+		}
+	}
+
+	@After
+	public void deleteCases()
+	{
+		delete(root);
+	}
+
+	private List<CaseResult> run(ImageComparator comparator, RegressionRunner.UserAgentFactory userAgentFactory) throws IOException
+	{
+		RegressionRunner runner = new RegressionRunner(cases, baselines, output);
+		runner.setThreads(3);
+		runner.setUserAgentFactory(userAgentFactory);
+
+		if (comparator != null)
+			runner.setComparator(comparator);
+
+		return runner.run();
+	}
+
+	private static int count(List<CaseResult> results, Status status)
+	{
+		int count = 0;
+
+		for (CaseResult result : results)
+		{
+			if (result.getStatus() == status)
+				count++;
+		}
+
+		return count;
+	}
+
+	private static void assertAll(List<CaseResult> results, Status status)
+	{
+		assertTrue(results.size() > CASES);
+		assertEquals(results.size(), count(results, status));
+	}
+
+	@Test
+	public void testBaselinesWrittenThenMatched() throws IOException
+	{
+		assertAll(run(null, RegressionRunner.FILE_USER_AGENT), Status.NEW);
+		assertTrue(new File(baselines, "case5.1.png").exists());
+
+		assertAll(run(null, RegressionRunner.FILE_USER_AGENT), Status.PASSED);
+		assertAll(run(null, RegressionRunner.INLINE_ONLY_USER_AGENT), Status.PASSED);
+	}
+
+	@Test
+	public void testSmallDifferencesTolerated() throws IOException
+	{
+		run(null, RegressionRunner.FILE_USER_AGENT);
+
+		// Nudge every channel of a row of pixels, as antialiasing might.
+		File file = new File(baselines, "case2.0.png");
+		BufferedImage baseline = ImageIO.read(file);
+
+		for (int x = 0; x < baseline.getWidth(); x++)
+		{
+			int rgb = baseline.getRGB(x, 40);
+			baseline.setRGB(x, 40, rgb == 0 ? 0x08080808 : rgb ^ 0x00070707);
+		}
+
+		ImageIO.write(baseline, "png", file);
+
+		assertAll(run(null, RegressionRunner.FILE_USER_AGENT), Status.PASSED);
+
+		List<CaseResult> exact = run(new ImageComparator(0, 0), RegressionRunner.FILE_USER_AGENT);
+		assertEquals(1, count(exact, Status.FAILED));
+		assertEquals(baseline.getWidth(), exact.get(2).getComparison().getDifferingPixels());
+	}
+
+	@Test
+	public void testFailuresReported() throws IOException
+	{
+		run(null, RegressionRunner.FILE_USER_AGENT);
+
+		File file = new File(baselines, "case3.0.png");
+		BufferedImage baseline = ImageIO.read(file);
+		Graphics2D g2d = baseline.createGraphics();
+		g2d.setColor(Color.RED);
+		g2d.fillRect(20, 20, 40, 30);
+		g2d.dispose();
+		ImageIO.write(baseline, "png", file);
+
+		List<CaseResult> results = run(null, RegressionRunner.FILE_USER_AGENT);
+		assertEquals(1, count(results, Status.FAILED));
+
+		CaseResult failed = results.get(3);
+		assertEquals("case3", failed.getName());
+		assertEquals(Status.FAILED, failed.getStatus());
+		assertEquals(40 * 30, failed.getComparison().getDifferingPixels());
+
+		BufferedImage diff = ImageIO.read(new File(output, "case3.0.diff.png"));
+		assertEquals(0xffff0000, diff.getRGB(30, 30));
+		assertFalse(0xffff0000 == diff.getRGB(100, 100));
+		assertTrue(new File(output, "case3.0.actual.png").exists());
+
+		String report = read(new File(output, "report.html"));
+		assertTrue(report.contains("case3.0.diff.png"));
+		assertFalse(report.contains("case2.0"));
+	}
+
+	@Test
+	public void testSnapshotRenderedContinuously() throws IOException
+	{
+		File first = new File(root, "first");
+		RegressionRunner runner = RegressionRunner.fromSnapshot(createSnapshot(new File(root, "first.zip"), null), first, output);
+		runner.setThreads(3);
+
+		// One continuous image per test, whatever its length, with the
+		// stylesheet loaded from the support directory.
+		List<CaseResult> results = runner.run();
+		assertEquals(3, results.size());
+		assertEquals(3, count(results, Status.NEW));
+		assertEquals("test2.xhtml", results.get(2).getImageName());
+
+		BufferedImage image = ImageIO.read(new File(first, "test2.xhtml.png"));
+		assertEquals(RegressionRunner.SNAPSHOT_WIDTH, image.getWidth());
+		assertTrue(image.getHeight() > 1000);
+		assertEquals(0xff0000ff, image.getRGB(100, 8));
+		assertEquals(0xffffffff, image.getRGB(100, 2));
+
+		// A snapshot holding those baselines matches them.
+		File second = new File(root, "second");
+		runner = RegressionRunner.fromSnapshot(createSnapshot(new File(root, "second.zip"), first), second, output);
+		assertEquals(3, count(runner.run(), Status.PASSED));
+
+		File file = new File(second, "test1.xhtml.png");
+		BufferedImage baseline = ImageIO.read(file);
+		Graphics2D g2d = baseline.createGraphics();
+		g2d.setColor(Color.RED);
+		g2d.fillRect(20, 20, 200, 100);
+		g2d.dispose();
+		ImageIO.write(baseline, "png", file);
+
+		results = runner.run();
+		assertEquals(Status.FAILED, results.get(1).getStatus());
+		assertTrue(new File(output, "test1.xhtml.diff.png").exists());
+		assertTrue(read(new File(output, "report.html")).contains("test1.xhtml.actual.png"));
+	}
+
+	@Test
+	public void testR8SnapshotHasBaselinePerTest() throws IOException
+	{
+		File zip = new File("../tests/regress/snapshots/regress-output-R8.zip");
+		Assume.assumeTrue(zip.exists());
+
+		File work = new File(root, "r8");
+		RegressionRunner.fromSnapshot(zip, work, output);
+
+		String[] names = work.list();
+		int tests = 0;
+
+		for (String name : names)
+		{
+			if (name.endsWith(".xhtml"))
+			{
+				assertTrue(name, new File(work, name + ".png").exists());
+				tests++;
+			}
+		}
+
+		assertEquals(254, tests);
+		assertTrue(new File(work, "support").isDirectory());
+	}
+}
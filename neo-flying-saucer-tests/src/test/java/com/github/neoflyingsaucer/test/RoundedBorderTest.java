@@ -0,0 +1,80 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
+
+public class RoundedBorderTest
+{
+	private static final String[] STYLES = {
+		"3px solid #36c", "6px double #c63", "6px groove #999",
+		"6px ridge #999", "4px inset #6a6", "4px outset #a66" };
+
+	private static final int[] LEFTS = { 10, 237, 421 };
+	private static final int[] TOPS = { 5, 23, 41 };
+	private static final int ROW_HEIGHT = 100;
+	private static final int CARD_WIDTH = 150;
+	private static final int CARD_HEIGHT = 40;
+	/* Room for the widest border on either side. */
+	private static final int CROP_MARGIN = 12;
+
+	private static BufferedImage render(String html)
+	{
+		return Java2DTestRenderer.paintPage(Java2DTestRenderer.prepare(html), 0);
+	}
+
+	private static int[] crop(BufferedImage img, int x, int y)
+	{
+		int width = CARD_WIDTH + CROP_MARGIN;
+		return img.getRGB(x, y, width, CARD_HEIGHT + CROP_MARGIN, null, 0, width);
+	}
+
+	/**
+	 * Border shapes are reused between boxes of the same size and border,
+	 * so identical boxes anywhere on the page should paint identically.
+	 */
+	@Test
+	public void testIdenticalBoxesPaintIdentically()
+	{
+		StringBuilder html = new StringBuilder("<html><head><style>");
+		html.append("@page { margin: 0; } body { margin: 0; }");
+		html.append("div { position: absolute; width: ").append(CARD_WIDTH);
+		html.append("px; height: ").append(CARD_HEIGHT).append("px; border-radius: 10px 14px 6px 12px; }");
+		html.append("</style></head><body>");
+
+		for (int s = 0; s < STYLES.length; s++)
+		{
+			for (int i = 0; i < LEFTS.length; i++)
+			{
+				html.append("<div style=\"border: ").append(STYLES[s]);
+				html.append("; left: ").append(LEFTS[i]).append("px; top: ").append(TOPS[i] + s * ROW_HEIGHT).append("px;\"></div>");
+			}
+		}
+
+		html.append("</body></html>");
+		BufferedImage page = render(html.toString());
+
+		int[] blank = new int[(CARD_WIDTH + CROP_MARGIN) * (CARD_HEIGHT + CROP_MARGIN)];
+		int[] previous = null;
+
+		for (int s = 0; s < STYLES.length; s++)
+		{
+			int[] first = crop(page, LEFTS[0], TOPS[0] + s * ROW_HEIGHT);
+			assertFalse(STYLES[s], Arrays.equals(blank, first));
+
+			if (previous != null)
+				assertFalse(STYLES[s], Arrays.equals(previous, first));
+
+			for (int i = 1; i < LEFTS.length; i++)
+				assertArrayEquals(STYLES[s] + " at " + i, first, crop(page, LEFTS[i], TOPS[i] + s * ROW_HEIGHT));
+
+			previous = first;
+		}
+	}
+}
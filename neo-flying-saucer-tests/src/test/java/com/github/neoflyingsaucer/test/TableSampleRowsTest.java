@@ -0,0 +1,158 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.newtable.TableBox;
+import com.github.neoflyingsaucer.newtable.TableCellBox;
+import com.github.neoflyingsaucer.render.Box;
+import com.github.neoflyingsaucer.render.LineBox;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
+
+public class TableSampleRowsTest
+{
+	private static final int ROWS = 60;
+	private static final int LATE_ROW = 50;
+	private static final String WIDE_TEXT = "ab cd ef gh ij kl mn op qr st uv wx";
+
+	/**
+	 * A table whose rows all have the same content, apart from an
+	 * optional late row with a much wider first cell. Each word of the
+	 * late row still fits in the first column of the other rows.
+	 */
+	private static String createHtml(int sampleRows, boolean wideLateRow)
+	{
+		StringBuilder html = new StringBuilder("<html><head><style>");
+		html.append("@page { size: 800px 3000px; margin: 0; } body { margin: 0; font: 12px serif; }");
+		html.append("table { border-spacing: 0; } td { padding: 0 2px; color: #000; }");
+
+		if (sampleRows > 0)
+			html.append("table { -fs-table-sample-rows: ").append(sampleRows).append("; }");
+
+		html.append("</style></head><body><table>");
+
+		for (int i = 0; i < ROWS; i++)
+		{
+			if (wideLateRow && i == LATE_ROW)
+				html.append("<tr><td class=\"late\">").append(WIDE_TEXT).append("</td><td></td><td></td></tr>");
+			else
+				html.append("<tr><td>short</td><td>somewhat longer text</td><td>end</td></tr>");
+		}
+
+		html.append("</table></body></html>");
+		return html.toString();
+	}
+
+	private static TableBox findTable(Box box)
+	{
+		if (box instanceof TableBox)
+			return (TableBox) box;
+
+		for (int i = 0; i < box.getChildCount(); i++)
+		{
+			TableBox result = findTable(box.getChild(i));
+
+			if (result != null)
+				return result;
+		}
+
+		return null;
+	}
+
+	private static TableCellBox findLateCell(Box box)
+	{
+		if (box instanceof TableCellBox && box.getElement() != null && "late".equals(box.getElement().getAttribute("class")))
+			return (TableCellBox) box;
+
+		for (int i = 0; i < box.getChildCount(); i++)
+		{
+			TableCellBox result = findLateCell(box.getChild(i));
+
+			if (result != null)
+				return result;
+		}
+
+		return null;
+	}
+
+	private static int[] getColumnPos(PagedRenderer r)
+	{
+		TableBox table = findTable(r.getRootBox());
+		assertNotNull(table);
+		return table.getColumnPos();
+	}
+
+	@Test
+	public void testUniformTableSameColumns()
+	{
+		int[] full = getColumnPos(Java2DTestRenderer.prepare(createHtml(0, false)));
+		int[] sampled = getColumnPos(Java2DTestRenderer.prepare(createHtml(10, false)));
+
+		assertEquals(4, full.length);
+		assertArrayEquals(Arrays.toString(full) + " " + Arrays.toString(sampled), full, sampled);
+	}
+
+	private static int countLines(Box box)
+	{
+		int lines = 0;
+
+		for (int i = 0; i < box.getChildCount(); i++)
+		{
+			if (box.getChild(i) instanceof LineBox)
+				lines++;
+		}
+
+		return lines;
+	}
+
+	@Test
+	public void testLateRowWrapsInSampledColumns()
+	{
+		int[] full = getColumnPos(Java2DTestRenderer.prepare(createHtml(0, true)));
+
+		PagedRenderer r = Java2DTestRenderer.prepare(createHtml(10, true));
+		int[] sampled = getColumnPos(r);
+
+		// Only full layout widens the first column for the late row.
+		assertFalse(Arrays.equals(full, sampled));
+		assertTrue(full[1] > sampled[1]);
+
+		// The late row is laid out into the sampled column, so its text
+		// wraps onto more lines instead of widening the column.
+		TableCellBox cell = findLateCell(r.getRootBox());
+		assertNotNull(cell);
+		assertTrue(cell.getAbsY() > 0);
+
+		int lines = countLines(cell);
+		assertTrue(lines + " lines", lines > 1);
+		assertEquals(sampled[1] - sampled[0], cell.getWidth());
+
+		for (int i = 0; i < cell.getChildCount(); i++)
+		{
+			LineBox line = (LineBox) cell.getChild(i);
+			assertTrue(line.getContentWidth() <= cell.getContentWidth());
+		}
+
+		// Every word is still there.
+		BufferedImage page = Java2DTestRenderer.paintPage(r, 0);
+		LineBox last = (LineBox) cell.getChild(lines - 1);
+		int painted = 0;
+
+		for (int x = cell.getAbsX(); x < cell.getAbsX() + cell.getWidth(); x++)
+		{
+			if ((page.getRGB(x, last.getAbsY() + last.getHeight() / 2) >>> 24) != 0)
+				painted++;
+		}
+
+		assertTrue(painted + " columns painted on the last line", painted > 0);
+	}
+}
@@ -0,0 +1,100 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.awt.Font;
+
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.displaylist.DlTextRenderer;
+import com.github.neoflyingsaucer.extend.output.FSFont;
+import com.github.neoflyingsaucer.extend.output.FontContext;
+import com.github.neoflyingsaucer.j2dout.Java2DFont;
+import com.github.neoflyingsaucer.layout.TextWidthCache;
+import com.github.neoflyingsaucer.test.support.Java2DTestRenderer;
+
+public class TextWidthCacheTest
+{
+	private static final String[] WORDS = { "a", "word", "Wide", "WWWWWW", "iiiiii", "caf\u00e9", "\u4e2d\u6587", "" };
+
+	private static final FSFont[] FONTS = {
+		new Java2DFont(new Font(Font.SERIF, Font.PLAIN, 12)),
+		new Java2DFont(new Font(Font.SERIF, Font.BOLD, 12)),
+		new Java2DFont(new Font(Font.SERIF, Font.PLAIN, 24)),
+		new Java2DFont(new Font(Font.SANS_SERIF, Font.ITALIC, 12)),
+		new Java2DFont(new Font(Font.MONOSPACED, Font.PLAIN, 12)) };
+
+	private final DlTextRenderer renderer = new DlTextRenderer();
+	private final FontContext fontContext = Java2DTestRenderer.createFontContext();
+
+	private int getMaxCharWidth(FSFont font, String text)
+	{
+		int result = 0;
+
+		for (int i = 0; i < text.length(); i++)
+			result = Math.max(result, renderer.getWidth(fontContext, font, text.substring(i, i + 1)));
+
+		return result;
+	}
+
+	@Test
+	public void testCachedWidthsMatchMeasured()
+	{
+		TextWidthCache cache = new TextWidthCache();
+
+		for (int pass = 0; pass < 2; pass++)
+		{
+			for (FSFont font : FONTS)
+			{
+				for (String word : WORDS)
+				{
+					assertEquals(font + " " + word, renderer.getWidth(fontContext, font, word), cache.getWidth(renderer, fontContext, font, word));
+					assertEquals(font + " " + word, getMaxCharWidth(font, word), cache.getMaxCharWidth(renderer, fontContext, font, word));
+				}
+			}
+		}
+
+		// Each word and each of the 13 different characters is measured
+		// once per font.
+		assertEquals(FONTS.length * (WORDS.length + 13), cache.getMeasureCount());
+	}
+
+	@Test
+	public void testWidthsKeptPerFont()
+	{
+		TextWidthCache cache = new TextWidthCache();
+		int[] widths = new int[FONTS.length];
+
+		for (int i = 0; i < FONTS.length; i++)
+			widths[i] = cache.getWidth(renderer, fontContext, FONTS[i], "Wide words");
+
+		for (int i = 0; i < FONTS.length; i++)
+			assertEquals(renderer.getWidth(fontContext, FONTS[i], "Wide words"), widths[i]);
+
+		assertFalse(widths[0] == widths[1]);
+		assertEquals(widths[0] * 2, widths[2], 2);
+
+		assertEquals(FONTS.length, cache.getMeasureCount());
+
+		// A font equal to one already measured shares its widths.
+		FSFont same = new Java2DFont(new Font(Font.SERIF, Font.PLAIN, 24));
+		assertEquals(widths[2], cache.getWidth(renderer, fontContext, same, "Wide words"));
+		assertEquals(FONTS.length, cache.getMeasureCount());
+		assertEquals(1, cache.getAvoidedCount());
+	}
+
+	@Test
+	public void testWidthsRightAfterWordsDropped()
+	{
+		TextWidthCache cache = new TextWidthCache();
+		FSFont font = FONTS[0];
+
+		// More words than are kept for one font.
+		for (int i = 0; i < 10000; i++)
+			cache.getWidth(renderer, fontContext, font, "w" + i);
+
+		for (int i = 0; i < 10000; i += 97)
+			assertEquals(renderer.getWidth(fontContext, font, "w" + i), cache.getWidth(renderer, fontContext, font, "w" + i));
+	}
+}
@@ -0,0 +1,100 @@
+package com.github.neoflyingsaucer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.github.neoflyingsaucer.defaultuseragent.WeightedResourceCache;
+import com.github.neoflyingsaucer.extend.output.FSImage;
+
+public class WeightedResourceCacheTest
+{
+	private static class StubImage implements FSImage
+	{
+		private final int width;
+		private final int height;
+
+		private StubImage(int width, int height)
+		{
+			this.width = width;
+			this.height = height;
+		}
+
+		@Override
+		public int getWidth()
+		{
+			return width;
+		}
+
+		@Override
+		public int getHeight()
+		{
+			return height;
+		}
+
+		@Override
+		public FSImage scale(int width, int height)
+		{
+			return new StubImage(width, height);
+		}
+	}
+
+	@Test
+	public void testImagesEvictedByWeight()
+	{
+		// Four stripes of 1000 bytes each. Each image weighs 464 bytes.
+		WeightedResourceCache cache = new WeightedResourceCache(4000, 4000, 4000, 0);
+
+		for (int i = 0; i < 100; i++)
+		{
+			cache.putImage("http://example.com/" + i + ".png", StubImage.class, new StubImage(10, 10));
+			assertTrue("weight " + cache.getWeight(), cache.getWeight() <= 4000);
+		}
+
+		assertTrue(cache.getEvictionCount() >= 100 - 4 * 2);
+	}
+
+	@Test
+	public void testImageLargerThanStripeNotCached()
+	{
+		WeightedResourceCache cache = new WeightedResourceCache(4000, 4000, 4000, 0);
+
+		cache.putImage("http://example.com/small.png", StubImage.class, new StubImage(1, 1));
+		cache.putImage("http://example.com/large.png", StubImage.class, new StubImage(100, 100));
+
+		assertTrue(cache.getImage("http://example.com/small.png", StubImage.class).isPresent());
+		assertFalse(cache.getImage("http://example.com/large.png", StubImage.class).isPresent());
+		assertEquals(0, cache.getEvictionCount());
+	}
+
+	@Test
+	public void testHitsMissesAndImageType()
+	{
+		WeightedResourceCache cache = new WeightedResourceCache();
+		FSImage img = new StubImage(2, 2);
+
+		cache.putImage("http://example.com/a.png", StubImage.class, img);
+
+		assertSame(img, cache.getImage("http://example.com/a.png", StubImage.class).get());
+		assertFalse(cache.getImage("http://example.com/a.png", FSImage.class).isPresent());
+		assertFalse(cache.getCssStylesheet("http://example.com/a.css").isPresent());
+
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testEntriesExpire() throws InterruptedException
+	{
+		WeightedResourceCache cache = new WeightedResourceCache(4000, 4000, 4000, 1);
+
+		cache.putImage("http://example.com/a.png", StubImage.class, new StubImage(1, 1));
+		Thread.sleep(20);
+
+		assertFalse(cache.getImage("http://example.com/a.png", StubImage.class).isPresent());
+		assertEquals(0, cache.getWeight());
+	}
+}
@@ -8,6 +8,7 @@ import java.util.List;
 
 import com.github.neoflyingsaucer.defaultuseragent.DefaultUserAgent;
 import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelHandler;
 import com.github.neoflyingsaucer.extend.controller.cancel.FSTimedCancelHandler;
 import com.github.neoflyingsaucer.extend.output.DisplayList;
 import com.github.neoflyingsaucer.j2dout.Java2DFontContext;
@@ -21,14 +22,22 @@ public class BufferedImageTest
 {
 	private static BufferedImage renderImage(String html, int pageNo)
 	{
-		return renderToPagedImage(html, pageNo);
+		// Don't let the renderer run for more than ten seconds, in case of endless loops.
+		FSCancelHandler oldCancelHandler = FSCancelController.getThreadCancelHandler();
+		FSCancelController.setThreadCancelHandler(new FSTimedCancelHandler(10000));
+
+		try
+		{
+			return renderToPagedImage(html, pageNo);
+		}
+		finally
+		{
+			FSCancelController.setThreadCancelHandler(oldCancelHandler);
+		}
 	}
 
     private static BufferedImage renderToPagedImage(String doc, int pageNo)
     {
-    	// Don't let the renderer run for more than ten seconds, in case of endless loops.
-    	FSCancelController.setThreadCancelHandler(new FSTimedCancelHandler(10000));
-    	
     	BufferedImage layoutGraphics = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
  
     	Graphics2D g2d2 = layoutGraphics.createGraphics();
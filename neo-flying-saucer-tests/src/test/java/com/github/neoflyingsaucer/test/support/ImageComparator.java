@@ -0,0 +1,146 @@
+package com.github.neoflyingsaucer.test.support;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Compares a rendered image with a baseline, allowing for the small
+ * differences antialiasing makes from one platform or JDK to another.
+ * A pixel differs when one of its channels differs by more than the delta,
+ * and the images match when no more than the given share of their pixels
+ * differ. Images of different sizes never match.
+ */
+public class ImageComparator
+{
+	private static final int DIFFERENT = 0xffff0000;
+	private static final int WITHIN_TOLERANCE = 0xffffc000;
+
+	private final int maxDelta;
+	private final double maxDifferingRatio;
+
+	/**
+	 * @param maxDelta the most any channel of a pixel, from 0 to 255, may
+	 * differ by before the pixel counts as differing.
+	 * @param maxDifferingRatio the share of pixels, from 0 to 1, that may differ.
+	 */
+	public ImageComparator(int maxDelta, double maxDifferingRatio)
+	{
+		this.maxDelta = maxDelta;
+		this.maxDifferingRatio = maxDifferingRatio;
+	}
+
+	public Result compare(BufferedImage actual, BufferedImage expected)
+	{
+		int width = Math.max(actual.getWidth(), expected.getWidth());
+		int height = Math.max(actual.getHeight(), expected.getHeight());
+		BufferedImage diff = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		int differing = 0;
+		int largest = 0;
+
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				if (x >= actual.getWidth() || y >= actual.getHeight() ||
+					x >= expected.getWidth() || y >= expected.getHeight())
+				{
+					diff.setRGB(x, y, DIFFERENT);
+					differing++;
+					continue;
+				}
+
+				int a = actual.getRGB(x, y);
+				int e = expected.getRGB(x, y);
+				int delta = delta(a, e);
+				largest = Math.max(largest, delta);
+
+				if (delta > maxDelta)
+				{
+					diff.setRGB(x, y, DIFFERENT);
+					differing++;
+				}
+				else if (delta != 0)
+				{
+					diff.setRGB(x, y, WITHIN_TOLERANCE);
+				}
+				else
+				{
+					diff.setRGB(x, y, fade(e));
+				}
+			}
+		}
+
+		boolean sameSize = actual.getWidth() == expected.getWidth() && actual.getHeight() == expected.getHeight();
+		return new Result(sameSize && differing <= maxDifferingRatio * width * height, differing, width * height, largest, diff);
+	}
+
+	/**
+	 * The largest difference between any channel of two pixels.
+	 */
+	private static int delta(int a, int e)
+	{
+		int result = 0;
+
+		for (int shift = 0; shift < 32; shift += 8)
+			result = Math.max(result, Math.abs(((a >>> shift) & 0xff) - ((e >>> shift) & 0xff)));
+
+		return result;
+	}
+
+	/**
+	 * A pale grey version of a pixel, so the differences stand out.
+	 */
+	private static int fade(int rgb)
+	{
+		int alpha = rgb >>> 24;
+		int grey = (((rgb >> 16) & 0xff) + ((rgb >> 8) & 0xff) + (rgb & 0xff)) / 3;
+		grey = 255 - (255 - grey) * alpha / 255 / 4;
+		return 0xff000000 | grey << 16 | grey << 8 | grey;
+	}
+
+	public static class Result
+	{
+		private final boolean matches;
+		private final int differingPixels;
+		private final int totalPixels;
+		private final int largestDelta;
+		private final BufferedImage diff;
+
+		private Result(boolean matches, int differingPixels, int totalPixels, int largestDelta, BufferedImage diff)
+		{
+			this.matches = matches;
+			this.differingPixels = differingPixels;
+			this.totalPixels = totalPixels;
+			this.largestDelta = largestDelta;
+			this.diff = diff;
+		}
+
+		public boolean matches()
+		{
+			return matches;
+		}
+
+		public int getDifferingPixels()
+		{
+			return differingPixels;
+		}
+
+		public double getDifferingRatio()
+		{
+			return totalPixels == 0 ? 0 : (double) differingPixels / totalPixels;
+		}
+
+		public int getLargestDelta()
+		{
+			return largestDelta;
+		}
+
+		/**
+		 * The baseline in pale grey, with differing pixels in red and
+		 * pixels which differ within the tolerance in orange.
+		 */
+		public BufferedImage getDiffImage()
+		{
+			return diff;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.github.neoflyingsaucer.test.support;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import com.github.neoflyingsaucer.defaultuseragent.DefaultUserAgent;
+import com.github.neoflyingsaucer.extend.output.DisplayList;
+import com.github.neoflyingsaucer.extend.useragent.UserAgentCallback;
+import com.github.neoflyingsaucer.j2dout.Java2DFontContext;
+import com.github.neoflyingsaucer.j2dout.Java2DFontResolver;
+import com.github.neoflyingsaucer.j2dout.Java2DImageResolver;
+import com.github.neoflyingsaucer.j2dout.Java2DOut;
+import com.github.neoflyingsaucer.j2dout.Java2DReplacedElementResolver;
+import com.github.neoflyingsaucer.renderers.ContinuousRenderer;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
+
+/**
+ * Sets up paged and continuous renderers which lay out with Java2D fonts
+ * and images, at one pixel per CSS pixel, and paints their output into
+ * images with antialiasing on.
+ */
+public class Java2DTestRenderer
+{
+	/**
+	 * A font context measuring text as it is drawn into an image.
+	 */
+	public static Java2DFontContext createFontContext()
+	{
+		BufferedImage img = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+		return new Java2DFontContext(img.createGraphics());
+	}
+
+	/**
+	 * A renderer with its resolvers and font context set, ready for a
+	 * document.
+	 */
+	public static PagedRenderer createRenderer(UserAgentCallback uac)
+	{
+		PagedRenderer r = new PagedRenderer(uac, 72, 1);
+		r.setImageResolver(new Java2DImageResolver());
+		r.setFontContext(createFontContext());
+		r.setFontResolver(new Java2DFontResolver());
+		r.setReplacedElementResolver(new Java2DReplacedElementResolver());
+		return r;
+	}
+
+	/**
+	 * A continuous renderer with its resolvers and font context set, laying
+	 * out to the given width. The height is the viewport height media
+	 * queries see; the layout is as tall as its content.
+	 */
+	public static ContinuousRenderer createContinuousRenderer(UserAgentCallback uac, int width, int height)
+	{
+		ContinuousRenderer r = new ContinuousRenderer(uac, 72f, width, height);
+		r.setImageResolver(new Java2DImageResolver());
+		r.setFontContext(createFontContext());
+		r.setFontResolver(new Java2DFontResolver());
+		r.setReplacedElementResolver(new Java2DReplacedElementResolver());
+		r.setViewportSize(width, 0);
+		return r;
+	}
+
+	public static PagedRenderer prepare(String html)
+	{
+		return prepare(new DefaultUserAgent(), html);
+	}
+
+	public static PagedRenderer prepare(UserAgentCallback uac, String html)
+	{
+		PagedRenderer r = createRenderer(uac);
+		r.setDocumentHtml(html);
+		r.prepare();
+		return r;
+	}
+
+	public static BufferedImage paint(DisplayList dl, int width, int height)
+	{
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2d = img.createGraphics();
+
+		try
+		{
+			new Java2DOut(g2d, RenderingHints.VALUE_ANTIALIAS_ON).render(dl);
+		}
+		finally
+		{
+			g2d.dispose();
+		}
+
+		return img;
+	}
+
+	public static BufferedImage paintPage(PagedRenderer r, int pageNo)
+	{
+		return paint(r.renderToList(pageNo), r.getPageWidth(pageNo), r.getPageHeight(pageNo));
+	}
+}
@@ -8,6 +8,7 @@ import java.io.UnsupportedEncodingException;
 
 import com.github.neoflyingsaucer.defaultuseragent.DefaultUserAgent;
 import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelHandler;
 import com.github.neoflyingsaucer.extend.controller.cancel.FSTimedCancelHandler;
 import com.github.neoflyingsaucer.extend.output.DisplayList;
 import com.github.neoflyingsaucer.pdf2dout.Pdf2FontContext;
@@ -34,8 +35,21 @@ public class PdfTest
 	public void prepare(String html)
 	{
 		// Don't let the renderer run for more than ten seconds, in case of endless loops.
+		FSCancelHandler oldCancelHandler = FSCancelController.getThreadCancelHandler();
 		FSCancelController.setThreadCancelHandler(new FSTimedCancelHandler(10000));
-		
+
+		try
+		{
+			render(html);
+		}
+		finally
+		{
+			FSCancelController.setThreadCancelHandler(oldCancelHandler);
+		}
+	}
+
+	private void render(String html)
+	{
 		PagedRenderer r3 = new PagedRenderer(new DefaultUserAgent(), PDF_DEFAULT_DOTS_PER_POINT * 72f, PDF_DEFAULT_DOTS_PER_PIXEL);
 
     	Pdf2Out out = new Pdf2Out(PDF_DEFAULT_DOTS_PER_POINT, PdfOutMode.TEST_MODE);
@@ -0,0 +1,614 @@
+package com.github.neoflyingsaucer.test.support;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.imageio.ImageIO;
+
+import com.github.neoflyingsaucer.defaultuseragent.DefaultUserAgent;
+import com.github.neoflyingsaucer.defaultuseragent.InlineOnlyUserAgent;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelController;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSCancelHandler;
+import com.github.neoflyingsaucer.extend.controller.cancel.FSTimedCancelHandler;
+import com.github.neoflyingsaucer.extend.output.DisplayList;
+import com.github.neoflyingsaucer.extend.useragent.UserAgentCallback;
+import com.github.neoflyingsaucer.renderers.ContinuousRenderer;
+import com.github.neoflyingsaucer.renderers.PagedRenderer;
+
+/**
+ * Renders every page of each HTML document in a directory on a thread pool
+ * and compares each with a baseline PNG using an {@link ImageComparator}.
+ * A page without a baseline has one written for it. For each page that
+ * doesn't match, the rendered page and a diff image are written to the
+ * output directory, and report.html there lists them with their baselines.
+ *
+ * Documents are read from disk and given to the renderer with their file
+ * URI, so a {@link DefaultUserAgent} loads the stylesheets and images they
+ * link to from disk, while an {@link InlineOnlyUserAgent} loads nothing.
+ * Either way nothing is fetched over the network.
+ *
+ * A zipped snapshot of documents with their continuous baselines, such as
+ * tests/regress/snapshots/regress-output-R8.zip, is run through
+ * {@link #fromSnapshot(File, File, File)}. The PNG baselines in the R8
+ * snapshot have been rendered again by this renderer, as most of the 2009
+ * ones are not even the same size. Its other files are as they were.
+ *
+ * Run as: RegressionRunner cases-dir baselines-dir output-dir
+ * [--update] [--inline-only] [--threads n]
+ * or: RegressionRunner --snapshot snapshot-zip work-dir output-dir
+ * [--update] [--threads n]
+ */
+public class RegressionRunner
+{
+	public enum Status { PASSED, FAILED, NEW, ERROR }
+
+	public interface UserAgentFactory
+	{
+		/**
+		 * Called once per document, so user agents need not be thread safe.
+		 */
+		public UserAgentCallback newUserAgent();
+	}
+
+	public static final UserAgentFactory FILE_USER_AGENT = new UserAgentFactory()
+	{
+		@Override
+		public UserAgentCallback newUserAgent()
+		{
+			return new DefaultUserAgent();
+		}
+	};
+
+	public static final UserAgentFactory INLINE_ONLY_USER_AGENT = new UserAgentFactory()
+	{
+		@Override
+		public UserAgentCallback newUserAgent()
+		{
+			return new InlineOnlyUserAgent();
+		}
+	};
+
+	private static final FilenameFilter CASES = new FilenameFilter()
+	{
+		@Override
+		public boolean accept(File dir, String name)
+		{
+			return name.endsWith(".html") || name.endsWith(".htm") || name.endsWith(".xhtml");
+		}
+	};
+
+	/**
+	 * The width the snapshot baselines were rendered at.
+	 */
+	public static final int SNAPSHOT_WIDTH = 1024;
+
+	/**
+	 * The viewport height media queries see when rendering continuously.
+	 */
+	private static final int CONTINUOUS_VIEWPORT_HEIGHT = 768;
+
+	private final File caseDir;
+	private final File baselineDir;
+	private final File outputDir;
+
+	private ImageComparator comparator = new ImageComparator(32, 0.002);
+	private UserAgentFactory userAgentFactory = FILE_USER_AGENT;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int timeoutMs = 10000;
+	private boolean updateBaselines;
+	private int continuousWidth;
+
+	public RegressionRunner(File caseDir, File baselineDir, File outputDir)
+	{
+		this.caseDir = caseDir;
+		this.baselineDir = baselineDir;
+		this.outputDir = outputDir;
+	}
+
+	/**
+	 * A runner for a zipped snapshot, which holds test.xhtml and its
+	 * baseline test.xhtml.png for each test, and the files the tests share
+	 * under support/. The baselines are continuous renderings
+	 * {@link #SNAPSHOT_WIDTH} pixels wide. The zip is extracted to workDir,
+	 * which is then both the case and the baseline directory.
+	 */
+	public static RegressionRunner fromSnapshot(File zip, File workDir, File outputDir) throws IOException
+	{
+		extract(zip, workDir);
+
+		RegressionRunner runner = new RegressionRunner(workDir, workDir, outputDir);
+		runner.setContinuousWidth(SNAPSHOT_WIDTH);
+		return runner;
+	}
+
+	private static void extract(File zip, File dir) throws IOException
+	{
+		String root = dir.getCanonicalPath() + File.separator;
+		ZipInputStream in = new ZipInputStream(new FileInputStream(zip));
+
+		try
+		{
+			byte[] buf = new byte[8192];
+
+			for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry())
+			{
+				File file = new File(dir, entry.getName());
+
+				if (!file.getCanonicalPath().startsWith(root))
+					throw new IOException("Entry outside the snapshot: " + entry.getName());
+
+				if (entry.isDirectory())
+				{
+					file.mkdirs();
+					continue;
+				}
+
+				file.getParentFile().mkdirs();
+				OutputStream out = new FileOutputStream(file);
+
+				try
+				{
+					int read;
+
+					while ((read = in.read(buf)) != -1)
+						out.write(buf, 0, read);
+				}
+				finally
+				{
+					out.close();
+				}
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	public void setComparator(ImageComparator comparator)
+	{
+		this.comparator = comparator;
+	}
+
+	public void setUserAgentFactory(UserAgentFactory userAgentFactory)
+	{
+		this.userAgentFactory = userAgentFactory;
+	}
+
+	public void setThreads(int threads)
+	{
+		assert(threads > 0);
+		this.threads = threads;
+	}
+
+	/**
+	 * The longest each document may take to render before it is cancelled
+	 * and reported as an error.
+	 */
+	public void setTimeout(int timeoutMs)
+	{
+		this.timeoutMs = timeoutMs;
+	}
+
+	/**
+	 * Whether to write a new baseline for every page, rather than only
+	 * for pages without one.
+	 */
+	public void setUpdateBaselines(boolean updateBaselines)
+	{
+		this.updateBaselines = updateBaselines;
+	}
+
+	/**
+	 * Renders each document as one image this many pixels wide and as tall
+	 * as its content, rather than page by page, or page by page if 0.
+	 * Documents are then loaded through the user agent, and each has one
+	 * baseline named after its whole file name, as in test.xhtml.png.
+	 */
+	public void setContinuousWidth(int continuousWidth)
+	{
+		assert(continuousWidth >= 0);
+		this.continuousWidth = continuousWidth;
+	}
+
+	/**
+	 * Renders and compares every document, then writes the report.
+	 * @return the result for each page, in document name and page order.
+	 */
+	public List<CaseResult> run() throws IOException
+	{
+		File[] cases = caseDir.listFiles(CASES);
+
+		if (cases == null)
+			throw new IOException("Not a directory: " + caseDir);
+
+		Arrays.sort(cases);
+		baselineDir.mkdirs();
+		outputDir.mkdirs();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<CaseResult> results = new ArrayList<CaseResult>();
+
+		try
+		{
+			List<Future<List<CaseResult>>> futures = new ArrayList<Future<List<CaseResult>>>(cases.length);
+
+			for (File file : cases)
+				futures.add(executor.submit(new CaseTask(file)));
+
+			for (Future<List<CaseResult>> future : futures)
+				results.addAll(future.get());
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted", e);
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			else if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			else if (cause instanceof Error)
+				throw (Error) cause;
+
+			throw new RuntimeException(cause);
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		writeReport(results);
+		return results;
+	}
+
+	public File getReportFile()
+	{
+		return new File(outputDir, "report.html");
+	}
+
+	private static String baseName(File file)
+	{
+		String name = file.getName();
+		return name.substring(0, name.lastIndexOf('.'));
+	}
+
+	private static String readFile(File file) throws IOException
+	{
+		Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+
+		try
+		{
+			StringBuilder sb = new StringBuilder((int) file.length());
+			char[] buf = new char[8192];
+			int read;
+
+			while ((read = reader.read(buf)) != -1)
+				sb.append(buf, 0, read);
+
+			return sb.toString();
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * The image as a browser window shows it, on white, which is how the
+	 * snapshot baselines were taken.
+	 */
+	private static BufferedImage onWhite(BufferedImage image)
+	{
+		BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics2D g2d = result.createGraphics();
+
+		try
+		{
+			g2d.setColor(Color.WHITE);
+			g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+			g2d.drawImage(image, 0, 0, null);
+		}
+		finally
+		{
+			g2d.dispose();
+		}
+
+		return result;
+	}
+
+	private class CaseTask implements Callable<List<CaseResult>>
+	{
+		private final File file;
+
+		private CaseTask(File file)
+		{
+			this.file = file;
+		}
+
+		/**
+		 * The name a page's baseline and failure images are written under,
+		 * without the .png.
+		 */
+		private String getImageName(int page)
+		{
+			return continuousWidth > 0 ? file.getName() : baseName(file) + "." + page;
+		}
+
+		@Override
+		public List<CaseResult> call() throws IOException
+		{
+			FSCancelHandler oldCancelHandler = FSCancelController.getThreadCancelHandler();
+			FSCancelController.setThreadCancelHandler(new FSTimedCancelHandler(timeoutMs));
+
+			try
+			{
+				List<BufferedImage> pages;
+
+				try
+				{
+					pages = continuousWidth > 0 ? renderContinuous() : render(readFile(file));
+				}
+				catch (RuntimeException e)
+				{
+					List<CaseResult> result = new ArrayList<CaseResult>(1);
+					result.add(new CaseResult(baseName(file), 0, getImageName(0), Status.ERROR, null, e));
+					return result;
+				}
+
+				List<CaseResult> result = new ArrayList<CaseResult>(pages.size());
+
+				for (int page = 0; page < pages.size(); page++)
+					result.add(compare(page, pages.get(page)));
+
+				return result;
+			}
+			finally
+			{
+				FSCancelController.setThreadCancelHandler(oldCancelHandler);
+			}
+		}
+
+		private List<BufferedImage> render(String html)
+		{
+			PagedRenderer r = Java2DTestRenderer.createRenderer(userAgentFactory.newUserAgent());
+			r.setDocumentUri(file.toURI().toString());
+			r.setDocumentHtml(html);
+			r.prepare();
+
+			List<BufferedImage> pages = new ArrayList<BufferedImage>(r.getPageCount());
+
+			for (int page = 0; page < r.getPageCount(); page++)
+				pages.add(Java2DTestRenderer.paintPage(r, page));
+
+			return pages;
+		}
+
+		private List<BufferedImage> renderContinuous()
+		{
+			ContinuousRenderer r = Java2DTestRenderer.createContinuousRenderer(
+					userAgentFactory.newUserAgent(), continuousWidth, CONTINUOUS_VIEWPORT_HEIGHT);
+			r.setDocumentUri(file.toURI().toString());
+
+			DisplayList dl = r.renderToList();
+
+			List<BufferedImage> pages = new ArrayList<BufferedImage>(1);
+			pages.add(onWhite(Java2DTestRenderer.paint(dl, continuousWidth, Math.max(1, r.getLayoutHeight()))));
+			return pages;
+		}
+
+		private CaseResult compare(int page, BufferedImage actual) throws IOException
+		{
+			String name = getImageName(page);
+			File baseline = new File(baselineDir, name + ".png");
+
+			if (updateBaselines || !baseline.exists())
+			{
+				ImageIO.write(actual, "png", baseline);
+				return new CaseResult(baseName(file), page, name, Status.NEW, null, null);
+			}
+
+			ImageComparator.Result comparison = comparator.compare(actual, ImageIO.read(baseline));
+
+			if (comparison.matches())
+				return new CaseResult(baseName(file), page, name, Status.PASSED, comparison, null);
+
+			ImageIO.write(actual, "png", new File(outputDir, name + ".actual.png"));
+			ImageIO.write(comparison.getDiffImage(), "png", new File(outputDir, name + ".diff.png"));
+			return new CaseResult(baseName(file), page, name, Status.FAILED, comparison, null);
+		}
+	}
+
+	private void writeReport(List<CaseResult> results) throws IOException
+	{
+		int[] counts = new int[Status.values().length];
+
+		for (CaseResult result : results)
+			counts[result.getStatus().ordinal()]++;
+
+		Writer writer = new OutputStreamWriter(new FileOutputStream(getReportFile()), "UTF-8");
+
+		try
+		{
+			PrintWriter out = new PrintWriter(writer);
+			out.println("<!DOCTYPE html>");
+			out.println("<html><head><meta charset=\"UTF-8\"><title>Regression report</title>");
+			out.println("<style>body { font-family: sans-serif; } td { vertical-align: top; padding: 4px; } img { border: 1px solid #999; }</style>");
+			out.println("</head><body><h1>Regression report</h1><p>");
+
+			for (Status status : Status.values())
+				out.print(status + ": " + counts[status.ordinal()] + " ");
+
+			out.println("</p><table>");
+
+			for (CaseResult result : results)
+			{
+				if (result.getStatus() != Status.FAILED && result.getStatus() != Status.ERROR)
+					continue;
+
+				String name = result.getImageName();
+				out.print("<tr><td><b>" + escape(name) + "</b><br>" + result.getStatus());
+
+				if (result.getStatus() == Status.FAILED)
+				{
+					ImageComparator.Result comparison = result.getComparison();
+					out.print("<br>" + comparison.getDifferingPixels() + " pixels differ (" +
+							String.format("%.3f", comparison.getDifferingRatio() * 100) + "%)" +
+							"<br>largest delta " + comparison.getLargestDelta() + "</td>");
+					out.print("<td>Baseline<br><img src=\"" + new File(baselineDir, name + ".png").getAbsoluteFile().toURI() + "\"></td>");
+					out.print("<td>Actual<br><img src=\"" + escape(name) + ".actual.png\"></td>");
+					out.print("<td>Diff<br><img src=\"" + escape(name) + ".diff.png\"></td>");
+				}
+				else
+				{
+					StringWriter trace = new StringWriter();
+					result.getError().printStackTrace(new PrintWriter(trace));
+					out.print("</td><td colspan=\"3\"><pre>" + escape(trace.toString()) + "</pre></td>");
+				}
+
+				out.println("</tr>");
+			}
+
+			out.println("</table></body></html>");
+			out.flush();
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	private static String escape(String s)
+	{
+		return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+
+	public static class CaseResult
+	{
+		private final String name;
+		private final int page;
+		private final String imageName;
+		private final Status status;
+		private final ImageComparator.Result comparison;
+		private final Throwable error;
+
+		private CaseResult(String name, int page, String imageName, Status status, ImageComparator.Result comparison, Throwable error)
+		{
+			this.name = name;
+			this.page = page;
+			this.imageName = imageName;
+			this.status = status;
+			this.comparison = comparison;
+			this.error = error;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public int getPage()
+		{
+			return page;
+		}
+
+		/**
+		 * The name the page's baseline and failure images are written
+		 * under, without the .png.
+		 */
+		public String getImageName()
+		{
+			return imageName;
+		}
+
+		public Status getStatus()
+		{
+			return status;
+		}
+
+		/**
+		 * Null unless the page was compared with a baseline.
+		 */
+		public ImageComparator.Result getComparison()
+		{
+			return comparison;
+		}
+
+		/**
+		 * Null unless the document failed to render.
+		 */
+		public Throwable getError()
+		{
+			return error;
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		boolean snapshot = args.length > 0 && args[0].equals("--snapshot");
+		int first = snapshot ? 1 : 0;
+
+		if (args.length < first + 3)
+		{
+			System.err.println("Usage: RegressionRunner cases-dir baselines-dir output-dir [--update] [--inline-only] [--threads n]");
+			System.err.println("   or: RegressionRunner --snapshot snapshot-zip work-dir output-dir [--update] [--threads n]");
+			System.exit(2);
+		}
+
+		File[] dirs = { new File(args[first]), new File(args[first + 1]), new File(args[first + 2]) };
+		RegressionRunner runner = snapshot ?
+				fromSnapshot(dirs[0], dirs[1], dirs[2]) :
+				new RegressionRunner(dirs[0], dirs[1], dirs[2]);
+
+		for (int i = first + 3; i < args.length; i++)
+		{
+			if (args[i].equals("--update"))
+				runner.setUpdateBaselines(true);
+			else if (args[i].equals("--inline-only"))
+				runner.setUserAgentFactory(INLINE_ONLY_USER_AGENT);
+			else if (args[i].equals("--threads") && i + 1 < args.length)
+				runner.setThreads(Integer.parseInt(args[++i]));
+		}
+
+		int failures = 0;
+
+		for (CaseResult result : runner.run())
+		{
+			if (result.getStatus() == Status.FAILED || result.getStatus() == Status.ERROR)
+			{
+				System.out.println(result.getStatus() + " " + result.getImageName());
+				failures++;
+			}
+		}
+
+		System.out.println(failures + " failures, report in " + runner.getReportFile());
+		System.exit(failures == 0 ? 0 : 1);
+	}
+}